@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstChildRelation implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstClafer childRelation;
 
     AstChildRelation(AstClafer childRelation) {
@@ -6,6 +6,8 @@ package org.clafer.ast;
  */
 public class AstConcat implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr left, right;
 
     AstConcat(AstSetExpr left, AstSetExpr right) {
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstConnected implements AstBoolExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr relation;
     private final AstSetExpr nodes;
     private final boolean directed;
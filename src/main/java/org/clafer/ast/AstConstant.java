@@ -10,6 +10,8 @@ import org.clafer.common.Check;
  */
 public class AstConstant implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final ProductType type;
     private final int[][] value;
 
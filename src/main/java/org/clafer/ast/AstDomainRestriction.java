@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstDomainRestriction implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr domain, relation;
 
     AstDomainRestriction(AstSetExpr domain, AstSetExpr relation) {
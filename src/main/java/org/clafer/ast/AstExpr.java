@@ -1,11 +1,13 @@
 package org.clafer.ast;
 
+import java.io.Serializable;
+
 /**
  * An expression in the AST language. Expressions are immutable.
  *
  * @author jimmy
  */
-public interface AstExpr {
+public interface AstExpr extends Serializable {
 
     /**
      * Dynamic dispatch on the visitor.
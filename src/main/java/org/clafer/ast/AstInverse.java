@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstInverse implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr relation;
 
     AstInverse(AstSetExpr relation) {
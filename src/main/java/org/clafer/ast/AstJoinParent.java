@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstJoinParent implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr children;
 
     public AstJoinParent(AstSetExpr children) {
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstLength implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr string;
 
     public AstLength(AstSetExpr string) {
@@ -10,6 +10,8 @@ import org.clafer.common.Check;
  */
 public class AstLocal implements AstSetExpr, AstVar {
 
+    private static final long serialVersionUID = 1L;
+
     private final String name;
 
     AstLocal(String name) {
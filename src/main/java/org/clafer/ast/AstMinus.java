@@ -6,6 +6,8 @@ package org.clafer.ast;
  */
 public class AstMinus implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr expr;
 
     AstMinus(AstSetExpr expr) {
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstMod implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr dividend, divisor;
 
     AstMod(AstSetExpr dividend, AstSetExpr divisor) {
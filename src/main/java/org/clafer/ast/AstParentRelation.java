@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstParentRelation implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstConcreteClafer parentRelation;
 
     AstParentRelation(AstConcreteClafer parentRelation) {
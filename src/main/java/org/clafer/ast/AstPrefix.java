@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstPrefix implements AstBoolExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr prefix;
     private final AstSetExpr word;
 
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstRefRelation implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstRef refRelation;
 
     public AstRefRelation(AstRef refRelation) {
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstSetTest implements AstBoolExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr left;
     private final Op op;
     private final AstSetExpr right;
@@ -9,6 +9,8 @@ import org.clafer.common.Check;
  */
 public class AstStringConstant implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final String value;
 
     /**
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstSuffix implements AstBoolExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr suffix;
     private final AstSetExpr word;
 
@@ -8,6 +8,8 @@ import org.clafer.common.Check;
  */
 public class AstTransitiveClosure implements AstSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final AstSetExpr relation;
     private final boolean reflexive;
 
@@ -1,5 +1,6 @@
 package org.clafer.ast;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
@@ -11,7 +12,9 @@ import org.clafer.common.Check;
  *
  * @author jimmy
  */
-public class ProductType implements Iterable<AstClafer> {
+public class ProductType implements Iterable<AstClafer>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final AstClafer[] types;
 
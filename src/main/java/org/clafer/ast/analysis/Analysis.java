@@ -1,5 +1,6 @@
 package org.clafer.ast.analysis;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,7 +33,9 @@ import org.clafer.scope.Scope;
  *
  * @author jimmy
  */
-public class Analysis {
+public class Analysis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final AstModel model;
     private Scope scope;
@@ -1,5 +1,6 @@
 package org.clafer.ast.analysis;
 
+import java.io.Serializable;
 import java.util.Map;
 import org.clafer.ast.AstAbstractClafer;
 import org.clafer.ast.AstClafer;
@@ -9,7 +10,9 @@ import org.clafer.common.Check;
  *
  * @author jimmy
  */
-public class Offsets {
+public class Offsets implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final AstAbstractClafer sup;
     private final Map<AstClafer, Integer> offsets;
@@ -1,5 +1,6 @@
 package org.clafer.ast.analysis;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -12,7 +13,9 @@ import org.clafer.ast.ProductType;
  *
  * @author jimmy
  */
-public class Type implements Iterable<ProductType> {
+public class Type implements Iterable<ProductType>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Set<ProductType> unionType;
     private final ProductType commonSupertype;
@@ -192,7 +192,6 @@ import static org.clafer.ir.Irs.ternary;
 import static org.clafer.ir.Irs.transitiveClosure;
 import static org.clafer.ir.Irs.union;
 import static org.clafer.ir.Irs.unionDisjoint;
-import static org.clafer.ir.Irs.unreachable;
 import static org.clafer.ir.Irs.xor;
 import org.clafer.ir.Product;
 import org.clafer.ir.Sum;
@@ -381,9 +380,12 @@ public class AstCompiler {
             AstClafer clafer = constraint.getContext();
             AstBoolExpr expr = analysis.getExpr(constraint);
             int scope = getScope(clafer);
+            // The subexpressions independent of this are grounded once and
+            // shared between every instance of the context.
+            Map<AstExpr, IrExpr> ground = new HashMap<>();
             if (analysis.isHard(constraint)) {
                 for (int j = 0; j < scope; j++) {
-                    ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, j);
+                    ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, j, ground);
                     IrBoolExpr thisConstraint = expressionCompiler.compile(expr);
                     IrBoolExpr conditionalConstraint = isConditional(expr)
                             ? implies(memberships.get(clafer)[j], thisConstraint)
@@ -394,7 +396,7 @@ public class AstCompiler {
                 IrBoolVar softVar = bool(constraint.toString());
                 softVars.put(constraint, softVar);
                 for (int j = 0; j < scope; j++) {
-                    ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, j);
+                    ExpressionCompiler expressionCompiler = new ExpressionCompiler(clafer, j, ground);
                     IrBoolExpr thisConstraint = expressionCompiler.compile(expr);
                     IrBoolExpr conditionalConstraint = isConditional(expr)
                             ? implies(memberships.get(clafer)[j], thisConstraint)
@@ -448,22 +450,20 @@ public class AstCompiler {
                         }
                     }
                 }
+                /*
+                 * Symmetry breaking. The lower indexed element appears on top
+                 * of the higher indexed element of the same Clafer. Each
+                 * concrete Clafer is a group identified by its offset, which
+                 * no node outside the component uses.
+                 */
+                int[] groups = Util.fromTo(0, edges.length);
                 for (AstClafer clafer : component) {
                     if (clafer instanceof AstConcreteClafer) {
-                        IrBoolExpr[] members = memberships.get(clafer);
                         int offset = getOffset(unionType, clafer);
-                        for (int i = 0; i < members.length; i++) {
-                            for (int j = i + 1; j < members.length; j++) {
-                                /*
-                                 * Symmetry breaking. The lower indexed element
-                                 * appears on top of the higher indexed element.
-                                 */
-                                module.addConstraint(unreachable(edges, i + offset, j + offset));
-                            }
-                        }
+                        Arrays.fill(groups, offset, offset + memberships.get(clafer).length, offset);
                     }
                 }
-                module.addConstraint(acyclic(edges));
+                module.addConstraint(acyclic(edges, groups));
             }
         }
 
@@ -1130,14 +1130,43 @@ public class AstCompiler {
         private final AstClafer thisType;
         private final int thisId;
         private final Map<AstLocal, IrIntExpr> locals = new HashMap<>();
+        private final Map<AstExpr, IrExpr> ground;
+        /**
+         * Whether the expression currently being compiled depends on this or
+         * on a local.
+         */
+        private boolean dependent = false;
 
         private ExpressionCompiler(AstClafer thisType, int thisId) {
+            this(thisType, thisId, new HashMap<>());
+        }
+
+        /**
+         * @param thisType the type of this
+         * @param thisId the id of this
+         * @param ground the compiled subexpressions that do not depend on this
+         * nor any local, shared with the compilers of the other ids of the
+         * same constraint
+         */
+        private ExpressionCompiler(AstClafer thisType, int thisId, Map<AstExpr, IrExpr> ground) {
             this.thisType = thisType;
             this.thisId = thisId;
+            this.ground = ground;
         }
 
         private IrExpr compile(AstExpr expr) {
-            return expr.accept(this, null);
+            IrExpr compiled = ground.get(expr);
+            if (compiled != null) {
+                return compiled;
+            }
+            boolean outerDependent = dependent;
+            dependent = false;
+            compiled = expr.accept(this, null);
+            if (!dependent) {
+                ground.put(expr, compiled);
+            }
+            dependent |= outerDependent;
+            return compiled;
         }
 
         private IrExpr[] compile(AstExpr[] exprs) {
@@ -1227,6 +1256,7 @@ public class AstCompiler {
 
         @Override
         public IrExpr visit(AstThis ast, Void a) {
+            dependent = true;
             return constant(thisId);
         }
 
@@ -1605,6 +1635,7 @@ public class AstCompiler {
                 case Sub:
                     return sub(operands);
                 case Mul:
+                    dependent = true;
                     IrBoolVar member = memberships.get(thisType)[thisId];
                     Domain mulRange = getMulRange();
                     IrIntExpr product = operands[0];
@@ -1618,6 +1649,7 @@ public class AstCompiler {
                     }
                     return product;
                 case Div:
+                    dependent = true;
                     member = memberships.get(thisType)[thisId];
                     IrIntExpr quotient = operands[0];
                     for (int i = 1; i < operands.length; i++) {
@@ -1849,6 +1881,7 @@ public class AstCompiler {
 
         @Override
         public IrExpr visit(AstLocal ast, Void a) {
+            dependent = true;
             return locals.get(ast);
         }
 
@@ -1,5 +1,6 @@
 package org.clafer.ast.compiler;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.Map;
 import org.clafer.assertion.Assertion;
@@ -19,7 +20,9 @@ import org.clafer.objective.Objective;
  *
  * @author jimmy
  */
-public class AstSolutionMap {
+public class AstSolutionMap implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final AstModel model;
     private final Map<AstClafer, IrBoolVar[]> memberVars;
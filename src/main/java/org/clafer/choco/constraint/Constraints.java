@@ -38,6 +38,7 @@ import org.clafer.choco.constraint.propagator.PropContainsImpliesEqualCard2;
 import org.clafer.choco.constraint.propagator.PropContinuousUnion;
 import org.clafer.choco.constraint.propagator.PropElement;
 import org.clafer.choco.constraint.propagator.PropEqualXY_Z;
+import org.clafer.choco.constraint.propagator.PropHammingDistance;
 import org.clafer.choco.constraint.propagator.PropIntChannel;
 import org.clafer.choco.constraint.propagator.PropIntMemberNonemptySet;
 import org.clafer.choco.constraint.propagator.PropIntMemberSetCard;
@@ -45,13 +46,16 @@ import org.clafer.choco.constraint.propagator.PropIntMemberSetDefault;
 import org.clafer.choco.constraint.propagator.PropIntNotMemberSetCard;
 import org.clafer.choco.constraint.propagator.PropJoinFunction;
 import org.clafer.choco.constraint.propagator.PropJoinFunctionCard;
+import org.clafer.choco.constraint.propagator.PropJoinFunctionWatched;
 import org.clafer.choco.constraint.propagator.PropJoinInjectiveRelationCard;
 import org.clafer.choco.constraint.propagator.PropJoinRelation;
+import org.clafer.choco.constraint.propagator.PropJoinRelationWatched;
 import org.clafer.choco.constraint.propagator.PropLength;
 import org.clafer.choco.constraint.propagator.PropLexChainChannel;
 import org.clafer.choco.constraint.propagator.PropLone;
 import org.clafer.choco.constraint.propagator.PropMask;
 import org.clafer.choco.constraint.propagator.PropMaskCard;
+import org.clafer.choco.constraint.propagator.PropNotDominated;
 import org.clafer.choco.constraint.propagator.PropNotEqualXY_Z;
 import org.clafer.choco.constraint.propagator.PropOne;
 import org.clafer.choco.constraint.propagator.PropOr;
@@ -218,6 +222,45 @@ public class Constraints {
         return new OrConstraint(constraints);
     }
 
+    /**
+     * A constraint enforcing that no point in the archive is at least as good
+     * as the scores in every objective. More points can be added to the
+     * archive during search through the propagator.
+     *
+     * @param scores the scores
+     * @param maximizes whether each score is maximized or minimized
+     * @param archive the points
+     * @return constraint that the scores are not weakly dominated by the
+     * archive
+     * @see PropNotDominated#addPoint(int[])
+     */
+    public static Constraint notDominated(IntVar[] scores, boolean[] maximizes, int[]... archive) {
+        PropNotDominated propagator = new PropNotDominated(scores, maximizes);
+        for (int[] point : archive) {
+            propagator.addPoint(point);
+        }
+        return new Constraint("notDominated", propagator);
+    }
+
+    /**
+     * A constraint enforcing that the variables differ from every sample in at
+     * least {@code distance} positions.
+     *
+     * @param vars the variables
+     * @param distance the fewest positions the variables differ from every
+     * sample
+     * @param samples the samples
+     * @return constraint that the variables are far from every sample
+     * @see PropHammingDistance#addSample(int[])
+     */
+    public static Constraint hammingDistance(IntVar[] vars, int distance, int[]... samples) {
+        PropHammingDistance propagator = new PropHammingDistance(vars, distance);
+        for (int[] sample : samples) {
+            propagator.addSample(sample);
+        }
+        return new Constraint("hammingDistance", propagator);
+    }
+
     /**
      * A constraint enforcing
      * {@code antecedent => consequent && !antecedent => alternative}.
@@ -505,7 +548,24 @@ public class Constraints {
      * @return constraint enforcing no cycles
      */
     public static Constraint acyclic(IntVar... edges) {
-        return new Constraint("acyclic", new PropAcyclic(edges));
+        return acyclic(edges, Util.fromTo(0, edges.length));
+    }
+
+    /**
+     * A constraint enforcing no cycles and no path from node i to node j if
+     * {@code i < j} and {@code groups[i] = groups[j]}. {@code edges[i] = j}
+     * implies that there is a directed edge from node i to node j.
+     * {@code edges[i] = edges.length} implies that there are no direct edges
+     * from node i. Equivalent to an acyclic constraint and one unreachable
+     * constraint for every such pair, but posts a single propagator.
+     *
+     * @param edges the edges of the graph
+     * @param groups the group of each node
+     * @return constraint enforcing no cycles and no paths upwards within a
+     * group
+     */
+    public static Constraint acyclic(IntVar[] edges, int[] groups) {
+        return new Constraint("acyclic", new PropAcyclic(edges, groups));
     }
 
     public static Constraint connected(SetVar nodes, SetVar[] edges, boolean directed) {
@@ -740,7 +800,18 @@ public class Constraints {
 
     @Deprecated // Every join relation in Clafer is injective.
     public static Constraint joinRelation(SetVar take, SetVar[] children, SetVar to) {
-        return new Constraint("joinRelation", new PropJoinRelation(take, children, to));
+        return joinRelation(take, children, to, false);
+    }
+
+    @Deprecated // Every join relation in Clafer is injective.
+    public static Constraint joinRelation(SetVar take, SetVar[] children, SetVar to, boolean watchMates) {
+        return new Constraint("joinRelation", joinRelationPropagator(take, children, to, watchMates));
+    }
+
+    private static Propagator<SetVar> joinRelationPropagator(SetVar take, SetVar[] children, SetVar to, boolean watchMates) {
+        return watchMates
+                ? new PropJoinRelationWatched(take, children, to)
+                : new PropJoinRelation(take, children, to);
     }
 
     /**
@@ -761,12 +832,34 @@ public class Constraints {
      * @see PropJoinFunction
      */
     public static Constraint joinInjectiveRelation(SetVar take, IntVar takeCard, SetVar[] children, IntVar[] childrenCards, SetVar to, IntVar toCard) {
+        return joinInjectiveRelation(take, takeCard, children, childrenCards, to, toCard, false);
+    }
+
+    /**
+     * A constraint enforcing {@code take.children = to} where children is an
+     * injective relation. Same as
+     * {@link #joinInjectiveRelation(SetVar, IntVar, SetVar[], IntVar[], SetVar, IntVar)}
+     * except the values of {@code to} can watch their supports.
+     *
+     * @param take the left-hand side set
+     * @param takeCard the cardinality of {@code take}
+     * @param children the set representation of a injective binary relation
+     * @param childrenCards the cardinalities of {@code children}
+     * @param to the right-hand side set
+     * @param toCard the cardinality of {@code to}
+     * @param watchMates if true then every value of {@code to} watches the
+     * children that can contain it, else the children are searched again on
+     * every event
+     * @return constraint {@code take.children = to}
+     * @see PropJoinRelationWatched
+     */
+    public static Constraint joinInjectiveRelation(SetVar take, IntVar takeCard, SetVar[] children, IntVar[] childrenCards, SetVar to, IntVar toCard, boolean watchMates) {
         if (children.length != childrenCards.length) {
             throw new IllegalArgumentException();
         }
 
         return new Constraint("joinInjectiveRelation",
-                new PropJoinRelation(take, children, to),
+                joinRelationPropagator(take, children, to, watchMates),
                 new PropJoinInjectiveRelationCard(take, takeCard, childrenCards, toCard));
     }
 
@@ -809,11 +902,38 @@ public class Constraints {
      * @see PropJoinFunction
      */
     public static Constraint joinFunction(SetVar take, IntVar takeCard, IntVar[] refs, SetVar to, IntVar toCard, Integer globalCardinality) {
+        return joinFunction(take, takeCard, refs, to, toCard, globalCardinality, false);
+    }
+
+    /**
+     * A constraint enforcing {@code take.refs = to} where refs is a function
+     * and {@code for all k in take, |{i | refs[i] = k}| ≤ globalCardinality}.
+     * Same as
+     * {@link #joinFunction(SetVar, IntVar, IntVar[], SetVar, IntVar, Integer)}
+     * except the values of {@code to} can watch their supports.
+     *
+     * @param take the left-hand side set
+     * @param takeCard the cardinality of {@code take}
+     * @param refs the integer representation of a binary function
+     * @param to the right-hand side set
+     * @param toCard the cardinality of {@code to}
+     * @param globalCardinality the global cardinality of the {@code refs}
+     * function for the domain of {@code take}
+     * @param watchMates if true then every value of {@code to} watches the
+     * refs that can point to it, else the refs are searched again on every
+     * event
+     * @return constraint {@code take.refs = to} and
+     * {@code for all k in take, |{i | refs[i] = k}| ≤ globalCardinality}
+     * @see PropJoinFunctionWatched
+     */
+    public static Constraint joinFunction(SetVar take, IntVar takeCard, IntVar[] refs, SetVar to, IntVar toCard, Integer globalCardinality, boolean watchMates) {
         if (globalCardinality != null && globalCardinality <= 0) {
             throw new IllegalArgumentException();
         }
         return new Constraint("joinFunction",
-                new PropJoinFunction(take, refs, to),
+                watchMates
+                        ? new PropJoinFunctionWatched(take, refs, to)
+                        : new PropJoinFunction(take, refs, to),
                 new PropJoinFunctionCard(take, takeCard, refs, toCard, globalCardinality));
     }
 
@@ -1,5 +1,6 @@
 package org.clafer.choco.constraint.propagator;
 
+import gnu.trove.map.hash.TIntIntHashMap;
 import java.util.Arrays;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
@@ -8,15 +9,43 @@ import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.events.IntEventType;
 import org.chocosolver.util.ESat;
+import org.clafer.common.Util;
 
 /**
- * Enforce no cycles.
+ * Enforce no cycles, and no path from a node to a higher numbered node of the
+ * same group.
+ *
+ * The instantiated edges form a forest. A backtrackable union-find with path
+ * compression maps every node to the root of its tree, the only node of the
+ * tree whose edge is not yet decided. The root of every tree also keeps a
+ * backtrackable list of the lowest numbered node of each group in its tree, so
+ * the state is linear in the number of nodes. The root cannot point to a node
+ * in its own tree, nor to a node with an ancestor that comes after a node of
+ * the same group in its tree.
  *
  * @author jimmy
  */
 public class PropAcyclic extends Propagator<IntVar> {
 
     private final IStateInt[] leaders;
+    // The group of each node, or -1 if the node is the only one in its group.
+    private final int[] groups;
+    private final int groupCount;
+    // The head of the list of the lowest numbered nodes of each group in the
+    // tree of a root, or -1.
+    private final IStateInt[] firstMins;
+    // The next node in the list, or -1.
+    private final IStateInt[] nextMins;
+    // Scratch space. The lowest numbered node of each group in the tree being
+    // checked, or -1.
+    private final int[] mins;
+    private final int[] touched;
+    // Scratch space. Whether a node reaches a node that comes after a node of
+    // the same group, for the nodes visited since the epoch started.
+    private final int[] visitedEpochs;
+    private final boolean[] violations;
+    private final int[] path;
+    private int epoch = 0;
 
     /**
      * Enforce no cycles. {@code edges[i] = j} implies that there is a directed
@@ -26,11 +55,57 @@ public class PropAcyclic extends Propagator<IntVar> {
      * @param edges the edges
      */
     public PropAcyclic(IntVar[] edges) {
+        this(edges, Util.fromTo(0, edges.length));
+    }
+
+    /**
+     * Enforce no cycles and no path from node i to node j if {@code i < j} and
+     * {@code groups[i] = groups[j]}. {@code edges[i] = j} implies that there
+     * is a directed edge from node i to node j.
+     * {@code edges[i] = edges.length} implies that there are no direct edges
+     * from node i.
+     *
+     * @param edges the edges
+     * @param groups the group of each node
+     */
+    public PropAcyclic(IntVar[] edges, int[] groups) {
         super(edges, PropagatorPriority.TERNARY, true);
+        if (edges.length != groups.length) {
+            throw new IllegalArgumentException();
+        }
         this.leaders = new IStateInt[edges.length];
         for (int i = 0; i < this.leaders.length; i++) {
             this.leaders[i] = model.getEnvironment().makeInt(i);
         }
+        TIntIntHashMap sizes = new TIntIntHashMap(groups.length);
+        for (int group : groups) {
+            sizes.adjustOrPutValue(group, 1, 1);
+        }
+        TIntIntHashMap ids = new TIntIntHashMap(groups.length);
+        this.groups = new int[groups.length];
+        for (int i = 0; i < groups.length; i++) {
+            if (sizes.get(groups[i]) > 1) {
+                if (!ids.containsKey(groups[i])) {
+                    ids.put(groups[i], ids.size());
+                }
+                this.groups[i] = ids.get(groups[i]);
+            } else {
+                this.groups[i] = -1;
+            }
+        }
+        this.groupCount = ids.size();
+        this.firstMins = new IStateInt[edges.length];
+        this.nextMins = new IStateInt[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            this.firstMins[i] = model.getEnvironment().makeInt(this.groups[i] == -1 ? -1 : i);
+            this.nextMins[i] = model.getEnvironment().makeInt(-1);
+        }
+        this.mins = new int[groupCount];
+        Arrays.fill(mins, -1);
+        this.touched = new int[groupCount];
+        this.visitedEpochs = new int[edges.length];
+        this.violations = new boolean[edges.length];
+        this.path = new int[edges.length + 1];
     }
 
     @Override
@@ -39,19 +114,49 @@ public class PropAcyclic extends Propagator<IntVar> {
     }
 
     private int getLeader(int node) {
-        int leader = leaders[node].get();
-        if (leader == node) {
-            return node;
+        int leader = node;
+        while (leaders[leader].get() != leader) {
+            leader = leaders[leader].get();
         }
-        // Find the real leader.
-        int realLeader = getLeader(leader);
         // Remember the real leader.
-        if (realLeader != leader) {
-            leaders[node].set(realLeader);
+        while (node != leader) {
+            int next = leaders[node].get();
+            if (next != leader) {
+                leaders[node].set(leader);
+            }
+            node = next;
         }
         return leader;
     }
 
+    private static void set(IStateInt state, int value) {
+        if (state.get() != value) {
+            state.set(value);
+        }
+    }
+
+    /**
+     * Load the lowest numbered node of each group in the tree of the root into
+     * the scratch space.
+     *
+     * @return the number of groups in the tree
+     */
+    private int loadMins(int root) {
+        int count = 0;
+        for (int min = firstMins[root].get(); min != -1; min = nextMins[min].get()) {
+            mins[groups[min]] = min;
+            touched[count++] = groups[min];
+        }
+        epoch++;
+        return count;
+    }
+
+    private void clearMins(int count) {
+        for (int i = 0; i < count; i++) {
+            mins[touched[i]] = -1;
+        }
+    }
+
     @Override
     public void propagate(int evtmask) throws ContradictionException {
         for (int i = 0; i < vars.length; i++) {
@@ -61,13 +166,23 @@ public class PropAcyclic extends Propagator<IntVar> {
         }
         for (int i = 0; i < vars.length; i++) {
             if (vars[i].isInstantiated()) {
-                follow(i, vars[i].getValue());
+                follow(i);
+            }
+        }
+        for (int i = 0; i < vars.length; i++) {
+            if (!vars[i].isInstantiated()) {
+                filter(i);
             }
         }
     }
 
-    private void follow(int follower, int leader) throws ContradictionException {
+    private void follow(int follower) throws ContradictionException {
         assert vars[follower].isInstantiated();
+        if (leaders[follower].get() != follower) {
+            // Already in the tree of its leader.
+            return;
+        }
+        int leader = vars[follower].getValue();
         if (leader == vars.length) {
             return;
         }
@@ -75,46 +190,134 @@ public class PropAcyclic extends Propagator<IntVar> {
         if (realLeader == follower) {
             fails();
         }
-        boolean changed = false;
-        for (int i = 0; i < vars.length; i++) {
-            if (getLeader(i) == follower) {
-                assert vars[i].isInstantiated();
-                leaders[i].set(realLeader);
-                changed |= vars[realLeader].removeValue(i, this);
-            }
+        int count = loadMins(follower);
+        boolean violates = count > 0 && violates(leader);
+        clearMins(count);
+        if (violates) {
+            fails();
         }
         leaders[follower].set(realLeader);
-        if (changed && vars[realLeader].isInstantiated()) {
-            follow(realLeader, vars[realLeader].getValue());
+        mergeMins(follower, realLeader);
+        if (!vars[realLeader].isInstantiated()) {
+            filter(realLeader);
         }
     }
 
+    /**
+     * Merge the lowest numbered nodes of each group in the tree of the
+     * follower into the list of the leader.
+     */
+    private void mergeMins(int follower, int leader) {
+        if (firstMins[follower].get() == -1) {
+            return;
+        }
+        int count = loadMins(leader);
+        for (int min = firstMins[follower].get(); min != -1; min = nextMins[min].get()) {
+            int group = groups[min];
+            if (mins[group] == -1) {
+                touched[count++] = group;
+                mins[group] = min;
+            } else if (min < mins[group]) {
+                mins[group] = min;
+            }
+        }
+        int head = -1;
+        for (int i = 0; i < count; i++) {
+            int min = mins[touched[i]];
+            set(nextMins[min], head);
+            head = min;
+        }
+        set(firstMins[leader], head);
+        clearMins(count);
+    }
+
+    /**
+     * Remove the edges from the root that would close a cycle or make a node
+     * reach a higher numbered node of its group.
+     */
+    private void filter(int root) throws ContradictionException {
+        IntVar var = vars[root];
+        int count = loadMins(root);
+        try {
+            int ub = var.getUB();
+            for (int i = var.getLB(); i <= ub && i < vars.length; i = var.nextValue(i)) {
+                if (getLeader(i) == root || (count > 0 && violates(i))) {
+                    var.removeValue(i, this);
+                }
+            }
+        } finally {
+            clearMins(count);
+        }
+        if (var.isInstantiated()) {
+            follow(root);
+        }
+    }
+
+    /**
+     * Checks if the node or one of its ancestors comes after the lowest
+     * numbered node of its group loaded in the scratch space. Every node
+     * visited remembers the answer until the next load, so checking every
+     * value in a domain visits each node at most once.
+     */
+    private boolean violates(int node) {
+        int length = 0;
+        int cur = node;
+        boolean violates;
+        while (true) {
+            if (visitedEpochs[cur] == epoch) {
+                violates = violations[cur];
+                break;
+            }
+            path[length++] = cur;
+            int group = groups[cur];
+            if (group != -1 && mins[group] != -1 && mins[group] < cur) {
+                violates = true;
+                break;
+            }
+            if (!vars[cur].isInstantiated()) {
+                violates = false;
+                break;
+            }
+            cur = vars[cur].getValue();
+            if (cur < 0 || cur >= vars.length) {
+                violates = cur < 0;
+                break;
+            }
+            if (length == path.length) {
+                // Cycle
+                violates = true;
+                break;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            visitedEpochs[path[i]] = epoch;
+            violations[path[i]] = violates;
+        }
+        return violates;
+    }
+
     @Override
     public void propagate(int idxVarInProp, int mask) throws ContradictionException {
-        follow(idxVarInProp, vars[idxVarInProp].getValue());
+        follow(idxVarInProp);
     }
 
     @Override
     public ESat isEntailed() {
-        // Hopefully escape analysis will make these boolean arrays cheap.
-        boolean[] visited = new boolean[vars.length];
-        boolean[] localVisited = new boolean[vars.length];
         boolean allInstantiated = true;
         for (int i = 0; i < vars.length; i++) {
-            if (visited[i]) {
-                continue;
-            }
             if (vars[i].isInstantiated()) {
-                Arrays.fill(localVisited, false);
                 int cur = i;
+                int steps = 0;
                 do {
-                    if (localVisited[cur]) {
+                    cur = vars[cur].getValue();
+                    if (cur < 0 || cur > vars.length) {
+                        return ESat.FALSE;
+                    }
+                    if (cur == i || steps++ == vars.length) {
                         // Cycle
                         return ESat.FALSE;
                     }
-                    visited[cur] = localVisited[cur] = true;
-                    cur = vars[cur].getValue();
-                    if (cur < 0 || cur > vars.length) {
+                    if (cur < vars.length && groups[i] != -1 && groups[i] == groups[cur] && i < cur) {
                         return ESat.FALSE;
                     }
                 } while (cur != vars.length && vars[cur].isInstantiated());
@@ -127,6 +330,6 @@ public class PropAcyclic extends Propagator<IntVar> {
 
     @Override
     public String toString() {
-        return "acyclic(" + Arrays.toString(vars) + ")";
+        return "acyclic(" + Arrays.toString(vars) + ", " + Arrays.toString(groups) + ")";
     }
 }
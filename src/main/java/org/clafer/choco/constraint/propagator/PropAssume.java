@@ -0,0 +1,102 @@
+package org.clafer.choco.constraint.propagator;
+
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.util.ESat;
+import org.clafer.common.Util;
+
+/**
+ * The assumed variables are within their assumed bounds. The other variables
+ * are unconstrained.
+ * <p>
+ * The assumptions are changed in place between searches so the same
+ * propagator is posted once and reused, rather than posting and unposting a
+ * constraint for every assumption. After changing the assumptions, reset the
+ * solver and schedule this propagator to run again on the next backtrack,
+ * otherwise the new assumptions are not enforced. The propagator does not react
+ * to any events since the bounds are enforced at the root of the search.
+ *
+ * @author jimmy
+ */
+public class PropAssume extends Propagator<IntVar> {
+
+    private final int[] low;
+    private final int[] high;
+    private final boolean[] isAssumed;
+    // The indices of the assumed variables.
+    private final int[] assumed;
+    private int size = 0;
+
+    public PropAssume(IntVar[] vars) {
+        super(vars, PropagatorPriority.UNARY, false);
+        this.low = new int[vars.length];
+        this.high = new int[vars.length];
+        this.isAssumed = new boolean[vars.length];
+        this.assumed = new int[vars.length];
+    }
+
+    /**
+     * Assume the variable is within the bounds, on top of any earlier
+     * assumption on the same variable.
+     *
+     * @param index the index of the variable
+     * @param lb the lowest assumed value
+     * @param ub the highest assumed value
+     */
+    public void assume(int index, int lb, int ub) {
+        if (isAssumed[index]) {
+            low[index] = Math.max(low[index], lb);
+            high[index] = Math.min(high[index], ub);
+        } else {
+            low[index] = lb;
+            high[index] = ub;
+            isAssumed[index] = true;
+            assumed[size++] = index;
+        }
+    }
+
+    /**
+     * Retract every assumption.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            isAssumed[assumed[i]] = false;
+        }
+        size = 0;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return IntEventType.VOID.getMask();
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        for (int i = 0; i < size; i++) {
+            int index = assumed[i];
+            vars[index].updateBounds(low[index], high[index], this);
+        }
+    }
+
+    @Override
+    public ESat isEntailed() {
+        boolean entailed = true;
+        for (int i = 0; i < size; i++) {
+            int index = assumed[i];
+            IntVar var = vars[index];
+            if (var.getUB() < low[index] || var.getLB() > high[index]) {
+                return ESat.FALSE;
+            }
+            entailed &= var.getLB() >= low[index] && var.getUB() <= high[index];
+        }
+        return entailed ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "assume(" + Util.commaSeparate(vars) + ")";
+    }
+}
@@ -1,24 +1,23 @@
 package org.clafer.choco.constraint.propagator;
 
-import gnu.trove.iterator.TIntIterator;
-import gnu.trove.list.TIntList;
-import gnu.trove.list.array.TIntArrayList;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-import gnu.trove.set.TIntSet;
-import gnu.trove.set.hash.TIntHashSet;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
+import org.chocosolver.memory.IStateBitSet;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.constraints.PropagatorPriority;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.delta.ISetDeltaMonitor;
+import org.chocosolver.solver.variables.events.SetEventType;
 import org.chocosolver.util.ESat;
 import org.chocosolver.util.objects.setDataStructures.ISetIterator;
-import org.clafer.collection.Counter;
 
 /**
+ * The closure is at most the transitive closure of the relation. Keeps a
+ * backtrackable bitset matrix of which nodes are still reachable from each
+ * node through the envelopes of the relation. Reachability only shrinks when
+ * an envelope loses an edge, and only for the nodes that could reach the
+ * source of the edge, so only their rows are searched again.
  *
  * @author jimmy
  */
@@ -27,14 +26,29 @@ public class PropAtMostTransitiveClosure extends Propagator<SetVar> {
     private static final long serialVersionUID = 1L;
 
     private final SetVar[] relation;
+    private final ISetDeltaMonitor[] relationD;
     private final SetVar[] closure;
     private final boolean reflexive;
+    // reach[i] contains k if k is reachable from i in at least one step.
+    private final IStateBitSet[] reach;
+    // Scratch space for searching the graph.
+    private final BitSet visited;
+    private final int[] queue;
+    private final BitSet removed;
 
     public PropAtMostTransitiveClosure(SetVar[] relation, SetVar[] closure, boolean reflexive) {
-        super(buildArray(relation, closure), PropagatorPriority.CUBIC, false);
+        super(buildArray(relation, closure), PropagatorPriority.QUADRATIC, true);
         this.relation = relation;
+        this.relationD = PropUtil.monitorDeltas(relation, this);
         this.closure = closure;
         this.reflexive = reflexive;
+        this.reach = new IStateBitSet[relation.length];
+        for (int i = 0; i < reach.length; i++) {
+            reach[i] = getModel().getEnvironment().makeBitSet(relation.length);
+        }
+        this.visited = new BitSet(relation.length);
+        this.queue = new int[relation.length];
+        this.removed = new BitSet(relation.length);
     }
 
     private static SetVar[] buildArray(SetVar[] relation, SetVar[] closure) {
@@ -44,28 +58,111 @@ public class PropAtMostTransitiveClosure extends Propagator<SetVar> {
         return array;
     }
 
+    private boolean isRelationVar(int idx) {
+        return idx < relation.length;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return isRelationVar(vIdx)
+                ? SetEventType.REMOVE_FROM_ENVELOPE.getMask()
+                // The closure only needs to be filtered when the relation changes.
+                : SetEventType.VOID.getMask();
+    }
+
     @Override
     public void propagate(int evtmask) throws ContradictionException {
         for (SetVar var : relation) {
             ISetIterator iter = var.getUB().iterator();
-            while(iter.hasNext()) {
+            while (iter.hasNext()) {
                 int i = iter.nextInt();
                 if (i < 0 || i >= relation.length) {
                     var.remove(i, this);
                 }
             }
         }
+        for (int i = 0; i < relation.length; i++) {
+            search(i);
+            reach[i].clear();
+            for (int k = visited.nextSetBit(0); k >= 0; k = visited.nextSetBit(k + 1)) {
+                reach[i].set(k);
+            }
+            filter(i);
+        }
+    }
 
-        TIntSet[] maximalClosure = maximalTransitiveClosure(relation);
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        assert isRelationVar(idxVarInProp);
+        int from = idxVarInProp;
+        removed.clear();
+        relationD[from].freeze();
+        relationD[from].forEach(k -> {
+            if (k >= 0 && k < relation.length) {
+                removed.set(k);
+            }
+        }, SetEventType.REMOVE_FROM_ENVELOPE);
+        relationD[from].unfreeze();
+        for (int i = 0; i < relation.length; i++) {
+            // Only the nodes that reached a removed edge through its source
+            // can lose reachability.
+            if ((i == from || reach[i].get(from)) && intersects(reach[i], removed)) {
+                search(i);
+                for (int k = reach[i].nextSetBit(0); k >= 0; k = reach[i].nextSetBit(k + 1)) {
+                    if (!visited.get(k)) {
+                        reach[i].clear(k);
+                    }
+                }
+                filter(i);
+            }
+        }
+    }
 
-        for (int i = 0; i < closure.length; i++) {
-            SetVar var = closure[i];
-            TIntSet reachable = maximalClosure[i];
-            ISetIterator iter = var.getUB().iterator();
-            while(iter.hasNext()) {
-                int k = iter.nextInt();
-                if ((!reflexive || i != k) && !reachable.contains(k)) {
-                    var.remove(k, this);
+    private static boolean intersects(IStateBitSet set, BitSet other) {
+        for (int k = other.nextSetBit(0); k >= 0; k = other.nextSetBit(k + 1)) {
+            if (set.get(k)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the nodes unreachable from i from the envelope of its closure.
+     */
+    private void filter(int i) throws ContradictionException {
+        if (i >= closure.length) {
+            return;
+        }
+        SetVar var = closure[i];
+        ISetIterator iter = var.getUB().iterator();
+        while (iter.hasNext()) {
+            int k = iter.nextInt();
+            if ((!reflexive || i != k) && (k < 0 || k >= relation.length || !reach[i].get(k))) {
+                var.remove(k, this);
+            }
+        }
+    }
+
+    /**
+     * Breadth first search the envelopes of the relation from the node. The
+     * nodes reachable in at least one step are left in {@link #visited}.
+     */
+    private void search(int source) {
+        visited.clear();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int node = queue[head++];
+            ISetIterator iter = relation[node].getUB().iterator();
+            while (iter.hasNext()) {
+                int next = iter.nextInt();
+                if (next >= 0 && next < relation.length && !visited.get(next)) {
+                    visited.set(next);
+                    if (next != source) {
+                        queue[tail++] = next;
+                    }
                 }
             }
         }
@@ -75,7 +172,7 @@ public class PropAtMostTransitiveClosure extends Propagator<SetVar> {
     public ESat isEntailed() {
         for (SetVar var : relation) {
             ISetIterator iter = var.getLB().iterator();
-            while(iter.hasNext()) {
+            while (iter.hasNext()) {
                 int i = iter.nextInt();
                 if (i < 0 || i >= relation.length) {
                     return ESat.FALSE;
@@ -83,15 +180,17 @@ public class PropAtMostTransitiveClosure extends Propagator<SetVar> {
             }
         }
 
-        TIntSet[] maximalClosure = maximalTransitiveClosure(relation);
-
         for (int i = 0; i < closure.length; i++) {
+            if (i < relation.length) {
+                search(i);
+            } else {
+                visited.clear();
+            }
             SetVar var = closure[i];
-            TIntSet reachable = maximalClosure[i];
             ISetIterator iter = var.getLB().iterator();
-            while(iter.hasNext()) {
+            while (iter.hasNext()) {
                 int k = iter.nextInt();
-                if ((!reflexive || i != k) && !reachable.contains(k)) {
+                if ((!reflexive || i != k) && (k < 0 || !visited.get(k))) {
                     return ESat.FALSE;
                 }
             }
@@ -104,109 +203,4 @@ public class PropAtMostTransitiveClosure extends Propagator<SetVar> {
     public String toString() {
         return "atMostTransitiveClosure(" + Arrays.toString(relation) + ", " + Arrays.toString(closure) + ")";
     }
-
-    private static TIntSet[] maximalTransitiveClosure(SetVar[] relation) {
-        List<TIntSet> components = computeStronglyConnectedComponents(relation);
-        TIntSet[] maximalClosure = new TIntSet[relation.length];
-
-        for (TIntSet component : components) {
-            TIntSet reachable = new TIntHashSet(relation.length);
-
-            TIntIterator iter = component.iterator();
-            while (iter.hasNext()) {
-                int val = iter.next();
-                SetVar var = relation[val];
-                assert maximalClosure[val] == null;
-                maximalClosure[val] = reachable;
-                ISetIterator varIter= var.getUB().iterator();
-                while(varIter.hasNext()) {
-                    int i = varIter.nextInt();
-                    if (i >= 0 && i < relation.length) {
-                        reachable.add(i);
-                        TIntSet reach = maximalClosure[i];
-                        if (reach != null) {
-                            reachable.addAll(reach);
-                        }
-                    }
-                }
-            }
-        }
-        return maximalClosure;
-    }
-
-    private static List<TIntSet> computeStronglyConnectedComponents(SetVar[] relation) {
-        Counter counter = new Counter();
-        TIntObjectMap<Index> vertexIndices = new TIntObjectHashMap<>(relation.length);
-        TIntList S = new TIntArrayList();
-        List<TIntSet> components = new ArrayList<>();
-
-        for (int vertex = 0; vertex < relation.length; vertex++) {
-            if (!vertexIndices.containsKey(vertex)) {
-                strongConnect(relation, vertex, counter, vertexIndices, S, components);
-            }
-        }
-        return components;
-    }
-
-    private static Index strongConnect(SetVar[] relation, int vertex, Counter counter,
-            TIntObjectMap<Index> vertexIndices, TIntList S, List<TIntSet> components) {
-        int index = counter.next();
-        Index vertexIndex = new Index(index, index);
-        vertexIndices.put(vertex, vertexIndex);
-
-        S.add(vertex);
-
-        SetVar var = relation[vertex];
-        ISetIterator iter = var.getUB().iterator();
-        while(iter.hasNext()) {
-            int neighbour = iter.nextInt();
-            if (neighbour >= 0 && neighbour < relation.length) {
-                Index neighbourIndex = vertexIndices.get(neighbour);
-                if (neighbourIndex == null) {
-                    neighbourIndex = strongConnect(relation, neighbour, counter, vertexIndices, S, components);
-                    vertexIndex.setLowIndexMin(neighbourIndex.getLowIndex());
-                } else if (S.contains(neighbour)) {
-                    vertexIndex.setLowIndexMin(neighbourIndex.getIndex());
-                }
-            }
-        }
-
-        if (vertexIndex.getLowIndex() == vertexIndex.getIndex()) {
-            TIntSet component = new TIntHashSet();
-
-            int cycle;
-            do {
-                cycle = S.removeAt(S.size() - 1);
-                component.add(cycle);
-            } while (cycle != vertex);
-
-            components.add(component);
-        }
-        return vertexIndex;
-    }
-
-    private static class Index {
-
-        private final int index;
-        private int lowIndex;
-
-        Index(int index, int lowIndex) {
-            this.index = index;
-            this.lowIndex = lowIndex;
-        }
-
-        int getIndex() {
-            return index;
-        }
-
-        int getLowIndex() {
-            return lowIndex;
-        }
-
-        void setLowIndexMin(int lowIndex) {
-            if (this.lowIndex >= lowIndex) {
-                this.lowIndex = lowIndex;
-            }
-        }
-    }
 }
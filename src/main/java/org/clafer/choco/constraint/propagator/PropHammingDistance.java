@@ -0,0 +1,145 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.util.ESat;
+import org.clafer.common.Util;
+
+/**
+ * The variables differ from every sample in at least {@code distance}
+ * positions.
+ * <p>
+ * The samples and the distance are updated in place between searches. After
+ * an update, schedule this propagator to run again on the next backtrack,
+ * otherwise the update is only considered once one of the variables changes.
+ *
+ * @author jimmy
+ */
+public class PropHammingDistance extends Propagator<IntVar> {
+
+    private final List<int[]> samples = new ArrayList<>();
+    private int distance;
+
+    public PropHammingDistance(IntVar[] vars, int distance) {
+        super(vars, PropagatorPriority.LINEAR, false);
+        setDistance(distance);
+    }
+
+    /**
+     * @param a a point
+     * @param b a point
+     * @return the number of positions where the points differ
+     */
+    public static int distance(int[] a, int[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                distance++;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Add a sample the variables must be far from.
+     *
+     * @param sample the values of the variables
+     */
+    public void addSample(int[] sample) {
+        if (sample.length != vars.length) {
+            throw new IllegalArgumentException();
+        }
+        samples.add(sample.clone());
+    }
+
+    /**
+     * @return the samples
+     */
+    public List<int[]> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * @param distance the fewest positions the variables differ from every
+     * sample
+     */
+    public void setDistance(int distance) {
+        if (distance < 0) {
+            throw new IllegalArgumentException("Distance must be non-negative, not " + distance);
+        }
+        this.distance = distance;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return IntEventType.all();
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        // Forcing a variable to differ from one sample can bring it closer to
+        // another sample, and this propagator is not woken by its own events.
+        boolean changed;
+        do {
+            changed = false;
+            for (int[] sample : samples) {
+                int differ = 0;
+                int unknown = 0;
+                for (int i = 0; i < vars.length; i++) {
+                    if (!vars[i].contains(sample[i])) {
+                        differ++;
+                    } else if (!vars[i].isInstantiated()) {
+                        unknown++;
+                    }
+                }
+                if (differ + unknown < distance) {
+                    fails();
+                }
+                if (differ < distance && differ + unknown == distance) {
+                    // Every variable that can still differ must differ.
+                    for (int i = 0; i < vars.length; i++) {
+                        if (!vars[i].isInstantiated()) {
+                            changed |= vars[i].removeValue(sample[i], this);
+                        }
+                    }
+                }
+            }
+        } while (changed);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        boolean entailed = true;
+        for (int[] sample : samples) {
+            int differ = 0;
+            int unknown = 0;
+            for (int i = 0; i < vars.length; i++) {
+                if (!vars[i].contains(sample[i])) {
+                    differ++;
+                } else if (!vars[i].isInstantiated()) {
+                    unknown++;
+                }
+            }
+            if (differ + unknown < distance) {
+                return ESat.FALSE;
+            }
+            entailed &= differ >= distance;
+        }
+        return entailed ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "hammingDistance(" + Util.commaSeparate(vars) + ", " + distance + ", " + samples.size() + " samples)";
+    }
+}
@@ -0,0 +1,335 @@
+package org.clafer.choco.constraint.propagator;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import java.util.Arrays;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.delta.ISetDeltaMonitor;
+import org.chocosolver.solver.variables.events.SetEventType;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+
+/**
+ * <p>
+ * Join a unary relation with a binary relation. The {@code take} variable is
+ * the unary relation and the {@code children} variables are the binary
+ * relation. The {@code to} variable is the result of the join.
+ * </p>
+ * <p>
+ * Here is how the binary relation is encoded. Consider the relation:
+ * {@code (0, 1), (0, 2), (1, 3), (2, 1)}. This is encoded as 3 different
+ * {@code children} variables: {@code child0={1, 2}, child1={3}, child2={1}}.
+ * </p>
+ * <p>
+ * Same filtering as {@link PropJoinRelation}. Every value in the envelope of
+ * {@code to} watches up to two children in the envelope of {@code take} that
+ * can contain it. The mates of a value are only searched again when one of its
+ * watched children can no longer contain it. The watches are restored on
+ * backtracking, so a value in the kernel of {@code to} always watches two
+ * mates unless its only mate is forced.
+ * </p>
+ *
+ * @author jimmy
+ */
+public class PropJoinRelationWatched extends Propagator<SetVar> {
+
+    private final SetVar take;
+    private final ISetDeltaMonitor takeD;
+    private final SetVar[] children;
+    private final ISetDeltaMonitor[] childrenD;
+    private final SetVar to;
+    private final ISetDeltaMonitor toD;
+    // The watched mates of each value in the envelope of to, or -1.
+    private final IStateInt[] firstMates;
+    private final IStateInt[] secondMates;
+    private final int offset;
+
+    public PropJoinRelationWatched(SetVar take, SetVar[] children, SetVar to) {
+        super(buildArray(take, to, children), PropagatorPriority.QUADRATIC, true);
+        this.take = take;
+        this.takeD = take.monitorDelta(this);
+        this.children = children;
+        this.childrenD = PropUtil.monitorDeltas(children, this);
+        this.to = to;
+        this.toD = to.monitorDelta(this);
+        this.offset = to.getUB().isEmpty() ? 0 : to.getUB().min();
+        int size = to.getUB().isEmpty() ? 0 : to.getUB().max() - offset + 1;
+        this.firstMates = new IStateInt[size];
+        this.secondMates = new IStateInt[size];
+        for (int i = 0; i < size; i++) {
+            this.firstMates[i] = model.getEnvironment().makeInt(-1);
+            this.secondMates[i] = model.getEnvironment().makeInt(-1);
+        }
+    }
+
+    private static SetVar[] buildArray(SetVar take, SetVar to, SetVar[] children) {
+        SetVar[] array = new SetVar[children.length + 2];
+        array[0] = take;
+        array[1] = to;
+        System.arraycopy(children, 0, array, 2, children.length);
+        return array;
+    }
+
+    private boolean isTakeVar(int idx) {
+        return idx == 0;
+    }
+
+    private boolean isToVar(int idx) {
+        return idx == 1;
+    }
+
+    private boolean isChildVar(int idx) {
+        return idx >= 2;
+    }
+
+    private int getChildVarIndex(int idx) {
+        assert isChildVar(idx);
+        return idx - 2;
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return SetEventType.all();
+    }
+
+    private boolean isMate(int child, int toEnv) {
+        return child >= 0 && child < children.length
+                && take.getUB().contains(child)
+                && children[child].getUB().contains(toEnv);
+    }
+
+    private void findMate(int toEnv) throws ContradictionException {
+        boolean inKer = to.getLB().contains(toEnv);
+        int index = toEnv - offset;
+        int mate = firstMates[index].get();
+        int secondMate = secondMates[index].get();
+        if (!isMate(secondMate, toEnv)) {
+            secondMate = -1;
+        }
+        if (!isMate(mate, toEnv)) {
+            mate = secondMate;
+            secondMate = -1;
+        }
+        if (mate == -1 || (secondMate == -1 && inKer)) {
+            // Only need a second mate if toEnv must be in the join.
+            ISetIterator iter = take.getUB().iterator();
+            while (iter.hasNext() && (mate == -1 || (secondMate == -1 && inKer))) {
+                int j = iter.nextInt();
+                if (j != mate && children[j].getUB().contains(toEnv)) {
+                    if (mate == -1) {
+                        mate = j;
+                    } else {
+                        secondMate = j;
+                    }
+                }
+            }
+        }
+        if (mate == -1) {
+            to.remove(toEnv, this);
+            return;
+        }
+        if (firstMates[index].get() != mate) {
+            firstMates[index].set(mate);
+        }
+        if (secondMates[index].get() != secondMate) {
+            secondMates[index].set(secondMate);
+        }
+        if (secondMate == -1 && inKer) {
+            // One mate.
+            take.force(mate, this);
+            PropUtil.kerSubsetKer(children[mate], to, this);
+            PropUtil.envSubsetEnv(children[mate], to, this);
+            children[mate].force(toEnv, this);
+        }
+    }
+
+    /**
+     * Find new mates for the values in the envelope of the child if the child
+     * was one of their mates.
+     */
+    private void findMates(int child) throws ContradictionException {
+        ISetIterator childEnv = children[child].getUB().iterator();
+        while (childEnv.hasNext()) {
+            int i = childEnv.nextInt();
+            if (to.getUB().contains(i)) {
+                int index = i - offset;
+                if (firstMates[index].get() == child || secondMates[index].get() == child) {
+                    findMate(i);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        // Prune take
+        ISetIterator takeEnv = take.getUB().iterator();
+        while (takeEnv.hasNext()) {
+            int i = takeEnv.nextInt();
+            if (i < 0 || i >= children.length || !PropUtil.isKerSubsetEnv(children[i], to)) {
+                take.remove(i, this);
+            }
+        }
+
+        // Pick to and prune child
+        ISetIterator takeKer = take.getLB().iterator();
+        while (takeKer.hasNext()) {
+            int i = takeKer.nextInt();
+            PropUtil.kerSubsetKer(children[i], to, this);
+            PropUtil.envSubsetEnv(children[i], to, this);
+        }
+
+        // Pick take, pick child, pick take, prune to
+        ISetIterator toEnv = to.getUB().iterator();
+        while (toEnv.hasNext()) {
+            int i = toEnv.nextInt();
+            findMate(i);
+        }
+        takeD.unfreeze();
+    }
+
+    @Override
+    public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+        if (isTakeVar(idxVarInProp)) {
+            takeD.freeze();
+            takeD.forEach(this::pruneToOnTakeEnv, SetEventType.REMOVE_FROM_ENVELOPE);
+            takeD.forEach(this::pickToAndPruneChildOnTakeKer, SetEventType.ADD_TO_KER);
+            takeD.unfreeze();
+        } else if (isToVar(idxVarInProp)) {
+            TIntArrayList removed = new TIntArrayList(0);
+            toD.freeze();
+            toD.forEach(toEnv -> pruneChildOnToEnv(toEnv, removed), SetEventType.REMOVE_FROM_ENVELOPE);
+            toD.forEach(this::pickTakeOnToKer, SetEventType.ADD_TO_KER);
+            toD.unfreeze();
+            // Cannot call findMate when removing from take because we are
+            // iterating take env. Queue up the events to do later.
+            TIntIterator it = removed.iterator();
+            while (it.hasNext()) {
+                int i = it.next();
+                if (take.remove(i, this)) {
+                    findMates(i);
+                }
+            }
+        } else {
+            assert isChildVar(idxVarInProp);
+            final int id = getChildVarIndex(idxVarInProp);
+            final ISetDeltaMonitor childD = childrenD[id];
+            childD.freeze();
+            // Note that we MUST prune even if id is not in env(take) to ensure
+            // idempotence. Otherwise if id is removed from take and val removed
+            // from child at the same time is no longer supported, we need to
+            // remove val from to as well.
+            childD.forEach(this::pruneToOnChildEnv, SetEventType.REMOVE_FROM_ENVELOPE);
+            if (take.getLB().contains(id)) {
+                childD.forEach(this::pickToOnChildKer, SetEventType.ADD_TO_KER);
+            } else if (take.getUB().contains(id)) {
+                childD.forEach(childKer -> {
+                    if (!to.getUB().contains(childKer) && take.remove(id, this)) {
+                        findMates(id);
+                    }
+                }, SetEventType.ADD_TO_KER);
+            }
+            childD.unfreeze();
+        }
+    }
+
+    private void pruneToOnTakeEnv(int takeEnv) throws ContradictionException {
+        assert !take.getUB().contains(takeEnv);
+        findMates(takeEnv);
+    }
+
+    private void pickToAndPruneChildOnTakeKer(int takeKer) throws ContradictionException {
+        assert take.getLB().contains(takeKer);
+
+        SetVar child = children[takeKer];
+        PropUtil.kerSubsetKer(child, to, this);
+        PropUtil.envSubsetEnv(child, to, this);
+    }
+
+    private void pruneToOnChildEnv(int childEnv) throws ContradictionException {
+        // Note the the child may no longer be in take, but still need to find mate.
+        // For example:
+        //     take = {0,1,2}, child0 = {0}, child1 = {1}, child2 = {2}, to = {0,1,2}
+        //   remove 2 from take and 2 from child2
+        //     take = {0,1}, child0 = {0}, child1 = {1}, child2 = {}, to = {0,1,2}
+        // Need to find mate for 2 on child2 or else to will keep 2, and break
+        // idempotency.
+        if (to.getUB().contains(childEnv)) {
+            findMate(childEnv);
+        }
+    }
+
+    private void pickToOnChildKer(int childKer) throws ContradictionException {
+        // assert id in ker(take)
+        to.force(childKer, this);
+    }
+
+    private void pruneChildOnToEnv(int toEnv, TIntArrayList removed) throws ContradictionException {
+        assert !to.getUB().contains(toEnv);
+
+        ISetIterator iter = take.getUB().iterator();
+        while (iter.hasNext()) {
+            int i = iter.nextInt();
+            if (take.getLB().contains(i)) {
+                children[i].remove(toEnv, this);
+            } else if (children[i].getLB().contains(toEnv)) {
+                removed.add(i);
+            }
+        }
+    }
+
+    private void pickTakeOnToKer(int toVal) throws ContradictionException {
+        assert to.getLB().contains(toVal);
+        findMate(toVal);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        ISetIterator takeKer = take.getLB().iterator();
+        while (takeKer.hasNext()) {
+            int i = takeKer.nextInt();
+            if (i < 0 || i >= children.length) {
+                return ESat.FALSE;
+            }
+            ISetIterator childKer = children[i].getLB().iterator();
+            while (childKer.hasNext()) {
+                int j = childKer.nextInt();
+                if (!to.getUB().contains(j)) {
+                    return ESat.FALSE;
+                }
+            }
+        }
+        boolean completelyInstantiated = take.isInstantiated() && to.isInstantiated();
+        int count = 0;
+        SetVar[] taken = new SetVar[take.getUB().size()];
+        ISetIterator takeEnv = take.getUB().iterator();
+        while (takeEnv.hasNext()) {
+            int i = takeEnv.nextInt();
+            if (i >= 0 && i < children.length) {
+                SetVar child = children[i];
+                completelyInstantiated = completelyInstantiated && child.isInstantiated();
+                taken[count++] = child;
+            }
+        }
+        if (count < taken.length) {
+            taken = Arrays.copyOf(taken, count);
+        }
+        ISetIterator toKer = to.getLB().iterator();
+        while (toKer.hasNext()) {
+            int i = toKer.nextInt();
+            if (!PropUtil.envsContain(taken, i)) {
+                return ESat.FALSE;
+            }
+        }
+        return completelyInstantiated ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "joinRelation(" + take + ", " + Arrays.toString(children) + ", " + to + ")";
+    }
+}
@@ -0,0 +1,147 @@
+package org.clafer.choco.constraint.propagator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.util.ESat;
+import org.clafer.common.Util;
+
+/**
+ * The scores are not weakly dominated by any point in the archive. A point
+ * weakly dominates the scores if it is at least as good in every objective.
+ * <p>
+ * The archive is updated in place while searching. After adding a point,
+ * schedule this propagator to run again on the next backtrack, otherwise the
+ * point is only considered once one of the scores changes.
+ *
+ * @author jimmy
+ */
+public class PropNotDominated extends Propagator<IntVar> {
+
+    private final boolean[] maximizes;
+    private final List<int[]> archive = new ArrayList<>();
+
+    public PropNotDominated(IntVar[] scores, boolean[] maximizes) {
+        super(scores, PropagatorPriority.LINEAR, false);
+        if (scores.length != maximizes.length) {
+            throw new IllegalArgumentException();
+        }
+        this.maximizes = maximizes;
+    }
+
+    /**
+     * Checks if {@code a} is at least as good as {@code b} in every objective.
+     *
+     * @param maximizes whether each objective is maximized or minimized
+     * @param a a point
+     * @param b a point
+     * @return {@code true} if and only if {@code a} weakly dominates {@code b}
+     */
+    public static boolean weaklyDominates(boolean[] maximizes, int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (maximizes[i] ? a[i] < b[i] : a[i] > b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a point to the archive and drop the points it weakly dominates.
+     *
+     * @param point the objective values
+     */
+    public void addPoint(int[] point) {
+        if (point.length != vars.length) {
+            throw new IllegalArgumentException();
+        }
+        Iterator<int[]> iter = archive.iterator();
+        while (iter.hasNext()) {
+            if (weaklyDominates(maximizes, point, iter.next())) {
+                iter.remove();
+            }
+        }
+        archive.add(point.clone());
+    }
+
+    /**
+     * Remove every point from the archive.
+     */
+    public void clear() {
+        archive.clear();
+    }
+
+    /**
+     * @return the points in the archive, none weakly dominates another
+     */
+    public List<int[]> getArchive() {
+        return Collections.unmodifiableList(archive);
+    }
+
+    @Override
+    public int getPropagationConditions(int vIdx) {
+        return IntEventType.boundAndInst();
+    }
+
+    private boolean canImprove(int i, int value) {
+        return maximizes[i] ? vars[i].getUB() > value : vars[i].getLB() < value;
+    }
+
+    @Override
+    public void propagate(int evtmask) throws ContradictionException {
+        boolean changed;
+        do {
+            changed = false;
+            for (int[] point : archive) {
+                // The only objective that can still be strictly better than the point.
+                int escape = -1;
+                for (int i = 0; i < vars.length; i++) {
+                    if (canImprove(i, point[i])) {
+                        if (escape != -1) {
+                            escape = -2;
+                            break;
+                        }
+                        escape = i;
+                    }
+                }
+                if (escape == -1) {
+                    fails();
+                }
+                if (escape >= 0) {
+                    changed |= maximizes[escape]
+                            ? vars[escape].updateLowerBound(point[escape] + 1, this)
+                            : vars[escape].updateUpperBound(point[escape] - 1, this);
+                }
+            }
+        } while (changed);
+    }
+
+    @Override
+    public ESat isEntailed() {
+        boolean entailed = true;
+        for (int[] point : archive) {
+            boolean canEscape = false;
+            boolean escaped = false;
+            for (int i = 0; i < vars.length; i++) {
+                canEscape |= canImprove(i, point[i]);
+                escaped |= maximizes[i] ? vars[i].getLB() > point[i] : vars[i].getUB() < point[i];
+            }
+            if (!canEscape) {
+                return ESat.FALSE;
+            }
+            entailed &= escaped;
+        }
+        return entailed ? ESat.TRUE : ESat.UNDEFINED;
+    }
+
+    @Override
+    public String toString() {
+        return "notDominated(" + Util.commaSeparate(vars) + ", " + archive.size() + " points)";
+    }
+}
@@ -9,6 +9,8 @@ import org.chocosolver.solver.variables.delta.IIntDeltaMonitor;
 import org.chocosolver.solver.variables.delta.ISetDeltaMonitor;
 import org.chocosolver.util.objects.setDataStructures.ISet;
 import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+import org.clafer.choco.set.DenseSet;
+import org.clafer.choco.set.DenseSetVar;
 
 /**
  * Various static utility functions for writing Choco propagators.
@@ -323,6 +325,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isEnvIntersectEnv(SetVar i1, SetVar i2) {
+        if (i1 instanceof DenseSetVar && i2 instanceof DenseSetVar) {
+            return intersects(((DenseSetVar) i1).getEnv(), ((DenseSetVar) i2).getEnv());
+        }
         SetVar small = i1;
         SetVar large = i2;
         if (i1.getUB().size() > i2.getUB().size()) {
@@ -348,6 +353,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isEnvIntersectKer(SetVar i1, SetVar i2) {
+        if (i1 instanceof DenseSetVar && i2 instanceof DenseSetVar) {
+            return intersects(((DenseSetVar) i1).getEnv(), ((DenseSetVar) i2).getKer());
+        }
         if (i1.getUB().size() < i2.getUB().size()) {
             ISetIterator iter = i1.getUB().iterator();
             while (iter.hasNext()) {
@@ -378,6 +386,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isKerIntersectKer(SetVar i1, SetVar i2) {
+        if (i1 instanceof DenseSetVar && i2 instanceof DenseSetVar) {
+            return intersects(((DenseSetVar) i1).getKer(), ((DenseSetVar) i2).getKer());
+        }
         SetVar small = i1;
         SetVar large = i2;
         if (i1.getLB().size() > i2.getLB().size()) {
@@ -491,6 +502,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isEnvSubsetEnv(SetVar sub, SetVar sup) {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            return isSubset(((DenseSetVar) sub).getEnv(), ((DenseSetVar) sup).getEnv());
+        }
         if (sub.getUB().size() > sup.getUB().size()) {
             return false;
         }
@@ -513,6 +527,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isEnvSubsetKer(SetVar sub, SetVar sup) {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            return isSubset(((DenseSetVar) sub).getEnv(), ((DenseSetVar) sup).getKer());
+        }
         if (sub.getUB().size() > sup.getLB().size()) {
             return false;
         }
@@ -554,6 +571,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isKerSubsetEnv(SetVar sub, SetVar sup) {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            return isSubset(((DenseSetVar) sub).getKer(), ((DenseSetVar) sup).getEnv());
+        }
         ISetIterator iter = sub.getLB().iterator();
         while (iter.hasNext()) {
             int i = iter.nextInt();
@@ -573,6 +593,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean isKerSubsetKer(SetVar sub, SetVar sup) {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            return isSubset(((DenseSetVar) sub).getKer(), ((DenseSetVar) sup).getKer());
+        }
         ISetIterator iter = sub.getLB().iterator();
         while (iter.hasNext()) {
             int i = iter.nextInt();
@@ -765,6 +788,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean envSubsetEnv(SetVar sub, SetVar sup, ICause propagator) throws ContradictionException {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            return removeDifference(sub, ((DenseSetVar) sub).getEnv(), ((DenseSetVar) sup).getEnv(), propagator);
+        }
         boolean changed = false;
         ISetIterator iter = sub.getUB().iterator();
         while (iter.hasNext()) {
@@ -788,6 +814,9 @@ public class PropUtil {
      * otherwise
      */
     public static boolean envSubsetKer(SetVar sub, SetVar sup, ICause propagator) throws ContradictionException {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            return removeDifference(sub, ((DenseSetVar) sub).getEnv(), ((DenseSetVar) sup).getKer(), propagator);
+        }
         boolean changed = false;
         ISetIterator iter = sub.getUB().iterator();
         while (iter.hasNext()) {
@@ -810,6 +839,17 @@ public class PropUtil {
      * otherwise
      */
     public static boolean kerSubsetKer(SetVar sub, SetVar sup, ICause propagator) throws ContradictionException {
+        if (sub instanceof DenseSetVar && sup instanceof DenseSetVar) {
+            DenseSet subKer = ((DenseSetVar) sub).getKer();
+            DenseSet supKer = ((DenseSetVar) sup).getKer();
+            boolean changed = false;
+            for (int i = 0; i < subKer.getWordCount(); i++) {
+                for (long word = subKer.getWord(i) & ~supKer.getWord(i); word != 0; word &= word - 1) {
+                    changed |= sup.force(i * 64 + Long.numberOfTrailingZeros(word), propagator);
+                }
+            }
+            return changed;
+        }
         boolean changed = false;
         ISetIterator iter = sub.getLB().iterator();
         while (iter.hasNext()) {
@@ -819,6 +859,63 @@ public class PropUtil {
         return changed;
     }
 
+    /**
+     * Checks if two dense sets intersect, a word at a time.
+     *
+     * @param s1 the first operand
+     * @param s2 the second operand
+     * @return {@code true} if {@code s1 ⋂ s2 ≠ {}}, {@code false} otherwise
+     */
+    private static boolean intersects(DenseSet s1, DenseSet s2) {
+        int words = Math.min(s1.getWordCount(), s2.getWordCount());
+        for (int i = 0; i < words; i++) {
+            if ((s1.getWord(i) & s2.getWord(i)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a dense set is contained in the other dense set, a word at a
+     * time.
+     *
+     * @param sub the subset
+     * @param sup the superset
+     * @return {@code true} if {@code sub ⊆ sup}, {@code false} otherwise
+     */
+    private static boolean isSubset(DenseSet sub, DenseSet sup) {
+        int words = sub.getWordCount();
+        for (int i = 0; i < words; i++) {
+            if ((sub.getWord(i) & ~sup.getWord(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every element in a set's dense envelope that is not in the other
+     * dense set. The elements to remove are found a word at a time.
+     *
+     * @param var the variable
+     * @param env the envelope of the variable
+     * @param sup the superset
+     * @param propagator the propagator
+     * @throws ContradictionException
+     * @return {@code true} if a variable has been changed, {@code false}
+     * otherwise
+     */
+    private static boolean removeDifference(SetVar var, DenseSet env, DenseSet sup, ICause propagator) throws ContradictionException {
+        boolean changed = false;
+        for (int i = 0; i < env.getWordCount(); i++) {
+            for (long word = env.getWord(i) & ~sup.getWord(i); word != 0; word &= word - 1) {
+                changed |= var.remove(i * 64 + Long.numberOfTrailingZeros(word), propagator);
+            }
+        }
+        return changed;
+    }
+
     /**
      * Returns the null-terminated string.
      *
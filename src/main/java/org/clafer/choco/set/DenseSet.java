@@ -0,0 +1,175 @@
+package org.clafer.choco.set;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.memory.structure.S64BitSet;
+import org.chocosolver.util.objects.setDataStructures.ISet;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+import org.chocosolver.util.objects.setDataStructures.SetType;
+
+/**
+ * A backtrackable set of non-negative integers packed into words of 64 bits.
+ * The words are stored in the environment, so only the words that change are
+ * trailed. Unlike the bitset sets in Choco, the words can be read directly to
+ * compare two sets 64 elements at a time.
+ *
+ * @author jimmy
+ */
+public class DenseSet implements ISet {
+
+    private final Words words;
+    private final int capacity;
+    private final IStateInt size;
+    private final ISetIterator iter;
+
+    /**
+     * @param environment the environment to trail the changes
+     * @param capacity the set can contain the integers in {@code [0, capacity)}
+     */
+    public DenseSet(IEnvironment environment, int capacity) {
+        this.words = new Words(environment, capacity);
+        this.capacity = capacity;
+        this.size = environment.makeInt(0);
+        this.iter = newIterator();
+    }
+
+    /**
+     * @return the number of words in use
+     */
+    public int getWordCount() {
+        return words.getWordCount();
+    }
+
+    /**
+     * @param index the index of the word
+     * @return the elements in {@code [64 * index, 64 * index + 64)} as bits
+     */
+    public long getWord(int index) {
+        return words.getWord(index);
+    }
+
+    @Override
+    public boolean add(int element) {
+        if (element < 0 || element >= capacity) {
+            throw new IllegalArgumentException(element + " is out of the range [0, " + capacity + ")");
+        }
+        if (words.get(element)) {
+            return false;
+        }
+        words.set(element);
+        size.add(1);
+        return true;
+    }
+
+    @Override
+    public boolean remove(int element) {
+        if (!contains(element)) {
+            return false;
+        }
+        words.clear(element);
+        size.add(-1);
+        return true;
+    }
+
+    @Override
+    public boolean contains(int element) {
+        return element >= 0 && element < capacity && words.get(element);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void clear() {
+        words.clear();
+        size.set(0);
+    }
+
+    @Override
+    public int min() {
+        if (isEmpty()) {
+            throw new IllegalStateException("cannot find minimum of an empty set");
+        }
+        return words.nextSetBit(0);
+    }
+
+    @Override
+    public int max() {
+        if (isEmpty()) {
+            throw new IllegalStateException("cannot find maximum of an empty set");
+        }
+        return words.length() - 1;
+    }
+
+    /**
+     * None of the set types of Choco describe this set. In particular, this
+     * set is not a {@link SetType#BITSET}.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public SetType getSetType() {
+        throw new UnsupportedOperationException("DenseSet is not one of the set types of Choco");
+    }
+
+    @Override
+    public ISetIterator iterator() {
+        iter.reset();
+        return iter;
+    }
+
+    @Override
+    public ISetIterator newIterator() {
+        return new ISetIterator() {
+            // The last element returned. The next element is looked up lazily
+            // in case the set changes while iterating.
+            private int current = -1;
+
+            @Override
+            public void reset() {
+                current = -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return words.nextSetBit(current + 1) >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                current = words.nextSetBit(current + 1);
+                return current;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder().append('{');
+        ISetIterator elements = newIterator();
+        while (elements.hasNext()) {
+            result.append(elements.nextInt());
+            if (elements.hasNext()) {
+                result.append(", ");
+            }
+        }
+        return result.append('}').toString();
+    }
+
+    private static class Words extends S64BitSet {
+
+        Words(IEnvironment environment, int nbits) {
+            super(environment, nbits);
+        }
+
+        int getWordCount() {
+            return wordsInUse.get();
+        }
+
+        long getWord(int index) {
+            return index < wordsInUse.get() ? words[index].get() : 0L;
+        }
+    }
+}
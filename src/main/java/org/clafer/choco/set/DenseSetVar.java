@@ -0,0 +1,79 @@
+package org.clafer.choco.set;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.variables.impl.SetVarImpl;
+
+/**
+ * A set variable whose kernel and envelope are {@link DenseSet}s. Meant for
+ * envelopes of non-negative integers without many holes, like the ids of a
+ * Clafer. The propagators can compare the kernels and envelopes of two dense
+ * set variables a word at a time.
+ *
+ * @author jimmy
+ */
+public class DenseSetVar extends SetVarImpl {
+
+    /**
+     * @param name the name of the variable
+     * @param ker the initial kernel
+     * @param env the initial envelope
+     * @param model the model of the variable
+     */
+    public DenseSetVar(String name, int[] ker, int[] env, Model model) {
+        super(name, denseSet(ker, env, model), denseSet(env, env, model), model);
+    }
+
+    private static DenseSet denseSet(int[] values, int[] env, Model model) {
+        DenseSet set = new DenseSet(model.getEnvironment(), max(env) + 1);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    private static int max(int[] values) {
+        int max = -1;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * Checks if a dense set variable is a good fit for the envelope. The
+     * envelope needs to be non-negative and fill at least half of the bits up
+     * to its maximum.
+     *
+     * @param env the initial envelope
+     * @return {@code true} if the envelope is dense, {@code false} otherwise
+     */
+    public static boolean isDense(int[] env) {
+        if (env.length == 0) {
+            return false;
+        }
+        for (int value : env) {
+            if (value < 0) {
+                return false;
+            }
+        }
+        return max(env) < 2 * env.length;
+    }
+
+    /**
+     * Do not modify the kernel directly, modify the variable instead.
+     *
+     * @return the kernel
+     */
+    public DenseSet getKer() {
+        return (DenseSet) lb;
+    }
+
+    /**
+     * Do not modify the envelope directly, modify the variable instead.
+     *
+     * @return the envelope
+     */
+    public DenseSet getEnv() {
+        return (DenseSet) ub;
+    }
+}
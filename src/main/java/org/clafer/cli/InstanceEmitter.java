@@ -0,0 +1,229 @@
+package org.clafer.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Writes instances on a separate thread so that the search does not wait for
+ * the output. The search thread hands over snapshots of the instances through
+ * a bounded queue and only blocks when the writer falls that far behind. The
+ * writer formats the instances and writes them in large chunks, flushing
+ * whenever it catches up with the search.
+ */
+public class InstanceEmitter implements Closeable {
+
+    public enum Format {
+        /**
+         * The same blocks as printed without streaming, with the line
+         * separator and charset of the platform like println.
+         */
+        Text,
+        /**
+         * One line per instance.
+         */
+        Compact
+    }
+
+    private static final int BufferSize = 1 << 16;
+    private static final String LineSeparator = System.lineSeparator();
+    private static final Item Done = new Item(0, null);
+
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final boolean prettify;
+    private final BlockingQueue<Item> queue;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BufferSize);
+    private final StringBuilder text = new StringBuilder();
+    private final Thread writer;
+    private volatile IOException failure = null;
+
+    public InstanceEmitter(OutputStream out, int queueSize, Format format, boolean prettify) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Queue size must be positive, not " + queueSize);
+        }
+        this.out = out;
+        this.channel = Channels.newChannel(out);
+        this.format = format;
+        this.prettify = prettify;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.writer = new Thread(this::write, "instance-emitter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue an instance to be written. Blocks while the queue is full.
+     *
+     * @param index the number of the instance, starting from 1
+     * @param instance the instance, must not change afterwards
+     * @throws IOException if the writer failed
+     */
+    public void emit(int index, InstanceModel instance) throws IOException {
+        checkFailure();
+        try {
+            queue.put(new Item(index, instance));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Wait until every queued instance is written and flushed.
+     *
+     * @throws IOException if the writer failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(Done);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Failed to write instances", e);
+        }
+    }
+
+    private void write() {
+        try {
+            Item item;
+            while ((item = queue.take()) != Done) {
+                if (failure == null) {
+                    try {
+                        format(item);
+                        write(text.toString().getBytes(Charset.defaultCharset()));
+                        if (queue.isEmpty()) {
+                            flush();
+                        }
+                    } catch (IOException e) {
+                        // Keep draining so the search never blocks on a dead writer.
+                        failure = e;
+                    }
+                }
+            }
+            if (failure == null) {
+                flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException();
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            drain();
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void format(Item item) throws IOException {
+        text.setLength(0);
+        switch (format) {
+            case Text:
+                text.append("=== Instance ").append(item.index).append(" Begin ===\n").append(LineSeparator);
+                if (prettify) {
+                    item.instance.print(text);
+                } else {
+                    for (InstanceClafer c : item.instance.getTopClafers()) {
+                        Utils.printClafer(c, text);
+                    }
+                }
+                text.append("\n--- Instance ").append(item.index).append(" End ---\n").append(LineSeparator);
+                break;
+            case Compact:
+                text.append(item.index).append(':');
+                for (InstanceClafer c : item.instance.getTopClafers()) {
+                    text.append(' ');
+                    formatCompact(c);
+                }
+                text.append(LineSeparator);
+                break;
+            default:
+                throw new IllegalStateException("Unknown format " + format);
+        }
+    }
+
+    /**
+     * Writes {@code name$id->ref{children}} without any whitespace except to
+     * separate siblings. Strings are quoted.
+     */
+    private void formatCompact(InstanceClafer clafer) {
+        text.append(clafer.getType().getName()).append(Utils.countSuffix(clafer.getId()));
+        if (clafer.hasRef()) {
+            text.append("->");
+            if (clafer.getRef() instanceof InstanceClafer) {
+                InstanceClafer refClafer = (InstanceClafer) clafer.getRef();
+                text.append(refClafer.getType().getName()).append(Utils.countSuffix(refClafer.getId()));
+            } else if (clafer.getRef() instanceof String) {
+                text.append('"').append(((String) clafer.getRef()).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            } else {
+                text.append(clafer.getRef());
+            }
+        }
+        if (clafer.hasChildren()) {
+            text.append('{');
+            boolean first = true;
+            for (InstanceClafer child : clafer.getChildren()) {
+                if (!first) {
+                    text.append(' ');
+                }
+                first = false;
+                formatCompact(child);
+            }
+            text.append('}');
+        }
+    }
+
+    private static class Item {
+
+        private final int index;
+        private final InstanceModel instance;
+
+        Item(int index, InstanceModel instance) {
+            this.index = index;
+            this.instance = instance;
+        }
+    }
+}
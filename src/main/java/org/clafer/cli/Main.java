@@ -7,6 +7,7 @@ import java.util.Properties;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import org.clafer.compiler.ClaferSearchStrategy;
+import org.clafer.compiler.ClaferStatistics;
 import org.clafer.javascript.Javascript;
 import org.clafer.javascript.JavascriptFile;
 
@@ -19,6 +20,7 @@ public class Main
                         .ofType( File.class ).describedAs("text file");
                 accepts( "file", "Input file in .cfr or .js format" ).withRequiredArg().ofType( File.class )
                     .describedAs( "Clafer model file (.cfr) or Clafer Javascript file (.js)." );
+                accepts( "format", "Text/Compact (one line per instance)" ).withRequiredArg().ofType( InstanceEmitter.Format.class );
                 accepts( "help", "Show help.").forHelp();
                 accepts( "maxint", "Specify maximum integer value." ).withRequiredArg().ofType( Integer.class );
                 accepts( "minint", "Specify minimum integer value." ).withRequiredArg().ofType( Integer.class );
@@ -27,9 +29,11 @@ public class Main
                 accepts( "noprint", "Don't print the instances to the console or a file");
                 accepts( "output", "Output instances to the given file." ).withRequiredArg().ofType( File.class ).describedAs( "text file" );
                 accepts( "prettify", "Use simple and pretty output format (not formal)." );
+                accepts( "queue", "Maximum number of instances waiting to be printed." ).withRequiredArg().ofType( Integer.class );
                 accepts( "repl", "Run in REPL (interactive) mode." );
                 accepts( "scope", "Override the default global scope value." ).withRequiredArg().ofType( Integer.class );
                 accepts( "search", "PreferSmallerInstances/PreferLargerInstances/Random" ).withRequiredArg().ofType( ClaferSearchStrategy.class );
+                accepts( "stats", "Print the time, allocations and model sizes of each phase as JSON." );
                 accepts( "time", "Time how long it takes to find all instances (and print if it is turned on");
                 accepts( "v", "Run in validation mode; checks all assertions." );
                 accepts( "version", "Display the tool version" );
@@ -104,12 +108,21 @@ public class Main
             throw new Exception("File does not exist: " + inputFile.getPath());
         }
 
+        ClaferStatistics statistics = options.has("stats") ? new ClaferStatistics() : null;
+
         // run the different modes
         JavascriptFile javascriptFile = null;
         try {
             if (options.has( "v"))
                 System.out.println("=========== Parsing+Typechecking " + fileName + "  =============");
-            javascriptFile = Javascript.readModel(inputFile);
+            if (statistics != null)
+                statistics.start("readModel");
+            try {
+                javascriptFile = Javascript.readModel(inputFile);
+            } finally {
+                if (statistics != null)
+                    statistics.stop();
+            }
         }
         catch(Exception e) {
             System.out.println("Unhandled compilation error occured. Please report this problem.");
@@ -122,6 +135,9 @@ public class Main
         else if (options.has("repl"))
             REPL.runREPL(inputFile, javascriptFile, options);
         else
-            Normal.runNormal(javascriptFile, options, outStream);
+            Normal.runNormal(javascriptFile, options, outStream, statistics);
+
+        if (statistics != null)
+            System.out.println(statistics.toJson());
     }
 }
@@ -1,14 +1,14 @@
 package org.clafer.cli;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import joptsimple.OptionSet;
 import org.clafer.compiler.ClaferCompiler;
 import org.clafer.compiler.ClaferOption;
 import org.clafer.compiler.ClaferSearch;
 import org.clafer.compiler.ClaferSearchStrategy;
-import org.clafer.instance.InstanceClafer;
-import org.clafer.instance.InstanceModel;
+import org.clafer.compiler.ClaferStatistics;
 import org.clafer.javascript.JavascriptFile;
 import org.clafer.objective.Objective;
 import org.clafer.scope.Scope;
@@ -17,6 +17,11 @@ import org.clafer.scope.Scope;
 public class Normal {
     // Running the model itself(instantiating or optimizing)
     public static void runNormal(JavascriptFile  javascriptFile, OptionSet options, PrintStream outStream) throws Exception {
+        runNormal(javascriptFile, options, outStream, null);
+    }
+
+    // Records the phases into the statistics unless they are null
+    public static void runNormal(JavascriptFile  javascriptFile, OptionSet options, PrintStream outStream, ClaferStatistics statistics) throws Exception {
 
         Objective[] objectives = javascriptFile.getObjectives();
         if (objectives.length == 0)
@@ -31,6 +36,8 @@ public class Normal {
         ClaferOption compilerOption = javascriptFile.getOption();
         if (options.has("search"))
             compilerOption = compilerOption.setStrategy((ClaferSearchStrategy) options.valueOf("search"));
+        if (statistics != null)
+            compilerOption = compilerOption.setStatistics(statistics);
 
         // pick the right solver
         ClaferSearch solver = objectives.length == 0
@@ -59,27 +66,61 @@ public class Normal {
         else
             n = -1;
 
-        while (solver.find()) {
-            if (dataTackingOn) {
-                elapsedTime = (double) (System.nanoTime() - startTime) / 1000000000;
-                dataStream.println(elapsedTime + ", " + (index + 1));
-            }
+        // the instances are printed on another thread while searching
+        InstanceEmitter emitter = null;
+        if (!printOff) {
+            int queueSize = options.has("queue") ? (int) options.valueOf("queue") : 1024;
+            InstanceEmitter.Format format = options.has("format")
+                ? (InstanceEmitter.Format) options.valueOf("format")
+                : InstanceEmitter.Format.Text;
+            emitter = new InstanceEmitter(outStream, queueSize, format, prettify);
+        }
 
-            if (n >= 0 && index == n)
-                break;
+        if (statistics != null) {
+            statistics.start("search");
+            // The other solvers of the portfolio search on their own threads.
+            if (compilerOption.getPortfolioSize() > 1)
+                statistics.callerThreadOnly();
+        }
+        Throwable thrown = null;
+        try {
+            while (solver.find()) {
+                if (dataTackingOn) {
+                    elapsedTime = (double) (System.nanoTime() - startTime) / 1000000000;
+                    dataStream.println(elapsedTime + ", " + (index + 1));
+                }
+
+                if (n >= 0 && index == n)
+                    break;
 
-            if (printOff) {
                 ++index;
-            } else {
-                outStream.println("=== Instance " + (++index) + " Begin ===\n");
-                InstanceModel instance = solver.instance();
-                if (prettify)
-                    instance.print(outStream);
-                else
-                    for (InstanceClafer c : instance.getTopClafers())
-                        Utils.printClafer(c, outStream);
-                outStream.println("\n--- Instance " + (index) + " End ---\n");
+                if (emitter != null)
+                    emitter.emit(index, solver.instanceSnapshot());
+            }
+        } catch (Throwable t) {
+            thrown = t;
+            throw t;
+        } finally {
+            // a failure to close must not hide the failure that ended the search
+            IOException closeFailure = null;
+            if (emitter != null) {
+                try {
+                    emitter.close();
+                } catch (IOException e) {
+                    if (thrown == null)
+                        closeFailure = e;
+                    else
+                        thrown.addSuppressed(e);
+                }
+            }
+            if (statistics != null) {
+                statistics.count("instances", index);
+                statistics.count("nodes", solver.getInternalSolver().getNodeCount());
+                statistics.count("fails", solver.getInternalSolver().getFailCount());
+                statistics.stop();
             }
+            if (closeFailure != null)
+                throw closeFailure;
         }
         if (timeOn) {
             elapsedTime = (double) (System.nanoTime() - startTime) / 1000000000;
@@ -17,6 +17,7 @@ import org.clafer.compiler.ClaferOption;
 import org.clafer.compiler.ClaferSearch;
 import org.clafer.compiler.ClaferSearchStrategy;
 import org.clafer.compiler.ClaferUnsat;
+import org.clafer.compiler.RecompileCache;
 import org.clafer.instance.InstanceClafer;
 import org.clafer.instance.InstanceModel;
 import org.clafer.javascript.Javascript;
@@ -104,6 +105,8 @@ public class REPL {
         ClaferOption compilerOption = javascriptFile.getOption();
         if (options.has("search"))
             compilerOption = compilerOption.setStrategy((ClaferSearchStrategy) options.valueOf("search"));
+        // scope changes that do not change what the model can use reuse the compiled model
+        compilerOption = compilerOption.setRecompileCache(new RecompileCache());
 
         AstModel model = javascriptFile.getModel();
         Objective[] objectives = javascriptFile.getObjectives();
@@ -345,7 +348,7 @@ public class REPL {
                     System.out.println("Cannot maximize " + clafer + " because it is not a reference.");
                     continue;
                 }
-                solver = ClaferCompiler.compile(model, scope, Objective.maximize(sum(global(clafer))));
+                solver = ClaferCompiler.compile(model, scope, new Objective[]{Objective.maximize(sum(global(clafer)))}, compilerOption);
 
                 nextInstance(solver, prettify);
             }
@@ -369,7 +372,7 @@ public class REPL {
                     System.out.println("Cannot maximize " + clafer + " because it is not a reference.");
                     continue;
                 }
-                solver = ClaferCompiler.compile(model, scope, Objective.minimize(sum(global(clafer))));
+                solver = ClaferCompiler.compile(model, scope, new Objective[]{Objective.minimize(sum(global(clafer)))}, compilerOption);
 
                 nextInstance(solver, prettify);
             }
@@ -0,0 +1,83 @@
+package org.clafer.collection;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Disjoint sets backed by a {@link PersistentMap}. Copying is constant time
+ * since the copy shares the map of the original until one of them changes.
+ * Prefer {@link DisjointSets} unless the sets are copied often.
+ *
+ * @param <V> the type of the data
+ * @author jimmy
+ */
+public class PersistentDisjointSets<V> {
+
+    // Maps every node to its parent. The representatives map to themselves.
+    private PersistentMap<V, V> parents;
+
+    public PersistentDisjointSets() {
+        parents = PersistentMap.empty();
+    }
+
+    public PersistentDisjointSets(PersistentDisjointSets<V> copy) {
+        parents = copy.parents;
+    }
+
+    public boolean isEmpty() {
+        return parents.isEmpty();
+    }
+
+    public V representative(V i) {
+        return find(i);
+    }
+
+    private V find(V i) {
+        V root = i;
+        V parent = parents.get(root);
+        while (parent != null && !parent.equals(root)) {
+            root = parent;
+            parent = parents.get(root);
+        }
+        // Path compression.
+        V cur = i;
+        while (!cur.equals(root)) {
+            V next = parents.get(cur);
+            if (!next.equals(root)) {
+                parents = parents.put(cur, root);
+            }
+            cur = next;
+        }
+        return root;
+    }
+
+    public boolean connected(V i1, V i2) {
+        return find(i1).equals(find(i2));
+    }
+
+    public void union(V i1, V i2) {
+        V r1 = find(i1);
+        V r2 = find(i2);
+
+        if (!parents.containsKey(r1)) {
+            parents = parents.put(r1, r1);
+        }
+        parents = parents.put(r2, r1);
+    }
+
+    public Collection<Set<V>> connectedComponents() {
+        Map<V, Set<V>> components = new HashMap<>();
+        parents.forEach((key, parent) -> {
+            components.computeIfAbsent(find(key), k -> new HashSet<>()).add(key);
+        });
+        return components.values();
+    }
+
+    @Override
+    public String toString() {
+        return connectedComponents().toString();
+    }
+}
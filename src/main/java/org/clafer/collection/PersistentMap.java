@@ -0,0 +1,435 @@
+package org.clafer.collection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.clafer.common.Check;
+
+/**
+ * An immutable hash map. Modifying the map returns a new map that shares all
+ * the unmodified parts of the old map, so keeping the old version around is
+ * free and a modification only costs O(log n) new nodes. Implemented as a hash
+ * array mapped trie consuming 5 bits of the hash per level.
+ *
+ * Neither the keys nor the values can be null.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author jimmy
+ */
+public class PersistentMap<K, V> {
+
+    private static final int Bits = 5;
+    private static final int Mask = (1 << Bits) - 1;
+    @SuppressWarnings("rawtypes")
+    private static final PersistentMap Empty = new PersistentMap<>(BitmapNode.Empty, 0);
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return Empty;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key the key
+     * @return the value mapped by the key, or {@code null} if none
+     */
+    public V get(Object key) {
+        return root.get(key, key.hashCode(), 0);
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @param key the key
+     * @param value the value
+     * @return a map with the key mapped to the value, or this map if the key
+     * is already mapped to the same instance
+     */
+    public PersistentMap<K, V> put(K key, V value) {
+        Check.notNull(key);
+        Check.notNull(value);
+        MutableBoolean added = new MutableBoolean();
+        Node<K, V> newRoot = root.put(key, value, key.hashCode(), 0, added);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, added.isSet() ? size + 1 : size);
+    }
+
+    /**
+     * @param key the key
+     * @return a map without the key, or this map if the key is not mapped
+     */
+    public PersistentMap<K, V> remove(Object key) {
+        Node<K, V> newRoot = root.remove(key, key.hashCode(), 0);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach(action);
+    }
+
+    /**
+     * @return a mutable copy of this map
+     */
+    public Map<K, V> toMap() {
+        Map<K, V> map = new HashMap<>(size * 2);
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof PersistentMap) {
+            PersistentMap<?, ?> other = (PersistentMap<?, ?>) obj;
+            if (size != other.size) {
+                return false;
+            }
+            MutableBoolean unequal = new MutableBoolean();
+            forEach((key, value) -> {
+                if (!value.equals(other.get(key))) {
+                    unequal.set();
+                }
+            });
+            return unequal.isClear();
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = new int[1];
+        forEach((key, value) -> hash[0] += key.hashCode() ^ value.hashCode());
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private static abstract class Node<K, V> {
+
+        abstract V get(Object key, int hash, int shift);
+
+        abstract Node<K, V> put(K key, V value, int hash, int shift, MutableBoolean added);
+
+        abstract Node<K, V> remove(Object key, int hash, int shift);
+
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+
+        /**
+         * A node with a single entry is inlined into its parent.
+         */
+        abstract boolean isSingleton();
+
+        abstract K singletonKey();
+
+        abstract V singletonValue();
+    }
+
+    private static <K, V> Node<K, V> merge(
+            K key1, V value1, int hash1,
+            K key2, V value2, int hash2,
+            int shift) {
+        if (shift >= Integer.SIZE) {
+            return new CollisionNode<>(hash1, new Object[]{key1, value1, key2, value2});
+        }
+        int bit1 = bit(hash1, shift);
+        int bit2 = bit(hash2, shift);
+        if (bit1 == bit2) {
+            return new BitmapNode<>(0, bit1, new Object[]{
+                merge(key1, value1, hash1, key2, value2, hash2, shift + Bits)});
+        }
+        return Integer.compareUnsigned(bit1, bit2) < 0
+                ? new BitmapNode<>(bit1 | bit2, 0, new Object[]{key1, value1, key2, value2})
+                : new BitmapNode<>(bit1 | bit2, 0, new Object[]{key2, value2, key1, value1});
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & Mask);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    /**
+     * The entries are stored first as key and value pairs, followed by the
+     * child nodes. The bitmaps record which of the 32 slots are occupied by
+     * entries and which by child nodes.
+     */
+    private static class BitmapNode<K, V> extends Node<K, V> {
+
+        @SuppressWarnings("rawtypes")
+        static final BitmapNode Empty = new BitmapNode<>(0, 0, new Object[0]);
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] array;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] array) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.array = array;
+        }
+
+        private int dataIndex(int bit) {
+            return 2 * index(dataMap, bit);
+        }
+
+        private int nodeIndex(int bit) {
+            return 2 * Integer.bitCount(dataMap) + index(nodeMap, bit);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<K, V> node(int bit) {
+            return (Node<K, V>) array[nodeIndex(bit)];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                return key.equals(array[i]) ? (V) array[i + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return node(bit).get(key, hash, shift + Bits);
+            }
+            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(K key, V value, int hash, int shift, MutableBoolean added) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                K oldKey = (K) array[i];
+                if (key.equals(oldKey)) {
+                    if (value == array[i + 1]) {
+                        return this;
+                    }
+                    Object[] newArray = array.clone();
+                    newArray[i + 1] = value;
+                    return new BitmapNode<>(dataMap, nodeMap, newArray);
+                }
+                added.set();
+                Node<K, V> child = merge(oldKey, (V) array[i + 1], oldKey.hashCode(),
+                        key, value, hash, shift + Bits);
+                // Move the entry down into the new child.
+                int j = nodeIndex(bit);
+                Object[] newArray = new Object[array.length - 1];
+                System.arraycopy(array, 0, newArray, 0, i);
+                System.arraycopy(array, i + 2, newArray, i, j - i - 2);
+                newArray[j - 2] = child;
+                System.arraycopy(array, j, newArray, j - 1, array.length - j);
+                return new BitmapNode<>(dataMap ^ bit, nodeMap | bit, newArray);
+            }
+            if ((nodeMap & bit) != 0) {
+                int j = nodeIndex(bit);
+                Node<K, V> child = (Node<K, V>) array[j];
+                Node<K, V> newChild = child.put(key, value, hash, shift + Bits, added);
+                if (newChild == child) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[j] = newChild;
+                return new BitmapNode<>(dataMap, nodeMap, newArray);
+            }
+            added.set();
+            int i = dataIndex(bit);
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            newArray[i] = key;
+            newArray[i + 1] = value;
+            System.arraycopy(array, i, newArray, i + 2, array.length - i);
+            return new BitmapNode<>(dataMap | bit, nodeMap, newArray);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                if (!key.equals(array[i])) {
+                    return this;
+                }
+                Object[] newArray = new Object[array.length - 2];
+                System.arraycopy(array, 0, newArray, 0, i);
+                System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+                return new BitmapNode<>(dataMap ^ bit, nodeMap, newArray);
+            }
+            if ((nodeMap & bit) != 0) {
+                int j = nodeIndex(bit);
+                Node<K, V> child = (Node<K, V>) array[j];
+                Node<K, V> newChild = child.remove(key, hash, shift + Bits);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild.isSingleton()) {
+                    // Move the last entry of the child up into this node.
+                    int i = dataIndex(bit);
+                    Object[] newArray = new Object[array.length + 1];
+                    System.arraycopy(array, 0, newArray, 0, i);
+                    newArray[i] = newChild.singletonKey();
+                    newArray[i + 1] = newChild.singletonValue();
+                    System.arraycopy(array, i, newArray, i + 2, j - i);
+                    System.arraycopy(array, j + 1, newArray, j + 2, array.length - j - 1);
+                    return new BitmapNode<>(dataMap | bit, nodeMap ^ bit, newArray);
+                }
+                Object[] newArray = array.clone();
+                newArray[j] = newChild;
+                return new BitmapNode<>(dataMap, nodeMap, newArray);
+            }
+            return this;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            int nodes = 2 * Integer.bitCount(dataMap);
+            for (int i = 0; i < nodes; i += 2) {
+                action.accept((K) array[i], (V) array[i + 1]);
+            }
+            for (int j = nodes; j < array.length; j++) {
+                ((Node<K, V>) array[j]).forEach(action);
+            }
+        }
+
+        @Override
+        boolean isSingleton() {
+            return nodeMap == 0 && Integer.bitCount(dataMap) == 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K singletonKey() {
+            return (K) array[0];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V singletonValue() {
+            return (V) array[1];
+        }
+    }
+
+    /**
+     * The entries whose keys have the same hash.
+     */
+    private static class CollisionNode<K, V> extends Node<K, V> {
+
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(Object key, int hash, int shift) {
+            int i = find(key);
+            return i == -1 ? null : (V) array[i + 1];
+        }
+
+        @Override
+        Node<K, V> put(K key, V value, int hash, int shift, MutableBoolean added) {
+            assert hash == this.hash;
+            int i = find(key);
+            if (i == -1) {
+                added.set();
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, array.length);
+                newArray[array.length] = key;
+                newArray[array.length + 1] = value;
+                return new CollisionNode<>(hash, newArray);
+            }
+            if (value == array[i + 1]) {
+                return this;
+            }
+            Object[] newArray = array.clone();
+            newArray[i + 1] = value;
+            return new CollisionNode<>(hash, newArray);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            int i = find(key);
+            if (i == -1) {
+                return this;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            return new CollisionNode<>(hash, newArray);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept((K) array[i], (V) array[i + 1]);
+            }
+        }
+
+        @Override
+        boolean isSingleton() {
+            return array.length == 2;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K singletonKey() {
+            return (K) array[0];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V singletonValue() {
+            return (V) array[1];
+        }
+    }
+}
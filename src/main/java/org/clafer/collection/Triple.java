@@ -1,5 +1,6 @@
 package org.clafer.collection;
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +15,9 @@ import org.clafer.common.Check;
  * @param <C> the type of thd
  * @author jimmy
  */
-public class Triple<A, B, C> {
+public class Triple<A, B, C> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final A fst;
     private final B snd;
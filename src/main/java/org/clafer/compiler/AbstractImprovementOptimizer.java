@@ -14,6 +14,7 @@ public abstract class AbstractImprovementOptimizer implements ClaferOptimizer {
     protected final ClaferSolutionMap solutionMap;
     protected final boolean[] maximizes;
     protected final IntVar[] scores;
+    private Assumptions assumptions = null;
 
     public AbstractImprovementOptimizer(Solver solver, ClaferSolutionMap solutionMap, boolean[] maximizes, IntVar[] scores) {
         this.solver = solver;
@@ -22,6 +23,40 @@ public abstract class AbstractImprovementOptimizer implements ClaferOptimizer {
         this.scores = scores;
     }
 
+    @Override
+    public ClaferOptimizer assume(Assumption... assumptions) {
+        if (this.assumptions == null) {
+            this.assumptions = new Assumptions(solver, solutionMap);
+        }
+        this.assumptions.assume(assumptions);
+        restart();
+        return this;
+    }
+
+    @Override
+    public ClaferOptimizer retract() {
+        if (assumptions != null) {
+            assumptions.retract();
+            restart();
+        }
+        return this;
+    }
+
+    /**
+     * @return {@code true} if the assumptions cannot hold in any instance,
+     * without searching
+     */
+    protected boolean isContradiction() {
+        return assumptions != null && assumptions.isContradiction();
+    }
+
+    /**
+     * Forget the optimal instances found so far. Called after the assumptions
+     * change and the solver is reset, so the next call to {@link #find()}
+     * starts again from the first optimal instance.
+     */
+    protected abstract void restart();
+
     @Override
     public Solver getInternalSolver() {
         return solver;
@@ -0,0 +1,173 @@
+package org.clafer.compiler;
+
+import org.clafer.ast.AstClafer;
+import org.clafer.common.Check;
+
+/**
+ * One assumption over the instances of a Clafer. Use
+ * {@link Assumption#member(org.clafer.ast.AstClafer, int)},
+ * {@link Assumption#notMember(org.clafer.ast.AstClafer, int)},
+ * {@link Assumption#none(org.clafer.ast.AstClafer)},
+ * {@link Assumption#ref(org.clafer.ast.AstClafer, int, int)}, or
+ * {@link Assumption#refBetween(org.clafer.ast.AstClafer, int, int, int)} to
+ * construct a new assumption.
+ * <p>
+ * Instances are identified by their id, from zero up to the scope of the
+ * Clafer. The value of a reference to an integer is the integer, and the value
+ * of a reference to another Clafer is the id of the instance it refers to.
+ * References to strings cannot be assumed.
+ *
+ * @author jimmy
+ */
+public class Assumption {
+
+    private final AstClafer clafer;
+    // -1 - every instance
+    private final int id;
+    private final boolean member;
+    private final boolean ref;
+    private final int refLow;
+    private final int refHigh;
+
+    private Assumption(AstClafer clafer, int id, boolean member, boolean ref, int refLow, int refHigh) {
+        this.clafer = Check.notNull(clafer);
+        this.id = id;
+        this.member = member;
+        this.ref = ref;
+        this.refLow = refLow;
+        this.refHigh = refHigh;
+    }
+
+    public AstClafer getClafer() {
+        return clafer;
+    }
+
+    /**
+     * @return {@code true} if the assumption is over every instance of the
+     * Clafer, {@code false} otherwise
+     */
+    public boolean isEveryId() {
+        return id == -1;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return {@code true} if the instances are assumed to exist,
+     * {@code false} if they are assumed not to
+     */
+    public boolean isMember() {
+        return member;
+    }
+
+    /**
+     * @return {@code true} if the reference of the instance is assumed,
+     * {@code false} otherwise
+     */
+    public boolean isRef() {
+        return ref;
+    }
+
+    public int getRefLow() {
+        return refLow;
+    }
+
+    public int getRefHigh() {
+        return refHigh;
+    }
+
+    private static int checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Id must be non-negative, not " + id);
+        }
+        return id;
+    }
+
+    /**
+     * Assume the instance exists.
+     *
+     * @param clafer the Clafer
+     * @param id the id of the instance
+     * @return the instance exists
+     */
+    public static Assumption member(AstClafer clafer, int id) {
+        return new Assumption(clafer, checkId(id), true, false, 0, 0);
+    }
+
+    /**
+     * Assume the instance does not exist.
+     *
+     * @param clafer the Clafer
+     * @param id the id of the instance
+     * @return the instance does not exist
+     */
+    public static Assumption notMember(AstClafer clafer, int id) {
+        return new Assumption(clafer, checkId(id), false, false, 0, 0);
+    }
+
+    /**
+     * Assume the Clafer has no instances.
+     *
+     * @param clafer the Clafer
+     * @return the Clafer has no instances
+     */
+    public static Assumption none(AstClafer clafer) {
+        return new Assumption(clafer, -1, false, false, 0, 0);
+    }
+
+    /**
+     * Assume the instance exists and refers to the value.
+     *
+     * @param clafer the Clafer
+     * @param id the id of the instance
+     * @param value the value of the reference
+     * @return the instance exists and refers to the value
+     */
+    public static Assumption ref(AstClafer clafer, int id, int value) {
+        return refBetween(clafer, id, value, value);
+    }
+
+    /**
+     * Assume the instance exists and refers to a value between the bounds.
+     *
+     * @param clafer the Clafer
+     * @param id the id of the instance
+     * @param low the lowest value of the reference, inclusive
+     * @param high the highest value of the reference, inclusive
+     * @return the instance exists and refers to a value between the bounds
+     */
+    public static Assumption refBetween(AstClafer clafer, int id, int low, int high) {
+        if (low > high) {
+            throw new IllegalArgumentException("Empty bounds [" + low + ", " + high + "]");
+        }
+        return new Assumption(clafer, checkId(id), true, true, low, high);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof Assumption) {
+            Assumption other = (Assumption) obj;
+            return clafer.equals(other.clafer) && id == other.id && member == other.member
+                    && ref == other.ref && refLow == other.refLow && refHigh == other.refHigh;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return clafer.hashCode() ^ (31 * id) ^ (member ? 1 : 0) ^ (ref ? 31 * 31 * (refLow + 7 * refHigh) : 0);
+    }
+
+    @Override
+    public String toString() {
+        String instance = clafer.getName() + (isEveryId() ? "" : "#" + id);
+        if (ref) {
+            return refLow == refHigh
+                    ? instance + " = " + refLow
+                    : instance + " in [" + refLow + ", " + refHigh + "]";
+        }
+        return (member ? "" : "no ") + instance;
+    }
+}
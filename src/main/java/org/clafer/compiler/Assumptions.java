@@ -0,0 +1,196 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.propagation.NoPropagationEngine;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstException;
+import org.clafer.ast.AstRef;
+import org.clafer.ast.AstStringClafer;
+import org.clafer.ast.AstUtil;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.choco.constraint.propagator.PropAssume;
+import org.clafer.collection.Either;
+import org.clafer.ir.IrBoolVar;
+import org.clafer.ir.IrIntVar;
+import org.clafer.ir.compiler.IrSolutionMap;
+
+/**
+ * The assumptions of one solver. The first assumption posts a
+ * {@link PropAssume} over the membership and reference variables of every
+ * Clafer. The same propagator enforces every later assumption, so the compiled
+ * model is never changed between queries.
+ *
+ * @author jimmy
+ */
+class Assumptions {
+
+    private final Solver solver;
+    private final ClaferSolutionMap solutionMap;
+    private Map<IntVar, Integer> indices = null;
+    // Null if every membership and reference is constant.
+    private PropAssume assume = null;
+    // The assumptions contradict a constant.
+    private boolean contradiction = false;
+
+    Assumptions(Solver solver, ClaferSolutionMap solutionMap) {
+        this.solver = solver;
+        this.solutionMap = solutionMap;
+    }
+
+    /**
+     * @return {@code true} if the assumptions cannot hold in any instance,
+     * without searching
+     */
+    boolean isContradiction() {
+        return contradiction;
+    }
+
+    /**
+     * Replace the assumptions. The solver is reset. Nothing changes if any
+     * assumption is invalid.
+     *
+     * @param assumptions the new assumptions
+     * @throws IllegalArgumentException if an assumption is not about this
+     * model, is outside the scope, or assumes the reference of a Clafer that
+     * has no integer or Clafer reference
+     */
+    void assume(Assumption... assumptions) {
+        for (Assumption assumption : assumptions) {
+            validate(assumption);
+        }
+        init();
+        if (assume != null) {
+            assume.clear();
+        }
+        contradiction = false;
+        AstSolutionMap astSolution = solutionMap.getAstSolution();
+        IrSolutionMap irSolution = solutionMap.getIrSolution();
+        for (Assumption assumption : assumptions) {
+            IrBoolVar[] members = astSolution.getMemberVars(assumption.getClafer());
+            if (assumption.isEveryId()) {
+                for (IrBoolVar member : members) {
+                    assume(member(irSolution.getVar(member)), 0, 0);
+                }
+            } else {
+                int value = assumption.isMember() ? 1 : 0;
+                assume(member(irSolution.getVar(members[assumption.getId()])), value, value);
+                if (assumption.isRef()) {
+                    IrIntVar ref = astSolution.getRefVars(assumption.getClafer())[assumption.getId()];
+                    assume(irSolution.getVar(ref), assumption.getRefLow(), assumption.getRefHigh());
+                }
+            }
+        }
+        restart();
+    }
+
+    /**
+     * Retract every assumption. The solver is reset.
+     */
+    void retract() {
+        contradiction = false;
+        if (assume != null) {
+            assume.clear();
+            restart();
+        }
+    }
+
+    private void validate(Assumption assumption) {
+        AstSolutionMap astSolution = solutionMap.getAstSolution();
+        AstClafer clafer = assumption.getClafer();
+        IrBoolVar[] members;
+        try {
+            members = astSolution.getMemberVars(clafer);
+        } catch (AstException e) {
+            throw new IllegalArgumentException(assumption + " is not about this model", e);
+        }
+        if (!assumption.isEveryId() && assumption.getId() >= members.length) {
+            throw new IllegalArgumentException(assumption + " is outside the scope of "
+                    + members.length);
+        }
+        if (assumption.isRef()) {
+            AstRef ref = AstUtil.getInheritedRef(clafer);
+            if (ref == null) {
+                throw new IllegalArgumentException(assumption + " but " + clafer + " has no reference");
+            }
+            if (ref.getTargetType() instanceof AstStringClafer) {
+                throw new IllegalArgumentException(assumption + " but " + clafer + " references strings");
+            }
+        }
+    }
+
+    private static Either<Integer, IntVar> member(Either<Boolean, BoolVar> var) {
+        return var.isLeft()
+                ? Either.left(var.getLeft() ? 1 : 0)
+                : Either.right(var.getRight());
+    }
+
+    private void assume(Either<Integer, IntVar> var, int low, int high) {
+        if (var.isLeft()) {
+            contradiction |= var.getLeft() < low || var.getLeft() > high;
+        } else {
+            assume.assume(indices.get(var.getRight()), low, high);
+        }
+    }
+
+    private void init() {
+        if (indices != null) {
+            return;
+        }
+        IntVar[] vars = getInstanceVars(solutionMap);
+        indices = new IdentityHashMap<>();
+        for (int i = 0; i < vars.length; i++) {
+            indices.put(vars[i], i);
+        }
+        if (vars.length > 0) {
+            solver.reset();
+            assume = new PropAssume(vars);
+            solver.getModel().post(new Constraint("assume", assume));
+        }
+    }
+
+    /**
+     * @param solutionMap the solution map
+     * @return the membership and reference variables of every Clafer that are
+     * not constant, in the same order for every solver compiled from the same
+     * model
+     */
+    static IntVar[] getInstanceVars(ClaferSolutionMap solutionMap) {
+        AstSolutionMap astSolution = solutionMap.getAstSolution();
+        IrSolutionMap irSolution = solutionMap.getIrSolution();
+        Set<IntVar> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<IntVar> vars = new ArrayList<>();
+        for (AstClafer clafer : AstUtil.getClafers(astSolution.getModel())) {
+            for (Either<Boolean, BoolVar> member : irSolution.getVars(astSolution.getMemberVars(clafer))) {
+                if (member.isRight() && seen.add(member.getRight())) {
+                    vars.add(member.getRight());
+                }
+            }
+            AstRef ref = AstUtil.getInheritedRef(clafer);
+            if (ref != null && !(ref.getTargetType() instanceof AstStringClafer)) {
+                for (Either<Integer, IntVar> refVar : irSolution.getVars(astSolution.getRefVars(clafer))) {
+                    if (refVar.isRight() && seen.add(refVar.getRight())) {
+                        vars.add(refVar.getRight());
+                    }
+                }
+            }
+        }
+        return vars.toArray(new IntVar[vars.size()]);
+    }
+
+    private void restart() {
+        solver.reset();
+        if (assume != null && solver.getEngine() != NoPropagationEngine.SINGLETON) {
+            // Enforce the assumptions at the root of the next search.
+            solver.getEngine().propagateOnBacktrack(assume);
+        }
+    }
+}
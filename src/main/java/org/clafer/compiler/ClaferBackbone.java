@@ -0,0 +1,104 @@
+package org.clafer.compiler;
+
+import java.util.List;
+import java.util.Map;
+import org.clafer.ast.AstConcreteClafer;
+
+/**
+ * Which instances and reference values are in every instance of the model, in
+ * none, or in some but not all. Computed by
+ * {@link ClaferQueries#backbone()}.
+ *
+ * @author jimmy
+ */
+public class ClaferBackbone {
+
+    private final Map<AstConcreteClafer, Status[]> members;
+    private final Map<AstConcreteClafer, List<Map<Integer, Status>>> refs;
+
+    ClaferBackbone(Map<AstConcreteClafer, Status[]> members,
+            Map<AstConcreteClafer, List<Map<Integer, Status>>> refs) {
+        this.members = members;
+        this.refs = refs;
+    }
+
+    /**
+     * @param clafer the Clafer
+     * @return the scope of the Clafer
+     */
+    public int getScope(AstConcreteClafer clafer) {
+        return getMembers(clafer).length;
+    }
+
+    private Status[] getMembers(AstConcreteClafer clafer) {
+        Status[] status = members.get(clafer);
+        if (status == null) {
+            throw new IllegalArgumentException(clafer + " not part of the backbone");
+        }
+        return status;
+    }
+
+    /**
+     * @param clafer the Clafer
+     * @param id the id of the instance
+     * @return whether the instance exists in every instance of the model, in
+     * none, or in some
+     */
+    public Status getMember(AstConcreteClafer clafer, int id) {
+        return getMembers(clafer)[id];
+    }
+
+    /**
+     * @param clafer the Clafer
+     * @param id the id of the instance
+     * @param value the value of the reference
+     * @return whether the instance refers to the value in every instance of
+     * the model, in none, or in some
+     */
+    public Status getRef(AstConcreteClafer clafer, int id, int value) {
+        List<Map<Integer, Status>> ref = refs.get(clafer);
+        if (ref == null) {
+            throw new IllegalArgumentException(clafer + "'s reference not part of the backbone");
+        }
+        Status status = ref.get(id).get(value);
+        return status == null ? Status.Forbidden : status;
+    }
+
+    /**
+     * @param clafer the Clafer
+     * @return {@code true} if no instance of the model has the Clafer,
+     * {@code false} otherwise
+     */
+    public boolean isDead(AstConcreteClafer clafer) {
+        for (Status status : getMembers(clafer)) {
+            if (status != Status.Forbidden) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param clafer the Clafer
+     * @return {@code true} if the same instance of the Clafer exists in every
+     * instance of the model, {@code false} otherwise
+     */
+    public boolean isCore(AstConcreteClafer clafer) {
+        for (Status status : getMembers(clafer)) {
+            if (status == Status.Forced) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static enum Status {
+
+        // In every instance.
+        Forced,
+        // In no instance.
+        Forbidden,
+        // In some instances but not all.
+        Free;
+    }
+}
@@ -10,7 +10,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
@@ -28,14 +32,18 @@ import org.clafer.ast.AstModel;
 import org.clafer.ast.AstRef;
 import org.clafer.ast.AstStringClafer;
 import org.clafer.ast.AstUtil;
+import org.clafer.ast.analysis.Analysis;
+import org.clafer.ast.analysis.Analyzer;
 import org.clafer.ast.analysis.UnsatAnalyzer;
 import org.clafer.ast.compiler.AstCompiler;
 import org.clafer.ast.compiler.AstSolutionMap;
 import org.clafer.collection.Either;
 import org.clafer.collection.Pair;
+import org.clafer.collection.Triple;
 import org.clafer.common.Check;
 import org.clafer.common.UnsatisfiableException;
 import org.clafer.common.Util;
+import org.clafer.compiler.ClaferStatistics.Phase;
 import org.clafer.graph.GraphUtil;
 import org.clafer.graph.KeyGraph;
 import org.clafer.graph.Vertex;
@@ -44,7 +52,10 @@ import org.clafer.ir.IrBoolVar;
 import org.clafer.ir.IrIntVar;
 import org.clafer.ir.IrModule;
 import org.clafer.ir.IrStringVar;
+import org.clafer.ir.Irs;
+import org.clafer.ir.analysis.Decomposer;
 import org.clafer.ir.analysis.Optimizer;
+import org.clafer.ir.analysis.OptimizerListener;
 import org.clafer.ir.analysis.deduction.Coalesce;
 import org.clafer.ir.compiler.IrCompiler;
 import org.clafer.ir.compiler.IrSolutionMap;
@@ -205,10 +216,41 @@ public class ClaferCompiler {
     }
 
     private static void restartPolicy(Solver solver, ClaferOption options) {
+        restartPolicy(solver, options, 16);
+    }
+
+    private static void restartPolicy(Solver solver, ClaferOption options, int scale) {
         switch (options.getStrategy()) {
             case Random:
-                solver.setLubyRestart(16, 16, new NodeCounter(solver, 16), Integer.MAX_VALUE);
+                solver.setLubyRestart(scale, 16, new NodeCounter(solver, scale), Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Configure the search of a solver in the portfolio. Each random solver
+     * gets its own seed, and the random solvers after the first double the
+     * scale of their Luby restarts so that they diversify between short and
+     * long runs.
+     *
+     * @param solver the solver
+     * @param in the model
+     * @param solution the solution map of the solver
+     * @param options the compiler options
+     * @param worker the index of the solver in the portfolio
+     * @return the options of the solver
+     */
+    private static ClaferOption portfolioSearch(Solver solver, AstModel in, ClaferSolutionMap solution,
+            ClaferOption options, int worker) {
+        ClaferOption workerOptions = portfolioOptions(options, worker);
+        set(solver, intStrategies(getDecisionVars(in, workerOptions, solution), workerOptions));
+        int previousRandom = 0;
+        for (int i = 0; i < worker; i++) {
+            if (portfolioOptions(options, i).getStrategy() == ClaferSearchStrategy.Random) {
+                previousRandom++;
+            }
         }
+        restartPolicy(solver, workerOptions, 16 << Math.min(previousRandom, 4));
+        return workerOptions;
     }
 
     private static Optional<AbstractStrategy<?>> firstFailInDomainMax(IntVar[] vars) {
@@ -225,6 +267,264 @@ public class ClaferCompiler {
         return Optional.of(Search.minDomLBSearch(vars));
     }
 
+    /**
+     * Compile from AST to IR and from IR to Choco. Interns the IR, caches the
+     * compiled model, and reuses models compiled earlier if the options ask
+     * for it.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param objectives the objectives compiled with the model
+     * @param assertions the assertions compiled with the model
+     * @param analyzers the analyzers run by the AST compiler
+     * @param astCompiler compiles the AST into the module with the analyzers
+     * @param model the Choco model
+     * @param options the compiler options
+     * @return the AST and IR solution maps
+     */
+    private static Pair<AstSolutionMap, IrSolutionMap> compile(
+            AstModel in, Scope scope, Objective[] objectives, Assertion[] assertions, Analyzer[] analyzers,
+            BiFunction<Analyzer[], IrModule, AstSolutionMap> astCompiler, Model model, ClaferOption options) {
+        Pair<AstSolutionMap, IrSolutionMap[]> solutions = compile(
+                in, scope, objectives, assertions, analyzers, astCompiler, new Model[]{model}, options);
+        return new Pair<>(solutions.getFst(), solutions.getSnd()[0]);
+    }
+
+    /**
+     * Compile from AST to IR once and from IR to each of the Choco models.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param objectives the objectives compiled with the model
+     * @param assertions the assertions compiled with the model
+     * @param analyzers the analyzers run by the AST compiler
+     * @param astCompiler compiles the AST into the module with the analyzers
+     * @param models the Choco models
+     * @param options the compiler options
+     * @return the AST solution map and the IR solution map of each Choco model
+     */
+    private static Pair<AstSolutionMap, IrSolutionMap[]> compile(
+            AstModel in, Scope scope, Objective[] objectives, Assertion[] assertions, Analyzer[] analyzers,
+            BiFunction<Analyzer[], IrModule, AstSolutionMap> astCompiler, Model[] models, ClaferOption options) {
+        ClaferStatistics statistics = options.getStatistics();
+        return compile(in, scope, objectives, assertions, analyzers, astCompiler, options, compiled -> {
+            Coalesce coalesce = compiled.getSnd();
+            IrModule module = compiled.getThd();
+            IrSolutionMap[] irSolutions = phase(statistics, "irCompile", () -> {
+                Phase phase = currentPhase(statistics);
+                IrSolutionMap[] compiledModels = models.length == 1
+                        ? new IrSolutionMap[]{IrCompiler.compileOptimized(coalesce, module, models[0], options.isWatchedJoins(), options.isDenseSets())}
+                        // The optimized module is only read, translate it to each model in parallel.
+                        : Arrays.stream(models).parallel()
+                        .map(model -> worker(statistics, phase,
+                                () -> IrCompiler.compileOptimized(coalesce, module, model, options.isWatchedJoins(), options.isDenseSets())))
+                        .toArray(IrSolutionMap[]::new);
+                // Every model is compiled from the same module so they are the same size.
+                count(statistics, "chocoVariables", models[0].getNbVars());
+                count(statistics, "chocoConstraints", models[0].getNbCstrs());
+                count(statistics, "chocoPropagators",
+                        Arrays.stream(models[0].getCstrs()).mapToLong(c -> c.getPropagators().length).sum());
+                return compiledModels;
+            });
+            return new Pair<>(compiled.getFst(), irSolutions);
+        });
+    }
+
+    /**
+     * Compile from AST to optimized IR, or take the optimized IR from the
+     * caches of the options, and then from IR onwards.
+     *
+     * @param <T> the type of the compiled model
+     * @param in the model
+     * @param scope the scope
+     * @param objectives the objectives compiled with the model
+     * @param assertions the assertions compiled with the model
+     * @param analyzers the analyzers run by the AST compiler
+     * @param astCompiler compiles the AST into the module with the analyzers
+     * @param options the compiler options
+     * @param irCompiler compiles the AST solution map, the coalesced variables
+     * and the optimized module further
+     * @return the compiled model
+     */
+    private static <T> T compile(
+            AstModel in, Scope scope, Objective[] objectives, Assertion[] assertions, Analyzer[] analyzers,
+            BiFunction<Analyzer[], IrModule, AstSolutionMap> astCompiler, ClaferOption options,
+            Function<Triple<AstSolutionMap, Coalesce, IrModule>, T> irCompiler) {
+        CompiledModelCache cache = options.hasCompiledModelCache()
+                ? new CompiledModelCache(options.getCompiledModelCache())
+                : null;
+        CompiledModelCache.Key key = cache == null ? null
+                : cache.key(in, scope, objectives, assertions, analyzers, options);
+        ClaferStatistics statistics = options.getStatistics();
+        RecompileCache recompileCache = options.getRecompileCache();
+        int effectiveScopeAnalyzer = recompileCache == null ? -1 : RecompileCache.effectiveScopeAnalyzer(analyzers);
+        Supplier<T> compile = () -> {
+            Analyzer[] runAnalyzers = statistics == null ? analyzers : phases(analyzers, statistics);
+            Triple<AstSolutionMap, Coalesce, IrModule> compiled = null;
+            CompiledModelCache.Key recompileKey = null;
+            if (effectiveScopeAnalyzer != -1) {
+                Analyzer[] prefix = Arrays.copyOf(runAnalyzers, effectiveScopeAnalyzer + 1);
+                Analysis effective = phase(statistics, "effectiveScope", () -> assertions.length == 0
+                        ? Analysis.analyze(in, scope, objectives, prefix)
+                        : Analysis.analyze(in, scope, assertions, prefix));
+                CompiledModelCache.Key effectiveKey = RecompileCache.key(in, effective, objectives, assertions, analyzers, options);
+                compiled = phase(statistics, "recompileCache", () -> {
+                    Triple<AstSolutionMap, Coalesce, IrModule> cached = recompileCache.get(effectiveKey);
+                    count(statistics, "hit", cached == null ? 0 : 1);
+                    return cached;
+                });
+                recompileKey = effectiveKey;
+                // On a miss, continue from the effective scope rather than analyzing it again.
+                Analyzer[] remaining = Arrays.copyOfRange(runAnalyzers, effectiveScopeAnalyzer + 1, runAnalyzers.length);
+                runAnalyzers = Util.cons(analysis -> effective, remaining);
+            }
+            if (compiled == null && cache != null) {
+                compiled = phase(statistics, "compiledModelCache", () -> {
+                    Triple<AstSolutionMap, Coalesce, IrModule> cached = cache.get(key);
+                    count(statistics, "hit", cached == null ? 0 : 1);
+                    return cached;
+                });
+            }
+            if (compiled == null) {
+                IrModule module = new IrModule();
+                Analyzer[] astAnalyzers = runAnalyzers;
+                AstSolutionMap astSolution = phase(statistics, "astCompile", () -> {
+                    AstSolutionMap astCompiled = astCompiler.apply(astAnalyzers, module);
+                    count(statistics, "irVariables", module.getVariables().size());
+                    count(statistics, "irConstraints", module.getConstraints().size());
+                    return astCompiled;
+                });
+                Pair<Coalesce, IrModule> optimized = phase(statistics, "optimize", () -> {
+                    Pair<Coalesce, IrModule> optimizedModule = Optimizer.optimize(module, options.isFullOptimizations(),
+                            options.getConstructiveDisjunctionThreads(),
+                            statistics == null ? OptimizerListener.None
+                            : phases(statistics, options.getConstructiveDisjunctionThreads()));
+                    count(statistics, "irVariables", optimizedModule.getSnd().getVariables().size());
+                    count(statistics, "irConstraints", optimizedModule.getSnd().getConstraints().size());
+                    count(statistics, "coalescedVariables", optimizedModule.getFst().size());
+                    return optimizedModule;
+                });
+                compiled = new Triple<>(astSolution, optimized.getFst(), optimized.getSnd());
+                if (cache != null) {
+                    cache.put(key, compiled);
+                }
+            }
+            if (recompileKey != null) {
+                recompileCache.put(recompileKey, compiled);
+            }
+            return irCompiler.apply(compiled);
+        };
+        return options.isIrInterning() ? Irs.interning(compile) : compile.get();
+    }
+
+    private static <T> T phase(ClaferStatistics statistics, String name, Supplier<T> body) {
+        return statistics == null ? body.get() : statistics.phase(name, body);
+    }
+
+    private static void count(ClaferStatistics statistics, String counter, long count) {
+        if (statistics != null) {
+            statistics.count(counter, count);
+        }
+    }
+
+    private static Phase currentPhase(ClaferStatistics statistics) {
+        return statistics == null ? null : statistics.getCurrentPhase();
+    }
+
+    private static <T> T worker(ClaferStatistics statistics, Phase phase, Supplier<T> body) {
+        return statistics == null ? body.get() : statistics.worker(phase, body);
+    }
+
+    /**
+     * @param analyzers the analyzers
+     * @param statistics the statistics
+     * @return the analyzers, each recording a phase when run
+     */
+    private static Analyzer[] phases(Analyzer[] analyzers, ClaferStatistics statistics) {
+        Analyzer[] phases = new Analyzer[analyzers.length];
+        for (int i = 0; i < phases.length; i++) {
+            Analyzer analyzer = analyzers[i];
+            String name = analyzer.getClass().getSimpleName();
+            // Lambdas have no meaningful name.
+            String phase = name.contains("$$Lambda") ? "Analyzer" + i : name;
+            phases[i] = analysis -> statistics.phase(phase, () -> analyzer.analyze(analysis));
+        }
+        return phases;
+    }
+
+    /**
+     * @param statistics the statistics
+     * @param constructiveDisjunctionThreads the number of threads of the
+     * constructive disjunction pass
+     * @return a listener recording each pass of the optimizer as a phase
+     */
+    private static OptimizerListener phases(ClaferStatistics statistics, int constructiveDisjunctionThreads) {
+        return new OptimizerListener() {
+
+            @Override
+            public void beforePass(String pass, IrModule module) {
+                statistics.start(pass);
+                if (constructiveDisjunctionThreads > 1 && "ConstructiveDisjunction".equals(pass)) {
+                    // The probes run on a pool the statistics do not see.
+                    statistics.callerThreadOnly();
+                }
+                statistics.count("irConstraintsBefore", module.getConstraints().size());
+            }
+
+            @Override
+            public void afterPass(String pass, IrModule module, Coalesce coalesce) {
+                statistics.count("irConstraintsAfter", module.getConstraints().size());
+                statistics.count("coalescedVariables", coalesce.size());
+                statistics.stop();
+            }
+        };
+    }
+
+    private static Model[] newModels(int n) {
+        Model[] models = new Model[n];
+        for (int i = 0; i < models.length; i++) {
+            models[i] = new Model();
+        }
+        return models;
+    }
+
+    /**
+     * The search strategy of a solver in the portfolio. The first solver uses
+     * the strategy of the options, the next solvers the other deterministic
+     * strategies, and the remaining solvers search randomly.
+     *
+     * @param options the compiler options
+     * @param worker the index of the solver in the portfolio
+     * @return the options of the solver
+     */
+    private static ClaferOption portfolioOptions(ClaferOption options, int worker) {
+        List<ClaferSearchStrategy> strategies = new ArrayList<>();
+        strategies.add(options.getStrategy());
+        for (ClaferSearchStrategy strategy : ClaferSearchStrategy.values()) {
+            if (strategy != ClaferSearchStrategy.Random && !strategies.contains(strategy)) {
+                strategies.add(strategy);
+            }
+        }
+        return options.setStrategy(worker < strategies.size()
+                ? strategies.get(worker)
+                : ClaferSearchStrategy.Random);
+    }
+
+    /**
+     * Computes which instances and reference values are forced, forbidden, or
+     * free. Unlike {@link #fbbt(AstModel, Scopable)}, the answer is exact.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param threads the number of threads searching
+     * @return the backbone, or null if the model has no instances
+     * @throws ReachedLimitException if a query reached the time limit
+     * @see ClaferQueries#backbone()
+     */
+    public static ClaferBackbone backbone(AstModel in, Scopable scope, int threads) throws ReachedLimitException {
+        return compileQueries(in, scope, threads).backbone();
+    }
+
     public static ClaferSolver compile(AstModel in, Scopable scope) {
         return compile(in, scope, ClaferOption.Default);
     }
@@ -270,18 +570,26 @@ public class ClaferCompiler {
 
     public static ClaferSolver compile(AstModel in, Scopable scope, ClaferOption options) {
         try {
-            Model model = new Model();
-            IrModule module = new IrModule();
+            Model[] models = newModels(options.getPortfolioSize());
 
-            AstSolutionMap astSolution = AstCompiler.compile(in, scope.toScope(), module,
-                    options.isFullSymmetryBreaking());
-            IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
-            ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
+            Pair<AstSolutionMap, IrSolutionMap[]> solutions = compile(
+                    in, scope.toScope(), new Objective[0], new Assertion[0], AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(in, scope.toScope(), module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    models, options);
+            AstSolutionMap astSolution = solutions.getFst();
 
-            Solver solver = model.getSolver();
-            set(solver, intStrategies(getDecisionVars(in, options, solution), options));
-            restartPolicy(solver, options);
-            return new ClaferSolver(solver, solution, options.getStrategy() == ClaferSearchStrategy.Random);
+            ClaferSolver[] workers = new ClaferSolver[models.length];
+            for (int i = 0; i < workers.length; i++) {
+                ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, solutions.getSnd()[i]);
+                Solver solver = models[i].getSolver();
+                ClaferOption workerOptions = portfolioSearch(solver, in, solution, options, i);
+                // Random solvers only sample instances if asked to, otherwise they enumerate.
+                workers[i] = new ClaferSolver(solver, solution,
+                        options.getStrategy() == ClaferSearchStrategy.Random
+                        && workerOptions.getStrategy() == ClaferSearchStrategy.Random);
+            }
+            return workers.length == 1 ? workers[0] : new ClaferPortfolioSolver(workers);
         } catch (UnsatisfiableException e) {
         	
         	throw e;
@@ -319,6 +627,189 @@ public class ClaferCompiler {
         }
     }
 
+    public static ClaferQueries compileQueries(AstModel in, Scopable scope, int threads) {
+        return compileQueries(in, scope, ClaferOption.Default, threads);
+    }
+
+    /**
+     * Compile the model once per thread for answering batches of queries in
+     * parallel. Every copy searches with the strategy of the options.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param options the compiler options
+     * @param threads the number of threads answering queries
+     * @return the queries of the model
+     */
+    public static ClaferQueries compileQueries(AstModel in, Scopable scope, ClaferOption options, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive, not " + threads);
+        }
+        try {
+            Model[] models = newModels(threads);
+
+            Pair<AstSolutionMap, IrSolutionMap[]> solutions = compile(
+                    in, scope.toScope(), new Objective[0], new Assertion[0], AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(in, scope.toScope(), module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    models, options);
+            AstSolutionMap astSolution = solutions.getFst();
+
+            ClaferSolver[] workers = new ClaferSolver[models.length];
+            for (int i = 0; i < workers.length; i++) {
+                ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, solutions.getSnd()[i]);
+                Solver solver = models[i].getSolver();
+                set(solver, intStrategies(getDecisionVars(in, options, solution), options));
+                restartPolicy(solver, options);
+                workers[i] = new ClaferSolver(solver, solution);
+            }
+            return new ClaferQueries(workers);
+        } catch (UnsatisfiableException e) {
+            return new ClaferQueries(new ClaferSolver());
+        }
+    }
+
+    public static ClaferSampler compileSampler(AstModel in, Scopable scope, int samples, int threads) {
+        return compileSampler(in, scope, ClaferOption.Default, samples, threads);
+    }
+
+    /**
+     * Compile the model once per thread for sampling diverse instances in
+     * parallel. Every copy searches randomly, whatever the strategy of the
+     * options.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param options the compiler options
+     * @param samples the number of samples to take
+     * @param threads the number of threads sampling
+     * @return the sampler of the model
+     */
+    public static ClaferSampler compileSampler(AstModel in, Scopable scope, ClaferOption options,
+            int samples, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive, not " + threads);
+        }
+        try {
+            Model[] models = newModels(threads);
+
+            Pair<AstSolutionMap, IrSolutionMap[]> solutions = compile(
+                    in, scope.toScope(), new Objective[0], new Assertion[0], AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(in, scope.toScope(), module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    models, options);
+            AstSolutionMap astSolution = solutions.getFst();
+
+            ClaferOption random = options.setStrategy(ClaferSearchStrategy.Random);
+            Solver[] solvers = new Solver[models.length];
+            ClaferSolutionMap[] solutionMaps = new ClaferSolutionMap[models.length];
+            IntVar[][] vars = new IntVar[models.length][];
+            for (int i = 0; i < solvers.length; i++) {
+                solutionMaps[i] = new ClaferSolutionMap(astSolution, solutions.getSnd()[i]);
+                solvers[i] = models[i].getSolver();
+                set(solvers[i], intStrategies(getDecisionVars(in, random, solutionMaps[i]), random));
+                restartPolicy(solvers[i], random);
+                vars[i] = Assumptions.getInstanceVars(solutionMaps[i]);
+            }
+            return new ClaferSampler(samples, solvers, solutionMaps, vars);
+        } catch (UnsatisfiableException e) {
+            return new ClaferSampler();
+        }
+    }
+
+    public static ClaferDecomposedSolver compileDecomposed(AstModel in, Scopable scope) {
+        return compileDecomposed(in, scope, ClaferOption.Default);
+    }
+
+    /**
+     * Compile the model into one solver per independent part of the optimized
+     * IR. Parts share no variables, so they are searched on their own and
+     * their instances combined.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param options the compiler options
+     * @return the solver of the decomposed model
+     * @see Decomposer
+     */
+    public static ClaferDecomposedSolver compileDecomposed(AstModel in, Scopable scope, ClaferOption options) {
+        try {
+            ClaferStatistics statistics = options.getStatistics();
+            Triple<AstSolutionMap, IrSolutionMap[], Model[]> solutions = compile(
+                    in, scope.toScope(), new Objective[0], new Assertion[0], AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(in, scope.toScope(), module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    options, compiled -> {
+                        Coalesce coalesce = compiled.getSnd();
+                        List<IrModule> modules = phase(statistics, "decompose",
+                                () -> Decomposer.decompose(compiled.getThd()));
+                        count(statistics, "parts", modules.size());
+                        Model[] models = newModels(modules.size());
+                        IrSolutionMap[] irSolutions = phase(statistics, "irCompile", () -> {
+                            Phase phase = currentPhase(statistics);
+                            return IntStream.range(0, models.length).parallel()
+                                    .mapToObj(i -> worker(statistics, phase,
+                                            () -> IrCompiler.compileOptimized(coalesce, modules.get(i), models[i], options.isWatchedJoins(), options.isDenseSets())))
+                                    .toArray(IrSolutionMap[]::new);
+                        });
+                        return new Triple<>(compiled.getFst(), irSolutions, models);
+                    });
+            Model[] models = solutions.getThd();
+            ClaferSolutionMap solution = new ClaferSolutionMap(solutions.getFst(),
+                    IrSolutionMap.merge(solutions.getSnd()));
+
+            List<List<IntVar>> decisionVars = getDecisionVars(in, options, solution);
+            Solver[] solvers = new Solver[models.length];
+            boolean[] decided = new boolean[models.length];
+            for (int i = 0; i < solvers.length; i++) {
+                Model model = models[i];
+                List<List<IntVar>> partVars = decisionVars.stream()
+                        .map(vars -> vars.stream().filter(var -> var.getModel() == model).collect(Collectors.toList()))
+                        .collect(Collectors.toList());
+                solvers[i] = model.getSolver();
+                decided[i] = partVars.stream().anyMatch(vars -> !vars.isEmpty());
+                set(solvers[i], intStrategies(partVars, options));
+                restartPolicy(solvers[i], options);
+            }
+            return new ClaferDecomposedSolver(solvers, decided, solution);
+        } catch (UnsatisfiableException e) {
+            return new ClaferDecomposedSolver();
+        }
+    }
+
+    public static ClaferCounter compileCounter(AstModel in, Scopable scope) {
+        return compileCounter(in, scope, ClaferOption.Default);
+    }
+
+    /**
+     * Compile the model for counting its instances. The instances counted are
+     * the instances {@link ClaferSolver} would enumerate with the same
+     * options.
+     *
+     * @param in the model
+     * @param scope the scope
+     * @param options the compiler options
+     * @return the counter of the model
+     */
+    public static ClaferCounter compileCounter(AstModel in, Scopable scope, ClaferOption options) {
+        try {
+            Model model = new Model();
+
+            Pair<AstSolutionMap, IrSolutionMap> solutions = compile(
+                    in, scope.toScope(), new Objective[0], new Assertion[0], AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(in, scope.toScope(), module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    model, options);
+            ClaferSolutionMap solution = new ClaferSolutionMap(solutions.getFst(), solutions.getSnd());
+
+            List<IntVar> decisionVars = new ArrayList<>();
+            getDecisionVars(in, options, solution).forEach(decisionVars::addAll);
+            return new ClaferCounter(model.getSolver(), decisionVars.toArray(new IntVar[decisionVars.size()]));
+        } catch (UnsatisfiableException e) {
+            return new ClaferCounter();
+        }
+    }
+
     public static ClaferOptimizer compile(AstModel in, Scopable scope, Objective... objectives) {
         return compile(in, scope, objectives, ClaferOption.Default);
     }
@@ -326,47 +817,86 @@ public class ClaferCompiler {
     public static ClaferOptimizer compile(AstModel in, Scopable scope, Objective[] objectives, ClaferOption options) {
         Check.noNullsNotEmpty(objectives);
         try {
-            Model model = new Model();
-            IrModule module = new IrModule();
+            Model[] models = newModels(options.getPortfolioSize());
 
-            AstSolutionMap astSolution = AstCompiler.compile(
-                    in, scope.toScope(), objectives, module,
-                    options.isFullSymmetryBreaking());
-            IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
-            ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
+            Pair<AstSolutionMap, IrSolutionMap[]> solutions = compile(
+                    in, scope.toScope(), objectives, new Assertion[0], AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(
+                            in, scope.toScope(), objectives, module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    models, options);
+            AstSolutionMap astSolution = solutions.getFst();
 
             IrIntVar[] objectiveIrVars = new IrIntVar[objectives.length];
             for (int i = 0; i < objectiveIrVars.length; i++) {
                 objectiveIrVars[i] = astSolution.getObjectiveVar(objectives[i]);
             }
-            Either<Integer, IntVar>[] objectiveVars = irSolution.getVars(objectiveIrVars);
-
-            boolean[] maximizes = new boolean[objectives.length];
-            IntVar[] scores = new IntVar[objectives.length];
-            int variableScores = 0;
-            Integer[] fixedScores = new Integer[objectives.length];
-            for (int i = 0; i < objectives.length; i++) {
-                if (objectiveVars[i].isLeft()) {
-                    fixedScores[i] = objectiveVars[i].getLeft();
+
+            Solver[] solvers = new Solver[models.length];
+            ClaferSolutionMap[] solutionMaps = new ClaferSolutionMap[models.length];
+            IntVar[][] workerScores = new IntVar[models.length][];
+            boolean[] maximizes = null;
+            Integer[] fixedScores = null;
+            for (int w = 0; w < models.length; w++) {
+                IrSolutionMap irSolution = solutions.getSnd()[w];
+                solutionMaps[w] = new ClaferSolutionMap(astSolution, irSolution);
+                Either<Integer, IntVar>[] objectiveVars = irSolution.getVars(objectiveIrVars);
+
+                // Every model is compiled from the same module, so the same scores are fixed.
+                maximizes = new boolean[objectives.length];
+                IntVar[] scores = new IntVar[objectives.length];
+                int variableScores = 0;
+                fixedScores = new Integer[objectives.length];
+                for (int i = 0; i < objectives.length; i++) {
+                    if (objectiveVars[i].isLeft()) {
+                        fixedScores[i] = objectiveVars[i].getLeft();
+                    } else {
+                        maximizes[variableScores] = objectives[i].isMaximize();
+                        scores[variableScores] = objectiveVars[i].getRight();
+                        variableScores++;
+                    }
+                }
+                maximizes = Arrays.copyOf(maximizes, variableScores);
+                workerScores[w] = Arrays.copyOf(scores, variableScores);
+
+                solvers[w] = models[w].getSolver();
+                if (maximizes.length > 1) {
+                    // Each solver searches its own box of the objective space with the same strategy.
+                    set(solvers[w], intStrategies(getDecisionVars(in, options, solutionMaps[w]), options));
+                    restartPolicy(solvers[w], options);
                 } else {
-                    maximizes[variableScores] = objectives[i].isMaximize();
-                    scores[variableScores] = objectiveVars[i].getRight();
-                    variableScores++;
+                    portfolioSearch(solvers[w], in, solutionMaps[w], options, w);
                 }
             }
-            maximizes = Arrays.copyOf(maximizes, variableScores);
-            scores = Arrays.copyOf(scores, variableScores);
+            Solver solver = solvers[0];
+            ClaferSolutionMap solution = solutionMaps[0];
+            IntVar[] scores = workerScores[0];
 
-            Solver solver = model.getSolver();
-            set(solver, intStrategies(getDecisionVars(in, options, solution), options));
-            restartPolicy(solver, options);
-            ClaferOptimizer optimizer = maximizes.length == 0
-                    ? new ClaferNoObjectiveOptimizer(new ClaferSolver(solver, solution))
-                    : maximizes.length == 1
-                            ? new EquivalentParetoSolver(new ClaferSingleObjectiveOptimizer(solver, solution, maximizes[0], scores[0]))
-                            : new EquivalentParetoSolver(new ClaferMultiObjectiveOptimizerGIA(solver, solution, maximizes, scores));
+            ClaferOptimizer optimizer;
+            if (maximizes.length == 0) {
+                ClaferSolver[] workers = new ClaferSolver[models.length];
+                for (int w = 0; w < models.length; w++) {
+                    workers[w] = new ClaferSolver(solvers[w], solutionMaps[w]);
+                }
+                optimizer = new ClaferNoObjectiveOptimizer(
+                        workers.length == 1 ? workers[0] : new ClaferPortfolioSolver(workers));
+            } else if (maximizes.length > 1) {
+                optimizer = new EquivalentParetoSolver(models.length > 1
+                        ? new ClaferMultiObjectiveOptimizerParallelGIA(solvers, solutionMaps, maximizes, workerScores)
+                        : options.isParetoArchive()
+                        ? new ClaferMultiObjectiveOptimizerArchive(solver, solution, maximizes, scores)
+                        : new ClaferMultiObjectiveOptimizerGIA(solver, solution, maximizes, scores));
+            } else if (models.length == 1) {
+                optimizer = new EquivalentParetoSolver(new ClaferSingleObjectiveOptimizer(solver, solution, maximizes[0], scores[0]));
+            } else {
+                IntVar[] portfolioScores = new IntVar[models.length];
+                for (int w = 0; w < models.length; w++) {
+                    portfolioScores[w] = workerScores[w][0];
+                }
+                optimizer = new EquivalentParetoSolver(new ClaferPortfolioOptimizer(solvers, solutionMaps, maximizes[0], portfolioScores));
+            }
 
-            return variableScores < fixedScores.length
+            return maximizes.length < fixedScores.length
                     ? new PartiallyKnownOptimizer(optimizer, fixedScores)
                     : optimizer;
         } catch (UnsatisfiableException e) {
@@ -382,12 +912,15 @@ public class ClaferCompiler {
         Check.noNullsNotEmpty(assertions);
         try {
             Model model = new Model();
-            IrModule module = new IrModule();
 
-            AstSolutionMap astSolution = AstCompiler.compile(
-                    in, scope.toScope(), assertions, module,
-                    options.isFullSymmetryBreaking());
-            IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
+            Pair<AstSolutionMap, IrSolutionMap> solutions = compile(
+                    in, scope.toScope(), new Objective[0], assertions, AstCompiler.DefaultAnalyzers,
+                    (analyzers, module) -> AstCompiler.compile(
+                            in, scope.toScope(), assertions, module, analyzers,
+                            options.isFullSymmetryBreaking()),
+                    model, options);
+            AstSolutionMap astSolution = solutions.getFst();
+            IrSolutionMap irSolution = solutions.getSnd();
             ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
 
             Map<Assertion, Either<Boolean, BoolVar>> assertionMap = new HashMap<>(assertions.length);
@@ -410,12 +943,15 @@ public class ClaferCompiler {
 
     public static ClaferUnsat compileUnsat(AstModel in, Scopable scope, ClaferOption options) {
         Model model = new Model();
-        IrModule module = new IrModule();
+        Analyzer[] analyzers = Util.cons(new UnsatAnalyzer(), AstCompiler.DefaultAnalyzers);
 
-        AstSolutionMap astSolution = AstCompiler.compile(in, scope.toScope(), module,
-                Util.cons(new UnsatAnalyzer(), AstCompiler.DefaultAnalyzers),
-                options.isFullSymmetryBreaking());
-        IrSolutionMap irSolution = IrCompiler.compile(module, model, options.isFullOptimizations());
+        Pair<AstSolutionMap, IrSolutionMap> solutions = compile(
+                in, scope.toScope(), new Objective[0], new Assertion[0], analyzers,
+                (phases, module) -> AstCompiler.compile(in, scope.toScope(), module, phases,
+                        options.isFullSymmetryBreaking()),
+                model, options);
+        AstSolutionMap astSolution = solutions.getFst();
+        IrSolutionMap irSolution = solutions.getSnd();
         ClaferSolutionMap solution = new ClaferSolutionMap(astSolution, irSolution);
 
         Solver solver = model.getSolver();
@@ -0,0 +1,514 @@
+package org.clafer.compiler;
+
+import gnu.trove.list.array.TIntArrayList;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.view.IView;
+
+/**
+ * Counts the instances of a model without enumerating them. An instance is an
+ * assignment to the decision variables, the same variables
+ * {@link ClaferSolver} enumerates, that extends to a solution of the whole
+ * model.
+ * <p>
+ * The exact count branches on the decision variables. After every branch the
+ * undecided variables split into components that share no constraint, and the
+ * count is the product of the counts of the components. Independent subtrees
+ * of the Clafer hierarchy become separate components once the choices linking
+ * them are made. Components are cached on their domains and the values of the
+ * decided variables their constraints read, so a subtree that reappears in the
+ * same state is only counted once.
+ * <p>
+ * The estimate follows random paths down the same search tree. Each path
+ * multiplies the domain sizes it branches over, which is an unbiased estimate
+ * of the count.
+ *
+ * @author jimmy
+ */
+public class ClaferCounter {
+
+    private final Solver solver;
+    private final Set<Variable> decisionVars;
+    private final Map<Variable, Integer> indices = new IdentityHashMap<>();
+    private final Map<TIntArrayList, BigInteger> cache = new HashMap<>();
+    private final Random random = new Random();
+    // Null until the root is propagated.
+    private Boolean consistent = null;
+    private BigInteger count = null;
+    private long timeLimit = 0;
+    private long deadline = 0;
+
+    ClaferCounter(Solver solver, IntVar[] decisionVars) {
+        this.solver = solver;
+        this.decisionVars = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.decisionVars.addAll(Arrays.asList(decisionVars));
+        for (Variable var : solver.getModel().getVars()) {
+            index(var);
+        }
+    }
+
+    ClaferCounter() {
+        this.solver = null;
+        this.decisionVars = Collections.emptySet();
+        this.consistent = false;
+        this.count = BigInteger.ZERO;
+    }
+
+    /**
+     * Limit the time of each count or estimate.
+     *
+     * @param ms the time limit in milliseconds
+     * @return this counter
+     */
+    public ClaferCounter limitTime(long ms) {
+        timeLimit = ms;
+        return this;
+    }
+
+    public Solver getInternalSolver() {
+        return solver;
+    }
+
+    /**
+     * @return the exact number of instances
+     * @throws ReachedLimitException if the time limit is reached before the
+     * count is known
+     */
+    public BigInteger count() throws ReachedLimitException {
+        if (count == null) {
+            startClock();
+            count = propagateRoot()
+                    ? product(components(Arrays.asList(solver.getModel().getVars())), this::count)
+                    : BigInteger.ZERO;
+        }
+        return count;
+    }
+
+    /**
+     * Estimate the number of instances. The lower bound holds with the given
+     * confidence whatever the distribution of the paths, by Markov's inequality
+     * over groups of paths. The upper bound applies Cantelli's inequality to
+     * the sample variance, so it is only as good as the variance of the
+     * sample, and is never above the product of the domain sizes of the
+     * decision variables.
+     *
+     * @param samples the number of random paths
+     * @param confidence the probability that the count is within the bounds
+     * @return the estimate
+     * @throws ReachedLimitException if the time limit is reached before every
+     * path is followed
+     */
+    public Estimate estimate(int samples, double confidence) throws ReachedLimitException {
+        if (samples < 1) {
+            throw new IllegalArgumentException("Number of samples must be positive, not " + samples);
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1, not " + confidence);
+        }
+        if (count != null) {
+            return new Estimate(count, count, count, confidence, samples);
+        }
+        startClock();
+        if (!propagateRoot()) {
+            return new Estimate(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, confidence, samples);
+        }
+        List<List<Variable>> components = components(Arrays.asList(solver.getModel().getVars()));
+        BigInteger[] paths = new BigInteger[samples];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = product(components, this::probe);
+        }
+        return estimate(paths, confidence);
+    }
+
+    private Estimate estimate(BigInteger[] paths, double confidence) {
+        MathContext context = MathContext.DECIMAL64;
+        int n = paths.length;
+        BigDecimal mean = mean(paths, 0, n, context);
+
+        // Every group mean is at least c times the count with probability at
+        // most 1/c, so the smallest of k group means is with probability at
+        // most c^-k.
+        int groups = Math.max(1, (int) Math.sqrt(n));
+        BigDecimal minGroupMean = null;
+        for (int g = 0; g < groups; g++) {
+            BigDecimal groupMean = mean(paths, g * n / groups, (g + 1) * n / groups, context);
+            minGroupMean = minGroupMean == null ? groupMean : minGroupMean.min(groupMean);
+        }
+        double c = Math.pow(1 - confidence, -1.0 / groups);
+        BigInteger low = minGroupMean.divide(BigDecimal.valueOf(c), context)
+                .setScale(0, RoundingMode.CEILING).toBigInteger();
+
+        BigInteger high;
+        if (mean.signum() == 0) {
+            high = BigInteger.ZERO;
+        } else {
+            // The variance relative to the mean so that huge counts do not
+            // overflow doubles.
+            double variance = 0;
+            for (BigInteger path : paths) {
+                double deviation = new BigDecimal(path).divide(mean, context).doubleValue() - 1;
+                variance += deviation * deviation;
+            }
+            variance = n > 1 ? variance / (n - 1) : 0;
+            double margin = Math.sqrt(variance / n * confidence / (1 - confidence));
+            high = mean.multiply(BigDecimal.valueOf(1 + margin), context)
+                    .setScale(0, RoundingMode.FLOOR).toBigInteger()
+                    .min(trivialBound());
+        }
+        BigInteger estimate = mean.setScale(0, RoundingMode.HALF_UP).toBigInteger();
+        return new Estimate(estimate, low.min(estimate), high.max(estimate), confidence, n);
+    }
+
+    private static BigDecimal mean(BigInteger[] paths, int from, int to, MathContext context) {
+        BigInteger sum = BigInteger.ZERO;
+        for (int i = from; i < to; i++) {
+            sum = sum.add(paths[i]);
+        }
+        return new BigDecimal(sum).divide(BigDecimal.valueOf(to - from), context);
+    }
+
+    private BigInteger trivialBound() {
+        BigInteger bound = BigInteger.ONE;
+        for (Variable var : decisionVars) {
+            bound = bound.multiply(BigInteger.valueOf(((IntVar) var).getDomainSize()));
+        }
+        return bound;
+    }
+
+    private void startClock() {
+        deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : 0;
+    }
+
+    private void checkLimit() throws ReachedLimitException {
+        if (deadline > 0 && System.currentTimeMillis() > deadline) {
+            throw new ReachedLimitException();
+        }
+    }
+
+    private boolean propagateRoot() {
+        if (consistent == null) {
+            try {
+                solver.propagate();
+                consistent = true;
+            } catch (ContradictionException e) {
+                solver.getEngine().flush();
+                consistent = false;
+            }
+        }
+        return consistent;
+    }
+
+    private BigInteger count(List<Variable> component) {
+        checkLimit();
+        IntVar var = branchVar(component);
+        if (var == null) {
+            return exists(component) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        TIntArrayList key = key(component);
+        BigInteger cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        BigInteger total = BigInteger.ZERO;
+        int ub = var.getUB();
+        for (int value = var.getLB(); value <= ub; value = var.nextValue(value)) {
+            int branch = value;
+            total = total.add(branch(() -> var.instantiateTo(branch, Cause.Null),
+                    () -> product(components(component), this::count), BigInteger.ZERO));
+        }
+        cache.put(key, total);
+        return total;
+    }
+
+    private BigInteger probe(List<Variable> component) {
+        checkLimit();
+        IntVar var = branchVar(component);
+        if (var == null) {
+            return exists(component) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        BigInteger cached = cache.get(key(component));
+        if (cached != null) {
+            return cached;
+        }
+        int size = var.getDomainSize();
+        int value = var.getLB();
+        for (int i = random.nextInt(size); i > 0; i--) {
+            value = var.nextValue(value);
+        }
+        int branch = value;
+        return branch(() -> var.instantiateTo(branch, Cause.Null),
+                () -> product(components(component), this::probe), BigInteger.ZERO)
+                .multiply(BigInteger.valueOf(size));
+    }
+
+    /**
+     * @param component the variables of the component
+     * @return {@code true} if the undecided variables of the component have a
+     * solution, {@code false} otherwise
+     */
+    private boolean exists(List<Variable> component) {
+        checkLimit();
+        for (Variable var : component) {
+            if (var.isInstantiated()) {
+                continue;
+            }
+            if (var instanceof IntVar) {
+                IntVar ivar = (IntVar) var;
+                int ub = ivar.getUB();
+                for (int value = ivar.getLB(); value <= ub; value = ivar.nextValue(value)) {
+                    int branch = value;
+                    if (branch(() -> ivar.instantiateTo(branch, Cause.Null), () -> exists(component), false)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (var instanceof SetVar) {
+                SetVar svar = (SetVar) var;
+                int element = -1;
+                for (int e : svar.getUB()) {
+                    if (!svar.getLB().contains(e)) {
+                        element = e;
+                        break;
+                    }
+                }
+                int branch = element;
+                return branch(() -> svar.force(branch, Cause.Null), () -> exists(component), false)
+                        || branch(() -> svar.remove(branch, Cause.Null), () -> exists(component), false);
+            }
+            throw new IllegalStateException("Cannot count " + var);
+        }
+        return true;
+    }
+
+    private <T> T branch(Decision decision, Supplier<T> next, T contradiction) {
+        IEnvironment environment = solver.getModel().getEnvironment();
+        environment.worldPush();
+        try {
+            decision.apply();
+            solver.propagate();
+            return next.get();
+        } catch (ContradictionException e) {
+            solver.getEngine().flush();
+            return contradiction;
+        } finally {
+            environment.worldPop();
+        }
+    }
+
+    private static BigInteger product(List<List<Variable>> components, Function<List<Variable>, BigInteger> counter) {
+        BigInteger product = BigInteger.ONE;
+        for (List<Variable> component : components) {
+            product = product.multiply(counter.apply(component));
+            if (product.signum() == 0) {
+                break;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * The decision variable with the smallest domain, first fail.
+     */
+    private IntVar branchVar(List<Variable> component) {
+        IntVar branch = null;
+        for (Variable var : component) {
+            if (!var.isInstantiated() && decisionVars.contains(var)) {
+                IntVar ivar = (IntVar) var;
+                if (branch == null || ivar.getDomainSize() < branch.getDomainSize()) {
+                    branch = ivar;
+                }
+            }
+        }
+        return branch;
+    }
+
+    /**
+     * Split the undecided variables into components that share no active
+     * constraint. Decisions in one component cannot affect the others.
+     */
+    private List<List<Variable>> components(List<Variable> vars) {
+        Set<Variable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<List<Variable>> components = new ArrayList<>();
+        for (Variable var : vars) {
+            if (!var.isInstantiated() && seen.add(var)) {
+                List<Variable> component = new ArrayList<>();
+                component.add(var);
+                for (int i = 0; i < component.size(); i++) {
+                    for (Variable neighbour : neighbours(component.get(i))) {
+                        if (!neighbour.isInstantiated() && seen.add(neighbour)) {
+                            component.add(neighbour);
+                        }
+                    }
+                }
+                components.add(component);
+            }
+        }
+        return components;
+    }
+
+    private static List<Variable> neighbours(Variable var) {
+        List<Variable> neighbours = new ArrayList<>();
+        for (int i = 0; i < var.getNbProps(); i++) {
+            Propagator<?> prop = var.getPropagator(i);
+            if (!prop.isPassive()) {
+                neighbours.addAll(Arrays.asList(prop.getVars()));
+            }
+        }
+        for (IView view : var.getViews()) {
+            if (view != null) {
+                neighbours.add(view);
+            }
+        }
+        if (var instanceof IView) {
+            neighbours.add(((IView) var).getVariable());
+        }
+        return neighbours;
+    }
+
+    /**
+     * The state the count of the component depends on: the domains of its
+     * variables and the values of the decided variables its constraints read.
+     */
+    private TIntArrayList key(List<Variable> component) {
+        List<Variable> vars = new ArrayList<>(component);
+        Set<Variable> decided = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Variable var : component) {
+            for (Variable neighbour : neighbours(var)) {
+                if (neighbour.isInstantiated() && decided.add(neighbour)) {
+                    vars.add(neighbour);
+                }
+            }
+        }
+        vars.sort(Comparator.comparingInt(this::index));
+        TIntArrayList key = new TIntArrayList();
+        key.add(vars.size());
+        for (Variable var : vars) {
+            key.add(index(var));
+            encode(var, key);
+        }
+        return key;
+    }
+
+    private int index(Variable var) {
+        Integer index = indices.get(var);
+        if (index == null) {
+            index = indices.size();
+            indices.put(var, index);
+        }
+        return index;
+    }
+
+    private static void encode(Variable var, TIntArrayList key) {
+        if (var instanceof IntVar) {
+            IntVar ivar = (IntVar) var;
+            int lb = ivar.getLB();
+            int ub = ivar.getUB();
+            if (ivar.getDomainSize() == ub - lb + 1) {
+                key.add(0);
+                key.add(lb);
+                key.add(ub);
+            } else {
+                key.add(1);
+                key.add(ivar.getDomainSize());
+                for (int value = lb; value <= ub; value = ivar.nextValue(value)) {
+                    key.add(value);
+                }
+            }
+        } else if (var instanceof SetVar) {
+            SetVar svar = (SetVar) var;
+            key.add(2);
+            key.add(svar.getLB().size());
+            for (int e : svar.getLB()) {
+                key.add(e);
+            }
+            key.add(svar.getUB().size());
+            for (int e : svar.getUB()) {
+                key.add(e);
+            }
+        } else {
+            throw new IllegalStateException("Cannot count " + var);
+        }
+    }
+
+    private static interface Decision {
+
+        void apply() throws ContradictionException;
+    }
+
+    /**
+     * An estimate of the number of instances.
+     */
+    public static class Estimate {
+
+        private final BigInteger estimate;
+        private final BigInteger lowerBound;
+        private final BigInteger upperBound;
+        private final double confidence;
+        private final int samples;
+
+        Estimate(BigInteger estimate, BigInteger lowerBound, BigInteger upperBound, double confidence, int samples) {
+            this.estimate = estimate;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.confidence = confidence;
+            this.samples = samples;
+        }
+
+        /**
+         * @return the mean of the random paths
+         */
+        public BigInteger getEstimate() {
+            return estimate;
+        }
+
+        public BigInteger getLowerBound() {
+            return lowerBound;
+        }
+
+        public BigInteger getUpperBound() {
+            return upperBound;
+        }
+
+        /**
+         * @return the probability that the count is within the bounds
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        /**
+         * @return the number of random paths
+         */
+        public int getSamples() {
+            return samples;
+        }
+
+        @Override
+        public String toString() {
+            return estimate + " in [" + lowerBound + ", " + upperBound + "] with confidence " + confidence;
+        }
+    }
+}
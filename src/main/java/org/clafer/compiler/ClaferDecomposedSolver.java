@@ -0,0 +1,234 @@
+package org.clafer.compiler;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Searches a model decomposed into independent parts, each compiled into its
+ * own Choco solver. The instances of the model are the cross product of the
+ * instances of the parts. The cross product is enumerated lazily like an
+ * odometer: the first part turns fastest, and a part is only searched for its
+ * next instance once every combination of the parts before it with its
+ * current instance has been returned. Every part is searched once for each of
+ * its own instances, so the search scales with the sum of the sizes of the
+ * parts rather than their product.
+ *
+ * @author jimmy
+ */
+public class ClaferDecomposedSolver implements ClaferSearch {
+
+    private final Part[] parts;
+    private final Portfolio portfolio;
+    private final ClaferSolutionMap solutionMap;
+    // The index of the current instance of each part.
+    private final int[] odometer;
+    private boolean started = false;
+    private boolean more = true;
+    private int count = 0;
+
+    ClaferDecomposedSolver(Solver[] solvers, boolean[] decided, ClaferSolutionMap solutionMap) {
+        this.parts = new Part[solvers.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new Part(solvers[i], decided[i]);
+        }
+        this.portfolio = new Portfolio(solvers);
+        this.solutionMap = solutionMap;
+        this.odometer = new int[solvers.length];
+    }
+
+    ClaferDecomposedSolver() {
+        this.parts = new Part[0];
+        this.portfolio = null;
+        this.solutionMap = null;
+        this.odometer = new int[0];
+        this.more = false;
+    }
+
+    public ClaferSolutionMap getSolutionMap() {
+        return solutionMap;
+    }
+
+    /**
+     * @return the number of independent parts of the model
+     */
+    public int getParts() {
+        return parts.length;
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!more) {
+            return false;
+        }
+        try {
+            if (!started) {
+                started = true;
+                // Search for the first instance of every part in parallel.
+                more = all(part -> !part.found.isEmpty() || part.next());
+            } else {
+                more = advance();
+            }
+        } catch (ReachedLimitException e) {
+            more = false;
+            throw e;
+        }
+        if (more) {
+            count++;
+        }
+        return more;
+    }
+
+    private boolean advance() {
+        for (int i = 0; i < parts.length; i++) {
+            if (odometer[i] + 1 < parts[i].found.size() || parts[i].next()) {
+                odometer[i]++;
+                return true;
+            }
+            odometer[i] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Count every instance. Each part is searched to the end on its own
+     * thread, and the count is the product of the number of instances of the
+     * parts. Enumerating with {@link #find()} afterwards does not search
+     * again.
+     *
+     * @return the number of instances
+     * @throws ReachedLimitException if the time limit is reached before the
+     * count is known
+     */
+    public BigInteger countInstances() throws ReachedLimitException {
+        if (parts.length == 0) {
+            return BigInteger.ZERO;
+        }
+        all(part -> {
+            while (part.next()) {
+            }
+            return true;
+        });
+        BigInteger product = BigInteger.ONE;
+        for (Part part : parts) {
+            product = product.multiply(BigInteger.valueOf(part.found.size()));
+        }
+        return product;
+    }
+
+    /**
+     * Run the task on every part in parallel.
+     *
+     * @return {@code true} if the task returns true for every part
+     */
+    private boolean all(PartTask task) throws ReachedLimitException {
+        boolean[] results = new boolean[parts.length];
+        if (parts.length == 1) {
+            results[0] = task.run(parts[0]);
+        } else {
+            List<Callable<?>> tasks = new ArrayList<>(parts.length);
+            for (int i = 0; i < parts.length; i++) {
+                int index = i;
+                tasks.add(() -> results[index] = task.run(parts[index]));
+            }
+            if (!portfolio.all(tasks)) {
+                throw new ReachedLimitException();
+            }
+        }
+        for (boolean result : results) {
+            if (!result) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        Solution[] solutions = new Solution[parts.length];
+        for (int i = 0; i < solutions.length; i++) {
+            solutions[i] = parts[i].found.get(odometer[i]);
+        }
+        return solutionMap.getInstance(solutions);
+    }
+
+    @Override
+    public int instanceCount() {
+        return count;
+    }
+
+    /**
+     * Limit the time of each part.
+     *
+     * @param ms the time limit in milliseconds
+     * @return this solver
+     */
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        if (portfolio != null) {
+            portfolio.limitTime(ms);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the internal Choco solver of the first part. For debugging
+     * purposes only.
+     *
+     * @return the internal Choco solver
+     */
+    @Override
+    public Solver getInternalSolver() {
+        return parts.length == 0 ? null : parts[0].solver;
+    }
+
+    private static interface PartTask {
+
+        boolean run(Part part) throws ReachedLimitException;
+    }
+
+    private static class Part {
+
+        private final Solver solver;
+        // False if the part has no decision variables, then it has at most one
+        // instance.
+        private final boolean decided;
+        private final List<Solution> found = new ArrayList<>();
+        private boolean exhausted = false;
+
+        Part(Solver solver, boolean decided) {
+            this.solver = solver;
+            this.decided = decided;
+        }
+
+        /**
+         * Search for the next instance of the part.
+         *
+         * @return {@code true} if another instance was found, {@code false}
+         * otherwise
+         */
+        boolean next() throws ReachedLimitException {
+            if (exhausted || (!decided && !found.isEmpty())) {
+                exhausted = true;
+                return false;
+            }
+            boolean solved = solver.solve();
+            if (solver.isStopCriterionMet()) {
+                throw new ReachedLimitException();
+            }
+            if (solved) {
+                found.add(new Solution(solver.getModel()).record());
+            } else {
+                exhausted = true;
+            }
+            return solved;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.choco.constraint.propagator.PropNotDominated;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Finds the Pareto front in a single search tree. The instances found so far
+ * that are not dominated form an archive. The search prunes every node whose
+ * scores are weakly dominated by a point in the archive, so every instance it
+ * finds is a new point that is not dominated so far. Adding the point to the
+ * archive drops the points it dominates. Once the search is exhausted, the
+ * archive is the Pareto front.
+ *
+ * @author jimmy
+ */
+public class ClaferMultiObjectiveOptimizerArchive extends AbstractImprovementOptimizer {
+
+    private final PropNotDominated notDominated;
+    private final Constraint constraint;
+    // The solutions of the points in the archive, in the same order.
+    private final List<int[]> points = new ArrayList<>();
+    private final List<Solution> solutions = new ArrayList<>();
+    private boolean searched = false;
+    private int count = 0;
+
+    ClaferMultiObjectiveOptimizerArchive(Solver solver, ClaferSolutionMap solutionMap,
+            boolean[] maximizes, IntVar[] scores) {
+        super(solver, solutionMap, maximizes, scores);
+        this.notDominated = new PropNotDominated(scores, maximizes);
+        this.constraint = new Constraint("notDominated", notDominated);
+        constraint.post();
+    }
+
+    private int current() {
+        if (count == 0 || count > points.size()) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return count - 1;
+    }
+
+    private void add(int[] point) {
+        for (int i = points.size() - 1; i >= 0; i--) {
+            if (PropNotDominated.weaklyDominates(maximizes, point, points.get(i))) {
+                points.remove(i);
+                solutions.remove(i);
+            }
+        }
+        points.add(point);
+        solutions.add(new Solution(solver.getModel()).record());
+        notDominated.addPoint(point);
+        // The point also prunes the nodes left to explore after backtracking.
+        solver.getEngine().propagateOnBacktrack(notDominated);
+    }
+
+    private void search() throws ReachedLimitException {
+        searched = true;
+        if (isContradiction()) {
+            return;
+        }
+        while (solver.solve()) {
+            int[] point = new int[scores.length];
+            for (int i = 0; i < point.length; i++) {
+                point[i] = scores[i].getValue();
+            }
+            add(point);
+        }
+        // Let the equivalent instances of every point be found afterwards.
+        solver.getModel().unpost(constraint);
+        if (solver.isStopCriterionMet()) {
+            InstanceModel[] instances = new InstanceModel[points.size()];
+            int[][] objectiveValues = new int[points.size()][];
+            for (int i = 0; i < instances.length; i++) {
+                instances[i] = solutionMap.getInstance(solutions.get(i));
+                objectiveValues[i] = points.get(i).clone();
+            }
+            points.clear();
+            solutions.clear();
+            if (instances.length > 0) {
+                throw new ReachedLimitBestKnownException(instances, objectiveValues);
+            }
+            throw new ReachedLimitException();
+        }
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!searched) {
+            search();
+        }
+        if (count < points.size()) {
+            count++;
+            return true;
+        }
+        count = points.size() + 1;
+        return false;
+    }
+
+    @Override
+    protected void restart() {
+        // The search unposts the constraint once it is exhausted.
+        if (constraint.getStatus() == Constraint.Status.FREE) {
+            constraint.post();
+        }
+        points.clear();
+        solutions.clear();
+        notDominated.clear();
+        searched = false;
+        count = 0;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        return solutionMap.getInstance(solutions.get(current()));
+    }
+
+    @Override
+    public Solution solution() {
+        return solutions.get(current());
+    }
+
+    @Override
+    public int[] optimalValues() {
+        return points.get(current()).clone();
+    }
+
+    @Override
+    public int instanceCount() {
+        return Math.min(count, points.size());
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return solver;
+    }
+}
@@ -23,8 +23,11 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
     // GIA
     private Solution solution = null;
     private final List<Constraint> stack = new ArrayList<>();
+    // Exclude the points dominated by the Pareto points found so far.
+    private final List<Constraint> exclusions = new ArrayList<>();
+    // Points found elsewhere, excluded before the next search.
+    private final List<int[]> pending = new ArrayList<>();
     private final IntVar[] bounds;
-    private final Constraint dominate;
 
     ClaferMultiObjectiveOptimizerGIA(Solver solver, ClaferSolutionMap solutionMap,
             boolean[] maximizes, IntVar[] scores) {
@@ -33,16 +36,13 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
         this.bounds = new IntVar[scores.length];
 
         List<IntVar> boundVars = new ArrayList<>(this.bounds.length);
-        List<Constraint> strictlyBetter = new ArrayList<>(this.bounds.length);
         for (int i = 0; i < this.bounds.length; i++) {
             IntVar score = scores[i];
             // TODO: copy the domain from score.
             IntVar bound = solver.getModel().intVar("bound" + i, score.getLB(), score.getUB());
             this.bounds[i] = bound;
             boundVars.add(bound);
-            strictlyBetter.add(solver.getModel().arithm(bound, maximizes[i] ? "<" : ">", score));
         }
-        this.dominate = or(strictlyBetter, solver.getModel());
         for (int i = 0; i < this.bounds.length; i++) {
             solver.getModel().arithm(this.bounds[i], maximizes[i] ? "<=" : ">=", scores[i]).post();
         }
@@ -53,6 +53,19 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
         }
     }
 
+    /**
+     * A new constraint for every Pareto point. Posting the same disjunction
+     * again after unposting it leaves Choco's solution checker with a stale
+     * sum of its reified disjuncts.
+     */
+    private Constraint dominate() {
+        List<Constraint> strictlyBetter = new ArrayList<>(bounds.length);
+        for (int i = 0; i < bounds.length; i++) {
+            strictlyBetter.add(solver.getModel().arithm(bounds[i], maximizes[i] ? "<" : ">", scores[i]));
+        }
+        return or(strictlyBetter, solver.getModel());
+    }
+
     private static Constraint or(List<Constraint> constraints, Model model) {
         return constraints.isEmpty()
                 ? model.falseConstraint()
@@ -75,6 +88,10 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
         if (!more) {
             return false;
         }
+        if (isContradiction()) {
+            more = false;
+            return false;
+        }
         more &= count == 0 ? solveFirst() : solveNext();
         if (solver.isStopCriterionMet()) {
             more = false;
@@ -104,6 +121,11 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
     private boolean solveFirst() {
         assert stack.isEmpty();
 
+        pending.forEach(this::postExclusion);
+        pending.clear();
+        // Create the disjunction before searching, its reified variables must
+        // be created at the root.
+        Constraint dominate = dominate();
         solution = solver.findSolution();
         if (solution == null) {
             return false;
@@ -137,13 +159,55 @@ public class ClaferMultiObjectiveOptimizerGIA extends AbstractImprovementOptimiz
     private boolean solveNext() {
         popAll();
         solver.reset();
+        postExclusion(optimalValues);
+        return solveFirst();
+    }
+
+    /**
+     * Only search for points strictly better than the point in at least one
+     * objective. Takes effect from the next call to {@link #find()}.
+     *
+     * @param point the objective values of a point found elsewhere
+     */
+    void exclude(int[] point) {
+        pending.add(point.clone());
+    }
 
+    private void postExclusion(int[] point) {
         List<Constraint> strictlyBetter = new ArrayList<>(bounds.length);
         for (int i = 0; i < bounds.length; i++) {
-            strictlyBetter.add(solver.getModel().arithm(bounds[i], maximizes[i] ? ">" : "<", optimalValues[i]));
+            strictlyBetter.add(solver.getModel().arithm(bounds[i], maximizes[i] ? ">" : "<", point[i]));
         }
-        or(strictlyBetter, solver.getModel()).post();
-        return solveFirst();
+        Constraint exclusion = or(strictlyBetter, solver.getModel());
+        exclusion.post();
+        exclusions.add(exclusion);
+    }
+
+    /**
+     * Remove the exclusions so that the solver can be searched again for the
+     * instances of any Pareto point found. No more Pareto points are found
+     * afterwards.
+     */
+    void clearExclusions() {
+        more = false;
+        popAll();
+        exclusions.forEach(solver.getModel()::unpost);
+        exclusions.clear();
+        pending.clear();
+        for (int i = 0; i < bounds.length; i++) {
+            push(solver.getModel().arithm(bounds[i], "=", scores[i]));
+        }
+    }
+
+    @Override
+    protected void restart() {
+        count = 0;
+        more = true;
+        solution = null;
+        popAll();
+        exclusions.forEach(solver.getModel()::unpost);
+        exclusions.clear();
+        pending.clear();
     }
 
     @Override
@@ -36,6 +36,9 @@ public class ClaferMultiObjectiveOptimizerOIA extends AbstractImprovementOptimiz
 
     @Override
     public boolean find() throws ReachedLimitException {
+        if (solutions == null && isContradiction()) {
+            solutions = new ArrayList<>();
+        }
         if (solutions == null) {
             solutions = new ArrayList<>();
             List<Constraint> stack = new ArrayList<>();
@@ -79,6 +82,12 @@ public class ClaferMultiObjectiveOptimizerOIA extends AbstractImprovementOptimiz
         return count++ < solutions.size();
     }
 
+    @Override
+    protected void restart() {
+        solutions = null;
+        count = 0;
+    }
+
     @Override
     public InstanceModel instance() {
         if (solutions == null) {
@@ -0,0 +1,256 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Runs the guided improvement algorithm on separate copies of the model in
+ * parallel. The range of the first objective is split into boxes, one for each
+ * copy. Every box searches for the Pareto points inside of it and adds them to
+ * a shared archive. Before looking for its next point, a box excludes the
+ * points dominated by the points the other boxes added to the archive since.
+ * The Pareto front is the non-dominated points of the archive.
+ *
+ * @author jimmy
+ */
+public class ClaferMultiObjectiveOptimizerParallelGIA extends AbstractImprovementOptimizer {
+
+    private final ClaferMultiObjectiveOptimizerGIA[] boxes;
+    private final Portfolio portfolio;
+    private final List<Point> archive = new ArrayList<>();
+    private Point[] front = null;
+    private int count = 0;
+
+    ClaferMultiObjectiveOptimizerParallelGIA(Solver[] solvers, ClaferSolutionMap[] solutionMaps,
+            boolean[] maximizes, IntVar[][] scores) {
+        super(solvers[0], solutionMaps[0], maximizes, scores[0]);
+        if (solvers.length != solutionMaps.length || solvers.length != scores.length) {
+            throw new IllegalArgumentException();
+        }
+        int low = scores[0][0].getLB();
+        int high = scores[0][0].getUB();
+        int size = (int) Math.min(solvers.length, (long) high - low + 1);
+        this.boxes = new ClaferMultiObjectiveOptimizerGIA[size];
+        Solver[] boxSolvers = new Solver[size];
+        for (int i = 0; i < size; i++) {
+            // Split the range as evenly as possible.
+            int boxLow = (int) (low + ((long) high - low + 1) * i / size);
+            int boxHigh = (int) (low + ((long) high - low + 1) * (i + 1) / size - 1);
+            IntVar score = scores[i][0];
+            score.getModel().arithm(score, ">=", boxLow).post();
+            score.getModel().arithm(score, "<=", boxHigh).post();
+            boxes[i] = new ClaferMultiObjectiveOptimizerGIA(solvers[i], solutionMaps[i], maximizes, scores[i]);
+            boxSolvers[i] = solvers[i];
+        }
+        this.portfolio = new Portfolio(boxSolvers);
+    }
+
+    private Point current() {
+        if (count == 0 || count > front.length) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return front[count - 1];
+    }
+
+    private boolean dominates(int[] a, int[] b) {
+        boolean strict = false;
+        for (int i = 0; i < a.length; i++) {
+            if (maximizes[i] ? a[i] < b[i] : a[i] > b[i]) {
+                return false;
+            }
+            strict |= a[i] != b[i];
+        }
+        return strict;
+    }
+
+    private Point[] nonDominated(List<Point> points) {
+        List<Point> nonDominated = new ArrayList<>(points.size());
+        for (Point point : points) {
+            if (points.stream().noneMatch(other -> dominates(other.values, point.values))) {
+                nonDominated.add(point);
+            }
+        }
+        Point[] sorted = nonDominated.toArray(new Point[nonDominated.size()]);
+        // The order of the archive depends on the threads, sort for determinism.
+        Arrays.sort(sorted, (p1, p2) -> {
+            for (int i = 0; i < p1.values.length; i++) {
+                int compare = Integer.compare(p1.values[i], p2.values[i]);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return 0;
+        });
+        return sorted;
+    }
+
+    private Callable<?> search(int box) {
+        ClaferMultiObjectiveOptimizerGIA optimizer = boxes[box];
+        return () -> {
+            int seen = 0;
+            while (true) {
+                List<Point> found;
+                synchronized (archive) {
+                    found = new ArrayList<>(archive.subList(seen, archive.size()));
+                    seen = archive.size();
+                }
+                for (Point point : found) {
+                    if (point.box != box) {
+                        optimizer.exclude(point.values);
+                    }
+                }
+                try {
+                    if (!optimizer.find()) {
+                        return null;
+                    }
+                } catch (ReachedLimitBestKnownException e) {
+                    synchronized (archive) {
+                        while (e.find()) {
+                            archive.add(new Point(box, e.optimalValues(), e.instance()));
+                        }
+                    }
+                    throw e;
+                }
+                Point point = new Point(box, optimizer.optimalValues(), optimizer.solution());
+                synchronized (archive) {
+                    archive.add(point);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (front == null) {
+            List<Callable<?>> tasks = new ArrayList<>(boxes.length);
+            for (int i = 0; i < boxes.length; i++) {
+                tasks.add(search(i));
+            }
+            boolean complete = portfolio.all(tasks);
+            front = nonDominated(archive);
+            archive.clear();
+            for (ClaferMultiObjectiveOptimizerGIA box : boxes) {
+                box.clearExclusions();
+            }
+            if (!complete) {
+                // The front also holds the best instances the boxes knew when they stopped.
+                Point[] bestKnown = front;
+                front = new Point[0];
+                if (bestKnown.length > 0) {
+                    InstanceModel[] instances = new InstanceModel[bestKnown.length];
+                    int[][] objectiveValues = new int[bestKnown.length][];
+                    for (int i = 0; i < bestKnown.length; i++) {
+                        instances[i] = bestKnown[i].getInstance();
+                        objectiveValues[i] = bestKnown[i].values.clone();
+                    }
+                    throw new ReachedLimitBestKnownException(instances, objectiveValues);
+                }
+                throw new ReachedLimitException();
+            }
+        }
+        if (count < front.length) {
+            count++;
+            return true;
+        }
+        count = front.length + 1;
+        return false;
+    }
+
+    @Override
+    public ClaferOptimizer assume(Assumption... assumptions) {
+        for (ClaferMultiObjectiveOptimizerGIA box : boxes) {
+            box.assume(assumptions);
+        }
+        restart();
+        return this;
+    }
+
+    @Override
+    public ClaferOptimizer retract() {
+        for (ClaferMultiObjectiveOptimizerGIA box : boxes) {
+            box.retract();
+        }
+        restart();
+        return this;
+    }
+
+    @Override
+    protected void restart() {
+        archive.clear();
+        front = null;
+        count = 0;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        return current().getInstance();
+    }
+
+    @Override
+    public Solution solution() {
+        return current().solution;
+    }
+
+    @Override
+    public int[] optimalValues() {
+        return current().values.clone();
+    }
+
+    @Override
+    public int instanceCount() {
+        return Math.min(count, front == null ? 0 : front.length);
+    }
+
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        portfolio.limitTime(ms);
+        return this;
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return boxes[count == 0 || count > front.length ? 0 : current().box].getInternalSolver();
+    }
+
+    @Override
+    public ClaferSolutionMap getSolutionMap() {
+        return boxes[count == 0 || count > front.length ? 0 : current().box].getSolutionMap();
+    }
+
+    @Override
+    public IntVar[] getScores() {
+        return boxes[count == 0 || count > front.length ? 0 : current().box].getScores();
+    }
+
+    private class Point {
+
+        private final int box;
+        private final int[] values;
+        private final Solution solution;
+        private final InstanceModel instance;
+
+        Point(int box, int[] values, Solution solution) {
+            this.box = box;
+            this.values = values;
+            this.solution = solution;
+            this.instance = null;
+        }
+
+        Point(int box, int[] values, InstanceModel instance) {
+            this.box = box;
+            this.values = values;
+            this.solution = null;
+            this.instance = instance;
+        }
+
+        InstanceModel getInstance() {
+            return instance == null ? boxes[box].getSolutionMap().getInstance(solution) : instance;
+        }
+    }
+}
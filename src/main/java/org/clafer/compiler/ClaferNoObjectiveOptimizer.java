@@ -20,11 +20,28 @@ public class ClaferNoObjectiveOptimizer implements ClaferOptimizer {
         return solver.find();
     }
 
+    @Override
+    public ClaferOptimizer assume(Assumption... assumptions) {
+        solver.assume(assumptions);
+        return this;
+    }
+
+    @Override
+    public ClaferOptimizer retract() {
+        solver.retract();
+        return this;
+    }
+
     @Override
     public InstanceModel instance() {
         return solver.instance();
     }
 
+    @Override
+    public InstanceModel instanceSnapshot() {
+        return solver.instanceSnapshot();
+    }
+
     @Override
     public int[] optimalValues() {
         return new int[0];
@@ -6,4 +6,22 @@ package org.clafer.compiler;
  * @author jimmy
  */
 public interface ClaferOptimizer extends ClaferSearch, OptimalInstanceIterator {
+
+    /**
+     * Search for optimal instances where the assumptions hold, starting again
+     * from the first optimal instance. The assumptions replace any earlier
+     * assumptions. The compiled model is kept between assumptions.
+     *
+     * @param assumptions the assumptions
+     * @return this optimizer
+     */
+    public ClaferOptimizer assume(Assumption... assumptions);
+
+    /**
+     * Retract every assumption and search for every optimal instance again,
+     * starting from the first optimal instance.
+     *
+     * @return this optimizer
+     */
+    public ClaferOptimizer retract();
 }
@@ -1,5 +1,6 @@
 package org.clafer.compiler;
 
+import java.nio.file.Path;
 import java.util.Set;
 import org.clafer.ast.AstClafer;
 import org.clafer.common.Check;
@@ -28,6 +29,51 @@ public class ClaferOption {
      * branching.
      */
     private final Set<AstClafer>[] branchingPriority;
+    /**
+     * The number of threads used for constructive disjunction during
+     * preprocessing. If one then the variables are probed sequentially.
+     */
+    private final int constructiveDisjunctionThreads;
+    /**
+     * If true then structurally equal IR expressions are shared while
+     * compiling.
+     */
+    private final boolean irInterning;
+    /**
+     * The directory of the compiled model cache, or null if the compiled models
+     * are not cached.
+     */
+    private final Path compiledModelCache;
+    /**
+     * The number of solvers searching in parallel. If one then a single solver
+     * is used.
+     */
+    private final int portfolioSize;
+    /**
+     * If true then the Pareto front is found in a single search that prunes
+     * the points dominated by an archive of the front so far, else the guided
+     * improvement algorithm restarts the search for every Pareto point.
+     */
+    private final boolean paretoArchive;
+    /**
+     * If true then every value of a join watches the supports that can produce
+     * it, else the supports are searched again on every event.
+     */
+    private final boolean watchedJoins;
+    /**
+     * If true then set variables whose envelope is dense are stored as words
+     * of 64 bits, else they use the set variables of Choco.
+     */
+    private final boolean denseSets;
+    /**
+     * Records the phases of compiling, or null if nothing is recorded.
+     */
+    private final ClaferStatistics statistics;
+    /**
+     * Remembers the models compiled in this session, or null if every
+     * compilation starts from scratch.
+     */
+    private final RecompileCache recompileCache;
 
     /**
      * Use the default options.
@@ -36,15 +82,33 @@ public class ClaferOption {
     public static final ClaferOption Basic = new ClaferOption(ClaferSearchStrategy.PreferSmallerInstances, true, true);
     public static final ClaferOption Default = Optimized;
 
-    private ClaferOption(ClaferSearchStrategy strategy, boolean basicSymmetryBreaking, boolean basicOptimizations, Set<AstClafer>[] branchingPriority) {
+    private ClaferOption(ClaferSearchStrategy strategy, boolean basicSymmetryBreaking, boolean basicOptimizations,
+            Set<AstClafer>[] branchingPriority, int constructiveDisjunctionThreads, boolean irInterning,
+            Path compiledModelCache, int portfolioSize, boolean paretoArchive, boolean watchedJoins,
+            boolean denseSets, ClaferStatistics statistics, RecompileCache recompileCache) {
         this.strategy = Check.notNull(strategy);
         this.basicSymmetryBreaking = basicSymmetryBreaking;
         this.basicOptimizations = basicOptimizations;
         this.branchingPriority = branchingPriority;
+        if (constructiveDisjunctionThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive, not " + constructiveDisjunctionThreads);
+        }
+        this.constructiveDisjunctionThreads = constructiveDisjunctionThreads;
+        this.irInterning = irInterning;
+        this.compiledModelCache = compiledModelCache;
+        if (portfolioSize < 1) {
+            throw new IllegalArgumentException("Portfolio size must be positive, not " + portfolioSize);
+        }
+        this.portfolioSize = portfolioSize;
+        this.paretoArchive = paretoArchive;
+        this.watchedJoins = watchedJoins;
+        this.denseSets = denseSets;
+        this.statistics = statistics;
+        this.recompileCache = recompileCache;
     }
 
     private ClaferOption(ClaferSearchStrategy strategy, boolean basicSymmetryBreaking, boolean basicOptimizations) {
-        this(strategy, basicSymmetryBreaking, basicOptimizations, new Set[0]);
+        this(strategy, basicSymmetryBreaking, basicOptimizations, new Set[0], 1, false, null, 1, false, false, false, null, null);
     }
 
     public ClaferSearchStrategy getStrategy() {
@@ -52,7 +116,7 @@ public class ClaferOption {
     }
 
     public ClaferOption setStrategy(ClaferSearchStrategy strategy) {
-        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations);
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
     }
 
     public boolean isBasicSymmetryBreaking() {
@@ -64,11 +128,11 @@ public class ClaferOption {
     }
 
     public ClaferOption basicSymmetryBreaking() {
-        return new ClaferOption(strategy, true, basicOptimizations);
+        return new ClaferOption(strategy, true, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
     }
 
     public ClaferOption fullSymmetryBreaking() {
-        return new ClaferOption(strategy, false, basicOptimizations);
+        return new ClaferOption(strategy, false, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
     }
 
     public boolean isBasicOptimizations() {
@@ -80,11 +144,11 @@ public class ClaferOption {
     }
 
     public ClaferOption basicOptimizations() {
-        return new ClaferOption(strategy, basicSymmetryBreaking, true);
+        return new ClaferOption(strategy, basicSymmetryBreaking, true, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
     }
 
     public ClaferOption fullOptimizations() {
-        return new ClaferOption(strategy, basicSymmetryBreaking, false);
+        return new ClaferOption(strategy, basicSymmetryBreaking, false, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
     }
 
     public Set<AstClafer>[] getBranchingPriority() {
@@ -107,13 +171,193 @@ public class ClaferOption {
      * @return
      */
     public ClaferOption setBranchingPriority(Set<AstClafer>... branchingPriority) {
-        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority);
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public int getConstructiveDisjunctionThreads() {
+        return constructiveDisjunctionThreads;
+    }
+
+    /**
+     * Specify the number of threads for constructive disjunction during
+     * preprocessing. With more than one thread, boolean variables are probed in
+     * parallel against a shared snapshot of the model. The result does not
+     * depend on the number of threads, but can be slightly weaker than
+     * sequential probing since probes on the same snapshot do not see each
+     * other's deductions.
+     *
+     * @param constructiveDisjunctionThreads the number of threads, 1 for
+     * sequential
+     * @return the new options
+     */
+    public ClaferOption setConstructiveDisjunctionThreads(int constructiveDisjunctionThreads) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean isIrInterning() {
+        return irInterning;
+    }
+
+    /**
+     * Intern the IR while compiling. Structurally equal expressions become the
+     * same object, which saves memory and makes the hashing done by the
+     * optimizer cheaper for large scopes.
+     *
+     * @param irInterning whether or not to intern the IR
+     * @return the new options
+     */
+    public ClaferOption setIrInterning(boolean irInterning) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean hasCompiledModelCache() {
+        return compiledModelCache != null;
+    }
+
+    public Path getCompiledModelCache() {
+        return compiledModelCache;
+    }
+
+    /**
+     * Cache the compiled models in the directory. Compiling the same model
+     * under the same scope and options again loads the optimized IR from the
+     * directory instead of recompiling it. The cache is shared safely between
+     * processes.
+     *
+     * @param compiledModelCache the cache directory, or null to disable the
+     * cache
+     * @return the new options
+     */
+    public ClaferOption setCompiledModelCache(Path compiledModelCache) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public int getPortfolioSize() {
+        return portfolioSize;
+    }
+
+    /**
+     * Race a portfolio of solvers on separate threads. The model is compiled
+     * once and every solver gets its own copy configured with a different
+     * search strategy, random seed, or restart policy, starting with the
+     * strategy of these options. The first solver to finish answers, and
+     * optimizing solvers share the best score found so far. With multiple
+     * objectives, the solvers instead split the range of the first objective
+     * between them and merge the Pareto points they find.
+     *
+     * @param portfolioSize the number of solvers, 1 to use a single solver
+     * @return the new options
+     */
+    public ClaferOption setPortfolioSize(int portfolioSize) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean isParetoArchive() {
+        return paretoArchive;
+    }
+
+    /**
+     * Find the Pareto front of multiple objectives in a single search tree.
+     * Every instance found is added to an archive of the front so far, and the
+     * search prunes every node dominated by a point in the archive. Unlike the
+     * guided improvement algorithm, the search is never restarted. Ignored if
+     * the portfolio has more than one solver.
+     *
+     * @param paretoArchive whether or not to search the Pareto front with an
+     * archive
+     * @return the new options
+     */
+    public ClaferOption setParetoArchive(boolean paretoArchive) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean isWatchedJoins() {
+        return watchedJoins;
+    }
+
+    /**
+     * Propagate joins by watching, for every value of the join, up to two
+     * supports that can produce it. The supports of a value are only searched
+     * again when a watched support is lost, instead of on every event. The
+     * filtering is the same either way.
+     *
+     * @param watchedJoins whether or not joins watch their supports
+     * @return the new options
+     */
+    public ClaferOption setWatchedJoins(boolean watchedJoins) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean isDenseSets() {
+        return denseSets;
+    }
+
+    /**
+     * Store the set variables whose envelope is dense in words of 64 bits, so
+     * that propagators can compare two sets 64 elements at a time. The
+     * filtering is the same either way.
+     *
+     * @param denseSets whether or not dense set variables are stored as words
+     * @return the new options
+     */
+    public ClaferOption setDenseSets(boolean denseSets) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean hasStatistics() {
+        return statistics != null;
+    }
+
+    public ClaferStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Record the wall time, allocations, and sizes of the model after every
+     * phase of compiling into the statistics. Every compile with these options
+     * records into the same statistics, including compiles on other threads.
+     *
+     * @param statistics the statistics to record into, or null to not record
+     * @return the new options
+     */
+    public ClaferOption setStatistics(ClaferStatistics statistics) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
+    }
+
+    public boolean hasRecompileCache() {
+        return recompileCache != null;
+    }
+
+    public RecompileCache getRecompileCache() {
+        return recompileCache;
+    }
+
+    /**
+     * Reuse the models compiled earlier with the same options when
+     * recompiling with a different scope that does not change what the model
+     * can use. Meant for exploring a model interactively.
+     *
+     * @param recompileCache the models compiled so far, or null to always
+     * compile from scratch
+     * @return the new options
+     */
+    public ClaferOption setRecompileCache(RecompileCache recompileCache) {
+        return new ClaferOption(strategy, basicSymmetryBreaking, basicOptimizations, branchingPriority, constructiveDisjunctionThreads, irInterning, compiledModelCache, portfolioSize, paretoArchive, watchedJoins, denseSets, statistics, recompileCache);
     }
 
     @Override
     public String toString() {
         return strategy + "\n"
                 + (basicSymmetryBreaking ? "perform only basic symmetry breaking\n" : "perform full symmetry breaking\n")
-                + (basicOptimizations ? "perform only basic optimizations\n" : "perform full optimizations\n");
+                + (basicOptimizations ? "perform only basic optimizations\n" : "perform full optimizations\n")
+                + (constructiveDisjunctionThreads == 1 ? "" : "constructive disjunction on " + constructiveDisjunctionThreads + " threads\n")
+                + (irInterning ? "intern the IR\n" : "")
+                + (compiledModelCache == null ? "" : "cache compiled models in " + compiledModelCache + "\n")
+                + (portfolioSize == 1 ? "" : "race a portfolio of " + portfolioSize + " solvers\n")
+                + (paretoArchive ? "search the Pareto front with an archive\n" : "")
+                + (watchedJoins ? "watch the supports of joins\n" : "")
+                + (denseSets ? "store dense set variables as words\n" : "")
+                + (statistics == null ? "" : "record statistics\n")
+                + (recompileCache == null ? "" : "reuse models compiled earlier\n");
     }
 }
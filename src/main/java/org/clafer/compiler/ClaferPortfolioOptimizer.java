@@ -0,0 +1,230 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.objective.ObjectiveManager;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Races differently configured solvers of the same model for an optimal
+ * instance of a single objective. Whenever a solver finds an instance, the
+ * other solvers are only allowed to look for strictly better ones. Once one
+ * solver proves optimality, the best instance found by any solver is optimal.
+ *
+ * @author jimmy
+ */
+public class ClaferPortfolioOptimizer extends AbstractImprovementOptimizer {
+
+    private final Portfolio portfolio;
+    private final ClaferSolutionMap[] workerSolutionMaps;
+    private final IntVar[] workerScores;
+    // The solver that found the optimal instance.
+    private int best = 0;
+    private int count = 0;
+    private boolean more = true;
+    private int optimalValue;
+    private Solution firstSolution = null;
+    // The assumptions of every worker, or null before the first assumption.
+    private Assumptions[] assumptions = null;
+
+    ClaferPortfolioOptimizer(Solver[] solvers, ClaferSolutionMap[] solutionMaps,
+            boolean maximize, IntVar[] scores) {
+        super(solvers[0], solutionMaps[0], new boolean[]{maximize}, new IntVar[]{scores[0]});
+        if (solvers.length != solutionMaps.length || solvers.length != scores.length) {
+            throw new IllegalArgumentException();
+        }
+        this.portfolio = new Portfolio(solvers);
+        this.workerSolutionMaps = solutionMaps;
+        this.workerScores = scores;
+        for (int i = 0; i < solvers.length; i++) {
+            int worker = i;
+            solvers[i].plugMonitor((IMonitorSolution) () -> shareBound(worker));
+        }
+    }
+
+    public boolean isMaximize() {
+        return maximizes[0];
+    }
+
+    public boolean isMinimize() {
+        return !isMaximize();
+    }
+
+    /**
+     * Called on the thread of the worker. The objective managers synchronize
+     * the update and post the new bound as a cut at the next search node of
+     * their solver.
+     */
+    private void shareBound(int worker) {
+        int value = workerScores[worker].getValue();
+        for (int i = 0; i < portfolio.size(); i++) {
+            if (i != worker) {
+                ObjectiveManager<IntVar, Integer> objective = portfolio.getSolver(i).getObjectiveManager();
+                if (objective.isOptimization()) {
+                    if (isMaximize()) {
+                        objective.updateBestLB(value);
+                    } else {
+                        objective.updateBestUB(value);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public ClaferOptimizer assume(Assumption... assumptions) {
+        if (this.assumptions == null) {
+            this.assumptions = new Assumptions[portfolio.size()];
+            for (int i = 0; i < this.assumptions.length; i++) {
+                this.assumptions[i] = new Assumptions(portfolio.getSolver(i), workerSolutionMaps[i]);
+            }
+        }
+        for (Assumptions workerAssumptions : this.assumptions) {
+            workerAssumptions.assume(assumptions);
+        }
+        restart();
+        return this;
+    }
+
+    @Override
+    public ClaferOptimizer retract() {
+        if (assumptions != null) {
+            for (Assumptions workerAssumptions : assumptions) {
+                workerAssumptions.retract();
+            }
+            restart();
+        }
+        return this;
+    }
+
+    @Override
+    protected boolean isContradiction() {
+        // Every worker compiled the same model.
+        return assumptions != null && assumptions[0].isContradiction();
+    }
+
+    @Override
+    protected void restart() {
+        portfolio.restoreRestarts();
+        best = 0;
+        count = 0;
+        more = true;
+        firstSolution = null;
+    }
+
+    private boolean isBetter(int value, int than) {
+        return isMaximize() ? value > than : value < than;
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!more || count == 1) {
+            more = false;
+            return false;
+        }
+        if (isContradiction()) {
+            more = false;
+            return false;
+        }
+        Solution[] solutions = new Solution[portfolio.size()];
+        List<Callable<Void>> tasks = new ArrayList<>(solutions.length);
+        for (int i = 0; i < solutions.length; i++) {
+            int worker = i;
+            tasks.add(() -> {
+                Solver solver = portfolio.getSolver(worker);
+                solutions[worker] = solver.findOptimalSolution(workerScores[worker], isMaximize());
+                if (solver.isStopCriterionMet()) {
+                    throw new ReachedLimitException();
+                }
+                return null;
+            });
+        }
+        Portfolio.Winner<Void> won = portfolio.race(tasks);
+        int winner = won == null ? -1 : won.getIndex();
+
+        // Prefer the solution of the winner on ties.
+        best = winner == -1 ? 0 : winner;
+        for (int i = 0; i < solutions.length; i++) {
+            if (solutions[i] != null && (solutions[best] == null
+                    || isBetter(solutions[i].getIntVal(workerScores[i]),
+                            solutions[best].getIntVal(workerScores[best])))) {
+                best = i;
+            }
+        }
+        firstSolution = solutions[best];
+        if (winner == -1) {
+            more = false;
+            if (firstSolution != null) {
+                InstanceModel bestInstance = workerSolutionMaps[best].getInstance(firstSolution);
+                int bestObjectiveValue = firstSolution.getIntVal(workerScores[best]);
+                throw new ReachedLimitBestKnownException(
+                        bestInstance,
+                        new int[]{bestObjectiveValue});
+            }
+            throw new ReachedLimitException();
+        }
+        more &= firstSolution != null;
+        if (more) {
+            // The equivalent optimal instances are enumerated by this solver.
+            portfolio.dropRestarts(best);
+            optimalValue = firstSolution.getIntVal(workerScores[best]);
+            count++;
+        }
+        return more;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return workerSolutionMaps[best].getInstance(firstSolution);
+    }
+
+    @Override
+    public Solution solution() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return firstSolution;
+    }
+
+    @Override
+    public int[] optimalValues() {
+        if (count == 0) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return new int[]{optimalValue};
+    }
+
+    @Override
+    public int instanceCount() {
+        return count;
+    }
+
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        portfolio.limitTime(ms);
+        return this;
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return portfolio.getSolver(best);
+    }
+
+    @Override
+    public ClaferSolutionMap getSolutionMap() {
+        return workerSolutionMaps[best];
+    }
+
+    @Override
+    public IntVar[] getScores() {
+        return new IntVar[]{workerScores[best]};
+    }
+}
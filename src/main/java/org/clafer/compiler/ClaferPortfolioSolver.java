@@ -0,0 +1,112 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.chocosolver.solver.Solver;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Races differently configured solvers of the same model for the first
+ * instance. The solver that answers first finds all the following instances.
+ * Solvers that restart stop restarting once they win, unless they are the first
+ * solver.
+ *
+ * @author jimmy
+ */
+public class ClaferPortfolioSolver extends ClaferSolver {
+
+    private final ClaferSolver[] workers;
+    private final Portfolio portfolio;
+    private ClaferSolver winner = null;
+
+    ClaferPortfolioSolver(ClaferSolver... workers) {
+        super(workers[0].getInternalSolver(), workers[0].getSolutionMap());
+        this.workers = workers;
+        Solver[] solvers = new Solver[workers.length];
+        for (int i = 0; i < solvers.length; i++) {
+            solvers[i] = workers[i].getInternalSolver();
+        }
+        this.portfolio = new Portfolio(solvers);
+    }
+
+    @Override
+    public ClaferSolutionMap getSolutionMap() {
+        return winner == null ? super.getSolutionMap() : winner.getSolutionMap();
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (winner != null) {
+            return winner.find();
+        }
+        List<Callable<Boolean>> tasks = new ArrayList<>(workers.length);
+        for (ClaferSolver worker : workers) {
+            tasks.add(worker::find);
+        }
+        Portfolio.Winner<Boolean> won = portfolio.race(tasks);
+        if (won == null) {
+            throw new ReachedLimitException();
+        }
+        portfolio.dropRestarts(won.getIndex());
+        winner = workers[won.getIndex()];
+        return won.getResult();
+    }
+
+    @Override
+    public ClaferSolver assume(Assumption... assumptions) {
+        for (ClaferSolver worker : workers) {
+            worker.assume(assumptions);
+        }
+        portfolio.restoreRestarts();
+        winner = null;
+        return this;
+    }
+
+    @Override
+    public ClaferSolver retract() {
+        for (ClaferSolver worker : workers) {
+            worker.retract();
+        }
+        portfolio.restoreRestarts();
+        winner = null;
+        return this;
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (winner == null) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return winner.instance();
+    }
+
+    @Override
+    public InstanceModel instanceSnapshot() {
+        if (winner == null) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return winner.instanceSnapshot();
+    }
+
+    @Override
+    public int instanceCount() {
+        return winner == null ? 0 : winner.instanceCount();
+    }
+
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        portfolio.limitTime(ms);
+        return this;
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return winner == null ? super.getInternalSolver() : winner.getInternalSolver();
+    }
+
+    @Override
+    public String toString() {
+        return getInternalSolver().toString();
+    }
+}
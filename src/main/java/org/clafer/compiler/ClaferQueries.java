@@ -0,0 +1,408 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstRef;
+import org.clafer.ast.AstStringClafer;
+import org.clafer.ast.AstUtil;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Either;
+import org.clafer.common.Check;
+import org.clafer.compiler.ClaferBackbone.Status;
+import org.clafer.instance.InstanceModel;
+import org.clafer.ir.IrBoolVar;
+import org.clafer.ir.IrIntVar;
+import org.clafer.ir.compiler.IrSolutionMap;
+
+/**
+ * Answers batches of independent "what-if" queries over one compiled model.
+ * Each query is a partial assignment, given as assumptions, and the answer is
+ * whether some instance satisfies every assumption of the query.
+ * <p>
+ * Every thread searches its own copy of the compiled model, so the queries run
+ * in parallel without locking. Every instance found is kept as a witness. A
+ * query satisfied by the witness of an earlier query is answered without
+ * searching. Which witness answers a query depends on the order the threads
+ * finish in, the answer itself does not.
+ *
+ * @author jimmy
+ */
+public class ClaferQueries {
+
+    private final ClaferSolver[] workers;
+
+    ClaferQueries(ClaferSolver... workers) {
+        this.workers = Check.noNullsNotEmpty(workers);
+    }
+
+    /**
+     * @return the number of threads answering queries
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Limit the time spent on each query. A query that reaches the limit is
+     * answered {@link Answer#Unknown}.
+     *
+     * @param ms the time limit of each query in milliseconds
+     * @return this
+     */
+    public ClaferQueries limitTime(long ms) {
+        for (ClaferSolver worker : workers) {
+            worker.limitTime(ms);
+        }
+        return this;
+    }
+
+    /**
+     * Answer every query.
+     *
+     * @param queries the assumptions of each query
+     * @param witnesses whether or not to return an instance for every
+     * satisfiable query
+     * @return the result of each query, in the same order as the queries
+     */
+    public QueryResult[] query(List<Assumption[]> queries, boolean witnesses) {
+        return query(queries, witnesses, new Witnesses());
+    }
+
+    /**
+     * @param queries the assumptions of each query
+     * @param witnesses whether or not to return an instance for every
+     * satisfiable query
+     * @param found the witnesses found so far, and every witness found while
+     * answering is added
+     * @return the result of each query, in the same order as the queries
+     */
+    private QueryResult[] query(List<Assumption[]> queries, boolean witnesses, Witnesses found) {
+        QueryResult[] results = new QueryResult[queries.size()];
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>(workers.length);
+        for (ClaferSolver worker : workers) {
+            tasks.add(() -> {
+                try {
+                    for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement()) {
+                        results[i] = query(worker, queries.get(i), found, witnesses);
+                    }
+                } finally {
+                    worker.retract();
+                }
+                return null;
+            });
+        }
+        if (workers.length == 1) {
+            try {
+                tasks.get(0).call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(workers.length, runnable -> {
+            Thread thread = new Thread(runnable, "clafer-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReachedLimitException();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Answer every query.
+     *
+     * @param queries the assumptions of each query
+     * @return the result of each query, in the same order as the queries
+     */
+    public QueryResult[] query(Assumption[]... queries) {
+        return query(Arrays.asList(queries), false);
+    }
+
+    /**
+     * Compute the backbone of the model. Every instance and every value of
+     * every reference is asked about once, as a query, unless a witness
+     * found earlier already answers it. Most of the possible answers are seen
+     * in the first few witnesses, so only the instances and values that are
+     * forced or forbidden need a search that proves it.
+     *
+     * @return the backbone, or null if the model has no instances
+     * @throws ReachedLimitException if a query reached the time limit
+     */
+    public ClaferBackbone backbone() throws ReachedLimitException {
+        Witnesses found = new Witnesses();
+        if (known(query(Collections.singletonList(new Assumption[0]), false, found)[0]).isUnsat()) {
+            return null;
+        }
+        ClaferSolutionMap solutionMap = workers[0].getSolutionMap();
+        AstSolutionMap astSolution = solutionMap.getAstSolution();
+        IrSolutionMap irSolution = solutionMap.getIrSolution();
+        List<AstConcreteClafer> clafers = AstUtil.getConcreteClafers(astSolution.getModel());
+
+        List<Assumption[]> queries = new ArrayList<>();
+        for (AstConcreteClafer clafer : clafers) {
+            IrBoolVar[] members = astSolution.getMemberVars(clafer);
+            for (int id = 0; id < members.length; id++) {
+                if (irSolution.getVar(members[id]).isRight()) {
+                    queries.add(new Assumption[]{Assumption.member(clafer, id)});
+                    queries.add(new Assumption[]{Assumption.notMember(clafer, id)});
+                }
+            }
+            if (hasIntRef(clafer)) {
+                IrIntVar[] refs = astSolution.getRefVars(clafer);
+                for (int id = 0; id < refs.length; id++) {
+                    for (int value : values(irSolution.getVar(refs[id]))) {
+                        queries.add(new Assumption[]{Assumption.ref(clafer, id, value)});
+                    }
+                }
+            }
+        }
+        QueryResult[] results = query(queries, false, found);
+
+        Map<AstConcreteClafer, Status[]> memberStatus = new HashMap<>();
+        Map<AstConcreteClafer, List<Map<Integer, Status>>> refStatus = new HashMap<>();
+        int result = 0;
+        for (AstConcreteClafer clafer : clafers) {
+            IrBoolVar[] members = astSolution.getMemberVars(clafer);
+            Status[] status = new Status[members.length];
+            for (int id = 0; id < members.length; id++) {
+                Either<Boolean, BoolVar> member = irSolution.getVar(members[id]);
+                if (member.isLeft()) {
+                    status[id] = member.getLeft() ? Status.Forced : Status.Forbidden;
+                } else {
+                    boolean canBeMember = known(results[result++]).isSat();
+                    boolean canBeNotMember = known(results[result++]).isSat();
+                    status[id] = !canBeNotMember ? Status.Forced
+                            : !canBeMember ? Status.Forbidden
+                            : Status.Free;
+                }
+            }
+            memberStatus.put(clafer, status);
+            if (hasIntRef(clafer)) {
+                IrIntVar[] refs = astSolution.getRefVars(clafer);
+                List<Map<Integer, Status>> refsStatus = new ArrayList<>(refs.length);
+                for (int id = 0; id < refs.length; id++) {
+                    List<Integer> possible = new ArrayList<>();
+                    for (int value : values(irSolution.getVar(refs[id]))) {
+                        if (known(results[result++]).isSat()) {
+                            possible.add(value);
+                        }
+                    }
+                    Map<Integer, Status> valueStatus = new HashMap<>();
+                    for (int value : possible) {
+                        valueStatus.put(value, status[id] == Status.Forced && possible.size() == 1
+                                ? Status.Forced
+                                : Status.Free);
+                    }
+                    refsStatus.add(valueStatus);
+                }
+                refStatus.put(clafer, refsStatus);
+            }
+        }
+        assert result == results.length;
+        return new ClaferBackbone(memberStatus, refStatus);
+    }
+
+    private static QueryResult known(QueryResult result) throws ReachedLimitException {
+        if (result.getAnswer() == Answer.Unknown) {
+            throw new ReachedLimitException();
+        }
+        return result;
+    }
+
+    private static boolean hasIntRef(AstClafer clafer) {
+        AstRef ref = AstUtil.getInheritedRef(clafer);
+        return ref != null && !(ref.getTargetType() instanceof AstStringClafer);
+    }
+
+    private static List<Integer> values(Either<Integer, IntVar> var) {
+        List<Integer> values = new ArrayList<>();
+        if (var.isLeft()) {
+            values.add(var.getLeft());
+        } else {
+            IntVar intVar = var.getRight();
+            for (int value = intVar.getLB(); value <= intVar.getUB(); value = intVar.nextValue(value)) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static QueryResult query(ClaferSolver worker, Assumption[] query, Witnesses found,
+            boolean witnesses) {
+        for (int i = 0; i < found.size(); i++) {
+            Witness witness = found.get(i);
+            if (witness.satisfies(query)) {
+                return new QueryResult(Answer.Sat, witnesses ? witness.getInstance() : null, true);
+            }
+        }
+        worker.assume(query);
+        try {
+            if (!worker.find()) {
+                return new QueryResult(Answer.Unsat, null, false);
+            }
+        } catch (ReachedLimitException e) {
+            return new QueryResult(Answer.Unknown, null, false);
+        }
+        Witness witness = new Witness(worker.getSolutionMap(),
+                new Solution(worker.getInternalSolver().getModel()).record());
+        found.add(witness);
+        return new QueryResult(Answer.Sat, witnesses ? witness.getInstance() : null, false);
+    }
+
+    /**
+     * The witnesses found by every thread. Witnesses are only ever appended,
+     * so a thread reads them by index while others keep adding.
+     */
+    private static class Witnesses {
+
+        private final List<Witness> witnesses = new ArrayList<>();
+
+        synchronized void add(Witness witness) {
+            witnesses.add(witness);
+        }
+
+        synchronized int size() {
+            return witnesses.size();
+        }
+
+        synchronized Witness get(int index) {
+            return witnesses.get(index);
+        }
+    }
+
+    /**
+     * An instance found by one of the threads.
+     */
+    private static class Witness {
+
+        private final ClaferSolutionMap solutionMap;
+        private final Solution solution;
+        private final IrSolutionMap values;
+
+        Witness(ClaferSolutionMap solutionMap, Solution solution) {
+            this.solutionMap = solutionMap;
+            this.solution = solution;
+            this.values = solutionMap.getIrSolution().fromSolution(solution);
+        }
+
+        InstanceModel getInstance() {
+            return solutionMap.getInstance(solution);
+        }
+
+        boolean satisfies(Assumption[] query) {
+            AstSolutionMap astSolution = solutionMap.getAstSolution();
+            for (Assumption assumption : query) {
+                IrBoolVar[] members = astSolution.getMemberVars(assumption.getClafer());
+                if (assumption.isEveryId()) {
+                    for (IrBoolVar member : members) {
+                        if (values.getValue(member)) {
+                            return false;
+                        }
+                    }
+                } else {
+                    if (assumption.getId() >= members.length
+                            || values.getValue(members[assumption.getId()]) != assumption.isMember()) {
+                        return false;
+                    }
+                    if (assumption.isRef()) {
+                        int value = values.getValue(astSolution.getRefVars(assumption.getClafer())[assumption.getId()]);
+                        if (value < assumption.getRefLow() || value > assumption.getRefHigh()) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    public static enum Answer {
+
+        Sat,
+        Unsat,
+        // Reached the time limit.
+        Unknown;
+    }
+
+    public static class QueryResult {
+
+        private final Answer answer;
+        private final InstanceModel witness;
+        private final boolean implied;
+
+        QueryResult(Answer answer, InstanceModel witness, boolean implied) {
+            this.answer = answer;
+            this.witness = witness;
+            this.implied = implied;
+        }
+
+        public Answer getAnswer() {
+            return answer;
+        }
+
+        public boolean isSat() {
+            return answer == Answer.Sat;
+        }
+
+        public boolean isUnsat() {
+            return answer == Answer.Unsat;
+        }
+
+        /**
+         * @return an instance satisfying the query, or null if the query is
+         * not satisfiable or no witnesses were asked for
+         */
+        public InstanceModel getWitness() {
+            return witness;
+        }
+
+        /**
+         * @return {@code true} if the query was answered by the witness of an
+         * earlier query without searching, {@code false} otherwise
+         */
+        public boolean isImplied() {
+            return implied;
+        }
+
+        @Override
+        public String toString() {
+            return answer + (implied ? " (implied)" : "");
+        }
+    }
+}
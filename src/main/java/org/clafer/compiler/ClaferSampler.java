@@ -0,0 +1,205 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.propagation.NoPropagationEngine;
+import org.chocosolver.solver.variables.IntVar;
+import org.clafer.choco.constraint.propagator.PropHammingDistance;
+import static org.clafer.choco.constraint.propagator.PropHammingDistance.distance;
+import org.clafer.instance.InstanceModel;
+
+/**
+ * Samples diverse instances. Every sample differs from every earlier sample in
+ * at least some number of membership and reference variables. The number
+ * starts at half the variables and halves whenever no instance is that far
+ * from the samples so far, so the first samples are spread across the whole
+ * instance space instead of clustering around the first instance found.
+ * Sampling stops at the target number of samples, or once no instance differs
+ * from the samples at all.
+ * <p>
+ * Every worker searches its own copy of the model randomly, and the samples
+ * are shared between the workers. The samples are taken on the first call to
+ * {@link #find()}, the following calls only return them in the order they
+ * were found.
+ *
+ * @author jimmy
+ */
+public class ClaferSampler implements ClaferSearch {
+
+    private final Worker[] workers;
+    private final Portfolio portfolio;
+    private final int target;
+    private final List<Solution> samples = new ArrayList<>();
+    private final List<ClaferSolutionMap> sampleMaps = new ArrayList<>();
+    // The values of the variables in each sample. Every worker orders its
+    // variables the same way.
+    private final List<int[]> points = new ArrayList<>();
+    private final AtomicInteger distance;
+    private boolean sampled = false;
+    private int count = 0;
+
+    ClaferSampler(int target, Solver[] solvers, ClaferSolutionMap[] solutionMaps, IntVar[][] vars) {
+        if (target < 0) {
+            throw new IllegalArgumentException("Number of samples must be non-negative, not " + target);
+        }
+        this.target = target;
+        this.workers = new Worker[solvers.length];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(solvers[i], solutionMaps[i], vars[i]);
+        }
+        this.portfolio = new Portfolio(solvers);
+        this.distance = new AtomicInteger(Math.max(1, vars[0].length / 2));
+    }
+
+    ClaferSampler() {
+        this.target = 0;
+        this.workers = new Worker[0];
+        this.portfolio = null;
+        this.distance = new AtomicInteger();
+        this.sampled = true;
+    }
+
+    /**
+     * @return the number of samples to take
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    @Override
+    public boolean find() throws ReachedLimitException {
+        if (!sampled) {
+            sampled = true;
+            sample();
+        }
+        if (count < samples.size()) {
+            count++;
+            return true;
+        }
+        return false;
+    }
+
+    private void sample() throws ReachedLimitException {
+        AtomicBoolean exhausted = new AtomicBoolean();
+        List<Callable<?>> tasks = new ArrayList<>(workers.length);
+        for (Worker worker : workers) {
+            tasks.add(() -> {
+                worker.sample(exhausted);
+                return null;
+            });
+        }
+        if (!portfolio.all(tasks)) {
+            throw new ReachedLimitException();
+        }
+    }
+
+    @Override
+    public InstanceModel instance() {
+        if (count == 0) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return sampleMaps.get(count - 1).getInstance(samples.get(count - 1));
+    }
+
+    @Override
+    public int instanceCount() {
+        return count;
+    }
+
+    /**
+     * Limit the time of each search for a sample.
+     *
+     * @param ms the time limit in milliseconds
+     * @return this sampler
+     */
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        if (portfolio != null) {
+            portfolio.limitTime(ms);
+        }
+        return this;
+    }
+
+    @Override
+    public Solver getInternalSolver() {
+        return workers.length == 0 ? null : workers[0].solver;
+    }
+
+    private class Worker {
+
+        private final Solver solver;
+        private final ClaferSolutionMap solutionMap;
+        private final IntVar[] vars;
+        // Null if every variable is constant.
+        private final PropHammingDistance far;
+
+        Worker(Solver solver, ClaferSolutionMap solutionMap, IntVar[] vars) {
+            this.solver = solver;
+            this.solutionMap = solutionMap;
+            this.vars = vars;
+            if (vars.length > 0) {
+                this.far = new PropHammingDistance(vars, 0);
+                solver.getModel().post(new Constraint("hammingDistance", far));
+            } else {
+                this.far = null;
+            }
+        }
+
+        void sample(AtomicBoolean exhausted) throws ReachedLimitException {
+            while (!exhausted.get()) {
+                int d = distance.get();
+                synchronized (samples) {
+                    if (samples.size() >= target) {
+                        return;
+                    }
+                    if (far != null) {
+                        for (int i = far.getSamples().size(); i < points.size(); i++) {
+                            far.addSample(points.get(i));
+                        }
+                        far.setDistance(samples.isEmpty() ? 0 : d);
+                    } else if (!samples.isEmpty()) {
+                        // The model has a single instance.
+                        exhausted.set(true);
+                        return;
+                    }
+                }
+                solver.reset();
+                if (far != null && solver.getEngine() != NoPropagationEngine.SINGLETON) {
+                    solver.getEngine().propagateOnBacktrack(far);
+                }
+                boolean found = solver.solve();
+                if (solver.isStopCriterionMet()) {
+                    throw new ReachedLimitException();
+                }
+                if (found) {
+                    Solution solution = new Solution(solver.getModel()).record();
+                    int[] point = new int[vars.length];
+                    for (int i = 0; i < point.length; i++) {
+                        point[i] = vars[i].getValue();
+                    }
+                    synchronized (samples) {
+                        // Other workers may have added samples meanwhile that the
+                        // search did not know about. The sample must be as far from
+                        // those as from the rest, else it is searched for again.
+                        if (samples.size() < target && points.stream().allMatch(p -> distance(p, point) >= d)) {
+                            samples.add(solution);
+                            sampleMaps.add(solutionMap);
+                            points.add(point);
+                        }
+                    }
+                } else if (d <= 1 || far == null || far.getDistance() == 0) {
+                    // No instance differs from every sample.
+                    exhausted.set(true);
+                } else {
+                    distance.compareAndSet(d, d / 2);
+                }
+            }
+        }
+    }
+}
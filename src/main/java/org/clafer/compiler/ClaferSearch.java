@@ -1,6 +1,7 @@
 package org.clafer.compiler;
 
 import org.chocosolver.solver.Solver;
+import org.clafer.instance.InstanceModel;
 
 /**
  * Search for instances.
@@ -17,6 +18,18 @@ public interface ClaferSearch extends InstanceIterator {
     @Override
     public boolean find() throws ReachedLimitException;
 
+    /**
+     * Return the instance from the last {@link #find()} operation, if
+     * successful. Unlike {@link #instance()}, the instance stays the same after
+     * the next {@link #find()} so it can be read later or on another thread.
+     * The Clafers of the instance may only be read when they are looked at.
+     *
+     * @return the instance
+     */
+    public default InstanceModel instanceSnapshot() {
+        return instance();
+    }
+
     public default ClaferSearch limitTime(long ms) {
         getInternalSolver().limitTime(ms);
         return this;
@@ -29,12 +29,23 @@ public class ClaferSingleObjectiveOptimizer extends AbstractImprovementOptimizer
         return !isMaximize();
     }
 
+    @Override
+    protected void restart() {
+        count = 0;
+        more = true;
+        firstSolution = null;
+    }
+
     @Override
     public boolean find() throws ReachedLimitException {
         if (!more || count == 1) {
             more = false;
             return false;
         }
+        if (isContradiction()) {
+            more = false;
+            return false;
+        }
         more &= solveFirst();
         if (solver.isStopCriterionMet()) {
             if (firstSolution != null) {
@@ -37,8 +37,27 @@ public class ClaferSolutionMap {
         return getInstance(irSolution);
     }
 
+    /**
+     * The instance of a recorded solution. The Clafers of the instance are
+     * only read from the solution when they are looked at.
+     *
+     * @param solution the solution
+     * @return the instance of the solution
+     */
     public InstanceModel getInstance(Solution solution) {
-        return getInstance(irSolution.fromSolution(solution));
+        return new LazyInstanceModel(astSolution, irSolution.fromSolution(solution));
+    }
+
+    /**
+     * The instance combining one recorded solution of each independent part
+     * of a decomposed model.
+     *
+     * @param solutions the solution of each part
+     * @return the instance of the solutions
+     * @see IrSolutionMap#fromSolutions(Solution...)
+     */
+    public InstanceModel getInstance(Solution[] solutions) {
+        return new LazyInstanceModel(astSolution, irSolution.fromSolutions(solutions));
     }
 
     private InstanceModel getInstance(IrSolutionMap irSolution) {
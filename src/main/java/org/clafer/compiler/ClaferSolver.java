@@ -1,6 +1,7 @@
 package org.clafer.compiler;
 
 import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.Solver;
 import org.clafer.common.Check;
 import org.clafer.instance.InstanceModel;
@@ -16,6 +17,7 @@ public class ClaferSolver implements ClaferSearch {
     private final boolean restartAfterEachSolution;
     private int count = 0;
     private boolean more = true;
+    private Assumptions assumptions = null;
 
     ClaferSolver() {
         Model model = new Model();
@@ -39,11 +41,52 @@ public class ClaferSolver implements ClaferSearch {
         return solutionMap;
     }
 
+    /**
+     * Search for instances where the assumptions hold, starting again from the
+     * first instance. The assumptions replace any earlier assumptions. The
+     * compiled model is kept between assumptions, so asking many "what-if"
+     * questions of the same model is much cheaper than compiling the model
+     * again with the assumptions as constraints.
+     *
+     * @param assumptions the assumptions
+     * @return this solver
+     */
+    public ClaferSolver assume(Assumption... assumptions) {
+        if (solutionMap != null) {
+            if (this.assumptions == null) {
+                this.assumptions = new Assumptions(solver, solutionMap);
+            }
+            this.assumptions.assume(assumptions);
+            count = 0;
+            more = true;
+        }
+        return this;
+    }
+
+    /**
+     * Retract every assumption and search for every instance again, starting
+     * from the first instance.
+     *
+     * @return this solver
+     */
+    public ClaferSolver retract() {
+        if (assumptions != null) {
+            assumptions.retract();
+            count = 0;
+            more = true;
+        }
+        return this;
+    }
+
     @Override
     public boolean find() throws ReachedLimitException {
         if (!more) {
             return false;
         }
+        if (assumptions != null && assumptions.isContradiction()) {
+            more = false;
+            return false;
+        }
         if (restartAfterEachSolution) {
             solver.reset();
             more &= solver.solve();
@@ -68,6 +111,14 @@ public class ClaferSolver implements ClaferSearch {
         return solutionMap.getInstance();
     }
 
+    @Override
+    public InstanceModel instanceSnapshot() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return solutionMap.getInstance(new Solution(solver.getModel()).record());
+    }
+
     @Override
     public int instanceCount() {
         return count;
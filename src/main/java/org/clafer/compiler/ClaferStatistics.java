@@ -0,0 +1,288 @@
+package org.clafer.compiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records where the time goes while compiling and solving. Each phase records
+ * its wall time, the bytes allocated by the thread running it, and any counts
+ * of objects taken during the phase, such as the number of IR constraints or
+ * Choco propagators. Phases started inside another phase are nested, and their
+ * names are prefixed by the name of the enclosing phase, for example
+ * {@code optimize/FBBT}.
+ * <p>
+ * Pass the statistics to the compiler with
+ * {@link ClaferOption#setStatistics(ClaferStatistics)}. The statistics are
+ * thread-safe, so the same options can compile on several threads at once.
+ * Every thread nests its phases separately. Work a phase hands off to other
+ * threads counts toward its wall time. The bytes the work allocates only
+ * count if it is run through {@link #worker(Phase, Supplier)}, otherwise the
+ * phase is marked as {@link Phase#isCallerThreadOnly() caller thread only}.
+ *
+ * @author jimmy
+ */
+public class ClaferStatistics {
+
+    private static final ThreadMXBean Threads = ManagementFactory.getThreadMXBean();
+    // Guarded by this.
+    private final List<Phase> phases = new ArrayList<>();
+    // The phases started and not yet stopped by each thread.
+    private final ThreadLocal<Deque<Phase>> open = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Start a new phase nested inside the current phase, if any.
+     *
+     * @param name the name of the phase
+     */
+    public void start(String name) {
+        Deque<Phase> open = this.open.get();
+        Phase parent = open.peek();
+        Phase phase = new Phase(parent == null ? name : parent.name + "/" + name, Thread.currentThread());
+        open.push(phase);
+        synchronized (this) {
+            phases.add(phase);
+        }
+        synchronized (phase) {
+            phase.allocatedBytes = allocatedBytes();
+            phase.wallTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Stop the current phase of this thread.
+     */
+    public void stop() {
+        Phase phase = open.get().pop();
+        long wallTime = System.nanoTime() - phase.wallTime;
+        long allocated = allocatedBytes();
+        synchronized (phase) {
+            phase.wallTime = wallTime;
+            phase.allocatedBytes = allocated < 0 ? -1
+                    : allocated - phase.allocatedBytes + phase.workerAllocatedBytes;
+        }
+    }
+
+    /**
+     * Run the body as a phase.
+     *
+     * @param <T> the type of the result
+     * @param name the name of the phase
+     * @param body the work of the phase
+     * @return the result of the body
+     */
+    public <T> T phase(String name, Supplier<T> body) {
+        start(name);
+        try {
+            return body.get();
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * @return the current phase of this thread, or null if there is none
+     */
+    public Phase getCurrentPhase() {
+        return open.get().peek();
+    }
+
+    /**
+     * Run work the phase handed off to this thread. The bytes the work
+     * allocates are added to the phase once it stops. Work on the thread of
+     * the phase is counted by the phase already.
+     *
+     * @param <T> the type of the result
+     * @param phase the phase that handed off the work, or null to not record
+     * @param body the work
+     * @return the result of the body
+     */
+    public <T> T worker(Phase phase, Supplier<T> body) {
+        if (phase == null || phase.thread == Thread.currentThread()) {
+            return body.get();
+        }
+        long start = allocatedBytes();
+        try {
+            return body.get();
+        } finally {
+            long end = allocatedBytes();
+            if (start >= 0 && end >= 0) {
+                synchronized (phase) {
+                    phase.workerAllocatedBytes += end - start;
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark the current phase of this thread, and the phases it is nested in,
+     * as handing off work to threads whose allocations are not counted.
+     */
+    public void callerThreadOnly() {
+        for (Phase phase : open.get()) {
+            synchronized (phase) {
+                phase.callerThreadOnly = true;
+            }
+        }
+    }
+
+    /**
+     * Record a count in the current phase of this thread.
+     *
+     * @param counter the name of the count
+     * @param count the count
+     */
+    public void count(String counter, long count) {
+        Phase phase = open.get().peek();
+        if (phase == null) {
+            throw new IllegalStateException("No phase started to count " + counter);
+        }
+        synchronized (phase) {
+            phase.counters.put(counter, count);
+        }
+    }
+
+    /**
+     * @return the phases in the order they started
+     */
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+
+    /**
+     * @param name the name of the phase
+     * @return the first phase with the name, or null if there is none
+     */
+    public synchronized Phase getPhase(String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals(name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        if (Threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) Threads;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the phases as a JSON object
+     */
+    public String toJson() {
+        List<Phase> phases = getPhases();
+        StringBuilder json = new StringBuilder();
+        json.append("{\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Phase phase = phases.get(i);
+            synchronized (phase) {
+                json.append("\n  {\"name\":");
+                quote(phase.name, json);
+                json.append(",\"wallTimeNanos\":").append(phase.wallTime)
+                        .append(",\"allocatedBytes\":").append(phase.allocatedBytes)
+                        .append(",\"callerThreadOnly\":").append(phase.callerThreadOnly)
+                        .append(",\"counters\":{");
+                boolean first = true;
+                for (Map.Entry<String, Long> counter : phase.counters.entrySet()) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    first = false;
+                    quote(counter.getKey(), json);
+                    json.append(':').append(counter.getValue());
+                }
+                json.append("}}");
+            }
+        }
+        json.append("\n]}");
+        return json.toString();
+    }
+
+    private static void quote(String string, StringBuilder json) {
+        json.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    public static class Phase {
+
+        private final String name;
+        private final Thread thread;
+        // The fields below are guarded by this.
+        private long wallTime;
+        private long allocatedBytes;
+        private long workerAllocatedBytes;
+        private boolean callerThreadOnly;
+        private final Map<String, Long> counters = new LinkedHashMap<>();
+
+        Phase(String name, Thread thread) {
+            this.name = name;
+            this.thread = thread;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the wall time in nanoseconds
+         */
+        public synchronized long getWallTime() {
+            return wallTime;
+        }
+
+        /**
+         * @return the bytes allocated by the thread running the phase and the
+         * work it handed off through {@link ClaferStatistics#worker}, or -1 if
+         * the JVM does not measure allocations
+         */
+        public synchronized long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return {@code true} if the phase handed off work whose allocations
+         * are not counted in {@link #getAllocatedBytes()}
+         */
+        public synchronized boolean isCallerThreadOnly() {
+            return callerThreadOnly;
+        }
+
+        /**
+         * @return the counts taken during the phase
+         */
+        public synchronized Map<String, Long> getCounters() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(counters));
+        }
+    }
+}
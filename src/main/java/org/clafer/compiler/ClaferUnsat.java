@@ -20,6 +20,9 @@ import org.clafer.ir.IrBoolVar;
 /**
  * Either call {@link #minUnsat()} xor {@link #unsatCore()} at most once. If you
  * need to invoke both, you need to two ClaferUnsat objects.
+ * {@link #minimalUnsatCore()} and {@link #minimalUnsatCores(int)} can be
+ * called any number of times, but not after the other two. They post a
+ * constraint that is inactive outside of their own searches.
  *
  * @author jimmy
  */
@@ -29,6 +32,8 @@ public class ClaferUnsat {
     private final ClaferSolutionMap solutionMap;
     private final Pair<AstConstraint, Either<Boolean, BoolVar>>[] softVars;
     private final Either<Integer, IntVar> score;
+    private long timeLimit = -1;
+    private UnsatCoreExtractor extractor;
 
     ClaferUnsat(Solver solver, ClaferSolutionMap solutionMap) {
         this.solver = Check.notNull(solver);
@@ -48,6 +53,7 @@ public class ClaferUnsat {
     }
 
     public ClaferUnsat limitTime(long ms) {
+        timeLimit = ms;
         getInternalSolver().limitTime(ms);
         return this;
     }
@@ -129,6 +135,42 @@ public class ClaferUnsat {
         return null;
     }
 
+    /**
+     * Compute a minimal set of constraints that are mutually unsatisfiable.
+     * Removing any constraint from the set makes it satisfiable. Only searches
+     * for satisfiability under different subsets of the constraints, without
+     * optimizing, so it is usually much faster than {@link #unsatCore()}. The
+     * time limit applies to the whole computation.
+     *
+     * @return the Unsat-Core or null if the model is satisfiable, empty if the
+     * model is unsatisfiable without any of the constraints
+     * @throws ReachedLimitException if the time limit is reached
+     */
+    public Set<AstConstraint> minimalUnsatCore() throws ReachedLimitException {
+        return getExtractor().minimalCore(timeLimit);
+    }
+
+    /**
+     * Compute distinct minimal sets of constraints that are mutually
+     * unsatisfiable. Each set is a separate reason the model is unsatisfiable.
+     * The time limit applies to the whole computation.
+     *
+     * @param n the maximum number of sets
+     * @return up to n Unsat-Cores, empty if the model is satisfiable, a single
+     * empty set if the model is unsatisfiable without any of the constraints
+     * @throws ReachedLimitException if the time limit is reached
+     */
+    public List<Set<AstConstraint>> minimalUnsatCores(int n) throws ReachedLimitException {
+        return getExtractor().minimalCores(n, timeLimit);
+    }
+
+    private UnsatCoreExtractor getExtractor() {
+        if (extractor == null) {
+            extractor = new UnsatCoreExtractor(solver, softVars);
+        }
+        return extractor;
+    }
+
     private Solution maximize() {
         return score.isLeft()
                 ? solver.findSolution()
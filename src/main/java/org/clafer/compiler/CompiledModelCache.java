@@ -0,0 +1,353 @@
+package org.clafer.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.clafer.assertion.Assertion;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstBoolExpr;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstConstraint;
+import org.clafer.ast.AstExprRewriter;
+import org.clafer.ast.AstModel;
+import org.clafer.ast.AstRef;
+import org.clafer.ast.AstSetExpr;
+import org.clafer.ast.AstUtil;
+import org.clafer.ast.Asts;
+import org.clafer.ast.analysis.Analyzer;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Triple;
+import org.clafer.common.Check;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.analysis.deduction.Coalesce;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+
+/**
+ * An on-disk cache of compiled models. An entry holds the AST solution map, the
+ * variables coalesced by the optimizer, and the optimized module, so a hit
+ * skips the analysis and the optimizer and only translates the module to
+ * Choco.
+ * <p>
+ * Entries are keyed by a digest of the model, the scope, the objectives or
+ * assertions, the analyzers, and the options that affect compilation. The
+ * Clafers, constraints, expressions, objectives, and assertions are not stored
+ * in the entry, they are stored as references and resolved against the model
+ * being compiled. The analysis of a hit is therefore keyed by the very objects
+ * of the model being compiled, like the analysis of a miss.
+ * Entries are plain Java serialization, only point the cache at a trusted
+ * directory.
+ *
+ * @author jimmy
+ */
+class CompiledModelCache {
+
+    // Increment whenever the layout of an entry changes.
+    private static final int Version = 2;
+    private final Path directory;
+
+    CompiledModelCache(Path directory) {
+        this.directory = Check.notNull(directory);
+    }
+
+    Key key(AstModel model, Scope scope, Objective[] objectives, Assertion[] assertions,
+            Analyzer[] analyzers, ClaferOption options) {
+        return key(model, scope, objectives, assertions, analyzers, options, "");
+    }
+
+    /**
+     * @param analysis describes any other input the compiled model depends on
+     */
+    static Key key(AstModel model, Scope scope, Objective[] objectives, Assertion[] assertions,
+            Analyzer[] analyzers, ClaferOption options, String analysis) {
+        List<AstClafer> clafers = AstUtil.getClafers(model);
+        List<AstConstraint> constraints = AstUtil.getNestedConstraints(model);
+
+        StringBuilder description = new StringBuilder();
+        description.append("version ").append(Version).append('\n');
+        for (AstClafer clafer : clafers) {
+            description.append(clafer instanceof AstAbstractClafer ? "abstract " : "concrete ")
+                    .append(clafer.getName());
+            if (clafer.hasSuperClafer()) {
+                description.append(" : ").append(clafer.getSuperClafer().getName());
+            }
+            if (clafer instanceof AstConcreteClafer) {
+                AstConcreteClafer concreteClafer = (AstConcreteClafer) clafer;
+                if (concreteClafer.hasParent()) {
+                    description.append(" in ").append(concreteClafer.getParent().getName());
+                }
+                description.append(' ').append(concreteClafer.getCard());
+            }
+            if (clafer.hasGroupCard()) {
+                description.append(" group ").append(clafer.getGroupCard());
+            }
+            if (clafer.hasRef()) {
+                AstRef ref = clafer.getRef();
+                description.append(ref.isUnique() ? " ->> " : " -> ").append(ref.getTargetType().getName());
+            }
+            description.append(" scope ").append(scope.getScope(clafer)).append('\n');
+            for (AstConstraint constraint : clafer.getConstraints()) {
+                description.append("  ").append(constraint).append('\n');
+            }
+        }
+        description.append("int ").append(scope.getIntLow()).append("..").append(scope.getIntHigh())
+                .append(" mul ").append(scope.getMulLow()).append("..").append(scope.getMulHigh())
+                .append(" string ").append(scope.getStringLength())
+                .append(" char ").append((int) scope.getCharLow()).append("..").append((int) scope.getCharHigh())
+                .append('\n');
+        for (Objective objective : objectives) {
+            description.append(objective.isMaximize() ? "maximize " : "minimize ")
+                    .append(objective.getExpr()).append('\n');
+        }
+        for (Assertion assertion : assertions) {
+            description.append(assertion).append('\n');
+        }
+        for (Analyzer analyzer : analyzers) {
+            // The names of lambda classes change between runs.
+            String name = analyzer.getClass().getName();
+            int lambda = name.indexOf("$$Lambda");
+            description.append(lambda == -1 ? name : name.substring(0, lambda)).append('\n');
+        }
+        description.append(options.isFullSymmetryBreaking()).append(' ')
+                .append(options.isFullOptimizations()).append(' ')
+                .append(options.getConstructiveDisjunctionThreads()).append('\n')
+                .append(analysis);
+
+        List<Object> references = new ArrayList<>();
+        references.add(model);
+        references.addAll(clafers);
+        references.add(Asts.IntType);
+        references.add(Asts.BoolType);
+        references.add(Asts.StringType);
+        for (AstClafer clafer : clafers) {
+            if (clafer.hasRef()) {
+                references.add(clafer.getRef());
+            }
+        }
+        references.addAll(constraints);
+        for (Objective objective : objectives) {
+            references.add(objective);
+        }
+        for (Assertion assertion : assertions) {
+            references.add(assertion);
+        }
+        // The analysis keys the types by identity, partly by the expressions of
+        // the model itself, so a hit must resolve those expressions too.
+        ExprCollector exprs = new ExprCollector(references);
+        for (AstConstraint constraint : constraints) {
+            exprs.rewrite(constraint.getExpr(), null);
+        }
+        for (Objective objective : objectives) {
+            exprs.rewrite(objective.getExpr(), null);
+        }
+        for (Assertion assertion : assertions) {
+            exprs.rewrite(assertion.getExpr(), null);
+        }
+        return new Key(digest(description.toString()), references);
+    }
+
+    private static String digest(String description) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(
+                    description.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to implement SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path getFile(Key key) {
+        return directory.resolve(key.digest + ".model");
+    }
+
+    /**
+     * Load the compiled model. An entry that cannot be read, for example one
+     * written by an incompatible version, is treated as missing.
+     *
+     * @param key the key
+     * @return the AST solution map, the coalesced variables, and the optimized
+     * module, or null if the entry is missing
+     */
+    Triple<AstSolutionMap, Coalesce, IrModule> get(Key key) {
+        try (ObjectInputStream in = new ReferenceInputStream(
+                new BufferedInputStream(Files.newInputStream(getFile(key))), key.references)) {
+            @SuppressWarnings("unchecked")
+            Triple<AstSolutionMap, Coalesce, IrModule> compiled = (Triple<AstSolutionMap, Coalesce, IrModule>) in.readObject();
+            return compiled;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store the compiled model. The entry is written to a temporary file first
+     * and then moved in place so concurrent readers never see a partial entry.
+     * An entry that cannot be written, for example because the directory is
+     * not writable or does not support atomic moves, is skipped.
+     *
+     * @param key the key
+     * @param compiled the AST solution map, the coalesced variables, and the
+     * optimized module
+     */
+    void put(Key key, Triple<AstSolutionMap, Coalesce, IrModule> compiled) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, key.digest, ".tmp");
+            try (ObjectOutputStream out = new ReferenceOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)), key.references)) {
+                out.writeObject(compiled);
+            }
+            Files.move(temp, getFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The model is already compiled, only the cache misses out.
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Leave the temporary file behind.
+                }
+            }
+        }
+    }
+
+    /**
+     * The digest of the compilation inputs and the objects of the model that
+     * entries refer to.
+     */
+    static class Key {
+
+        private final String digest;
+        private final List<Object> references;
+
+        Key(String digest, List<Object> references) {
+            this.digest = Check.notNull(digest);
+            this.references = Check.notNull(references);
+        }
+
+        /**
+         * Keys are equal if they describe the same inputs and refer to the
+         * very same objects of the model.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                if (!digest.equals(other.digest) || references.size() != other.references.size()) {
+                    return false;
+                }
+                for (int i = 0; i < references.size(); i++) {
+                    if (references.get(i) != other.references.get(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return digest.hashCode();
+        }
+    }
+
+    /**
+     * Collects every expression, in the same order for the same model.
+     */
+    private static class ExprCollector extends AstExprRewriter<Void> {
+
+        private final List<Object> exprs;
+
+        ExprCollector(List<Object> exprs) {
+            this.exprs = exprs;
+        }
+
+        @Override
+        public AstBoolExpr rewrite(AstBoolExpr expr, Void a) {
+            exprs.add(expr);
+            return super.rewrite(expr, a);
+        }
+
+        @Override
+        public AstSetExpr rewrite(AstSetExpr expr, Void a) {
+            exprs.add(expr);
+            return super.rewrite(expr, a);
+        }
+    }
+
+    private static class Reference implements Serializable {
+
+        private static final long serialVersionUID = 1;
+        private final int index;
+
+        Reference(int index) {
+            this.index = index;
+        }
+    }
+
+    private static class ReferenceOutputStream extends ObjectOutputStream {
+
+        private final Map<Object, Reference> references = new IdentityHashMap<>();
+
+        ReferenceOutputStream(OutputStream out, List<Object> references) throws IOException {
+            super(out);
+            for (int i = 0; i < references.size(); i++) {
+                this.references.putIfAbsent(references.get(i), new Reference(i));
+            }
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            Reference reference = references.get(obj);
+            return reference == null ? obj : reference;
+        }
+    }
+
+    private static class ReferenceInputStream extends ObjectInputStream {
+
+        private final List<Object> references;
+
+        ReferenceInputStream(InputStream in, List<Object> references) throws IOException {
+            super(in);
+            this.references = references;
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof Reference) {
+                int index = ((Reference) obj).index;
+                if (index >= references.size()) {
+                    throw new IOException("Dangling reference " + index);
+                }
+                return references.get(index);
+            }
+            return obj;
+        }
+    }
+}
@@ -80,6 +80,34 @@ public class EquivalentParetoSolver implements ClaferOptimizer {
         return more;
     }
 
+    @Override
+    public ClaferOptimizer assume(Assumption... assumptions) {
+        optimizer.assume(assumptions);
+        restart();
+        return this;
+    }
+
+    @Override
+    public ClaferOptimizer retract() {
+        optimizer.retract();
+        restart();
+        return this;
+    }
+
+    private void restart() {
+        if (paretoSolution != null && paretoCount > 1) {
+            for (Constraint c : equivalentConstraint) {
+                if (c != null) {
+                    getInternalSolver().getModel().unpost(c);
+                }
+            }
+        }
+        count = 0;
+        more = true;
+        paretoSolution = null;
+        paretoCount = 0;
+    }
+
     @Override
     public InstanceModel instance() {
         if (count == 0 || !more) {
@@ -88,6 +116,16 @@ public class EquivalentParetoSolver implements ClaferOptimizer {
         return paretoCount == 1 ? optimizer.instance() : optimizer.getSolutionMap().getInstance();
     }
 
+    @Override
+    public InstanceModel instanceSnapshot() {
+        if (count == 0 || !more) {
+            throw new IllegalStateException("No instances. Did you forget to call find?");
+        }
+        return paretoCount == 1
+                ? optimizer.instance()
+                : optimizer.getSolutionMap().getInstance(new Solution(getInternalSolver().getModel()).record());
+    }
+
     @Override
     public int[] optimalValues() {
         return optimizer.optimalValues();
@@ -98,6 +136,12 @@ public class EquivalentParetoSolver implements ClaferOptimizer {
         return count;
     }
 
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        optimizer.limitTime(ms);
+        return this;
+    }
+
     @Override
     public Solver getInternalSolver() {
         return optimizer.getInternalSolver();
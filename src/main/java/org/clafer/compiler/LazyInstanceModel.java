@@ -0,0 +1,145 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstStringClafer;
+import org.clafer.ast.analysis.Analysis;
+import org.clafer.ast.analysis.Offsets;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import org.clafer.ir.IrSetVar;
+import org.clafer.ir.compiler.IrSolutionMap;
+
+/**
+ * An instance that reads its Clafers from the solution the first time they are
+ * asked for. Looking at a few Clafers of an instance only reads the variables
+ * of those Clafers and their ancestors. Every Clafer is created at most once
+ * and is found by its id, so references point to the same object that appears
+ * among the children of its parent.
+ * <p>
+ * The solution map must not change afterwards, so it should be read from a
+ * recorded solution rather than the current state of the solver.
+ *
+ * @author jimmy
+ */
+class LazyInstanceModel extends InstanceModel {
+
+    private final AstSolutionMap astSolution;
+    private final IrSolutionMap irSolution;
+    // The Clafers created so far, indexed by id.
+    private final Map<AstConcreteClafer, Node[]> nodes = new HashMap<>();
+    private InstanceClafer[] topClafers = null;
+
+    LazyInstanceModel(AstSolutionMap astSolution, IrSolutionMap irSolution) {
+        this.astSolution = astSolution;
+        this.irSolution = irSolution;
+    }
+
+    private Node node(AstConcreteClafer clafer, int id) {
+        Node[] ids = nodes.get(clafer);
+        if (ids == null) {
+            ids = new Node[astSolution.getAnalysis().getScope(clafer)];
+            nodes.put(clafer, ids);
+        }
+        Node node = ids[id];
+        if (node == null) {
+            node = new Node(clafer, id);
+            ids[id] = node;
+        }
+        return node;
+    }
+
+    private void addChildren(List<AstConcreteClafer> claferChildren, int id, List<InstanceClafer> children) {
+        for (AstConcreteClafer child : claferChildren) {
+            IrSetVar childSetIrVar = astSolution.getSiblingVars(child)[id];
+            for (int childId : irSolution.getValue(childSetIrVar)) {
+                children.add(node(child, childId));
+            }
+        }
+    }
+
+    @Override
+    public InstanceClafer[] getTopClafers() {
+        if (topClafers == null) {
+            List<InstanceClafer> topInstances = new ArrayList<>();
+            // [0] because top clafers only have exactly one children set
+            addChildren(astSolution.getModel().getChildren(), 0, topInstances);
+            topClafers = topInstances.toArray(new InstanceClafer[topInstances.size()]);
+        }
+        return topClafers;
+    }
+
+    private class Node extends InstanceClafer {
+
+        private InstanceClafer[] children = null;
+        private boolean refRead = false;
+        private Object ref = null;
+
+        Node(AstConcreteClafer type, int id) {
+            super(type, id, null);
+        }
+
+        @Override
+        public InstanceClafer[] getChildren() {
+            if (children == null) {
+                Analysis analysis = astSolution.getAnalysis();
+                List<InstanceClafer> childList = new ArrayList<>();
+                AstClafer clafer = getType();
+                int claferId = getId();
+                addChildren(clafer.getChildren(), claferId, childList);
+                // Same as the eager instances, a Clafer with a reference does
+                // not collect the children of its super Clafers.
+                while (!clafer.hasRef() && clafer.hasSuperClafer()) {
+                    claferId += analysis.getOffsets(clafer.getSuperClafer()).getOffset(clafer);
+                    clafer = clafer.getSuperClafer();
+                    addChildren(clafer.getChildren(), claferId, childList);
+                }
+                children = childList.toArray(new InstanceClafer[childList.size()]);
+            }
+            return children;
+        }
+
+        @Override
+        public Object getRef() {
+            if (!refRead) {
+                ref = readRef();
+                refRead = true;
+            }
+            return ref;
+        }
+
+        private Object readRef() {
+            Analysis analysis = astSolution.getAnalysis();
+            AstClafer clafer = getType();
+            int claferId = getId();
+            // The reference is inherited from the closest super Clafer with one.
+            while (!clafer.hasRef()) {
+                if (!clafer.hasSuperClafer()) {
+                    return null;
+                }
+                claferId += analysis.getOffsets(clafer.getSuperClafer()).getOffset(clafer);
+                clafer = clafer.getSuperClafer();
+            }
+            AstClafer targetType = clafer.getRef().getTargetType();
+            if (targetType instanceof AstStringClafer) {
+                return irSolution.getValue(astSolution.getRefStrings(clafer)[claferId]);
+            }
+            int value = irSolution.getValue(astSolution.getRefVars(clafer)[claferId]);
+            if (targetType.isPrimitive()) {
+                return value;
+            }
+            while (targetType instanceof AstAbstractClafer) {
+                Offsets offsets = analysis.getOffsets((AstAbstractClafer) targetType);
+                targetType = offsets.getClafer(value);
+                value -= offsets.getOffset(targetType);
+            }
+            return node((AstConcreteClafer) targetType, value);
+        }
+    }
+}
@@ -28,11 +28,28 @@ public class PartiallyKnownOptimizer implements ClaferOptimizer {
         return optimizer.find();
     }
 
+    @Override
+    public ClaferOptimizer assume(Assumption... assumptions) {
+        optimizer.assume(assumptions);
+        return this;
+    }
+
+    @Override
+    public ClaferOptimizer retract() {
+        optimizer.retract();
+        return this;
+    }
+
     @Override
     public InstanceModel instance() {
         return optimizer.instance();
     }
 
+    @Override
+    public InstanceModel instanceSnapshot() {
+        return optimizer.instanceSnapshot();
+    }
+
     @Override
     public InstanceModel[] allInstances() throws ReachedLimitException {
         return optimizer.allInstances();
@@ -55,6 +72,12 @@ public class PartiallyKnownOptimizer implements ClaferOptimizer {
         return optimizer.instanceCount();
     }
 
+    @Override
+    public ClaferSearch limitTime(long ms) {
+        optimizer.limitTime(ms);
+        return this;
+    }
+
     @Override
     public Solver getInternalSolver() {
         return optimizer.getInternalSolver();
@@ -0,0 +1,241 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.move.Move;
+import org.chocosolver.solver.search.loop.move.MoveRestart;
+import org.clafer.common.Check;
+
+/**
+ * Races solvers against each other on separate threads. Every solver gets a
+ * stop criterion so that the race can stop the losers.
+ *
+ * @author jimmy
+ */
+class Portfolio {
+
+    private final Solver[] solvers;
+    private final AtomicBoolean[] stops;
+    // The restarting moves replaced by dropRestarts, null if not replaced.
+    private final Move[] dropped;
+
+    Portfolio(Solver... solvers) {
+        this.solvers = Check.noNullsNotEmpty(solvers);
+        this.stops = new AtomicBoolean[solvers.length];
+        this.dropped = new Move[solvers.length];
+        for (int i = 0; i < solvers.length; i++) {
+            AtomicBoolean stop = new AtomicBoolean();
+            stops[i] = stop;
+            solvers[i].addStopCriterion(stop::get);
+        }
+    }
+
+    int size() {
+        return solvers.length;
+    }
+
+    Solver getSolver(int i) {
+        return solvers[i];
+    }
+
+    Solver[] getSolvers() {
+        return solvers;
+    }
+
+    void limitTime(long ms) {
+        for (Solver solver : solvers) {
+            solver.limitTime(ms);
+        }
+    }
+
+    /**
+     * Continue the search of the solver without restarts. The solvers after
+     * the first only restart to find their first answer faster, the following
+     * answers are enumerated without restarts so that none repeat. Undone by
+     * {@link #restoreRestarts()}.
+     *
+     * @param i the index of the solver
+     */
+    void dropRestarts(int i) {
+        if (i > 0) {
+            Move move = solvers[i].getMove();
+            if (move instanceof MoveRestart) {
+                dropped[i] = move;
+                solvers[i].setMove(move.getChildMoves().get(0));
+            }
+        }
+    }
+
+    /**
+     * Give back the restarts dropped since the last call. Call after the
+     * solvers are reset, before the next race, so that the solvers are
+     * configured differently again.
+     */
+    void restoreRestarts() {
+        for (int i = 0; i < dropped.length; i++) {
+            if (dropped[i] != null) {
+                solvers[i].setMove(dropped[i]);
+                dropped[i] = null;
+            }
+        }
+    }
+
+    private void stopAllBut(int winner) {
+        for (int i = 0; i < stops.length; i++) {
+            if (i != winner) {
+                stops[i].set(true);
+            }
+        }
+    }
+
+    /**
+     * Run one task per solver until a task returns. The other tasks are
+     * stopped and waited for. Afterwards, every solver can be searched again.
+     *
+     * @param <T> the type of the results
+     * @param tasks the task of each solver, throws {@link ReachedLimitException}
+     * if its solver was stopped or reached its own limit
+     * @return the first task to return, or null if every task reached its
+     * limit
+     */
+    <T> Winner<T> race(List<? extends Callable<T>> tasks) {
+        @SuppressWarnings("unchecked")
+        Winner<T> winner = (Winner<T>) run(tasks, true);
+        return winner;
+    }
+
+    /**
+     * Run one task per solver until every task returns. If a task reaches its
+     * limit, the other tasks are stopped and waited for.
+     *
+     * @param tasks the task of each solver, throws {@link ReachedLimitException}
+     * if its solver was stopped or reached its own limit
+     * @return {@code true} if every task returned, {@code false} if a task
+     * reached its limit
+     */
+    boolean all(List<? extends Callable<?>> tasks) {
+        return run(tasks, false) != null;
+    }
+
+    /**
+     * @return the first task to return, or null if every task reached its
+     * limit, or if a task reached its limit and not racing
+     */
+    private Winner<?> run(List<? extends Callable<?>> tasks, boolean race) {
+        if (tasks.size() != solvers.length) {
+            throw new IllegalArgumentException("Expected " + solvers.length + " tasks, not " + tasks.size());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "clafer-portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+            List<Future<Object>> futures = new ArrayList<>(tasks.size());
+            for (Callable<?> task : tasks) {
+                futures.add(completion.submit(task::call));
+            }
+            int winner = -1;
+            Object winnerResult = null;
+            boolean limited = false;
+            Throwable failure = null;
+            boolean interrupted = false;
+            for (int i = 0; i < tasks.size(); i++) {
+                Future<Object> future;
+                try {
+                    future = completion.take();
+                } catch (InterruptedException e) {
+                    // Stop the solvers but still wait for them to return.
+                    interrupted = true;
+                    stopAllBut(-1);
+                    i--;
+                    continue;
+                }
+                int index = futures.indexOf(future);
+                try {
+                    Object result = future.get();
+                    if (winner == -1 && failure == null) {
+                        winner = index;
+                        winnerResult = result;
+                        if (race) {
+                            stopAllBut(winner);
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof ReachedLimitException) {
+                        if (!race && !limited) {
+                            limited = true;
+                            stopAllBut(-1);
+                        }
+                    } else if (failure == null) {
+                        failure = cause;
+                        stopAllBut(-1);
+                    }
+                } catch (InterruptedException e) {
+                    // The future is done, get does not block.
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new ReachedLimitException();
+            }
+            return winner == -1 || (!race && limited) ? null : new Winner<>(winner, winnerResult);
+        } finally {
+            executor.shutdownNow();
+            for (AtomicBoolean stop : stops) {
+                stop.set(false);
+            }
+        }
+    }
+
+    /**
+     * The first task to return in a race.
+     *
+     * @param <T> the type of the result
+     */
+    static class Winner<T> {
+
+        private final int index;
+        private final T result;
+
+        Winner(int index, T result) {
+            this.index = index;
+            this.result = result;
+        }
+
+        /**
+         * @return the index of the task
+         */
+        int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return what the task returned
+         */
+        T getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.clafer.compiler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.clafer.assertion.Assertion;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstModel;
+import org.clafer.ast.AstUtil;
+import org.clafer.ast.analysis.Analysis;
+import org.clafer.ast.analysis.Analyzer;
+import org.clafer.ast.analysis.ScopeAnalyzer;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Triple;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.analysis.deduction.Coalesce;
+import org.clafer.objective.Objective;
+
+/**
+ * An in-memory cache of the models compiled in a session, for recompiling the
+ * same model again and again with small changes to the scope.
+ * <p>
+ * The analyzers up to and including the {@link ScopeAnalyzer} shrink every
+ * scope to what the model can actually use. Everything after, the remaining
+ * analyzers, the AST compiler, and the optimizer, only depends on the analysis
+ * at that point. Entries are keyed by that analysis, so a scope change that
+ * does not change any effective scope, global cardinality, or inverse reuses
+ * the compiled model and only translates it to Choco again. For example,
+ * raising the scope of a Clafer past its global cardinality, or going back to
+ * a scope compiled earlier. On a miss, only the analyzers after the
+ * {@link ScopeAnalyzer} are run again.
+ * <p>
+ * Entries refer to the Clafers of the model, so a reloaded model never hits
+ * the entries of the model it replaced. Not thread-safe.
+ *
+ * @author jimmy
+ */
+public class RecompileCache {
+
+    private final Map<CompiledModelCache.Key, Triple<AstSolutionMap, Coalesce, IrModule>> entries;
+
+    /**
+     * Remember up to 16 compiled models.
+     */
+    public RecompileCache() {
+        this(16);
+    }
+
+    /**
+     * @param capacity the number of compiled models to remember, the least
+     * recently used model is forgotten first
+     */
+    public RecompileCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, not " + capacity);
+        }
+        this.entries = new LinkedHashMap<CompiledModelCache.Key, Triple<AstSolutionMap, Coalesce, IrModule>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CompiledModelCache.Key, Triple<AstSolutionMap, Coalesce, IrModule>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param analyzers the analyzers
+     * @return the index of the analyzer that sets the effective scopes, or -1
+     * if there is none
+     */
+    static int effectiveScopeAnalyzer(Analyzer[] analyzers) {
+        for (int i = 0; i < analyzers.length; i++) {
+            if (analyzers[i] instanceof ScopeAnalyzer) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param model the model
+     * @param analysis the analysis after the effective scopes are set
+     * @param objectives the objectives compiled with the model
+     * @param assertions the assertions compiled with the model
+     * @param analyzers all the analyzers run by the AST compiler
+     * @param options the compiler options
+     * @return the key of the compiled model
+     */
+    static CompiledModelCache.Key key(AstModel model, Analysis analysis, Objective[] objectives, Assertion[] assertions,
+            Analyzer[] analyzers, ClaferOption options) {
+        StringBuilder description = new StringBuilder();
+        for (AstClafer clafer : AstUtil.getClafers(model)) {
+            description.append(clafer.getName())
+                    .append(" global ").append(analysis.getGlobalCardMap().get(clafer))
+                    .append(" inverse ").append(analysis.getInverseMap().get(clafer))
+                    .append('\n');
+        }
+        return CompiledModelCache.key(model, analysis.getScope(), objectives, assertions, analyzers, options,
+                description.toString());
+    }
+
+    Triple<AstSolutionMap, Coalesce, IrModule> get(CompiledModelCache.Key key) {
+        return entries.get(key);
+    }
+
+    void put(CompiledModelCache.Key key, Triple<AstSolutionMap, Coalesce, IrModule> compiled) {
+        entries.put(key, compiled);
+    }
+
+    /**
+     * @return the number of compiled models remembered
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forget every compiled model.
+     */
+    public void clear() {
+        entries.clear();
+    }
+}
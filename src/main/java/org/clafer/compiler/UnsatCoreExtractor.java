@@ -0,0 +1,310 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.util.criteria.Criterion;
+import org.clafer.ast.AstConstraint;
+import org.clafer.choco.constraint.propagator.PropAssume;
+import org.clafer.collection.Either;
+import org.clafer.collection.Pair;
+
+/**
+ * Extracts minimal unsatisfiable cores over the soft constraints without
+ * optimizing. Every check assumes a subset of the soft constraints, by forcing
+ * their soft variables to one, and only searches for any solution. The
+ * assumptions are enforced by a single propagator posted once, so the compiled
+ * model is reused for every check.
+ * <p>
+ * A single core is found with QuickXplain, which splits the constraints in
+ * halves and needs a logarithmic number of checks for every constraint in the
+ * core. Several cores are enumerated with MARCO, which keeps a map of the
+ * subsets explored so far in a second solver. Every unexplored subset is either
+ * satisfiable, and grown into a maximal satisfiable subset, or unsatisfiable,
+ * and shrunk into a minimal core with QuickXplain.
+ *
+ * @author jimmy
+ */
+class UnsatCoreExtractor {
+
+    private final Solver solver;
+    private final Model model;
+    private final Pair<AstConstraint, Either<Boolean, BoolVar>>[] softVars;
+    private final PropAssume assume;
+    // The index of each soft variable in the assumption propagator, or -1 if
+    // the soft constraint is constant.
+    private final int[] assumeIndex;
+
+    /**
+     * @param solver the solver of the model with soft constraints
+     * @param softVars the soft constraints and their variables
+     */
+    UnsatCoreExtractor(Solver solver, Pair<AstConstraint, Either<Boolean, BoolVar>>[] softVars) {
+        this.solver = solver;
+        this.model = solver.getModel();
+        this.softVars = softVars;
+        this.assumeIndex = new int[softVars.length];
+        List<BoolVar> vars = new ArrayList<>();
+        for (int i = 0; i < softVars.length; i++) {
+            Either<Boolean, BoolVar> var = softVars[i].getSnd();
+            assumeIndex[i] = var.isRight() ? vars.size() : -1;
+            if (var.isRight()) {
+                vars.add(var.getRight());
+            }
+        }
+        if (vars.isEmpty()) {
+            this.assume = null;
+        } else {
+            this.assume = new PropAssume(vars.toArray(new BoolVar[vars.size()]));
+            model.post(new Constraint("assume", assume));
+        }
+    }
+
+    /**
+     * @param timeLimit the time limit in milliseconds for the whole extraction,
+     * or a negative number for no limit
+     * @return a minimal core, or null if the soft constraints are satisfiable
+     * together, empty if the hard constraints alone are unsatisfiable
+     * @throws ReachedLimitException if the time limit is reached
+     */
+    Set<AstConstraint> minimalCore(long timeLimit) throws ReachedLimitException {
+        return limit(timeLimit, () -> {
+            List<Integer> all = candidates();
+            if (check(all) != null) {
+                return null;
+            }
+            // The hard constraints alone may be unsatisfiable.
+            return toConstraints(quickXplain(new ArrayList<>(), true, all));
+        });
+    }
+
+    /**
+     * @param n the maximum number of cores
+     * @param timeLimit the time limit in milliseconds for the whole extraction,
+     * or a negative number for no limit
+     * @return up to n distinct minimal cores, empty if the soft constraints are
+     * satisfiable together
+     * @throws ReachedLimitException if the time limit is reached
+     */
+    List<Set<AstConstraint>> minimalCores(int n, long timeLimit) throws ReachedLimitException {
+        if (n < 1) {
+            throw new IllegalArgumentException("Number of cores must be positive, not " + n);
+        }
+        return limit(timeLimit, () -> {
+            List<Integer> universe = candidates();
+            Model map = new Model("map");
+            BoolVar[] explored = map.boolVarArray("soft", softVars.length);
+            // Unsatisfiable subsets are found first from the largest seeds.
+            map.getSolver().setSearch(Search.inputOrderUBSearch(explored));
+            for (int i = 0; i < softVars.length; i++) {
+                if (!universe.contains(i)) {
+                    map.arithm(explored[i], "=", 0).post();
+                }
+            }
+            List<Set<AstConstraint>> cores = new ArrayList<>();
+            while (cores.size() < n) {
+                map.getSolver().reset();
+                if (!map.getSolver().solve()) {
+                    break;
+                }
+                List<Integer> seed = new ArrayList<>();
+                for (int i : universe) {
+                    if (explored[i].getValue() == 1) {
+                        seed.add(i);
+                    }
+                }
+                map.getSolver().reset();
+                Set<Integer> satisfied = check(seed);
+                if (satisfied != null) {
+                    Set<Integer> grown = grow(satisfied, universe);
+                    List<BoolVar> outside = new ArrayList<>();
+                    for (int i : universe) {
+                        if (!grown.contains(i)) {
+                            outside.add(explored[i]);
+                        }
+                    }
+                    if (outside.isEmpty()) {
+                        // Every soft constraint is satisfiable together.
+                        break;
+                    }
+                    // Every subset of the grown set is satisfiable.
+                    map.sum(outside.toArray(new BoolVar[outside.size()]), ">", 0).post();
+                } else {
+                    // The hard constraints alone may be unsatisfiable. They
+                    // are the same for every core, so only check them once.
+                    List<Integer> core = quickXplain(new ArrayList<>(), cores.isEmpty(), seed);
+                    cores.add(toConstraints(core));
+                    if (core.isEmpty()) {
+                        // The hard constraints alone are unsatisfiable.
+                        break;
+                    }
+                    BoolVar[] inside = new BoolVar[core.size()];
+                    for (int i = 0; i < inside.length; i++) {
+                        inside[i] = explored[core.get(i)];
+                    }
+                    // Every superset of the core is unsatisfiable.
+                    map.sum(inside, "<", inside.length).post();
+                }
+            }
+            return cores;
+        });
+    }
+
+    /**
+     * @return the soft constraints that are not always satisfied
+     */
+    private List<Integer> candidates() {
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < softVars.length; i++) {
+            Either<Boolean, BoolVar> var = softVars[i].getSnd();
+            if (var.isRight() || !var.getLeft()) {
+                candidates.add(i);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Junker's QuickXplain. The background is satisfiable with the last
+     * constraint added unless {@code changed}.
+     *
+     * @param background the constraints assumed in every check
+     * @param changed whether the background changed since the last check
+     * @param constraints the constraints to minimize
+     * @return a minimal subset of the constraints unsatisfiable with the
+     * background
+     */
+    private List<Integer> quickXplain(List<Integer> background, boolean changed, List<Integer> constraints)
+            throws ReachedLimitException {
+        if (changed && check(background) == null) {
+            return new ArrayList<>();
+        }
+        if (constraints.size() <= 1) {
+            return new ArrayList<>(constraints);
+        }
+        List<Integer> half1 = constraints.subList(0, constraints.size() / 2);
+        List<Integer> half2 = constraints.subList(constraints.size() / 2, constraints.size());
+        List<Integer> core2 = quickXplain(union(background, half1), !half1.isEmpty(), half2);
+        List<Integer> core1 = quickXplain(union(background, core2), !core2.isEmpty(), half1);
+        return union(core1, core2);
+    }
+
+    /**
+     * @param satisfied a satisfiable set of constraints
+     * @param universe every constraint
+     * @return a maximal satisfiable set of constraints containing the
+     * satisfiable set
+     */
+    private Set<Integer> grow(Set<Integer> satisfied, List<Integer> universe) throws ReachedLimitException {
+        Set<Integer> grown = new HashSet<>(satisfied);
+        for (int i : universe) {
+            if (!grown.contains(i)) {
+                List<Integer> extended = new ArrayList<>(grown);
+                extended.add(i);
+                Set<Integer> witness = check(extended);
+                if (witness != null) {
+                    // The witness may satisfy more constraints than were assumed.
+                    grown.addAll(witness);
+                }
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * Solve under the assumption that the constraints hold.
+     *
+     * @param assumptions the constraints
+     * @return the constraints satisfied by a solution, or null if the
+     * constraints are unsatisfiable
+     * @throws ReachedLimitException if the time limit is reached
+     */
+    private Set<Integer> check(List<Integer> assumptions) throws ReachedLimitException {
+        if (assume != null) {
+            assume.clear();
+        }
+        for (int i : assumptions) {
+            if (assumeIndex[i] == -1) {
+                if (!softVars[i].getSnd().getLeft()) {
+                    return null;
+                }
+            } else {
+                assume.assume(assumeIndex[i], 1, 1);
+            }
+        }
+        solver.reset();
+        try {
+            boolean solved = solver.solve();
+            if (assume != null) {
+                // Enforce the next assumptions at the root of the next search.
+                solver.getEngine().propagateOnBacktrack(assume);
+            }
+            if (solved) {
+                Solution solution = new Solution(model).record();
+                Set<Integer> satisfied = new HashSet<>();
+                for (int i = 0; i < softVars.length; i++) {
+                    Either<Boolean, BoolVar> var = softVars[i].getSnd();
+                    if (var.isLeft() ? var.getLeft() : solution.getIntVal(var.getRight()) == 1) {
+                        satisfied.add(i);
+                    }
+                }
+                return satisfied;
+            }
+            if (solver.isStopCriterionMet()) {
+                throw new ReachedLimitException();
+            }
+            return null;
+        } finally {
+            if (assume != null) {
+                assume.clear();
+            }
+            solver.reset();
+        }
+    }
+
+    private Set<AstConstraint> toConstraints(List<Integer> core) {
+        Set<AstConstraint> constraints = new HashSet<>();
+        for (int i : core) {
+            constraints.add(softVars[i].getFst());
+        }
+        return constraints;
+    }
+
+    private static List<Integer> union(List<Integer> a, List<Integer> b) {
+        List<Integer> union = new ArrayList<>(a.size() + b.size());
+        union.addAll(a);
+        union.addAll(b);
+        return union;
+    }
+
+    /**
+     * Choco measures time limits from the start of every search, but the
+     * extraction searches many times, so the limit is checked against the
+     * start of the extraction instead.
+     */
+    private <T> T limit(long timeLimit, Extraction<T> extraction) throws ReachedLimitException {
+        if (timeLimit < 0) {
+            return extraction.extract();
+        }
+        long deadline = System.nanoTime() + timeLimit * 1000000;
+        Criterion timeout = () -> System.nanoTime() > deadline;
+        solver.addStopCriterion(timeout);
+        try {
+            return extraction.extract();
+        } finally {
+            solver.removeStopCriterion(timeout);
+        }
+    }
+
+    private static interface Extraction<T> {
+
+        T extract() throws ReachedLimitException;
+    }
+}
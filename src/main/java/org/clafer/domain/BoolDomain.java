@@ -7,6 +7,8 @@ package org.clafer.domain;
  */
 public class BoolDomain extends Domain {
 
+    private static final long serialVersionUID = 1L;
+
     public static final BoolDomain TrueDomain = new BoolDomain(true, false);
     public static final BoolDomain FalseDomain = new BoolDomain(false, true);
     public static final BoolDomain TrueFalseDomain = new BoolDomain(true, true);
@@ -33,4 +35,8 @@ public class BoolDomain extends Domain {
     public boolean isUnknown() {
         return !isTrue() && !isFalse();
     }
+
+    private Object readResolve() {
+        return isTrue() ? TrueDomain : isFalse() ? FalseDomain : TrueFalseDomain;
+    }
 }
@@ -4,6 +4,7 @@ import gnu.trove.TIntCollection;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.PrimitiveIterator;
 import java.util.Spliterator;
@@ -22,7 +23,9 @@ import org.clafer.ir.IrException;
  *
  * @author jimmy
  */
-public class Domain {
+public class Domain implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final Domain EmptyDomain = new Domain();
 
@@ -37,7 +37,7 @@ public class InstanceClafer {
     }
 
     public boolean hasRef() {
-        return ref != null;
+        return getRef() != null;
     }
 
     public Object getRef() {
@@ -45,7 +45,7 @@ public class InstanceClafer {
     }
 
     public boolean hasChildren() {
-        return children.length != 0;
+        return getChildren().length != 0;
     }
 
     public InstanceClafer[] getChildren() {
@@ -54,7 +54,7 @@ public class InstanceClafer {
 
     public InstanceClafer[] getChildren(AstConcreteClafer type) {
         List<InstanceClafer> typedChildren = new ArrayList<>();
-        for (InstanceClafer child : children) {
+        for (InstanceClafer child : getChildren()) {
             if (type.equals(child.getType())) {
                 typedChildren.add(child);
             }
@@ -64,7 +64,7 @@ public class InstanceClafer {
 
     public InstanceClafer getChild(AstConcreteClafer type) {
         InstanceClafer typedChild = null;
-        for (InstanceClafer child : children) {
+        for (InstanceClafer child : getChildren()) {
             if (type.equals(child.getType())) {
                 if (typedChild != null) {
                     throw new IllegalArgumentException("More than one child Clafer with type " + type);
@@ -114,19 +114,41 @@ public class InstanceClafer {
         }
     }
 
+    /**
+     * References to Clafers are compared by type and id only. The referenced
+     * Clafer is compared as part of its own tree, and references can form
+     * cycles.
+     */
+    private static boolean refEquals(Object ref1, Object ref2) {
+        if (ref1 instanceof InstanceClafer && ref2 instanceof InstanceClafer) {
+            InstanceClafer clafer1 = (InstanceClafer) ref1;
+            InstanceClafer clafer2 = (InstanceClafer) ref2;
+            return clafer1.getType().equals(clafer2.getType()) && clafer1.getId() == clafer2.getId();
+        }
+        return Objects.equals(ref1, ref2);
+    }
+
+    private static int refHashCode(Object ref) {
+        if (ref instanceof InstanceClafer) {
+            InstanceClafer clafer = (InstanceClafer) ref;
+            return clafer.getType().hashCode() ^ clafer.getId();
+        }
+        return Objects.hashCode(ref);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof InstanceClafer) {
             InstanceClafer other = (InstanceClafer) obj;
-            return type.equals(other.type) && id == other.id
-                    && Objects.equals(ref, other.ref) && Arrays.equals(children, other.children);
+            return getType().equals(other.getType()) && getId() == other.getId()
+                    && refEquals(getRef(), other.getRef()) && Arrays.equals(getChildren(), other.getChildren());
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return type.hashCode() ^ id ^ Objects.hashCode(ref) ^ Arrays.hashCode(children);
+        return getType().hashCode() ^ getId() ^ refHashCode(getRef()) ^ Arrays.hashCode(getChildren());
     }
 
     @Override
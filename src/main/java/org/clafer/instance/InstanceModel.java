@@ -25,7 +25,7 @@ public class InstanceModel {
 
     public InstanceClafer[] getTopClafers(AstConcreteClafer type) {
         List<InstanceClafer> typedTopClafers = new ArrayList<>();
-        for (InstanceClafer topClafer : topClafers) {
+        for (InstanceClafer topClafer : getTopClafers()) {
             if (type.equals(topClafer.getType())) {
                 typedTopClafers.add(topClafer);
             }
@@ -35,7 +35,7 @@ public class InstanceModel {
 
     public InstanceClafer getTopClafer(AstConcreteClafer type) {
         InstanceClafer typedTopClafer = null;
-        for (InstanceClafer topClafer : topClafers) {
+        for (InstanceClafer topClafer : getTopClafers()) {
             if (type.equals(topClafer.getType())) {
                 if (typedTopClafer != null) {
                     throw new IllegalArgumentException("More than one top Clafer with type " + type);
@@ -65,7 +65,7 @@ public class InstanceModel {
      * @throws IOException an IO error occurred
      */
     public void print(Appendable out) throws IOException {
-        for (InstanceClafer top : topClafers) {
+        for (InstanceClafer top : getTopClafers()) {
             top.print(out);
         }
     }
@@ -74,14 +74,14 @@ public class InstanceModel {
     public boolean equals(Object obj) {
         if (obj instanceof InstanceModel) {
             InstanceModel other = (InstanceModel) obj;
-            return Arrays.equals(topClafers, other.topClafers);
+            return Arrays.equals(getTopClafers(), other.getTopClafers());
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(topClafers);
+        return Arrays.hashCode(getTopClafers());
     }
 
     @Override
@@ -9,6 +9,8 @@ import org.clafer.domain.BoolDomain;
  */
 public abstract class IrAbstractBool implements IrBoolExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final BoolDomain domain;
 
     public IrAbstractBool(BoolDomain domain) {
@@ -9,6 +9,8 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractInt implements IrIntExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final Domain domain;
 
     public IrAbstractInt(Domain domain) {
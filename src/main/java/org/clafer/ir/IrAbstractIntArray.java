@@ -10,6 +10,8 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractIntArray implements IrIntArrayExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final Domain[] domains;
     private final boolean isConstant;
 
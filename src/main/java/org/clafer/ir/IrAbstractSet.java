@@ -8,6 +8,8 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractSet implements IrSetExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final Domain env, ker, card;
     private final boolean isConstant;
 
@@ -11,6 +11,8 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractSetArray implements IrSetArrayExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final Domain[] envDomains, kerDomains, cardDomains;
     private final boolean isConstant;
 
@@ -10,6 +10,8 @@ import org.clafer.domain.Domain;
  */
 public abstract class IrAbstractString implements IrStringExpr {
 
+    private static final long serialVersionUID = 1L;
+
     private final Domain[] charDomains;
     private final Domain lengthDomain;
     private final boolean isConstant;
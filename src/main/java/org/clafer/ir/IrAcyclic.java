@@ -5,22 +5,36 @@ import org.clafer.common.Check;
 import org.clafer.domain.BoolDomain;
 
 /**
+ * No cycles, and no path between two nodes of the same group from the lower
+ * numbered node to the higher numbered node.
  *
  * @author jimmy
  */
 public class IrAcyclic extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] edges;
+    private final int[] groups;
+    private transient int hash;
 
-    public IrAcyclic(IrIntExpr[] edges, BoolDomain domain) {
+    public IrAcyclic(IrIntExpr[] edges, int[] groups, BoolDomain domain) {
         super(domain);
         this.edges = Check.noNullsNotEmpty(edges);
+        this.groups = Check.notNull(groups);
+        if (edges.length != groups.length) {
+            throw new IllegalArgumentException();
+        }
     }
 
     public IrIntExpr[] getEdges() {
         return edges;
     }
 
+    public int[] getGroups() {
+        return groups;
+    }
+
     @Override
     public IrBoolExpr negate() {
         return new IrNot(this, getDomain().invert());
@@ -43,20 +57,28 @@ public class IrAcyclic extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAcyclic) {
             IrAcyclic other = (IrAcyclic) obj;
-            return Arrays.equals(edges, other.edges) && super.equals(other);
+            return Arrays.equals(edges, other.edges)
+                    && Arrays.equals(groups, other.groups)
+                    && super.equals(other);
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return 739 * Arrays.hashCode(edges);
+        if (hash == 0) {
+            hash = 739 * Arrays.hashCode(edges) ^ Arrays.hashCode(groups);
+        }
+        return hash;
     }
 
     @Override
     public String toString() {
-        return "acyclic(" + Arrays.toString(edges) + ")";
+        return "acyclic(" + Arrays.toString(edges) + ", " + Arrays.toString(groups) + ")";
     }
 }
@@ -12,8 +12,11 @@ import org.clafer.domain.Domain;
  */
 public class IrAdd extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] addends;
     private final int offset;
+    private transient int hash;
 
     IrAdd(IrIntExpr[] addends, int offset, Domain domain) {
         super(domain);
@@ -36,6 +39,9 @@ public class IrAdd extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAdd) {
             IrAdd other = (IrAdd) obj;
             return Arrays.equals(addends, other.addends) && offset == other.offset && super.equals(other);
@@ -45,7 +51,10 @@ public class IrAdd extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(addends) ^ offset;
+        if (hash == 0) {
+            hash = Arrays.hashCode(addends) ^ offset;
+        }
+        return hash;
     }
 
     @Override
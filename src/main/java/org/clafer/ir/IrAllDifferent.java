@@ -11,7 +11,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrAllDifferent extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] operands;
+    private transient int hash;
 
     IrAllDifferent(IrIntExpr[] operands, BoolDomain domain) {
         super(domain);
@@ -44,6 +47,9 @@ public class IrAllDifferent extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAllDifferent) {
             IrAllDifferent other = (IrAllDifferent) obj;
             return Arrays.equals(operands, other.operands);
@@ -53,7 +59,10 @@ public class IrAllDifferent extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(operands);
+        if (hash == 0) {
+            hash = Arrays.hashCode(operands);
+        }
+        return hash;
     }
 
     @Override
@@ -11,7 +11,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrAnd extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr[] operands;
+    private transient int hash;
 
     IrAnd(IrBoolExpr[] operands, BoolDomain domain) {
         super(domain);
@@ -48,6 +51,9 @@ public class IrAnd extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrAnd) {
             IrAnd other = (IrAnd) obj;
             return Arrays.equals(operands, other.operands) && super.equals(other);
@@ -57,7 +63,10 @@ public class IrAnd extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 7 * Arrays.hashCode(operands);
+        if (hash == 0) {
+            hash = 7 * Arrays.hashCode(operands);
+        }
+        return hash;
     }
 
     @Override
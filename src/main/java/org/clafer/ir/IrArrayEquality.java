@@ -9,9 +9,12 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrArrayEquality extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntArrayExpr left;
     private final Op op;
     private final IrIntArrayExpr right;
+    private transient int hash;
 
     IrArrayEquality(IrIntArrayExpr left, Op op, IrIntArrayExpr right, BoolDomain domain) {
         super(domain);
@@ -54,6 +57,9 @@ public class IrArrayEquality extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrArrayEquality) {
             IrArrayEquality other = (IrArrayEquality) obj;
             return left.equals(other.left) && op.equals(other.op) && right.equals(other.right) && super.equals(other);
@@ -63,9 +69,12 @@ public class IrArrayEquality extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        // op.hashCode() can change between runs which makes the output change
-        // every time.
-        return left.hashCode() ^ op.ordinal() ^ right.hashCode();
+        if (hash == 0) {
+            // op.hashCode() can change between runs which makes the output change
+            // every time.
+            hash = left.hashCode() ^ op.ordinal() ^ right.hashCode();
+        }
+        return hash;
     }
 
     @Override
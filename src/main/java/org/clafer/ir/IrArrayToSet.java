@@ -11,8 +11,11 @@ import org.clafer.domain.Domain;
  */
 public class IrArrayToSet extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] array;
     private final Integer globalCardinality;
+    private transient int hash;
 
     IrArrayToSet(IrIntExpr[] array, Domain env, Domain ker, Domain card, Integer globalCardinality) {
         super(env, ker, card);
@@ -42,6 +45,9 @@ public class IrArrayToSet extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrArrayToSet) {
             IrArrayToSet other = (IrArrayToSet) obj;
             return Arrays.equals(array, other.array) && Util.equals(globalCardinality, other.globalCardinality) && super.equals(other);
@@ -51,7 +57,10 @@ public class IrArrayToSet extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(array) ^ Util.hashCode(globalCardinality);
+        if (hash == 0) {
+            hash = Arrays.hashCode(array) ^ Util.hashCode(globalCardinality);
+        }
+        return hash;
     }
 
     @Override
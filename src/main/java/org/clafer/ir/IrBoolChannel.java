@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrBoolChannel extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr[] bools;
     private final IrSetExpr set;
+    private transient int hash;
 
     IrBoolChannel(IrBoolExpr[] bools, IrSetExpr set, BoolDomain domain) {
         super(domain);
@@ -49,6 +52,9 @@ public class IrBoolChannel extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrBoolChannel) {
             IrBoolChannel other = (IrBoolChannel) obj;
             return Arrays.equals(bools, other.bools) && set.equals(other.set);
@@ -58,7 +64,10 @@ public class IrBoolChannel extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(bools) ^ set.hashCode();
+        if (hash == 0) {
+            hash = Arrays.hashCode(bools) ^ set.hashCode();
+        }
+        return hash;
     }
 
     @Override
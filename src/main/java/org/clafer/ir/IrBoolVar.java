@@ -9,6 +9,8 @@ import org.clafer.domain.Domains;
  */
 public class IrBoolVar extends IrIntVar implements IrBoolExpr {
 
+    private static final long serialVersionUID = 1L;
+
     IrBoolVar(String name, BoolDomain domain) {
         super(name, domain);
     }
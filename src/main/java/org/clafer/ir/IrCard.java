@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrCard extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr set;
+    private transient int hash;
 
     IrCard(IrSetExpr set, Domain domain) {
         super(domain);
@@ -27,6 +30,9 @@ public class IrCard extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrCard) {
             IrCard other = (IrCard) obj;
             return set.equals(other.set);
@@ -36,7 +42,10 @@ public class IrCard extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return 31 * set.hashCode();
+        if (hash == 0) {
+            hash = 31 * set.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -10,9 +10,12 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrCompare extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr left;
     private final Op op;
     private final IrIntExpr right;
+    private transient int hash;
 
     IrCompare(IrIntExpr left, Op op, IrIntExpr right, BoolDomain domain) {
         super(domain);
@@ -64,6 +67,9 @@ public class IrCompare extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrCompare) {
             IrCompare other = (IrCompare) obj;
             return left.equals(other.left) && op.equals(other.op)
@@ -74,9 +80,12 @@ public class IrCompare extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        // op.hashCode() can change between runs which makes the output change
-        // every time.
-        return left.hashCode() ^ op.ordinal() ^ right.hashCode();
+        if (hash == 0) {
+            // op.hashCode() can change between runs which makes the output change
+            // every time.
+            hash = left.hashCode() ^ op.ordinal() ^ right.hashCode();
+        }
+        return hash;
     }
 
     @Override
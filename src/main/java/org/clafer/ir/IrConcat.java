@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrConcat extends IrAbstractString {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrStringExpr left, right;
+    private transient int hash;
 
     IrConcat(IrStringExpr left, IrStringExpr right, 
             Domain[] charDomains, Domain lengthDomain) {
@@ -33,6 +36,9 @@ public class IrConcat extends IrAbstractString {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrConcat) {
             IrConcat other = (IrConcat) obj;
             return left.equals(other.left) && left.equals(other.right);
@@ -42,7 +48,10 @@ public class IrConcat extends IrAbstractString {
 
     @Override
     public int hashCode() {
-        return left.hashCode() ^ right.hashCode();
+        if (hash == 0) {
+            hash = left.hashCode() ^ right.hashCode();
+        }
+        return hash;
     }
 
     @Override
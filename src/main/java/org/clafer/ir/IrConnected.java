@@ -8,9 +8,12 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrConnected extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetArrayExpr relation;
     private final IrSetExpr nodes;
     private final boolean directed;
+    private transient int hash;
 
     public IrConnected(IrSetExpr nodes, IrSetArrayExpr relation, boolean directed, BoolDomain domain) {
         super(domain);
@@ -54,6 +57,9 @@ public class IrConnected extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrConnected) {
             IrConnected other = (IrConnected) obj;
             return nodes.equals(other.nodes) && relation.equals(other.relation) && directed == other.directed;
@@ -63,7 +69,10 @@ public class IrConnected extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 117 * nodes.hashCode() ^ relation.hashCode() ^ (directed ? 16 : 0);
+        if (hash == 0) {
+            hash = 117 * nodes.hashCode() ^ relation.hashCode() ^ (directed ? 16 : 0);
+        }
+        return hash;
     }
 
     @Override
@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrContainsSetTernary extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr antecedent;
     private final int x;
     private final IrSetExpr consequent;
+    private transient int hash;
 
     IrContainsSetTernary(IrSetExpr antecedent, int x, IrSetExpr consequent, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -39,6 +42,9 @@ public class IrContainsSetTernary extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrContainsSetTernary) {
             IrContainsSetTernary other = (IrContainsSetTernary) obj;
             return antecedent.equals(other.antecedent) && x == other.x
@@ -49,7 +55,10 @@ public class IrContainsSetTernary extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return antecedent.hashCode() ^ Integer.hashCode(x) ^ consequent.hashCode();
+        if (hash == 0) {
+            hash = antecedent.hashCode() ^ Integer.hashCode(x) ^ consequent.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -9,8 +9,11 @@ import org.clafer.domain.Domain;
  */
 public class IrCount extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final int value;
     private final IrIntArrayExpr array;
+    private transient int hash;
 
     public IrCount(int value, IrIntArrayExpr array, Domain domain) {
         super(domain);
@@ -33,6 +36,9 @@ public class IrCount extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrCount) {
             IrCount other = (IrCount) obj;
             return value == other.value && array.equals(other.array);
@@ -42,7 +48,10 @@ public class IrCount extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return value ^ array.hashCode();
+        if (hash == 0) {
+            hash = value ^ array.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -10,12 +10,15 @@ import org.clafer.domain.Domain;
  */
 public class IrDiv extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Division is internally represented as a binary operation unlike
      * addition and subtraction. The reason is that this makes optimizing for
      * Choco easier.
      */
     private final IrIntExpr dividend, divisor;
+    private transient int hash;
 
     IrDiv(IrIntExpr dividend, IrIntExpr divisor, Domain domain) {
         super(domain);
@@ -38,6 +41,9 @@ public class IrDiv extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrDiv) {
             IrDiv other = (IrDiv) obj;
             return dividend.equals(other.dividend) && divisor.equals(other.divisor);
@@ -47,7 +53,10 @@ public class IrDiv extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return dividend.hashCode() ^ divisor.hashCode();
+        if (hash == 0) {
+            hash = dividend.hashCode() ^ divisor.hashCode();
+        }
+        return hash;
     }
 
     @Override
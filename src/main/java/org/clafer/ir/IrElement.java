@@ -10,8 +10,11 @@ import org.clafer.domain.Domain;
  */
 public class IrElement extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntArrayExpr array;
     private final IrIntExpr index;
+    private transient int hash;
 
     IrElement(IrIntArrayExpr array, IrIntExpr index, Domain domain) {
         super(domain);
@@ -34,6 +37,9 @@ public class IrElement extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrElement) {
             IrElement other = (IrElement) obj;
             return array.equals(other.array) && index.equals(other.index);
@@ -43,7 +49,10 @@ public class IrElement extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return array.hashCode() ^ index.hashCode();
+        if (hash == 0) {
+            hash = array.hashCode() ^ index.hashCode();
+        }
+        return hash;
     }
 
     @Override
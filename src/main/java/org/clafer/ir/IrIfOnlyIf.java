@@ -9,7 +9,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrIfOnlyIf extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr left, right;
+    private transient int hash;
 
     IrIfOnlyIf(IrBoolExpr left, IrBoolExpr right, BoolDomain domain) {
         super(domain);
@@ -47,6 +50,9 @@ public class IrIfOnlyIf extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrIfOnlyIf) {
             IrIfOnlyIf other = (IrIfOnlyIf) obj;
             return left.equals(other.left) && right.equals(other.right) && super.equals(other);
@@ -56,7 +62,10 @@ public class IrIfOnlyIf extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return left.hashCode() ^ right.hashCode();
+        if (hash == 0) {
+            hash = left.hashCode() ^ right.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -9,9 +9,12 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrIfThenElse extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr antecedent;
     private final IrBoolExpr consequent;
     private final IrBoolExpr alternative;
+    private transient int hash;
 
     public IrIfThenElse(IrBoolExpr antecedent, IrBoolExpr consequent, IrBoolExpr alternative, BoolDomain domain) {
         super(domain);
@@ -54,6 +57,9 @@ public class IrIfThenElse extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrIfThenElse) {
             IrIfThenElse other = (IrIfThenElse) obj;
             return antecedent.equals(other.antecedent)
@@ -66,7 +72,10 @@ public class IrIfThenElse extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
+        if (hash == 0) {
+            hash = antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -10,7 +10,10 @@ import org.clafer.domain.Domain;
  */
 public class IrIntArrayVar extends IrAbstractIntArray {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] array;
+    private transient int hash;
 
     IrIntArrayVar(IrIntExpr[] array) {
         super(getDomains(array));
@@ -48,7 +51,10 @@ public class IrIntArrayVar extends IrAbstractIntArray {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(array);
+        if (hash == 0) {
+            hash = Arrays.hashCode(array);
+        }
+        return hash;
     }
 
     @Override
@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrIntChannel extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] ints;
     private final IrSetExpr[] sets;
+    private transient int hash;
 
     IrIntChannel(IrIntExpr[] ints, IrSetExpr[] sets, BoolDomain domain) {
         super(domain);
@@ -49,6 +52,9 @@ public class IrIntChannel extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrIntChannel) {
             IrIntChannel other = (IrIntChannel) obj;
             return Arrays.equals(ints, other.ints) && Arrays.equals(sets, other.sets) && super.equals(other);
@@ -58,7 +64,10 @@ public class IrIntChannel extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(ints) ^ Arrays.hashCode(sets);
+        if (hash == 0) {
+            hash = Arrays.hashCode(ints) ^ Arrays.hashCode(sets);
+        }
+        return hash;
     }
 
     @Override
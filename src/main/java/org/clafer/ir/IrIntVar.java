@@ -10,6 +10,8 @@ import org.clafer.domain.Domains;
  */
 public class IrIntVar extends IrAbstractInt implements IrVar {
 
+    private static final long serialVersionUID = 1L;
+
     private final String name;
 
     IrIntVar(String name, Domain domain) {
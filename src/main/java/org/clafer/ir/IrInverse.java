@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrInverse extends IrAbstractSetArray {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetArrayExpr relation;
+    private transient int hash;
 
     IrInverse(IrSetArrayExpr relation, Domain[] envDomains, Domain[] kerDomains, Domain[] cardDomains) {
         super(envDomains, kerDomains, cardDomains);
@@ -27,6 +30,9 @@ public class IrInverse extends IrAbstractSetArray {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrInverse) {
             IrInverse other = (IrInverse) obj;
             return relation.equals(other.relation);
@@ -36,7 +42,10 @@ public class IrInverse extends IrAbstractSetArray {
 
     @Override
     public int hashCode() {
-        return ~relation.hashCode();
+        if (hash == 0) {
+            hash = ~relation.hashCode();
+        }
+        return hash;
     }
 
     @Override
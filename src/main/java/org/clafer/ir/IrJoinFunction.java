@@ -10,9 +10,12 @@ import org.clafer.domain.Domain;
  */
 public class IrJoinFunction extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr take;
     private final IrIntArrayExpr refs;
     private final Integer globalCardinality;
+    private transient int hash;
 
     IrJoinFunction(IrSetExpr take, IrIntArrayExpr refs, Domain env, Domain ker, Domain card, Integer globalCardinality) {
         super(env, ker, card);
@@ -44,6 +47,9 @@ public class IrJoinFunction extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrJoinFunction) {
             IrJoinFunction other = (IrJoinFunction) obj;
             return take.equals(other.take) && refs.equals(other.refs) && Util.equals(globalCardinality, other.globalCardinality) && super.equals(other);
@@ -53,7 +59,10 @@ public class IrJoinFunction extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return take.hashCode() ^ refs.hashCode() ^ Util.hashCode(globalCardinality);
+        if (hash == 0) {
+            hash = take.hashCode() ^ refs.hashCode() ^ Util.hashCode(globalCardinality);
+        }
+        return hash;
     }
 
     @Override
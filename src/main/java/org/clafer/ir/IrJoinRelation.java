@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrJoinRelation extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr take;
     private final IrSetArrayExpr children;
     private final boolean injective;
+    private transient int hash;
 
     IrJoinRelation(IrSetExpr take, IrSetArrayExpr children, Domain env, Domain ker, Domain card, boolean injective) {
         super(env, ker, card);
@@ -39,6 +42,9 @@ public class IrJoinRelation extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrJoinRelation) {
             IrJoinRelation other = (IrJoinRelation) obj;
             return take.equals(other.take) && children.equals(other.children) && injective == other.injective;
@@ -48,7 +54,10 @@ public class IrJoinRelation extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return take.hashCode() ^ children.hashCode() ^ (isInjective() ? 1 : 0);
+        if (hash == 0) {
+            hash = take.hashCode() ^ children.hashCode() ^ (isInjective() ? 1 : 0);
+        }
+        return hash;
     }
 
     @Override
@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrLength extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrStringExpr string;
+    private transient int hash;
 
     IrLength(IrStringExpr string, Domain domain) {
         super(domain);
@@ -27,6 +30,9 @@ public class IrLength extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrLength) {
             IrLength other = (IrLength) obj;
             return string.equals(other.string) ;
@@ -36,7 +42,10 @@ public class IrLength extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return 41 * string.hashCode();
+        if (hash == 0) {
+            hash = 41 * string.hashCode();
+        }
+        return hash;
     }
 
     @Override
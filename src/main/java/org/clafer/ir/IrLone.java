@@ -11,7 +11,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrLone extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr[] operands;
+    private transient int hash;
 
     IrLone(IrBoolExpr[] operands, BoolDomain domain) {
         super(domain);
@@ -44,6 +47,9 @@ public class IrLone extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrLone) {
             IrLone other = (IrLone) obj;
             return Arrays.equals(operands, other.operands) && super.equals(other);
@@ -53,7 +59,10 @@ public class IrLone extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 15 * Arrays.hashCode(operands);
+        if (hash == 0) {
+            hash = 15 * Arrays.hashCode(operands);
+        }
+        return hash;
     }
 
     @Override
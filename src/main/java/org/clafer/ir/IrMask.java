@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrMask extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr set;
     private final int from;
     private final int to;
+    private transient int hash;
 
     IrMask(IrSetExpr set, int from, int to, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -44,6 +47,9 @@ public class IrMask extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMask) {
             IrMask other = (IrMask) obj;
             return set.equals(other.set) & from == other.from && to == other.to && super.equals(other);
@@ -53,7 +59,10 @@ public class IrMask extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return set.hashCode() ^ from ^ to;
+        if (hash == 0) {
+            hash = set.hashCode() ^ from ^ to;
+        }
+        return hash;
     }
 
     @Override
@@ -9,8 +9,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrMember extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr element;
     private final IrSetExpr set;
+    private transient int hash;
 
     IrMember(IrIntExpr element, IrSetExpr set, BoolDomain domain) {
         super(domain);
@@ -48,6 +51,9 @@ public class IrMember extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMember) {
             IrMember other = (IrMember) obj;
             return element.equals(other.element) && set.equals(other.set);
@@ -57,7 +63,10 @@ public class IrMember extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return element.hashCode() ^ set.hashCode();
+        if (hash == 0) {
+            hash = element.hashCode() ^ set.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrMinus extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr expr;
+    private transient int hash;
 
     public IrMinus(IrIntExpr expr, Domain domain) {
         super(domain);
@@ -27,6 +30,9 @@ public class IrMinus extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMinus) {
             IrMinus other = (IrMinus) obj;
             return expr.equals(other.expr) && super.equals(other);
@@ -36,7 +42,10 @@ public class IrMinus extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return ~expr.hashCode();
+        if (hash == 0) {
+            hash = ~expr.hashCode();
+        }
+        return hash;
     }
 
     @Override
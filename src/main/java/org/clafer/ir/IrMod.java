@@ -10,7 +10,10 @@ import org.clafer.domain.Domain;
  */
 public class IrMod extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr dividend, divisor;
+    private transient int hash;
 
     IrMod(IrIntExpr dividend, IrIntExpr divisor, Domain domain) {
         super(domain);
@@ -33,6 +36,9 @@ public class IrMod extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMod) {
             IrMod other = (IrMod) obj;
             return dividend.equals(other.dividend) && divisor.equals(other.divisor);
@@ -42,7 +48,10 @@ public class IrMod extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return dividend.hashCode() ^ divisor.hashCode();
+        if (hash == 0) {
+            hash = dividend.hashCode() ^ divisor.hashCode();
+        }
+        return hash;
     }
 
     @Override
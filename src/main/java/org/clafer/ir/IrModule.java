@@ -1,5 +1,6 @@
 package org.clafer.ir;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -14,7 +15,9 @@ import org.clafer.common.UnsatisfiableException;
  *
  * @author jimmy
  */
-public class IrModule {
+public class IrModule implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final List<IrBoolExpr> constraints;
 
@@ -10,6 +10,8 @@ import org.clafer.domain.Domain;
  */
 public class IrMul extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Multiplication is internally represented as a binary operation unlike
      * addition and subtraction. The reason is that this makes optimizing for
@@ -24,6 +26,7 @@ public class IrMul extends IrAbstractInt {
      * typically set by the end user to avoid excessive memory usage.
      */
     private final Domain intRange;
+    private transient int hash;
 
     IrMul(IrIntExpr multiplicand, IrIntExpr multiplier, Domain intRange, Domain domain) {
         super(domain);
@@ -51,6 +54,9 @@ public class IrMul extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrMul) {
             IrMul other = (IrMul) obj;
             return multiplicand.equals(other.multiplicand) && multiplier.equals(other.multiplier)
@@ -61,7 +67,10 @@ public class IrMul extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return multiplicand.hashCode() ^ multiplier.hashCode() ^ intRange.hashCode();
+        if (hash == 0) {
+            hash = multiplicand.hashCode() ^ multiplier.hashCode() ^ intRange.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -9,7 +9,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrNot extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr expr;
+    private transient int hash;
 
     public IrNot(IrBoolExpr expr, BoolDomain domain) {
         super(domain);
@@ -42,6 +45,9 @@ public class IrNot extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrNot) {
             IrNot other = (IrNot) obj;
             return expr.equals(other.expr) && super.equals(other);
@@ -51,7 +57,10 @@ public class IrNot extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return ~expr.hashCode();
+        if (hash == 0) {
+            hash = ~expr.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -9,8 +9,11 @@ import org.clafer.domain.Domain;
  */
 public class IrOffset extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr set;
     private final int offset;
+    private transient int hash;
 
     IrOffset(IrSetExpr set, int offset, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -34,6 +37,9 @@ public class IrOffset extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrOffset) {
             IrOffset other = (IrOffset) obj;
             return set.equals(other.set) & offset == other.offset && super.equals(other);
@@ -43,7 +49,10 @@ public class IrOffset extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return set.hashCode() ^ offset;
+        if (hash == 0) {
+            hash = set.hashCode() ^ offset;
+        }
+        return hash;
     }
 
     @Override
@@ -11,7 +11,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrOne extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr[] operands;
+    private transient int hash;
 
     IrOne(IrBoolExpr[] operands, BoolDomain domain) {
         super(domain);
@@ -44,6 +47,9 @@ public class IrOne extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrOne) {
             IrOne other = (IrOne) obj;
             return Arrays.equals(operands, other.operands) && super.equals(other);
@@ -53,7 +59,10 @@ public class IrOne extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 31 * Arrays.hashCode(operands);
+        if (hash == 0) {
+            hash = 31 * Arrays.hashCode(operands);
+        }
+        return hash;
     }
 
     @Override
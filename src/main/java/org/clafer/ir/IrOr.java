@@ -11,7 +11,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrOr extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr[] operands;
+    private transient int hash;
 
     IrOr(IrBoolExpr[] operands, BoolDomain domain) {
         super(domain);
@@ -48,6 +51,9 @@ public class IrOr extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrOr) {
             IrOr other = (IrOr) obj;
             return Arrays.equals(operands, other.operands) && super.equals(other);
@@ -57,7 +63,10 @@ public class IrOr extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 3 * Arrays.hashCode(operands);
+        if (hash == 0) {
+            hash = 3 * Arrays.hashCode(operands);
+        }
+        return hash;
     }
 
     @Override
@@ -9,8 +9,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrPrefix extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrStringExpr prefix;
     private final IrStringExpr word;
+    private transient int hash;
 
     IrPrefix(IrStringExpr prefix, IrStringExpr word, BoolDomain domain) {
         super(domain);
@@ -48,6 +51,9 @@ public class IrPrefix extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrPrefix) {
             IrPrefix other = (IrPrefix) obj;
             return prefix.equals(other.prefix) && word.equals(other.word);
@@ -57,7 +63,10 @@ public class IrPrefix extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return prefix.hashCode() ^ word.hashCode();
+        if (hash == 0) {
+            hash = prefix.hashCode() ^ word.hashCode();
+        }
+        return hash;
     }
 
     @Override
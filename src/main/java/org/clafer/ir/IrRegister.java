@@ -8,7 +8,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrRegister extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrVar variable;
+    private transient int hash;
 
     public IrRegister(IrVar variable) {
         super(variable.isConstant()
@@ -43,6 +46,9 @@ public class IrRegister extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrRegister) {
             IrRegister other = (IrRegister) obj;
             return variable.equals(other.variable);
@@ -52,7 +58,10 @@ public class IrRegister extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 973 ^ variable.hashCode();
+        if (hash == 0) {
+            hash = 973 ^ variable.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -407,7 +407,7 @@ public abstract class IrRewriter<T>
     public IrIntExpr visit(IrAcyclic ir, T a) {
         IrIntExpr[] edges = rewrite(ir.getEdges(), a);
         return changed(ir.getEdges(), edges)
-                ? acyclic(edges)
+                ? acyclic(edges, ir.getGroups())
                 : ir;
     }
 
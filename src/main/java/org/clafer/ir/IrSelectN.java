@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrSelectN extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr[] bools;
     private final IrIntExpr n;
+    private transient int hash;
 
     IrSelectN(IrBoolExpr[] bools, IrIntExpr n, BoolDomain domain) {
         super(domain);
@@ -49,6 +52,9 @@ public class IrSelectN extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSelectN) {
             IrSelectN other = (IrSelectN) obj;
             return Arrays.equals(bools, other.bools) && n.equals(other.n);
@@ -58,7 +64,10 @@ public class IrSelectN extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(bools) ^ n.hashCode();
+        if (hash == 0) {
+            hash = Arrays.hashCode(bools) ^ n.hashCode();
+        }
+        return hash;
     }
 
     @Override
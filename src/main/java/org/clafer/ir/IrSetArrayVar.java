@@ -10,7 +10,10 @@ import org.clafer.domain.Domain;
  */
 public class IrSetArrayVar extends IrAbstractSetArray {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr[] array;
+    private transient int hash;
 
     IrSetArrayVar(IrSetExpr[] array) {
         super(getEnvDomains(array), getKerDomains(array), getCardDomains(array));
@@ -64,7 +67,10 @@ public class IrSetArrayVar extends IrAbstractSetArray {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(array);
+        if (hash == 0) {
+            hash = Arrays.hashCode(array);
+        }
+        return hash;
     }
 
     @Override
@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrSetDifference extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr minuend, subtrahend;
+    private transient int hash;
 
     IrSetDifference(IrSetExpr minuend, IrSetExpr subtrahend,
             Domain env, Domain ker, Domain card) {
@@ -33,6 +36,9 @@ public class IrSetDifference extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetDifference) {
             IrSetDifference other = (IrSetDifference) obj;
             return minuend.equals(other.minuend) && subtrahend.equals(other.subtrahend) && super.equals(other);
@@ -42,7 +48,10 @@ public class IrSetDifference extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return 7 * minuend.hashCode() * subtrahend.hashCode();
+        if (hash == 0) {
+            hash = 7 * minuend.hashCode() * subtrahend.hashCode();
+        }
+        return hash;
     }
 
     @Override
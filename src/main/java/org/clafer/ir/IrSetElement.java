@@ -10,8 +10,11 @@ import org.clafer.domain.Domain;
  */
 public class IrSetElement extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetArrayExpr array;
     private final IrIntExpr index;
+    private transient int hash;
 
     IrSetElement(IrSetArrayExpr array, IrIntExpr index, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -34,6 +37,9 @@ public class IrSetElement extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetElement) {
             IrSetElement other = (IrSetElement) obj;
             return array.equals(other.array) && index.equals(other.index);
@@ -43,7 +49,10 @@ public class IrSetElement extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return array.hashCode() ^ index.hashCode();
+        if (hash == 0) {
+            hash = array.hashCode() ^ index.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -11,7 +11,10 @@ import org.clafer.domain.Domain;
  */
 public class IrSetIntersection extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr[] operands;
+    private transient int hash;
 
     IrSetIntersection(IrSetExpr[] operands, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -29,6 +32,9 @@ public class IrSetIntersection extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetIntersection) {
             IrSetIntersection other = (IrSetIntersection) obj;
             return Arrays.equals(operands, other.operands) && super.equals(other);
@@ -38,7 +44,10 @@ public class IrSetIntersection extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return 3 * Arrays.hashCode(operands);
+        if (hash == 0) {
+            hash = 3 * Arrays.hashCode(operands);
+        }
+        return hash;
     }
 
     @Override
@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrSetMax extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr set;
     // The value if set is empty.
     private final int defaultValue;
+    private transient int hash;
 
     public IrSetMax(IrSetExpr set, int defaultValue, Domain domain) {
         super(domain);
@@ -34,6 +37,9 @@ public class IrSetMax extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetMax) {
             IrSetMax other = (IrSetMax) obj;
             return set.equals(other.set) && defaultValue == other.defaultValue && super.equals(other);
@@ -43,7 +49,10 @@ public class IrSetMax extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return 93 * set.hashCode() ^ defaultValue;
+        if (hash == 0) {
+            hash = 93 * set.hashCode() ^ defaultValue;
+        }
+        return hash;
     }
 
     @Override
@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrSetMin extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr set;
     // The value if set is empty.
     private final int defaultValue;
+    private transient int hash;
 
     public IrSetMin(IrSetExpr set, int defaultValue, Domain domain) {
         super(domain);
@@ -34,6 +37,9 @@ public class IrSetMin extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetMin) {
             IrSetMin other = (IrSetMin) obj;
             return set.equals(other.set) && defaultValue == other.defaultValue && super.equals(other);
@@ -43,7 +49,10 @@ public class IrSetMin extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return 103 * set.hashCode() ^ defaultValue;
+        if (hash == 0) {
+            hash = 103 * set.hashCode() ^ defaultValue;
+        }
+        return hash;
     }
 
     @Override
@@ -9,7 +9,10 @@ import org.clafer.domain.Domain;
  */
 public class IrSetSum extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr set;
+    private transient int hash;
 
     public IrSetSum(IrSetExpr set, Domain domain) {
         super(domain);
@@ -27,6 +30,9 @@ public class IrSetSum extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetSum) {
             IrSetSum other = (IrSetSum) obj;
             return set.equals(other.set);
@@ -36,7 +42,10 @@ public class IrSetSum extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return 3 * set.hashCode();
+        if (hash == 0) {
+            hash = 3 * set.hashCode();
+        }
+        return hash;
     }
 
     @Override
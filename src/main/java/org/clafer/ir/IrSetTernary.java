@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrSetTernary extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr antecedent;
     private final IrSetExpr consequent;
     private final IrSetExpr alternative;
+    private transient int hash;
 
     public IrSetTernary(IrBoolExpr antecedent, IrSetExpr consequent, IrSetExpr alternative, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -39,6 +42,9 @@ public class IrSetTernary extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetTernary) {
             IrSetTernary other = (IrSetTernary) obj;
             return antecedent.equals(other.antecedent)
@@ -51,7 +57,10 @@ public class IrSetTernary extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
+        if (hash == 0) {
+            hash = antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -11,8 +11,11 @@ import org.clafer.domain.Domain;
  */
 public class IrSetUnion extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr[] operands;
     private final boolean disjoint;
+    private transient int hash;
 
     IrSetUnion(IrSetExpr[] operands, Domain env, Domain ker, Domain card, boolean disjoint) {
         super(env, ker, card);
@@ -35,6 +38,9 @@ public class IrSetUnion extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSetUnion) {
             IrSetUnion other = (IrSetUnion) obj;
             return Arrays.equals(operands, other.operands)
@@ -46,7 +52,10 @@ public class IrSetUnion extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(operands) ^ (disjoint ? 1231 : 1237);
+        if (hash == 0) {
+            hash = Arrays.hashCode(operands) ^ (disjoint ? 1231 : 1237);
+        }
+        return hash;
     }
 
     @Override
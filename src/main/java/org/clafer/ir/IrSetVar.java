@@ -9,6 +9,8 @@ import org.clafer.domain.Domain;
  */
 public class IrSetVar extends IrAbstractSet implements IrVar {
 
+    private static final long serialVersionUID = 1L;
+
     private final String name;
     private final IrIntVar card;
 
@@ -10,7 +10,10 @@ import org.clafer.domain.Domains;
  */
 public class IrSingleton extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr value;
+    private transient int hash;
 
     IrSingleton(IrIntExpr value, Domain env, Domain ker) {
         super(env, ker, Domains.OneDomain);
@@ -31,6 +34,9 @@ public class IrSingleton extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSingleton) {
             IrSingleton other = (IrSingleton) obj;
             return value.equals(other.value) && super.equals(other);
@@ -40,7 +46,10 @@ public class IrSingleton extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return 511 * value.hashCode();
+        if (hash == 0) {
+            hash = 511 * value.hashCode();
+        }
+        return hash;
     }
 
     @Override
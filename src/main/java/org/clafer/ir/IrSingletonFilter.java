@@ -9,8 +9,11 @@ import org.clafer.domain.Domain;
  */
 public class IrSingletonFilter extends IrAbstractSet {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr value;
     private final int filter;
+    private transient int hash;
 
     IrSingletonFilter(IrIntExpr value, int filter, Domain env, Domain ker, Domain card) {
         super(env, ker, card);
@@ -36,6 +39,9 @@ public class IrSingletonFilter extends IrAbstractSet {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSingletonFilter) {
             IrSingletonFilter other = (IrSingletonFilter) obj;
             return value.equals(other.value) && filter == other.filter && super.equals(other);
@@ -45,7 +51,10 @@ public class IrSingletonFilter extends IrAbstractSet {
 
     @Override
     public int hashCode() {
-        return 511 * value.hashCode() ^ filter;
+        if (hash == 0) {
+            hash = 511 * value.hashCode() ^ filter;
+        }
+        return hash;
     }
 
     @Override
@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrSortSets extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr[] sets;
     private final IrIntExpr[] bounds;
+    private transient int hash;
 
     public IrSortSets(IrSetExpr[] sets, IrIntExpr[] bounds, BoolDomain domain) {
         super(domain);
@@ -52,6 +55,9 @@ public class IrSortSets extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSortSets) {
             IrSortSets other = (IrSortSets) obj;
             return Arrays.equals(sets, other.sets) && Arrays.equals(bounds, other.bounds);
@@ -61,7 +67,10 @@ public class IrSortSets extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(sets) ^ Arrays.deepHashCode(bounds);
+        if (hash == 0) {
+            hash = Arrays.deepHashCode(sets) ^ Arrays.deepHashCode(bounds);
+        }
+        return hash;
     }
 
     @Override
@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrSortStrings extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[][] strings;
     private final boolean strict;
+    private transient int hash;
 
     IrSortStrings(IrIntExpr[][] strings, boolean strict, BoolDomain domain) {
         super(domain);
@@ -49,6 +52,9 @@ public class IrSortStrings extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSortStrings) {
             IrSortStrings other = (IrSortStrings) obj;
             return Arrays.deepEquals(strings, other.strings) && strict == other.strict;
@@ -58,7 +64,10 @@ public class IrSortStrings extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(strings) ^ (strict ? 1 : 0);
+        if (hash == 0) {
+            hash = Arrays.deepHashCode(strings) ^ (strict ? 1 : 0);
+        }
+        return hash;
     }
 
     @Override
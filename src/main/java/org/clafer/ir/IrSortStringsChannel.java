@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrSortStringsChannel extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[][] strings;
     private final IrIntExpr[] ints;
+    private transient int hash;
 
     public IrSortStringsChannel(IrIntExpr[][] strings, IrIntExpr[] ints, BoolDomain domain) {
         super(domain);
@@ -55,6 +58,9 @@ public class IrSortStringsChannel extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSortStringsChannel) {
             IrSortStringsChannel other = (IrSortStringsChannel) obj;
             return Arrays.deepEquals(strings, other.strings)
@@ -66,7 +72,10 @@ public class IrSortStringsChannel extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(strings) ^ Arrays.hashCode(ints);
+        if (hash == 0) {
+            hash = Arrays.deepHashCode(strings) ^ Arrays.hashCode(ints);
+        }
+        return hash;
     }
 
     @Override
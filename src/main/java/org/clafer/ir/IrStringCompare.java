@@ -9,9 +9,12 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrStringCompare extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrStringExpr left;
     private final Op op;
     private final IrStringExpr right;
+    private transient int hash;
 
     IrStringCompare(IrStringExpr left, Op op, IrStringExpr right, BoolDomain domain) {
         super(domain);
@@ -65,6 +68,9 @@ public class IrStringCompare extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrStringCompare) {
             IrStringCompare other = (IrStringCompare) obj;
             return left.equals(other.left) && op.equals(other.op)
@@ -75,9 +81,12 @@ public class IrStringCompare extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        // op.hashCode() can change between runs which makes the output change
-        // every time.
-        return left.hashCode() ^ op.ordinal() ^ right.hashCode();
+        if (hash == 0) {
+            // op.hashCode() can change between runs which makes the output change
+            // every time.
+            hash = left.hashCode() ^ op.ordinal() ^ right.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -11,8 +11,11 @@ import org.clafer.domain.Domain;
  */
 public class IrStringElement extends IrAbstractString {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrStringExpr[] array;
     private final IrIntExpr index;
+    private transient int hash;
 
     IrStringElement(IrStringExpr[] array, IrIntExpr index,
             Domain[] charDomains, Domain lengthDomain) {
@@ -36,6 +39,9 @@ public class IrStringElement extends IrAbstractString {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrStringElement) {
             IrStringElement other = (IrStringElement) obj;
             return Arrays.equals(array, other.array) && index.equals(other.index);
@@ -45,7 +51,10 @@ public class IrStringElement extends IrAbstractString {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(array) ^ index.hashCode();
+        if (hash == 0) {
+            hash = Arrays.hashCode(array) ^ index.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -10,9 +10,12 @@ import org.clafer.domain.Domain;
  */
 public class IrStringVar extends IrAbstractString implements IrVar {
 
+    private static final long serialVersionUID = 1L;
+
     private final String name;
     private final IrIntVar[] chars;
     private final IrIntVar length;
+    private transient int hash;
 
     IrStringVar(String name, IrIntVar[] chars, IrIntVar length) {
         super(getCharDomains(Check.noNulls(chars)), Check.notNull(length).getDomain());
@@ -61,7 +64,10 @@ public class IrStringVar extends IrAbstractString implements IrVar {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(chars) ^ length.hashCode();
+        if (hash == 0) {
+            hash = Arrays.hashCode(chars) ^ length.hashCode();
+        }
+        return hash;
     }
 
     @Override
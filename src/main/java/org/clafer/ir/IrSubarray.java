@@ -8,8 +8,11 @@ import org.clafer.domain.Domain;
  */
 public class IrSubarray extends IrAbstractIntArray {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntArrayExpr array;
     private final IrIntExpr index, sublength;
+    private transient int hash;
 
     public IrSubarray(IrIntArrayExpr array, IrIntExpr index, IrIntExpr sublength, Domain[] charDomains) {
         super(charDomains);
@@ -37,6 +40,9 @@ public class IrSubarray extends IrAbstractIntArray {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSubarray) {
             IrSubarray other = (IrSubarray) obj;
             return array.equals(other.array) && index.equals(other.index) && sublength.equals(other.sublength);
@@ -46,7 +52,10 @@ public class IrSubarray extends IrAbstractIntArray {
 
     @Override
     public int hashCode() {
-        return array.hashCode() ^ index.hashCode() ^ sublength.hashCode();
+        if (hash == 0) {
+            hash = array.hashCode() ^ index.hashCode() ^ sublength.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -9,7 +9,10 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrSubsetEq extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetExpr subset, superset;
+    private transient int hash;
 
     public IrSubsetEq(IrSetExpr subset, IrSetExpr superset, BoolDomain domain) {
         super(domain);
@@ -47,6 +50,9 @@ public class IrSubsetEq extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSubsetEq) {
             IrSubsetEq other = (IrSubsetEq) obj;
             return subset.equals(other.subset) && superset.equals(other.superset) && super.equals(other);
@@ -56,7 +62,10 @@ public class IrSubsetEq extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return subset.hashCode() ^ superset.hashCode();
+        if (hash == 0) {
+            hash = subset.hashCode() ^ superset.hashCode();
+        }
+        return hash;
     }
 
     @Override
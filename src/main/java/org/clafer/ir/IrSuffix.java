@@ -9,8 +9,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrSuffix extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrStringExpr suffix;
     private final IrStringExpr word;
+    private transient int hash;
 
     IrSuffix(IrStringExpr suffix, IrStringExpr word, BoolDomain domain) {
         super(domain);
@@ -48,6 +51,9 @@ public class IrSuffix extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrSuffix) {
             IrSuffix other = (IrSuffix) obj;
             return suffix.equals(other.suffix) && word.equals(other.word);
@@ -57,7 +63,10 @@ public class IrSuffix extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return suffix.hashCode() ^ word.hashCode();
+        if (hash == 0) {
+            hash = suffix.hashCode() ^ word.hashCode();
+        }
+        return hash;
     }
 
     @Override
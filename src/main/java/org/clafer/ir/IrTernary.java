@@ -9,9 +9,12 @@ import org.clafer.domain.Domain;
  */
 public class IrTernary extends IrAbstractInt {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrBoolExpr antecedent;
     private final IrIntExpr consequent;
     private final IrIntExpr alternative;
+    private transient int hash;
 
     public IrTernary(IrBoolExpr antecedent, IrIntExpr consequent, IrIntExpr alternative, Domain domain) {
         super(domain);
@@ -39,6 +42,9 @@ public class IrTernary extends IrAbstractInt {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrTernary) {
             IrTernary other = (IrTernary) obj;
             return antecedent.equals(other.antecedent)
@@ -51,7 +57,10 @@ public class IrTernary extends IrAbstractInt {
 
     @Override
     public int hashCode() {
-        return antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
+        if (hash == 0) {
+            hash = antecedent.hashCode() ^ consequent.hashCode() ^ alternative.hashCode();
+        }
+        return hash;
     }
 
     @Override
@@ -8,8 +8,11 @@ import org.clafer.domain.Domain;
  */
 public class IrTransitiveClosure extends IrAbstractSetArray {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrSetArrayExpr relation;
     private final boolean reflexive;
+    private transient int hash;
 
     public IrTransitiveClosure(IrSetArrayExpr relation, boolean reflexive, Domain[] envDomains, Domain[] kerDomains, Domain[] cardDomains) {
         super(envDomains, kerDomains, cardDomains);
@@ -32,6 +35,9 @@ public class IrTransitiveClosure extends IrAbstractSetArray {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrTransitiveClosure) {
             IrTransitiveClosure other = (IrTransitiveClosure) obj;
             return relation.equals(other.relation) && reflexive == other.reflexive;
@@ -41,7 +47,10 @@ public class IrTransitiveClosure extends IrAbstractSetArray {
 
     @Override
     public int hashCode() {
-        return 51 * relation.hashCode() ^ (reflexive ? 16 : 0);
+        if (hash == 0) {
+            hash = 51 * relation.hashCode() ^ (reflexive ? 16 : 0);
+        }
+        return hash;
     }
 
     @Override
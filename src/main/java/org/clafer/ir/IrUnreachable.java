@@ -10,8 +10,11 @@ import org.clafer.domain.BoolDomain;
  */
 public class IrUnreachable extends IrAbstractBool {
 
+    private static final long serialVersionUID = 1L;
+
     private final IrIntExpr[] edges;
     private final int from, to;
+    private transient int hash;
 
     public IrUnreachable(IrIntExpr[] edges, int from, int to, BoolDomain domain) {
         super(domain);
@@ -54,6 +57,9 @@ public class IrUnreachable extends IrAbstractBool {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof IrUnreachable) {
             IrUnreachable other = (IrUnreachable) obj;
             return Arrays.equals(edges, other.edges)
@@ -65,7 +71,10 @@ public class IrUnreachable extends IrAbstractBool {
 
     @Override
     public int hashCode() {
-        return 17 * Arrays.hashCode(edges);
+        if (hash == 0) {
+            hash = 17 * Arrays.hashCode(edges);
+        }
+        return hash;
     }
 
     @Override
@@ -8,9 +8,12 @@ import gnu.trove.stack.array.TIntArrayStack;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.PrimitiveIterator;
+import java.util.function.Supplier;
 import org.clafer.common.UnsatisfiableException;
 import org.clafer.common.Util;
 import org.clafer.domain.Domain;
@@ -38,6 +41,54 @@ public class Irs {
     private Irs() {
     }
 
+    /**
+     * The interned expressions of the current thread, or null if interning is
+     * turned off.
+     */
+    private static final ThreadLocal<Map<IrExpr, IrExpr>> interned = new ThreadLocal<>();
+
+    /**
+     * Run the computation in interning mode. While interning, expressions
+     * built by this factory on the current thread that are structurally equal
+     * are the same object. Equality checks short-circuit on the reference and
+     * the hash code is computed once, which makes hashing large expressions
+     * cheap. Variables are never interned. Nested calls share the table of the
+     * outermost call.
+     *
+     * @param <T> the type of the result
+     * @param computation the computation to run while interning
+     * @return the result of the computation
+     */
+    public static <T> T interning(Supplier<T> computation) {
+        if (isInterning()) {
+            return computation.get();
+        }
+        interned.set(new HashMap<>());
+        try {
+            return computation.get();
+        } finally {
+            interned.remove();
+        }
+    }
+
+    /**
+     * @return {@code true} if the current thread is in interning mode,
+     * {@code false} otherwise
+     */
+    public static boolean isInterning() {
+        return interned.get() != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends IrExpr> T intern(T expr) {
+        Map<IrExpr, IrExpr> table = interned.get();
+        if (table == null) {
+            return expr;
+        }
+        IrExpr canonical = table.putIfAbsent(expr, expr);
+        return canonical == null ? expr : (T) canonical;
+    }
+
     /**
      *******************
      *
@@ -93,7 +144,7 @@ public class Irs {
             case 1:
                 return filter.get(0);
             default:
-                return new IrAnd(filter.toArray(new IrBoolExpr[filter.size()]), TrueFalseDomain);
+                return intern(new IrAnd(filter.toArray(new IrBoolExpr[filter.size()]), TrueFalseDomain));
         }
     }
 
@@ -123,7 +174,7 @@ public class Irs {
             default:
                 IrBoolExpr[] f = filter.toArray(new IrBoolExpr[filter.size()]);
                 return count == 0
-                        ? new IrLone(f, TrueFalseDomain)
+                        ? intern(new IrLone(f, TrueFalseDomain))
                         : not(or(f));
         }
     }
@@ -158,7 +209,7 @@ public class Irs {
             default:
                 IrBoolExpr[] f = filter.toArray(new IrBoolExpr[filter.size()]);
                 return count == 0
-                        ? new IrOne(f, TrueFalseDomain)
+                        ? intern(new IrOne(f, TrueFalseDomain))
                         : not(or(f));
         }
     }
@@ -192,7 +243,7 @@ public class Irs {
             case 1:
                 return filter.get(0);
             default:
-                return new IrOr(filter.toArray(new IrBoolExpr[filter.size()]), TrueFalseDomain);
+                return intern(new IrOr(filter.toArray(new IrBoolExpr[filter.size()]), TrueFalseDomain));
         }
     }
 
@@ -219,7 +270,7 @@ public class Irs {
         if (alternative.getDomain().isFalse()) {
             return and(antecedent, consequent);
         }
-        return new IrIfThenElse(antecedent, consequent, alternative, TrueFalseDomain);
+        return intern(new IrIfThenElse(antecedent, consequent, alternative, TrueFalseDomain));
     }
 
     public static IrBoolExpr ifOnlyIf(IrBoolExpr left, IrBoolExpr right) {
@@ -239,9 +290,9 @@ public class Irs {
             return not(left);
         }
         if (left.isNegative() && right.isNegative()) {
-            return new IrIfOnlyIf(left.negate(), right.negate(), TrueFalseDomain);
+            return intern(new IrIfOnlyIf(left.negate(), right.negate(), TrueFalseDomain));
         }
-        return new IrIfOnlyIf(left, right, TrueFalseDomain);
+        return intern(new IrIfOnlyIf(left, right, TrueFalseDomain));
     }
 
     public static IrBoolExpr xor(IrBoolExpr left, IrBoolExpr right) {
@@ -263,7 +314,7 @@ public class Irs {
         if (right.isNegative()) {
             return ifOnlyIf(left, right.negate());
         }
-        return new IrIfOnlyIf(left, right.negate(), TrueFalseDomain);
+        return intern(new IrIfOnlyIf(left, right.negate(), TrueFalseDomain));
     }
 
     public static IrBoolExpr compare(int left, IrCompare.Op op, IrIntExpr right) {
@@ -323,7 +374,7 @@ public class Irs {
             default:
                 throw new IllegalArgumentException("Unknown op: " + op);
         }
-        return new IrCompare(left, op, right, TrueFalseDomain);
+        return intern(new IrCompare(left, op, right, TrueFalseDomain));
     }
 
     public static IrBoolExpr compare(IrStringExpr left, IrStringCompare.Op op, IrStringExpr right) {
@@ -358,7 +409,7 @@ public class Irs {
                 }
             }
         }
-        return new IrStringCompare(left, op, right, TrueFalseDomain);
+        return intern(new IrStringCompare(left, op, right, TrueFalseDomain));
     }
 
     public static IrBoolExpr equal(int left, IrIntExpr right) {
@@ -401,7 +452,7 @@ public class Irs {
                 }
             }
         }
-        return new IrArrayEquality(left, op, right, TrueFalseDomain);
+        return intern(new IrArrayEquality(left, op, right, TrueFalseDomain));
     }
 
     public static IrBoolExpr equal(IrIntArrayVar left, IrIntArrayVar right) {
@@ -426,13 +477,13 @@ public class Irs {
             return equal(filterLeft.get(0), filterRight.get(0));
         }
         if (filterLeft.size() == left.length()) {
-            return new IrArrayEquality(left, IrArrayEquality.Op.Equal, right, TrueFalseDomain);
+            return intern(new IrArrayEquality(left, IrArrayEquality.Op.Equal, right, TrueFalseDomain));
         }
-        return new IrArrayEquality(
+        return intern(new IrArrayEquality(
                 array(filterLeft.toArray(new IrIntExpr[filterLeft.size()])),
                 IrArrayEquality.Op.Equal,
                 array(filterRight.toArray(new IrIntExpr[filterRight.size()])),
-                TrueFalseDomain);
+                TrueFalseDomain));
     }
 
     public static IrBoolExpr equal(IrIntArrayExpr left, IrIntArrayExpr right) {
@@ -528,7 +579,7 @@ public class Irs {
             default:
                 throw new IllegalArgumentException();
         }
-        return new IrSetEquality(left, op, right, TrueFalseDomain);
+        return intern(new IrSetEquality(left, op, right, TrueFalseDomain));
     }
 
     public static IrBoolExpr equal(IrSetExpr left, IrSetExpr right) {
@@ -645,7 +696,7 @@ public class Irs {
                     return notEqual(element, diff.getLowBound());
             }
         }
-        return new IrMember(element, set, TrueFalseDomain);
+        return intern(new IrMember(element, set, TrueFalseDomain));
     }
 
     public static IrBoolExpr notMember(IrIntExpr element, IrSetExpr set) {
@@ -668,7 +719,7 @@ public class Irs {
                     return equal(element, diff.getLowBound());
             }
         }
-        return new IrNotMember(element, set, TrueFalseDomain);
+        return intern(new IrNotMember(element, set, TrueFalseDomain));
     }
 
     public static IrBoolExpr subsetEq(IrSetExpr subset, IrSetExpr superset) {
@@ -678,7 +729,7 @@ public class Irs {
         if (subset.getCard().getLowBound() == superset.getCard().getHighBound()) {
             return equal(subset, superset);
         }
-        return new IrSubsetEq(subset, superset, TrueFalseDomain);
+        return intern(new IrSubsetEq(subset, superset, TrueFalseDomain));
     }
 
     public static IrBoolExpr boolChannel(IrBoolExpr[] bools, IrSetExpr set) {
@@ -728,7 +779,7 @@ public class Irs {
                 return equal(set, constant(enumDomain(values)));
             }
         }
-        return new IrBoolChannel(bools, set, TrueFalseDomain);
+        return intern(new IrBoolChannel(bools, set, TrueFalseDomain));
     }
 
     public static IrBoolExpr intChannel(IrIntExpr[] ints, IrSetExpr[] sets) {
@@ -781,7 +832,7 @@ public class Irs {
         if (entailed) {
             return True;
         }
-        return new IrIntChannel(ints, sets, TrueFalseDomain);
+        return intern(new IrIntChannel(ints, sets, TrueFalseDomain));
     }
 
     public static IrBoolExpr sort(IrIntExpr... array) {
@@ -825,7 +876,7 @@ public class Irs {
             }
         }
         // TODO optimize
-        return new IrSortSets(sets, bounds, TrueFalseDomain);
+        return intern(new IrSortSets(sets, bounds, TrueFalseDomain));
     }
 
     private static IrBoolExpr sortStrings(IrIntExpr[][] strings, boolean strict) {
@@ -899,13 +950,13 @@ public class Irs {
             for (int i = 0; i < strings.length; i++) {
                 IrIntExpr[] string = strings[i];
                 if (string.length != 1) {
-                    return new IrSortStrings(strings, strict, TrueFalseDomain);
+                    return intern(new IrSortStrings(strings, strict, TrueFalseDomain));
                 }
                 array[i] = strings[i][0];
             }
             return strict ? sortStrict(array) : sort(array);
         }
-        return new IrSortStrings(strings, strict, TrueFalseDomain);
+        return intern(new IrSortStrings(strings, strict, TrueFalseDomain));
     }
 
     public static IrBoolExpr sort(IrIntExpr[]... strings) {
@@ -957,13 +1008,13 @@ public class Irs {
                 }
                 if (partialOrdering[constant[i]] != null) {
                     // TODO
-                    return new IrSortStringsChannel(fstrings, fints, TrueFalseDomain);
+                    return intern(new IrSortStringsChannel(fstrings, fints, TrueFalseDomain));
                 }
                 partialOrdering[constant[i]] = fstrings[i];
             }
             return sortStrict(partialOrdering);
         }
-        return new IrSortStringsChannel(fstrings, fints, TrueFalseDomain);
+        return intern(new IrSortStringsChannel(fstrings, fints, TrueFalseDomain));
     }
 
     public static IrBoolExpr allDifferent(IrIntExpr[] ints) {
@@ -979,7 +1030,7 @@ public class Irs {
             domain = domain.union(ints[i].getDomain());
             size += ints[i].getDomain().size();
             if (size != domain.size()) {
-                return new IrAllDifferent(ints, TrueFalseDomain);
+                return intern(new IrAllDifferent(ints, TrueFalseDomain));
             }
         }
         return True;
@@ -1030,22 +1081,34 @@ public class Irs {
             }
             return and(ands);
         }
-        return new IrSelectN(bools, n, TrueFalseDomain);
+        return intern(new IrSelectN(bools, n, TrueFalseDomain));
     }
 
     public static IrBoolExpr acyclic(IrIntExpr[] edges) {
+        return acyclic(edges, Util.fromTo(0, edges.length));
+    }
+
+    /**
+     * No cycles, and no path from node i to node j if {@code i < j} and
+     * {@code groups[i] = groups[j]}.
+     *
+     * @param edges the edges
+     * @param groups the group of each node
+     * @return no cycles and no paths upwards within a group
+     */
+    public static IrBoolExpr acyclic(IrIntExpr[] edges, int[] groups) {
         if (edges.length == 0) {
             return True;
         }
-        return new IrAcyclic(edges, TrueFalseDomain);
+        return intern(new IrAcyclic(edges, groups, TrueFalseDomain));
     }
 
     public static IrBoolExpr unreachable(IrIntExpr[] edges, int from, int to) {
-        return new IrUnreachable(edges, from, to, TrueFalseDomain);
+        return intern(new IrUnreachable(edges, from, to, TrueFalseDomain));
     }
 
     public static IrBoolExpr connected(IrSetExpr nodes, IrSetArrayExpr relation, boolean directed) {
-        return new IrConnected(nodes, relation, directed, TrueFalseDomain);
+        return intern(new IrConnected(nodes, relation, directed, TrueFalseDomain));
     }
 
     /*
@@ -1058,7 +1121,7 @@ public class Irs {
         if (prefix.getLength().getLowBound() >= word.getLength().getHighBound()) {
             return equal(prefix, word);
         }
-        return new IrPrefix(prefix, word, TrueFalseDomain);
+        return intern(new IrPrefix(prefix, word, TrueFalseDomain));
     }
 
     /*
@@ -1071,7 +1134,7 @@ public class Irs {
         if (suffix.getLength().getLowBound() >= word.getLength().getHighBound()) {
             return equal(suffix, word);
         }
-        return new IrSuffix(suffix, word, TrueFalseDomain);
+        return intern(new IrSuffix(suffix, word, TrueFalseDomain));
     }
     /**
      *******************
@@ -1123,7 +1186,7 @@ public class Irs {
             IrMinus minus = (IrMinus) expr;
             return minus.getExpr();
         }
-        return new IrMinus(expr, expr.getDomain().minus());
+        return intern(new IrMinus(expr, expr.getDomain().minus()));
 
     }
 
@@ -1159,7 +1222,7 @@ public class Irs {
         if (domain.isConstant()) {
             return constant(domain.getLowBound());
         }
-        return new IrCard(set, domain);
+        return intern(new IrCard(set, domain));
     }
 
     public static IrIntExpr add(int addend1, IrIntExpr addend2) {
@@ -1205,12 +1268,12 @@ public class Irs {
             if (constants == 0) {
                 return first;
             }
-            return new IrAdd(new IrIntExpr[]{first}, constants,
-                    first.getDomain().offset(constants));
+            return intern(new IrAdd(new IrIntExpr[]{first}, constants,
+                    first.getDomain().offset(constants)));
         }
         Domain domain = filter.stream().map(IrIntExpr::getDomain).reduce(
                 constantDomain(constants), Domain::add);
-        return new IrAdd(filter.toArray(new IrIntExpr[filter.size()]), constants, domain);
+        return intern(new IrAdd(filter.toArray(new IrIntExpr[filter.size()]), constants, domain));
     }
 
     public static IrIntExpr sub(int minuend, IrIntExpr subtrahend) {
@@ -1323,7 +1386,7 @@ public class Irs {
         if (domain.isEmpty()) {
             throw new UnsatisfiableException();
         }
-        return new IrMul(multiplicand, multiplier, intRange, domain);
+        return intern(new IrMul(multiplicand, multiplier, intRange, domain));
     }
 
     public static Domain mulBoundDomain(Domain multiplicandDomain, Domain multiplierDomain) {
@@ -1379,7 +1442,7 @@ public class Irs {
         int high = dividend.getDomain().getHighBound();
         int min = Util.min(low, -low, high, -high);
         int max = Util.max(low, -low, high, -high);
-        return new IrDiv(dividend, divisor, boundDomain(min, max));
+        return intern(new IrDiv(dividend, divisor, boundDomain(min, max)));
     }
 
     public static IrIntExpr mod(IrIntExpr dividend, IrIntExpr divisor) {
@@ -1396,7 +1459,7 @@ public class Irs {
         int high = divisor.getDomain().getHighBound();
         int min = Math.min(-Math.abs(low), -Math.abs(high));
         int max = Math.max(Math.abs(low), Math.abs(high));
-        return new IrMod(dividend, divisor, boundDomain(min, max));
+        return intern(new IrMod(dividend, divisor, boundDomain(min, max)));
     }
 
     public static IrIntExpr element(IrIntExpr[] array, IrIntExpr index) {
@@ -1416,7 +1479,7 @@ public class Irs {
                 index.getDomain().stream(), $array.getDomains())
                 .reduce(Domain::union);
         assert domain.isPresent();
-        return IrUtil.asConstant(new IrElement($array, index, domain.get()));
+        return IrUtil.asConstant(intern(new IrElement($array, index, domain.get())));
     }
 
     public static IrIntExpr count(int value, IrIntArrayExpr array) {
@@ -1436,9 +1499,9 @@ public class Irs {
                 return add(equal(value, filter.get(0)), count);
             default:
                 return add(
-                        new IrCount(value,
+                        intern(new IrCount(value,
                                 array.length() == filter.size() ? array : intArray(filter),
-                                boundDomain(0, filter.size())),
+                                boundDomain(0, filter.size()))),
                         count);
         }
     }
@@ -1459,8 +1522,8 @@ public class Irs {
         if (!set.getKer().isEmpty()) {
             domain = domain.boundLow(set.getKer().getHighBound());
         }
-        return IrUtil.asConstant(new IrSetMax(set, defaultValue, set.getCard().getLowBound() > 0
-                ? domain : domain.insert(defaultValue)));
+        return IrUtil.asConstant(intern(new IrSetMax(set, defaultValue, set.getCard().getLowBound() > 0
+                ? domain : domain.insert(defaultValue))));
     }
 
     public static IrIntExpr min(IrSetExpr set, int defaultValue) {
@@ -1475,8 +1538,8 @@ public class Irs {
         if (!set.getKer().isEmpty()) {
             domain = domain.boundHigh(set.getKer().getLowBound());
         }
-        return IrUtil.asConstant(new IrSetMin(set, defaultValue, set.getCard().getLowBound() > 0
-                ? domain : domain.insert(defaultValue)));
+        return IrUtil.asConstant(intern(new IrSetMin(set, defaultValue, set.getCard().getLowBound() > 0
+                ? domain : domain.insert(defaultValue))));
     }
 
     public static IrIntExpr sum(IrSetExpr set) {
@@ -1524,7 +1587,7 @@ public class Irs {
             }
         }
 
-        return new IrSetSum(set, boundDomain(low, high));
+        return intern(new IrSetSum(set, boundDomain(low, high)));
     }
 
     public static IrIntExpr ternary(IrBoolExpr antecedent, IrIntExpr consequent, IrIntExpr alternative) {
@@ -1538,14 +1601,14 @@ public class Irs {
             return consequent;
         }
         Domain domain = consequent.getDomain().union(alternative.getDomain());
-        return new IrTernary(antecedent, consequent, alternative, domain);
+        return intern(new IrTernary(antecedent, consequent, alternative, domain));
     }
 
     public static IrIntExpr length(IrStringExpr string) {
         if (string instanceof IrStringVar) {
             return ((IrStringVar) string).getLengthVar();
         }
-        return new IrLength(string, string.getLength());
+        return intern(new IrLength(string, string.getLength()));
     }
 
     /**
@@ -1624,7 +1687,7 @@ public class Irs {
         if (value.isConstant()) {
             return constant(constantDomain(value.getLowBound()));
         }
-        return new IrSingleton(value, value.getDomain(), EmptyDomain);
+        return intern(new IrSingleton(value, value.getDomain(), EmptyDomain));
     }
 
     public static IrSetExpr singletonFilter(IrIntExpr value, int filter) {
@@ -1634,7 +1697,7 @@ public class Irs {
         if (value.isConstant()) {
             return value.getLowBound() == filter ? EmptySet : singleton(value);
         }
-        return new IrSingletonFilter(value, filter, value.getDomain().remove(filter), EmptyDomain, ZeroOneDomain);
+        return intern(new IrSingletonFilter(value, filter, value.getDomain().remove(filter), EmptyDomain, ZeroOneDomain));
     }
 
     public static IrSetExpr arrayToSet(IrIntExpr[] array, Integer globalCardinality) {
@@ -1664,7 +1727,7 @@ public class Irs {
                     throw new UnsatisfiableException();
                 }
                 Domain card = boundDomain(lowCard, highCard);
-                return IrUtil.asConstant(new IrArrayToSet(array, env, ker, card, globalCardinality));
+                return IrUtil.asConstant(intern(new IrArrayToSet(array, env, ker, card, globalCardinality)));
         }
     }
 
@@ -1689,7 +1752,7 @@ public class Irs {
             ker = ker.intersection(array.getKers()[val]);
             card = card.union(array.getCards()[val]);
         }
-        return IrUtil.asConstant(new IrSetElement(array, index, env, ker, card));
+        return IrUtil.asConstant(intern(new IrSetElement(array, index, env, ker, card)));
     }
 
     /**
@@ -1781,7 +1844,7 @@ public class Irs {
         cardHigh = Math.min(cardHigh, env.size());
         Domain card = boundDomain(cardLow, cardHigh);
 
-        return IrUtil.asConstant(new IrJoinRelation(take, $children, env, ker, card, injective));
+        return IrUtil.asConstant(intern(new IrJoinRelation(take, $children, env, ker, card, injective)));
     }
 
     public static IrSetExpr joinFunction(IrSetExpr take, IrIntExpr[] refs, Integer globalCardinality) {
@@ -1850,7 +1913,7 @@ public class Irs {
                     Math.min(highTakeCard, env.size()));
         }
 
-        return IrUtil.asConstant(new IrJoinFunction(take, $refs, env, ker, card, globalCardinality));
+        return IrUtil.asConstant(intern(new IrJoinFunction(take, $refs, env, ker, card, globalCardinality)));
     }
 
     private static int divRoundUp(int a, int b) {
@@ -1866,7 +1929,7 @@ public class Irs {
         int low = Math.max(0, minuend.getCard().getLowBound() - subtrahend.getCard().getHighBound());
         int high = minuend.getCard().getHighBound();
         Domain card = boundDomain(Math.max(low, ker.size()), Math.min(high, env.size()));
-        return new IrSetDifference(minuend, subtrahend, env, ker, card);
+        return intern(new IrSetDifference(minuend, subtrahend, env, ker, card));
     }
 
     public static IrSetExpr intersection(IrSetExpr... operands) {
@@ -1914,7 +1977,7 @@ public class Irs {
                 Domain card = boundDomain(
                         Math.max(low, ker.size()),
                         Math.min(high, env.size()));
-                return new IrSetIntersection(ops, env, ker, card);
+                return intern(new IrSetIntersection(ops, env, ker, card));
         }
     }
 
@@ -1975,7 +2038,7 @@ public class Irs {
                     throw new IllegalSetException();
                 }
                 Domain card = boundDomain(cardLow, cardHigh);
-                return IrUtil.asConstant(new IrSetUnion(ops, env, ker, card, disjoint));
+                return IrUtil.asConstant(intern(new IrSetUnion(ops, env, ker, card, disjoint)));
         }
     }
 
@@ -1990,7 +2053,7 @@ public class Irs {
         Domain env = set.getEnv().offset(offset);
         Domain ker = set.getKer().offset(offset);
         Domain card = set.getCard();
-        return IrUtil.asConstant(new IrOffset(set, offset, env, ker, card));
+        return IrUtil.asConstant(intern(new IrOffset(set, offset, env, ker, card)));
     }
 
     public static IrSetExpr mask(IrSetExpr set, int from, int to) {
@@ -2006,7 +2069,7 @@ public class Irs {
         Domain env = set.getEnv().offset(-from).boundBetween(0, to - from - 1);
         Domain ker = set.getKer().offset(-from).boundBetween(0, to - from - 1);
         Domain card = boundDomain(ker.size(), Math.min(env.size(), set.getCard().getHighBound()));
-        return IrUtil.asConstant(new IrMask(set, from, to, env, ker, card));
+        return IrUtil.asConstant(intern(new IrMask(set, from, to, env, ker, card)));
     }
 
     public static IrSetExpr ternary(IrBoolExpr antecedent, IrSetExpr consequent, IrSetExpr alternative) {
@@ -2022,7 +2085,7 @@ public class Irs {
         Domain env = consequent.getEnv().union(alternative.getEnv());
         Domain ker = consequent.getKer().intersection(alternative.getKer());
         Domain card = consequent.getCard().union(alternative.getCard());
-        return new IrSetTernary(antecedent, consequent, alternative, env, ker, card);
+        return intern(new IrSetTernary(antecedent, consequent, alternative, env, ker, card));
     }
 
     public static IrSetExpr containsTernary(IrSetExpr antecedent, int x, IrSetExpr consequent) {
@@ -2032,7 +2095,7 @@ public class Irs {
         if (!antecedent.getEnv().contains(x)) {
             return EmptySet;
         }
-        return new IrContainsSetTernary(antecedent, x, consequent, consequent.getEnv(), EmptyDomain, consequent.getCard().insert(0));
+        return intern(new IrContainsSetTernary(antecedent, x, consequent, consequent.getEnv(), EmptyDomain, consequent.getCard().insert(0)));
     }
 
     /**
@@ -2043,19 +2106,19 @@ public class Irs {
      *******************
      */
     public static IrIntArrayExpr array(IrIntExpr... array) {
-        return new IrIntArrayVar(array);
+        return intern(new IrIntArrayVar(array));
     }
 
     public static IrIntArrayExpr intArray(List<IrIntExpr> array) {
-        return new IrIntArrayVar(array.toArray(new IrIntExpr[array.size()]));
+        return intern(new IrIntArrayVar(array.toArray(new IrIntExpr[array.size()])));
     }
 
     public static IrSetArrayExpr array(IrSetExpr... array) {
-        return new IrSetArrayVar(array);
+        return intern(new IrSetArrayVar(array));
     }
 
     public static IrSetArrayExpr setArray(List<IrSetExpr> array) {
-        return new IrSetArrayVar(array.toArray(new IrSetExpr[array.size()]));
+        return intern(new IrSetArrayVar(array.toArray(new IrSetExpr[array.size()])));
     }
 
     public static IrIntExpr get(IrIntArrayExpr expr, int index) {
@@ -2063,7 +2126,7 @@ public class Irs {
             IrIntArrayVar var = (IrIntArrayVar) expr;
             return var.getArray()[index];
         }
-        return IrUtil.asConstant(new IrElement(expr, constant(index), expr.getDomains()[index]));
+        return IrUtil.asConstant(intern(new IrElement(expr, constant(index), expr.getDomains()[index])));
     }
 
     public static IrSetExpr get(IrSetArrayExpr expr, int index) {
@@ -2071,7 +2134,7 @@ public class Irs {
             IrSetArrayVar var = (IrSetArrayVar) expr;
             return var.getArray()[index];
         }
-        return IrUtil.asConstant(new IrSetElement(expr, constant(index), expr.getEnvs()[index], expr.getKers()[index], expr.getCards()[index]));
+        return IrUtil.asConstant(intern(new IrSetElement(expr, constant(index), expr.getEnvs()[index], expr.getKers()[index], expr.getCards()[index])));
     }
 
     public static IrIntArrayExpr subArray(IrIntArrayExpr expr, int from, int to) {
@@ -2186,7 +2249,7 @@ public class Irs {
         for (int i = 0; i < cards.length; i++) {
             cards[i] = boundDomain(kers[i].size(), envs[i].size());
         }
-        return new IrInverse(relation, enumDomains(envs), enumDomains(kers), cards);
+        return intern(new IrInverse(relation, enumDomains(envs), enumDomains(kers), cards));
     }
 
     public static IrSetArrayExpr transitiveClosure(IrSetArrayExpr relation, boolean reflexive) {
@@ -2221,7 +2284,7 @@ public class Irs {
             kers[i] = enumDomain(ker);
             cards[i] = boundDomain(kers[i].size(), envs[i].size());
         }
-        return new IrTransitiveClosure(relation, reflexive, envs, kers, cards);
+        return intern(new IrTransitiveClosure(relation, reflexive, envs, kers, cards));
     }
 
     /**
@@ -2319,7 +2382,7 @@ public class Irs {
                 chars[i] = chars[i].insert(0);
             }
         }
-        return new IrStringElement($array, index, chars, length);
+        return intern(new IrStringElement($array, index, chars, length));
     }
 
     public static IrStringExpr concat(IrStringExpr left, IrStringExpr right) {
@@ -2367,7 +2430,7 @@ public class Irs {
         for (i = length.getLowBound(); i < charDomains.length; i++) {
             charDomains[i] = charDomains[i].insert(0);
         }
-        return IrUtil.asConstant(new IrConcat(left, right, charDomains, length));
+        return IrUtil.asConstant(intern(new IrConcat(left, right, charDomains, length)));
     }
 
     public static IrIntArrayExpr subarray(IrIntArrayExpr array, IrIntExpr index, IrIntExpr sublength) {
@@ -2394,7 +2457,7 @@ public class Irs {
                 charDomains[i] = charDomains[i].insert(-1);
             }
         }
-        return new IrSubarray(array, index, sublength, charDomains);
+        return intern(new IrSubarray(array, index, sublength, charDomains));
     }
 
     private static Domain union(Domain[] domains, int start, int end) {
@@ -0,0 +1,94 @@
+package org.clafer.ir.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.clafer.collection.DisjointSets;
+import org.clafer.ir.IrBoolExpr;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.IrSetVar;
+import org.clafer.ir.IrStringVar;
+import org.clafer.ir.IrUtil;
+import org.clafer.ir.IrVar;
+
+/**
+ * Split a module into independent modules that share no variables. Models
+ * with loosely coupled feature trees under the root often optimize into
+ * several such modules, and each can be solved on its own.
+ *
+ * @author jimmy
+ */
+public class Decomposer {
+
+    private Decomposer() {
+    }
+
+    /**
+     * Decompose the module into the connected components of its
+     * constraint-variable graph. A set variable is connected to its
+     * cardinality and a string variable to its length and characters, since
+     * they are translated together. Constraints without variables go to the
+     * first module.
+     *
+     * @param module the optimized module
+     * @return the independent modules, in the order of their first constraint
+     */
+    public static List<IrModule> decompose(IrModule module) {
+        List<IrBoolExpr> constraints = module.getConstraints();
+        DisjointSets<IrVar> components = new DisjointSets<>();
+        List<IrVar> representatives = new ArrayList<>(constraints.size());
+        for (IrBoolExpr constraint : constraints) {
+            IrVar representative = null;
+            for (IrVar var : IrUtil.getVariables(constraint)) {
+                for (IrVar translated : translatedWith(var)) {
+                    if (!translated.isConstant()) {
+                        if (representative == null) {
+                            representative = translated;
+                        }
+                        components.union(representative, translated);
+                    }
+                }
+            }
+            representatives.add(representative);
+        }
+
+        Map<Integer, IrModule> modules = new HashMap<>();
+        List<IrModule> decomposed = new ArrayList<>();
+        List<IrBoolExpr> constant = new ArrayList<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            IrVar representative = representatives.get(i);
+            if (representative == null) {
+                constant.add(constraints.get(i));
+            } else {
+                IrModule component = modules.computeIfAbsent(components.representative(representative), k -> {
+                    IrModule m = new IrModule();
+                    decomposed.add(m);
+                    return m;
+                });
+                component.addConstraint(constraints.get(i));
+            }
+        }
+        if (decomposed.isEmpty()) {
+            decomposed.add(new IrModule());
+        }
+        decomposed.get(0).addConstraints(constant);
+        return decomposed;
+    }
+
+    private static List<IrVar> translatedWith(IrVar var) {
+        if (var instanceof IrSetVar) {
+            return Arrays.asList(var, ((IrSetVar) var).getCardVar());
+        }
+        if (var instanceof IrStringVar) {
+            IrStringVar string = (IrStringVar) var;
+            List<IrVar> vars = new ArrayList<>();
+            vars.add(string);
+            vars.add(string.getLengthVar());
+            vars.addAll(Arrays.asList(string.getCharVars()));
+            return vars;
+        }
+        return Arrays.asList(var);
+    }
+}
@@ -1,7 +1,11 @@
 package org.clafer.ir.analysis;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import org.clafer.collection.Pair;
 import org.clafer.ir.IrBoolVar;
 import org.clafer.ir.IrExpr;
@@ -17,36 +21,139 @@ import org.clafer.ir.analysis.deduction.FBBT;
  */
 public class Optimizer {
 
+    /**
+     * The number of boolean variables each thread probes against the same
+     * snapshot of the module in parallel constructive disjunction.
+     */
+    private static final int ProbesPerThread = 16;
+
     private Optimizer() {
     }
 
     public static Pair<Coalesce, IrModule> optimize(IrModule module, boolean coalesceVariables) {
+        return optimize(module, coalesceVariables, 1);
+    }
+
+    /**
+     * Optimize the module.
+     *
+     * @param module the module to optimize
+     * @param coalesceVariables whether or not to run bounds tightening and
+     * coalesce variables
+     * @param constructiveDisjunctionThreads the number of threads to run
+     * constructive disjunction on, 1 to run it sequentially
+     * @return the coalesced variables and the optimized module
+     */
+    public static Pair<Coalesce, IrModule> optimize(IrModule module, boolean coalesceVariables, int constructiveDisjunctionThreads) {
+        return optimize(module, coalesceVariables, constructiveDisjunctionThreads, OptimizerListener.None);
+    }
+
+    /**
+     * Optimize the module and notify the listener around every pass.
+     *
+     * @param module the module to optimize
+     * @param coalesceVariables whether or not to run bounds tightening and
+     * coalesce variables
+     * @param constructiveDisjunctionThreads the number of threads to run
+     * constructive disjunction on, 1 to run it sequentially
+     * @param listener notified before and after every pass
+     * @return the coalesced variables and the optimized module
+     */
+    public static Pair<Coalesce, IrModule> optimize(IrModule module, boolean coalesceVariables, int constructiveDisjunctionThreads,
+            OptimizerListener listener) {
+        if (constructiveDisjunctionThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive, not " + constructiveDisjunctionThreads);
+        }
+        listener.beforePass("Simplifier", module);
         IrModule optModule = Simplifier.optimize(module);
         Coalesce coalesce = new Coalesce();
+        listener.afterPass("Simplifier", optModule, coalesce);
         if (coalesceVariables) {
+            listener.beforePass("FBBT", optModule);
             Pair<Coalesce, IrModule> coalescePair = new FBBT().propagate(optModule);
             coalesce = coalescePair.getFst();
             optModule = coalescePair.getSnd();
+            listener.afterPass("FBBT", optModule, coalesce);
+
+            listener.beforePass("ConstructiveDisjunction", optModule);
+            coalescePair = constructiveDisjunctionThreads == 1
+                    ? constructiveDisjunction(optModule)
+                    : constructiveDisjunction(optModule, constructiveDisjunctionThreads);
+            coalesce = coalesce.compose(coalescePair.getFst());
+            optModule = coalescePair.getSnd();
+            listener.afterPass("ConstructiveDisjunction", optModule, coalesce);
 
-            Set<IrVar> processed = new HashSet<>();
-            for (IrExpr expr : optModule.getConstraints()) {
-                if (expr instanceof IrRegister) {
-                    IrVar var = ((IrRegister) expr).getVariable();
-                    if (var instanceof IrBoolVar) {
-                        IrBoolVar bool = (IrBoolVar) var;
-                        bool = coalesce.get(bool);
-                        if (!bool.isConstant() && processed.add(bool)) {
-                            coalescePair = new FBBT().constructiveDisjunction(bool, bool.negate(), optModule);
-                            coalesce = coalesce.compose(coalescePair.getFst());
-                            optModule = coalescePair.getSnd();
-                        }
+            listener.beforePass("DuplicateConstraints", optModule);
+            optModule = DuplicateConstraints.removeDuplicates(optModule);
+            listener.afterPass("DuplicateConstraints", optModule, coalesce);
+        }
+        listener.beforePass("LinearEquationOptimizer", optModule);
+        optModule = LinearEquationOptimizer.optimize(optModule);
+        listener.afterPass("LinearEquationOptimizer", optModule, coalesce);
+        return new Pair<>(coalesce, optModule);
+    }
+
+    private static Pair<Coalesce, IrModule> constructiveDisjunction(IrModule module) {
+        Coalesce coalesce = new Coalesce();
+        IrModule optModule = module;
+        Set<IrVar> processed = new HashSet<>();
+        for (IrExpr expr : module.getConstraints()) {
+            if (expr instanceof IrRegister) {
+                IrVar var = ((IrRegister) expr).getVariable();
+                if (var instanceof IrBoolVar) {
+                    IrBoolVar bool = (IrBoolVar) var;
+                    bool = coalesce.get(bool);
+                    if (!bool.isConstant() && processed.add(bool)) {
+                        Pair<Coalesce, IrModule> coalescePair = new FBBT().constructiveDisjunction(bool, bool.negate(), optModule);
+                        coalesce = coalesce.compose(coalescePair.getFst());
+                        optModule = coalescePair.getSnd();
                     }
                 }
             }
+        }
+        return new Pair<>(coalesce, optModule);
+    }
 
-            optModule = DuplicateConstraints.removeDuplicates(optModule);
+    private static Pair<Coalesce, IrModule> constructiveDisjunction(IrModule module, int threads) {
+        // Preserve the order of the registers for determinism.
+        Set<IrBoolVar> bools = new LinkedHashSet<>();
+        for (IrExpr expr : module.getConstraints()) {
+            if (expr instanceof IrRegister) {
+                IrVar var = ((IrRegister) expr).getVariable();
+                if (var instanceof IrBoolVar && !var.isConstant()) {
+                    bools.add((IrBoolVar) var);
+                }
+            }
+        }
+
+        Coalesce coalesce = new Coalesce();
+        IrModule optModule = module;
+        Set<IrVar> processed = new HashSet<>();
+        List<IrBoolVar> batch = new ArrayList<>();
+        int batchSize = threads * ProbesPerThread;
+        FBBT fbbt = new FBBT();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (IrBoolVar var : bools) {
+                IrBoolVar bool = coalesce.get(var);
+                if (!bool.isConstant() && processed.add(bool)) {
+                    batch.add(bool);
+                }
+                if (batch.size() == batchSize) {
+                    Pair<Coalesce, IrModule> coalescePair = fbbt.constructiveDisjunction(batch, optModule, pool);
+                    coalesce = coalesce.compose(coalescePair.getFst());
+                    optModule = coalescePair.getSnd();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                Pair<Coalesce, IrModule> coalescePair = fbbt.constructiveDisjunction(batch, optModule, pool);
+                coalesce = coalesce.compose(coalescePair.getFst());
+                optModule = coalescePair.getSnd();
+            }
+        } finally {
+            pool.shutdown();
         }
-        optModule = LinearEquationOptimizer.optimize(optModule);
         return new Pair<>(coalesce, optModule);
     }
 }
@@ -0,0 +1,36 @@
+package org.clafer.ir.analysis;
+
+import org.clafer.ir.IrModule;
+import org.clafer.ir.analysis.deduction.Coalesce;
+
+/**
+ * Notified before and after every pass of the {@link Optimizer}.
+ *
+ * @author jimmy
+ */
+public interface OptimizerListener {
+
+    public static final OptimizerListener None = new OptimizerListener() {
+
+        @Override
+        public void beforePass(String pass, IrModule module) {
+        }
+
+        @Override
+        public void afterPass(String pass, IrModule module, Coalesce coalesce) {
+        }
+    };
+
+    /**
+     * @param pass the name of the pass
+     * @param module the module before the pass
+     */
+    public void beforePass(String pass, IrModule module);
+
+    /**
+     * @param pass the name of the pass
+     * @param module the module after the pass
+     * @param coalesce the variables coalesced by every pass so far
+     */
+    public void afterPass(String pass, IrModule module, Coalesce coalesce);
+}
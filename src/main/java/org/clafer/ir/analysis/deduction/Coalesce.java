@@ -1,5 +1,6 @@
 package org.clafer.ir.analysis.deduction;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -7,6 +8,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.clafer.ir.IrBoolVar;
@@ -20,11 +22,14 @@ import static org.clafer.ir.Irs.string;
  *
  * @author jimmy
  */
-public class Coalesce extends IrRewriter<Void> {
+public class Coalesce extends IrRewriter<Void> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Map<IrIntVar, IrIntVar> coalescedInts;
     private final Map<IrSetVar, IrSetVar> coalescedSets;
-    private final Map<List<IrIntVar>, IrStringVar> stringVarCache = new HashMap<>();
+    // Shared by the solvers of a portfolio, which rewrite concurrently.
+    private final Map<List<IrIntVar>, IrStringVar> stringVarCache = new ConcurrentHashMap<>();
 
     public Coalesce() {
         this.coalescedInts = Collections.emptyMap();
@@ -62,6 +67,13 @@ public class Coalesce extends IrRewriter<Void> {
         coalescedSets.forEach(action);
     }
 
+    /**
+     * @return the number of variables coalesced into another variable
+     */
+    public int size() {
+        return coalescedInts.size() + coalescedSets.size();
+    }
+
     public boolean isEmpty() {
         return coalescedInts.isEmpty() && coalescedSets.isEmpty();
     }
@@ -122,16 +134,11 @@ public class Coalesce extends IrRewriter<Void> {
         IrIntVar length = coalescedInts.get(ir.getLengthVar());
         changed |= length != null;
         if (changed) {
-            length = length == null ? ir.getLengthVar() : length;
+            IrIntVar newLength = length == null ? ir.getLengthVar() : length;
             List<IrIntVar> key = new ArrayList<>();
             key.addAll(Arrays.asList(chars));
-            key.add(length);
-            IrStringVar string = stringVarCache.get(key);
-            if (string == null) {
-                string = string(ir.getName(), chars, length);
-                stringVarCache.put(key, string);
-            }
-            return string;
+            key.add(newLength);
+            return stringVarCache.computeIfAbsent(key, k -> string(ir.getName(), chars, newLength));
         }
         return ir;
     }
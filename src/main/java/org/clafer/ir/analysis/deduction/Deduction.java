@@ -8,7 +8,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import org.clafer.collection.DisjointSets;
+import org.clafer.collection.PersistentDisjointSets;
+import org.clafer.collection.PersistentMap;
 import org.clafer.common.UnsatisfiableException;
 import org.clafer.domain.Domain;
 import org.clafer.domain.Domains;
@@ -32,6 +33,9 @@ import static org.clafer.ir.Irs.domainInt;
 import static org.clafer.ir.Irs.set;
 
 /**
+ * The facts deduced about the variables of a module. The facts are kept in
+ * persistent maps, so copying a deduction to explore a case is constant time
+ * and the copy only pays for the facts it adds.
  *
  * @author jimmy
  */
@@ -41,13 +45,13 @@ class Deduction {
     private final Map<Class<?>, IntDeducer<?>> intDeducers;
     private final Map<Class<?>, SetDeducer<?>> setDeducers;
 
-    private final DisjointSets<IrIntVar> intEquals;
-    private final DisjointSets<IrIntVar> intNotEquals;
-    public final Map<IrIntVar, Domain> intRetains;
+    private final PersistentDisjointSets<IrIntVar> intEquals;
+    private final PersistentDisjointSets<IrIntVar> intNotEquals;
+    private PersistentMap<IrIntVar, Domain> intRetains;
 
-    private final DisjointSets<IrSetVar> setEquals;
-    private final Map<IrSetVar, Domain> setContains;
-    private final Map<IrSetVar, Domain> setSubsetOf;
+    private final PersistentDisjointSets<IrSetVar> setEquals;
+    private PersistentMap<IrSetVar, Domain> setContains;
+    private PersistentMap<IrSetVar, Domain> setSubsetOf;
 
     public Deduction(
             Map<Class<?>, BoolDeducer<?>> boolDeducers,
@@ -56,25 +60,61 @@ class Deduction {
         this.boolDeducers = boolDeducers;
         this.intDeducers = intDeducers;
         this.setDeducers = setDeducers;
-        this.intEquals = new DisjointSets<>();
-        this.intNotEquals = new DisjointSets<>();
-        this.intRetains = new HashMap<>();
-        this.setEquals = new DisjointSets<>();
-        this.setContains = new HashMap<>();
-        this.setSubsetOf = new HashMap<>();
-
-    }
-
+        this.intEquals = new PersistentDisjointSets<>();
+        this.intNotEquals = new PersistentDisjointSets<>();
+        this.intRetains = PersistentMap.empty();
+        this.setEquals = new PersistentDisjointSets<>();
+        this.setContains = PersistentMap.empty();
+        this.setSubsetOf = PersistentMap.empty();
+    }
+
+    /**
+     * Copy a deduction in constant time. Changes to the copy do not affect the
+     * original and vice versa.
+     *
+     * @param deduction the deduction to copy
+     */
     public Deduction(Deduction deduction) {
         this.boolDeducers = deduction.boolDeducers;
         this.intDeducers = deduction.intDeducers;
         this.setDeducers = deduction.setDeducers;
-        this.intEquals = new DisjointSets<>(deduction.intEquals);
-        this.intNotEquals = new DisjointSets<>(deduction.intNotEquals);
-        this.intRetains = new HashMap<>(deduction.intRetains);
-        this.setEquals = new DisjointSets<>(deduction.setEquals);
-        this.setContains = new HashMap<>(deduction.setContains);
-        this.setSubsetOf = new HashMap<>(deduction.setSubsetOf);
+        this.intEquals = new PersistentDisjointSets<>(deduction.intEquals);
+        this.intNotEquals = new PersistentDisjointSets<>(deduction.intNotEquals);
+        this.intRetains = deduction.intRetains;
+        this.setEquals = new PersistentDisjointSets<>(deduction.setEquals);
+        this.setContains = deduction.setContains;
+        this.setSubsetOf = deduction.setSubsetOf;
+    }
+
+    /**
+     * Adds every fact known by another deduction over the same module. The
+     * result does not depend on the order the deductions are merged.
+     *
+     * @param other the other deduction
+     */
+    public void merge(Deduction other) {
+        for (Set<IrIntVar> component : other.intEquals.connectedComponents()) {
+            union(intEquals, component);
+        }
+        for (Set<IrIntVar> component : other.intNotEquals.connectedComponents()) {
+            union(intNotEquals, component);
+        }
+        for (Set<IrSetVar> component : other.setEquals.connectedComponents()) {
+            union(setEquals, component);
+        }
+        other.intRetains.forEach(this::within);
+        other.setContains.forEach(this::kerContains);
+        other.setSubsetOf.forEach(this::envSubsetOf);
+    }
+
+    private static <T> void union(PersistentDisjointSets<T> sets, Set<T> component) {
+        Iterator<T> iter = component.iterator();
+        if (iter.hasNext()) {
+            T first = iter.next();
+            while (iter.hasNext()) {
+                sets.union(first, iter.next());
+            }
+        }
     }
 
     public boolean isEmpty() {
@@ -103,7 +143,7 @@ class Deduction {
     }
 
     public Map<IrIntVar, Domain> getIntRetains() {
-        return intRetains;
+        return intRetains.toMap();
     }
 
     public Collection<Set<IrSetVar>> getSetEquals() {
@@ -111,11 +151,11 @@ class Deduction {
     }
 
     public Map<IrSetVar, Domain> getSetContains() {
-        return setContains;
+        return setContains.toMap();
     }
 
     public Map<IrSetVar, Domain> getSetSubsetOf() {
-        return setSubsetOf;
+        return setSubsetOf.toMap();
     }
 
     public void tautology(IrBoolExpr expr) {
@@ -238,13 +278,14 @@ class Deduction {
         if (!domain.isSupersetOf(expr.getDomain())) {
             if (expr instanceof IrIntVar) {
                 IrIntVar var = (IrIntVar) expr;
-                if (intRetains.containsKey(var)) {
-                    intRetains.merge(var, domain, Domain::intersection);
+                Domain retain = intRetains.get(var);
+                if (retain != null) {
+                    intRetains = intRetains.put(var, retain.intersection(domain));
                 } else {
                     domain = expr.getDomain().intersection(domain);
                     failIf(domain.isEmpty());
                     if (domain != expr.getDomain()) {
-                        intRetains.put(var, domain);
+                        intRetains = intRetains.put(var, domain);
                     }
                 }
             } else {
@@ -297,15 +338,17 @@ class Deduction {
     public void kerContains(IrSetExpr expr, Domain domain) {
         if (expr instanceof IrSetVar) {
             IrSetVar var = (IrSetVar) expr;
-            if (setContains.containsKey(var)) {
-                Domain merge = setContains.merge(var, domain, Domain::union);
+            Domain contains = setContains.get(var);
+            if (contains != null) {
+                Domain merge = contains.union(domain);
+                setContains = setContains.put(var, merge);
                 if (domain != merge) {
                     cardGreaterThanEqual(expr, merge.size());
                 }
             } else {
                 domain = expr.getKer().union(domain);
                 if (domain != expr.getKer()) {
-                    setContains.put(var, domain);
+                    setContains = setContains.put(var, domain);
                     cardGreaterThanEqual(expr, domain.size());
                 }
             }
@@ -320,15 +363,17 @@ class Deduction {
     public void envSubsetOf(IrSetExpr expr, Domain domain) {
         if (expr instanceof IrSetVar) {
             IrSetVar var = (IrSetVar) expr;
-            if (setSubsetOf.containsKey(var)) {
-                Domain merge = setSubsetOf.merge((IrSetVar) expr, domain, Domain::intersection);
+            Domain subsetOf = setSubsetOf.get(var);
+            if (subsetOf != null) {
+                Domain merge = subsetOf.intersection(domain);
+                setSubsetOf = setSubsetOf.put(var, merge);
                 if (domain != merge) {
                     cardLessThanEqual(expr, merge.size());
                 }
             } else {
                 domain = expr.getEnv().intersection(domain);
                 if (domain != expr.getEnv()) {
-                    setSubsetOf.put(var, domain);
+                    setSubsetOf = setSubsetOf.put(var, domain);
                     cardLessThanEqual(expr, domain.size());
                 }
             }
@@ -486,12 +531,12 @@ class Deduction {
             if (component.size() > 1) {
                 Iterator<IrIntVar> iter = component.iterator();
                 IrIntVar var = iter.next();
-                Domain domain = removeOrDefault(intRetains, var, var.getDomain());
+                Domain domain = removeOrDefault(var, var.getDomain());
                 List<String> names = new ArrayList<>(component.size());
                 names.add(var.getName());
                 while (iter.hasNext()) {
                     var = iter.next();
-                    domain = domain.intersection(removeOrDefault(intRetains, var, var.getDomain()));
+                    domain = domain.intersection(removeOrDefault(var, var.getDomain()));
                     names.add(var.getName());
                 }
                 IrIntVar coalesced = domainInt(joinNames(names), domain);
@@ -543,8 +588,9 @@ class Deduction {
         return new Coalesce(coalescedInts, coalescedSets);
     }
 
-    private static <K, V> V removeOrDefault(Map<K, V> map, K key, V defaultValue) {
-        V value = map.remove(key);
+    private Domain removeOrDefault(IrIntVar var, Domain defaultValue) {
+        Domain value = intRetains.get(var);
+        intRetains = intRetains.remove(var);
         return value == null ? defaultValue : value;
     }
 
@@ -1,10 +1,17 @@
 package org.clafer.ir.analysis.deduction;
 
+import gnu.trove.set.hash.TIntHashSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.clafer.collection.Pair;
 import org.clafer.common.UnsatisfiableException;
@@ -53,6 +60,7 @@ import org.clafer.ir.IrStringCompare;
 import org.clafer.ir.IrStringVar;
 import org.clafer.ir.IrSubsetEq;
 import org.clafer.ir.IrTernary;
+import org.clafer.ir.IrTraverser;
 import org.clafer.ir.IrVar;
 
 /**
@@ -113,14 +121,13 @@ public class FBBT {
 
     public Pair<Coalesce, IrModule> propagate(IrModule module) {
         try {
-            Set<IrBoolExpr> changed = new HashSet<>();
-            changed.addAll(module.getConstraints());
             State state = new State(module);
+            state.changedAll();
 
-            Coalesce coalesce = propagateImpl(state, changed);
+            Coalesce coalesce = propagateImpl(state);
             Coalesce cur = coalesce;
             while (!cur.isEmpty()) {
-                cur = propagateImpl(state, changed);
+                cur = propagateImpl(state);
                 coalesce = coalesce.compose(cur);
             }
             return new Pair<>(coalesce, state.toModule());
@@ -137,12 +144,11 @@ public class FBBT {
                 return coalesce;
             }
 
-            Set<IrBoolExpr> changed = new HashSet<>();
-            state.apply(coalesce, changed);
+            state.apply(coalesce);
 
             Coalesce cur = coalesce;
             while (!cur.isEmpty()) {
-                cur = propagateImpl(state, changed);
+                cur = propagateImpl(state);
                 coalesce = coalesce.compose(cur);
             }
             return coalesce;
@@ -151,10 +157,16 @@ public class FBBT {
         }
     }
 
-    private Coalesce propagateImpl(State state, Set<IrBoolExpr> changed) {
+    /**
+     * One round of propagation over the constraints changed since the last
+     * round. The deducers read the domains from the constraints, so the
+     * deductions only reach the other constraints of a variable once the
+     * constraints are rewritten, hence the rounds.
+     */
+    private Coalesce propagateImpl(State state) {
         Deduction deduction = new Deduction(boolDeducers, intDeducers, setDeducers);
 
-        changed.forEach(deduction::tautology);
+        state.pollChanged(deduction::tautology);
 
         assert deduction.checkInvariants();
 
@@ -164,8 +176,7 @@ public class FBBT {
             return coalesce;
         }
 
-        changed.clear();
-        state.apply(coalesce, changed);
+        state.apply(coalesce);
 
         return coalesce;
     }
@@ -177,6 +188,70 @@ public class FBBT {
 
         assert deduction.checkInvariants();
 
+        constructiveDisjunction(case1, case2, module, deduction, deduction);
+
+        return apply(deduction, module);
+    }
+
+    /**
+     * Constructive disjunction over many boolean variables at once. Every
+     * variable is probed independently against the same module on the given
+     * pool. The deductions of every probe are merged afterwards, hence the
+     * result is deterministic regardless of the number of threads. Unlike
+     * calling {@link #constructiveDisjunction(IrBoolExpr, IrBoolExpr, IrModule)}
+     * once per variable, probes do not benefit from the deductions of the
+     * other probes in the same call.
+     *
+     * @param bools the variables to probe
+     * @param module the module
+     * @param pool the pool to run the probes on
+     * @return the coalesced variables and the optimized module
+     */
+    public Pair<Coalesce, IrModule> constructiveDisjunction(List<IrBoolVar> bools, IrModule module, ForkJoinPool pool) {
+        Deduction deduction = new Deduction(boolDeducers, intDeducers, setDeducers);
+
+        module.getConstraints().forEach(deduction::tautology);
+
+        assert deduction.checkInvariants();
+
+        // The shared deduction is only read by the probes.
+        Callable<List<Deduction>> probes = () -> bools.parallelStream().map(bool -> {
+            Deduction probe = new Deduction(boolDeducers, intDeducers, setDeducers);
+            constructiveDisjunction(bool, bool.negate(), module, deduction, probe);
+            return probe;
+        }).collect(Collectors.toList());
+
+        List<Deduction> results;
+        try {
+            results = pool.submit(probes).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+
+        Deduction merged = new Deduction(deduction);
+        results.forEach(merged::merge);
+        return apply(merged, module);
+    }
+
+    /**
+     * Deduce the facts common to both cases and add them to {@code into}.
+     *
+     * @param case1 the first case
+     * @param case2 the second case
+     * @param module the module
+     * @param deduction the deductions of the module
+     * @param into where to add the deductions, can be the same as
+     * {@code deduction}
+     */
+    private void constructiveDisjunction(IrBoolExpr case1, IrBoolExpr case2, IrModule module,
+            Deduction deduction, Deduction into) {
         try {
             Deduction case1Deduction = new Deduction(deduction);
             case1Deduction.tautology(case1);
@@ -190,7 +265,7 @@ public class FBBT {
                     IrIntVar value2 = coalesce2.get(key);
                     if (value2 != key) {
                         Domain combine = value1.getDomain().union(value2.getDomain());
-                        deduction.within(key, combine);
+                        into.within(key, combine);
                     }
                 });
 
@@ -200,18 +275,20 @@ public class FBBT {
                         Domain combineKer = value1.getKer().intersection(value2.getKer());
                         Domain combineEnv = value1.getEnv().union(value2.getEnv());
                         Domain combineCard = value1.getCard().union(value2.getCard());
-                        deduction.kerContains(key, combineKer);
-                        deduction.envSubsetOf(key, combineEnv);
-                        deduction.cardWithin(key, combineCard);
+                        into.kerContains(key, combineKer);
+                        into.envSubsetOf(key, combineEnv);
+                        into.cardWithin(key, combineCard);
                     }
                 });
             } catch (UnsatisfiableException e) {
-                deduction.contradiction(case2);
+                into.contradiction(case2);
             }
         } catch (UnsatisfiableException e) {
-            deduction.contradiction(case1);
+            into.contradiction(case1);
         }
+    }
 
+    private Pair<Coalesce, IrModule> apply(Deduction deduction, IrModule module) {
         if (deduction.isEmpty()) {
             return new Pair<>(new Coalesce(), module);
         }
@@ -221,10 +298,73 @@ public class FBBT {
         return new Pair<>(coalesce, state.toModule());
     }
 
+    /**
+     * Finds the variables a constraint depends on. The variables inside set and
+     * string variables are included since coalescing them rewrites the
+     * enclosing variable.
+     */
+    private static final IrTraverser<Consumer<IrVar>> OccurrenceFinder
+            = new IrTraverser<Consumer<IrVar>>() {
+
+                @Override
+                public Void visit(IrBoolVar ir, Consumer<IrVar> a) {
+                    a.accept(ir);
+                    return null;
+                }
+
+                @Override
+                public Void visit(IrNot ir, Consumer<IrVar> a) {
+                    traverse(ir.getExpr(), a);
+                    return null;
+                }
+
+                @Override
+                public Void visit(IrSortSets ir, Consumer<IrVar> a) {
+                    traverse(ir.getSets(), a);
+                    traverse(ir.getBounds(), a);
+                    return null;
+                }
+
+                @Override
+                public Void visit(IrIntVar ir, Consumer<IrVar> a) {
+                    a.accept(ir);
+                    return null;
+                }
+
+                @Override
+                public Void visit(IrSetVar ir, Consumer<IrVar> a) {
+                    a.accept(ir);
+                    a.accept(ir.getCardVar());
+                    return null;
+                }
+
+                @Override
+                public Void visit(IrStringVar ir, Consumer<IrVar> a) {
+                    a.accept(ir);
+                    for (IrIntVar charVar : ir.getCharVars()) {
+                        a.accept(charVar);
+                    }
+                    a.accept(ir.getLengthVar());
+                    return null;
+                }
+            };
+
+    /**
+     * The constraints being propagated. Removed constraints leave a null hole
+     * so that the indices in the occurrence index stay valid.
+     */
     private static class State {
 
         final IrBoolExpr[] constraints;
-        int size;
+        /**
+         * Maps each nonconstant variable to the indices of the constraints that
+         * mention it. Entries can be stale, but never missing.
+         */
+        final Map<IrVar, TIntHashSet> occurrences = new HashMap<>();
+        /**
+         * The indices of the constraints to deduce in the next round.
+         */
+        final TIntHashSet changed = new TIntHashSet();
         Set<IrSetVar> setVars = new HashSet<>();
         Set<IrStringVar> stringVars = new HashSet<>();
 
@@ -236,14 +376,14 @@ public class FBBT {
                 this.constraints = c.toArray(new IrBoolExpr[c.size() + 1]);
                 this.constraints[c.size()] = tautology;
             }
-            this.size = constraints.length;
-            for (IrVar var : module.getVariables()) {
-                if (!var.isConstant()) {
-                    if (var instanceof IrSetVar) {
-                        setVars.add((IrSetVar) var);
-                    } else if (var instanceof IrStringVar) {
-                        stringVars.add((IrStringVar) var);
-                    }
+            for (int i = 0; i < constraints.length; i++) {
+                index(i);
+            }
+            for (IrVar var : occurrences.keySet()) {
+                if (var instanceof IrSetVar) {
+                    setVars.add((IrSetVar) var);
+                } else if (var instanceof IrStringVar) {
+                    stringVars.add((IrStringVar) var);
                 }
             }
         }
@@ -252,32 +392,94 @@ public class FBBT {
             this(module, null);
         }
 
-        void apply(Coalesce coalesce, Set<IrBoolExpr> changed) {
-            for (int i = 0; i < size;) {
-                IrBoolExpr newConstraint = coalesce.rewrite(constraints[i], null);
-                if (newConstraint.getDomain().isFalse()) {
-                    throw new UnsatisfiableException();
-                } else if (newConstraint.getDomain().isTrue()) {
-                    size--;
-                    constraints[i] = constraints[size];
-                    constraints[size] = null;
-                } else {
-                    if (constraints[i] != newConstraint) {
-                        changed.add(newConstraint);
+        private void index(int i) {
+            constraints[i].accept(OccurrenceFinder, var -> {
+                if (!var.isConstant()) {
+                    TIntHashSet occurrence = occurrences.get(var);
+                    if (occurrence == null) {
+                        occurrence = new TIntHashSet();
+                        occurrences.put(var, occurrence);
+                    }
+                    occurrence.add(i);
+                }
+            });
+        }
+
+        private void affected(IrVar var, TIntHashSet affected) {
+            TIntHashSet occurrence = occurrences.remove(var);
+            if (occurrence != null) {
+                affected.addAll(occurrence);
+            }
+        }
+
+        void changedAll() {
+            for (int i = 0; i < constraints.length; i++) {
+                changed.add(i);
+            }
+        }
+
+        /**
+         * Remove every changed constraint, in module order.
+         *
+         * @param action applied to every changed constraint
+         */
+        void pollChanged(Consumer<IrBoolExpr> action) {
+            int[] indices = changed.toArray();
+            changed.clear();
+            Arrays.sort(indices);
+            for (int i : indices) {
+                if (constraints[i] != null) {
+                    action.accept(constraints[i]);
+                }
+            }
+        }
+
+        /**
+         * Rewrite only the constraints that mention a coalesced variable. The
+         * rewritten constraints are changed.
+         *
+         * @param coalesce the coalesced variables
+         */
+        void apply(Coalesce coalesce) {
+            TIntHashSet affected = new TIntHashSet();
+            coalesce.forEachIntVar((var, coalesced) -> affected(var, affected));
+            coalesce.forEachSetVar((var, coalesced) -> affected(var, affected));
+
+            int[] indices = affected.toArray();
+            Arrays.sort(indices);
+            for (int i : indices) {
+                IrBoolExpr constraint = constraints[i];
+                if (constraint != null) {
+                    IrBoolExpr newConstraint = coalesce.rewrite(constraint, null);
+                    if (newConstraint.getDomain().isFalse()) {
+                        throw new UnsatisfiableException();
+                    } else if (newConstraint.getDomain().isTrue()) {
+                        constraints[i] = null;
+                    } else if (constraint != newConstraint) {
+                        changed.add(i);
                         constraints[i] = newConstraint;
+                        index(i);
                     }
-                    i++;
                 }
             }
 
-            setVars = setVars.stream().map(coalesce::get).collect(Collectors.toSet());
-            stringVars = stringVars.stream().map(coalesce::get).collect(Collectors.toSet());
+            coalesce.forEachSetVar((var, coalesced) -> {
+                if (setVars.remove(var) && !coalesced.isConstant()) {
+                    setVars.add(coalesced);
+                }
+            });
+            if (!affected.isEmpty()) {
+                stringVars = stringVars.stream().map(coalesce::get)
+                        .filter(var -> !var.isConstant()).collect(Collectors.toSet());
+            }
         }
 
         IrModule toModule() {
-            IrModule module = new IrModule();
-            for (int i = 0; i < size; i++) {
-                module.addConstraints(constraints[i]);
+            IrModule module = new IrModule(constraints.length);
+            for (IrBoolExpr constraint : constraints) {
+                if (constraint != null) {
+                    module.addConstraint(constraint);
+                }
             }
             return module;
         }
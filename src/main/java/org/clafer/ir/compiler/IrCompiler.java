@@ -18,6 +18,7 @@ import static org.chocosolver.solver.variables.Var.mapChars;
 import static org.chocosolver.solver.variables.Var.mapLength;
 import org.chocosolver.util.ESat;
 import org.clafer.choco.constraint.Constraints;
+import org.clafer.choco.set.DenseSetVar;
 import org.clafer.collection.Pair;
 import org.clafer.common.Check;
 import org.clafer.common.Util;
@@ -117,11 +118,17 @@ public class IrCompiler {
 
     private final Model model;
     private final boolean coalesceVariables;
+    private final int constructiveDisjunctionThreads;
+    private final boolean watchedJoins;
+    private final boolean denseSets;
     private int varNum = 0;
 
-    private IrCompiler(Model model, boolean coalesceVariables) {
+    private IrCompiler(Model model, boolean coalesceVariables, int constructiveDisjunctionThreads, boolean watchedJoins, boolean denseSets) {
         this.model = Check.notNull(model);
         this.coalesceVariables = coalesceVariables;
+        this.constructiveDisjunctionThreads = constructiveDisjunctionThreads;
+        this.watchedJoins = watchedJoins;
+        this.denseSets = denseSets;
     }
 
     public static IrSolutionMap compile(IrModule in, Model out) {
@@ -129,14 +136,66 @@ public class IrCompiler {
     }
 
     public static IrSolutionMap compile(IrModule in, Model out, boolean coalesceVariables) {
-        IrCompiler compiler = new IrCompiler(out, coalesceVariables);
+        return compile(in, out, coalesceVariables, 1);
+    }
+
+    public static IrSolutionMap compile(IrModule in, Model out, boolean coalesceVariables, int constructiveDisjunctionThreads) {
+        IrCompiler compiler = new IrCompiler(out, coalesceVariables, constructiveDisjunctionThreads, false, false);
         return compiler.compile(in);
     }
 
+    /**
+     * Compile a module that has already been optimized.
+     *
+     * @param coalesce the variables coalesced while optimizing
+     * @param optModule the optimized module
+     * @param out the Choco model
+     * @return the solution map
+     * @see Optimizer#optimize(IrModule, boolean, int)
+     */
+    public static IrSolutionMap compileOptimized(Coalesce coalesce, IrModule optModule, Model out) {
+        return compileOptimized(coalesce, optModule, out, false);
+    }
+
+    /**
+     * Compile a module that has already been optimized.
+     *
+     * @param coalesce the variables coalesced while optimizing
+     * @param optModule the optimized module
+     * @param out the Choco model
+     * @param watchedJoins if true then joins use the propagators that watch
+     * the supports of their values
+     * @return the solution map
+     * @see Optimizer#optimize(IrModule, boolean, int)
+     */
+    public static IrSolutionMap compileOptimized(Coalesce coalesce, IrModule optModule, Model out, boolean watchedJoins) {
+        return compileOptimized(coalesce, optModule, out, watchedJoins, false);
+    }
+
+    /**
+     * Compile a module that has already been optimized.
+     *
+     * @param coalesce the variables coalesced while optimizing
+     * @param optModule the optimized module
+     * @param out the Choco model
+     * @param watchedJoins if true then joins use the propagators that watch
+     * the supports of their values
+     * @param denseSets if true then set variables with a dense envelope are
+     * stored as words of 64 bits
+     * @return the solution map
+     * @see Optimizer#optimize(IrModule, boolean, int)
+     */
+    public static IrSolutionMap compileOptimized(Coalesce coalesce, IrModule optModule, Model out, boolean watchedJoins, boolean denseSets) {
+        IrCompiler compiler = new IrCompiler(out, false, 1, watchedJoins, denseSets);
+        return compiler.compileOptimized(coalesce, optModule);
+    }
+
     private IrSolutionMap compile(IrModule module) {
-        Pair<Coalesce, IrModule> optimizedPair = Optimizer.optimize(module, coalesceVariables);
-        Coalesce coalesce = optimizedPair.getFst();
-        IrModule optModule = optimizedPair.getSnd();
+        Pair<Coalesce, IrModule> optimizedPair = Optimizer.optimize(module, coalesceVariables, constructiveDisjunctionThreads);
+        return compileOptimized(optimizedPair.getFst(), optimizedPair.getSnd());
+    }
+
+    private IrSolutionMap compileOptimized(Coalesce coalesce, IrModule optModule) {
         commonSubexpressions.addAll(CommonSubexpression.findCommonSubexpressions(optModule));
 
         for (IrBoolExpr constraint : optModule.getConstraints()) {
@@ -212,7 +271,11 @@ public class IrCompiler {
             }
             return var;
         }
-        return model.setVar(name, ker.getValues(), env.getValues());
+        int[] envValues = env.getValues();
+        if (denseSets && DenseSetVar.isDense(envValues)) {
+            return new DenseSetVar(name, ker.getValues(), envValues, model);
+        }
+        return model.setVar(name, ker.getValues(), envValues);
     }
 
     private SetVar setVar(String name, Domain env, Domain ker, Domain card) {
@@ -1043,7 +1106,7 @@ public class IrCompiler {
         @Override
         public Object visit(IrAcyclic ir, BoolArg a) {
             IntVar[] edges = compile(ir.getEdges());
-            return Constraints.acyclic(edges);
+            return Constraints.acyclic(edges, ir.getGroups());
         }
 
         @Override
@@ -1495,18 +1558,18 @@ public class IrCompiler {
                 SetVar joinRelation = numSetVar("JoinRelation", ir.getEnv(), ir.getKer(), ir.getCard());
                 if (ir.isInjective()) {
                     post(Constraints.joinInjectiveRelation(take, take.getCard(),
-                            children, mapCard(children), joinRelation, joinRelation.getCard()));
+                            children, mapCard(children), joinRelation, joinRelation.getCard(), watchedJoins));
                     return joinRelation;
                 } else {
-                    post(Constraints.joinRelation(take, children, joinRelation));
+                    post(Constraints.joinRelation(take, children, joinRelation, watchedJoins));
                     return joinRelation;
                 }
             }
             if (ir.isInjective()) {
                 return Constraints.joinInjectiveRelation(take, take.getCard(),
-                        children, mapCard(children), reify, reify.getCard());
+                        children, mapCard(children), reify, reify.getCard(), watchedJoins);
             }
-            return Constraints.joinRelation(take, children, reify);
+            return Constraints.joinRelation(take, children, reify, watchedJoins);
         }
 
         @Override
@@ -1515,10 +1578,10 @@ public class IrCompiler {
             IntVar[] refs = compile(ir.getRefs());
             if (reify == null) {
                 SetVar joinFunction = numSetVar("JoinFunction", ir.getEnv(), ir.getKer(), ir.getCard());
-                post(Constraints.joinFunction(take, take.getCard(), refs, joinFunction, joinFunction.getCard(), ir.getGlobalCardinality()));
+                post(Constraints.joinFunction(take, take.getCard(), refs, joinFunction, joinFunction.getCard(), ir.getGlobalCardinality(), watchedJoins));
                 return joinFunction;
             }
-            return Constraints.joinFunction(take, take.getCard(), refs, reify, reify.getCard(), ir.getGlobalCardinality());
+            return Constraints.joinFunction(take, take.getCard(), refs, reify, reify.getCard(), ir.getGlobalCardinality(), watchedJoins);
         }
 
         @Override
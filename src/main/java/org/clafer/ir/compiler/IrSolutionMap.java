@@ -1,10 +1,13 @@
 package org.clafer.ir.compiler;
 
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.Variable;
 import org.clafer.collection.Either;
 import org.clafer.ir.IrBoolVar;
 import org.clafer.ir.IrIntVar;
@@ -27,14 +30,51 @@ public class IrSolutionMap {
     private final Coalesce coalesce;
     private final Map<IrIntVar, IntVar> intVars;
     private final Map<IrSetVar, SetVar> setVars;
+    // The index of the part each Choco variable was translated in, or null if
+    // the map is not merged.
+    private final Map<Variable, Integer> parts;
 
     IrSolutionMap(
             Coalesce coalesce,
             Map<IrIntVar, IntVar> intVars,
             Map<IrSetVar, SetVar> setVars) {
+        this(coalesce, intVars, setVars, null);
+    }
+
+    private IrSolutionMap(
+            Coalesce coalesce,
+            Map<IrIntVar, IntVar> intVars,
+            Map<IrSetVar, SetVar> setVars,
+            Map<Variable, Integer> parts) {
         this.coalesce = coalesce;
         this.intVars = intVars;
         this.setVars = setVars;
+        this.parts = parts;
+    }
+
+    /**
+     * Merge the solution maps of modules decomposed from the same optimized
+     * module, each translated to its own Choco model.
+     *
+     * @param parts the solution map of each part
+     * @return the solution map of the whole module
+     * @see org.clafer.ir.analysis.Decomposer
+     */
+    public static IrSolutionMap merge(IrSolutionMap... parts) {
+        Map<IrIntVar, IntVar> intVars = new HashMap<>();
+        Map<IrSetVar, SetVar> setVars = new HashMap<>();
+        Map<Variable, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < parts.length; i++) {
+            intVars.putAll(parts[i].intVars);
+            setVars.putAll(parts[i].setVars);
+            for (IntVar var : parts[i].intVars.values()) {
+                index.put(var, i);
+            }
+            for (SetVar var : parts[i].setVars.values()) {
+                index.put(var, i);
+            }
+        }
+        return new IrSolutionMap(parts[0].coalesce, intVars, setVars, index);
     }
 
     public Either<Boolean, BoolVar> getVar(IrBoolVar var) {
@@ -53,6 +93,33 @@ public class IrSolutionMap {
         return var.getValue().toArray();
     }
 
+    /**
+     * The values of a merged solution map, one recorded solution per part.
+     *
+     * @param solutions the solution of each part, in the order the parts were
+     * merged
+     * @return the solution map reading the values from the solutions
+     * @see #merge(IrSolutionMap...)
+     */
+    public IrSolutionMap fromSolutions(final Solution... solutions) {
+        return new IrSolutionMap(coalesce, intVars, setVars, parts) {
+
+            @Override
+            protected int getIntVal(IntVar var) {
+                return solutions[part(var)].getIntVal(var);
+            }
+
+            @Override
+            protected int[] getSetVal(SetVar var) {
+                return solutions[part(var)].getSetVal(var);
+            }
+        };
+    }
+
+    private int part(Variable var) {
+        return parts == null ? 0 : parts.get(var);
+    }
+
     public IrSolutionMap fromSolution(final Solution solution) {
         return new IrSolutionMap(coalesce, intVars, setVars) {
 
@@ -1,5 +1,6 @@
 package org.clafer.scope;
 
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -72,7 +73,9 @@ import org.clafer.common.Check;
  * @author jimmy
  * @see ScopeBuilder
  */
-public class Scope implements Scopable {
+public class Scope implements Scopable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Map<AstClafer, Integer> scopes;
     private final int defaultScope;
@@ -0,0 +1,247 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.chocosolver.solver.Model;
+import org.clafer.ast.compiler.AstCompiler;
+import org.clafer.ast.compiler.AstSolutionMap;
+import org.clafer.collection.Pair;
+import org.clafer.compiler.ClaferCompiler;
+import org.clafer.compiler.ClaferOption;
+import org.clafer.compiler.ClaferSearch;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.analysis.Optimizer;
+import org.clafer.ir.analysis.deduction.Coalesce;
+import org.clafer.ir.compiler.IrCompiler;
+import org.clafer.ir.compiler.IrSolutionMap;
+import org.clafer.javascript.Javascript;
+import org.clafer.javascript.JavascriptFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Times each phase of solving the models used by the tests. Every benchmark
+ * only measures its own phase, the earlier phases are run during setup.
+ * <ul>
+ * <li>{@code readModel}: Javascript to AST.</li>
+ * <li>{@code astCompile}: AST to IR.</li>
+ * <li>{@code optimize}: IR to optimized IR.</li>
+ * <li>{@code irCompile}: optimized IR to Choco.</li>
+ * <li>{@code firstInstance}: search for the first instance.</li>
+ * <li>{@code nInstances}: search for the first {@code n} instances.</li>
+ * </ul>
+ * Run with {@code mvn -P benchmark test-compile exec:exec}. The results are
+ * written to {@code target/jmh-result.json}.
+ *
+ * @author jimmy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CorpusBenchmark {
+
+    private static final String[] Corpus = {"solve-positive", "optimization", "assert-positive"};
+
+    /**
+     * @return the models of the corpus, relative to the test resources
+     * @throws URISyntaxException if the resources are not found
+     */
+    public static String[] models() throws URISyntaxException {
+        List<String> models = new ArrayList<>();
+        for (String dir : Corpus) {
+            File[] files = new File(CorpusBenchmark.class.getResource("/" + dir).toURI()).listFiles();
+            Arrays.sort(files);
+            for (File file : files) {
+                models.add(dir + "/" + file.getName());
+            }
+        }
+        return models.toArray(new String[models.size()]);
+    }
+
+    private static String read(String model) throws IOException, URISyntaxException {
+        return new String(Files.readAllBytes(
+                new File(CorpusBenchmark.class.getResource("/" + model).toURI()).toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    private static AstSolutionMap astCompile(JavascriptFile file, IrModule module) {
+        ClaferOption option = file.getOption();
+        if (file.getObjectives().length > 0) {
+            return AstCompiler.compile(file.getModel(), file.getScope(), file.getObjectives(), module,
+                    option.isFullSymmetryBreaking());
+        }
+        if (file.getAssertions().length > 0) {
+            return AstCompiler.compile(file.getModel(), file.getScope(), file.getAssertions(), module,
+                    option.isFullSymmetryBreaking());
+        }
+        return AstCompiler.compile(file.getModel(), file.getScope(), module, option.isFullSymmetryBreaking());
+    }
+
+    private static Pair<Coalesce, IrModule> optimize(JavascriptFile file, IrModule module) {
+        ClaferOption option = file.getOption();
+        return Optimizer.optimize(module, option.isFullOptimizations(), option.getConstructiveDisjunctionThreads());
+    }
+
+    private static ClaferSearch compile(JavascriptFile file) {
+        if (file.getObjectives().length > 0) {
+            return ClaferCompiler.compile(file.getModel(), file.getScope(), file.getObjectives(), file.getOption());
+        }
+        if (file.getAssertions().length > 0) {
+            return ClaferCompiler.compile(file.getModel(), file.getScope(), file.getAssertions(), file.getOption());
+        }
+        return ClaferCompiler.compile(file.getModel(), file.getScope(), file.getOption());
+    }
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        /**
+         * Set to every model of the corpus by {@link #main(String[])}.
+         */
+        @Param({"solve-positive/AADL_simplified.js"})
+        public String model;
+        @Param({"10"})
+        public int n;
+        String source;
+        Pair<Coalesce, IrModule> optimized;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException, URISyntaxException {
+            source = read(model);
+            JavascriptFile file = Javascript.readModel(source);
+            IrModule module = new IrModule();
+            astCompile(file, module);
+            // Only read by the IR compiler so it can be reused.
+            optimized = optimize(file, module);
+        }
+    }
+
+    /**
+     * The phases before the AST compiler, again for every invocation in case
+     * the AST is changed by compiling.
+     */
+    @State(Scope.Thread)
+    public static class Parsed {
+
+        JavascriptFile file;
+
+        @Setup(Level.Invocation)
+        public void setup(Corpus corpus) throws IOException {
+            file = Javascript.readModel(corpus.source);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Translated {
+
+        JavascriptFile file;
+        IrModule module;
+
+        @Setup(Level.Invocation)
+        public void setup(Corpus corpus) throws IOException {
+            file = Javascript.readModel(corpus.source);
+            module = new IrModule();
+            astCompile(file, module);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Compiled {
+
+        ClaferSearch search;
+
+        @Setup(Level.Invocation)
+        public void setup(Corpus corpus) throws IOException {
+            search = compile(Javascript.readModel(corpus.source));
+        }
+    }
+
+    @Benchmark
+    public JavascriptFile readModel(Corpus corpus) throws IOException {
+        return Javascript.readModel(corpus.source);
+    }
+
+    @Benchmark
+    public IrModule astCompile(Parsed parsed) {
+        IrModule module = new IrModule();
+        astCompile(parsed.file, module);
+        return module;
+    }
+
+    @Benchmark
+    public Pair<Coalesce, IrModule> optimize(Translated translated) {
+        return optimize(translated.file, translated.module);
+    }
+
+    @Benchmark
+    public IrSolutionMap irCompile(Corpus corpus) {
+        return IrCompiler.compileOptimized(corpus.optimized.getFst(), corpus.optimized.getSnd(), new Model());
+    }
+
+    @Benchmark
+    public boolean firstInstance(Compiled compiled) {
+        return compiled.search.find();
+    }
+
+    @Benchmark
+    public int nInstances(Corpus corpus, Compiled compiled) {
+        int count = 0;
+        while (count < corpus.n && compiled.search.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Runs the benchmarks over every model of the corpus unless the models are
+     * given with {@code -p model=...}. Accepts the usual JMH options.
+     *
+     * @param args the JMH options
+     * @throws CommandLineOptionException if the options are invalid
+     * @throws RunnerException if a benchmark failed
+     * @throws URISyntaxException if the resources are not found
+     */
+    public static void main(String[] args)
+            throws CommandLineOptionException, RunnerException, URISyntaxException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .include(CorpusBenchmark.class.getName());
+        if (!commandLine.getParameter("model").hasValue()) {
+            options.param("model", models());
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result("target/jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+}
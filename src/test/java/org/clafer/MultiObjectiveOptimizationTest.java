@@ -14,6 +14,7 @@ import static org.clafer.ast.Asts.lessThan;
 import static org.clafer.ast.Asts.newModel;
 import org.clafer.compiler.ClaferCompiler;
 import org.clafer.compiler.ClaferOptimizer;
+import org.clafer.compiler.ClaferOption;
 import org.clafer.objective.Objective;
 import org.clafer.scope.Scope;
 import static org.junit.Assert.assertEquals;
@@ -88,6 +89,30 @@ public class MultiObjectiveOptimizationTest {
         assertEquals(20, search.instanceCount());
     }
 
+    @Test
+    public void testMaximizeMaximizeParetoArchive() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(Mandatory);
+        AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(Mandatory);
+        AstConcreteClafer c = model.addChild("C").refTo(IntType).withCard(Mandatory);
+        model.addConstraint(lessThan(add(joinRef(a), joinRef(b)), constant(2)));
+        model.addConstraint(greaterThan(add(joinRef(a), joinRef(b)), constant(-2)));
+
+        ClaferOptimizer search = ClaferCompiler.compile(model, Scope.defaultScope(1).intLow(-2).intHigh(2),
+                new Objective[]{Objective.maximize(joinRef(a)), Objective.maximize(joinRef(b))},
+                ClaferOption.Default.setParetoArchive(true));
+        while (search.find()) {
+            int[] o = search.optimalValues();
+            assertTrue(Arrays.toString(o) + " is not optimal",
+                    (o[0] == -1 && o[1] == 2)
+                    || (o[0] == 0 && o[1] == 1)
+                    || (o[0] == 1 && o[1] == 0)
+                    || (o[0] == 2 && o[1] == -1));
+        }
+        assertEquals(20, search.instanceCount());
+    }
+
     @Test
     public void testMaximizeMinimize() {
         AstModel model = newModel();
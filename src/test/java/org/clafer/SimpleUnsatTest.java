@@ -1,8 +1,11 @@
 package org.clafer;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import org.chocosolver.solver.Model;
 import org.clafer.ast.AstConcreteClafer;
 import org.clafer.ast.AstConstraint;
 import org.clafer.ast.AstModel;
@@ -27,6 +30,8 @@ import org.clafer.compiler.ClaferUnsat;
 import org.clafer.instance.InstanceModel;
 import org.clafer.scope.Scope;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 /**
@@ -35,7 +40,8 @@ import org.junit.Test;
  */
 public class SimpleUnsatTest {
 
-    private static Set<AstConstraint> set(AstConstraint... items) {
+    @SafeVarargs
+    private static <T> Set<T> set(T... items) {
         return new HashSet<>(Arrays.asList(items));
     }
 
@@ -56,6 +62,7 @@ public class SimpleUnsatTest {
 
         assertEquals(set(bad), ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).minUnsat().getFst());
         assertEquals(set(bad), ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).unsatCore());
+        assertEquals(set(bad), ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).minimalUnsatCore());
     }
 
     /**
@@ -91,6 +98,13 @@ public class SimpleUnsatTest {
                 .minUnsat().getFst());
         assertEquals(set(c1, c2, c3, c4, c5), ClaferCompiler.compileUnsat(model, Scope.defaultScope(1))
                 .unsatCore());
+
+        ClaferUnsat unsat = ClaferCompiler.compileUnsat(model, Scope.defaultScope(1));
+        Set<AstConstraint> core = unsat.minimalUnsatCore();
+        assertTrue(core.equals(set(c1, c3, c5)) || core.equals(set(c2, c3, c4)));
+        // Both reasons, floats and witches.
+        assertEquals(set(set(c1, c3, c5), set(c2, c3, c4)), new HashSet<>(unsat.minimalUnsatCores(10)));
+        assertEquals(1, unsat.minimalUnsatCores(1).size());
     }
 
     /**
@@ -128,6 +142,37 @@ public class SimpleUnsatTest {
 
         assertEquals(set(c1, c2, c3, c4),
                 ClaferCompiler.compileUnsat(model, Scope.defaultScope(1)).unsatCore());
+
+        List<Set<AstConstraint>> cores = ClaferCompiler.compileUnsat(model, Scope.defaultScope(1)).minimalUnsatCores(10);
+        assertTrue(cores.contains(set(c2, c4)));
+        assertTrue(cores.contains(set(c3, c4)));
+        for (Set<AstConstraint> core : cores) {
+            assertTrue(core.contains(c4));
+        }
+    }
+
+    /**
+     * <pre>
+     * A ?
+     * [#A = 1]
+     * [#A = 0]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testHardConstraintsUnsat() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Optional);
+        model.addConstraint(equal(card(global(a)), constant(1)));
+        model.addConstraint(equal(card(global(a)), constant(0)));
+
+        ClaferUnsat unsat = ClaferCompiler.compileUnsat(model, Scope.defaultScope(1));
+        // The compiler rejects models that are unsatisfiable without their
+        // constraints, so make the hard constraints unsatisfiable afterwards.
+        Model internal = unsat.getInternalSolver().getModel();
+        internal.falseConstraint().post();
+        assertEquals(set(), unsat.minimalUnsatCore());
+        assertEquals(Collections.singletonList(set()), unsat.minimalUnsatCores(10));
     }
 
     /**
@@ -147,5 +192,7 @@ public class SimpleUnsatTest {
 
         assertEquals(set(), ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).minUnsat().getFst());
         assertEquals(set(), ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).unsatCore());
+        assertNull(ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).minimalUnsatCore());
+        assertEquals(Collections.emptyList(), ClaferCompiler.compileUnsat(model, Scope.defaultScope(2)).minimalUnsatCores(10));
     }
 }
@@ -0,0 +1,107 @@
+package org.clafer.ast.compiler;
+
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstLocal;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.and;
+import static org.clafer.ast.Asts.decl;
+import static org.clafer.ast.Asts.equal;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.lessThanEqual;
+import static org.clafer.ast.Asts.local;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.some;
+import static org.clafer.ast.Asts.sum;
+import org.clafer.compiler.ClaferCompiler;
+import org.clafer.compiler.ClaferSolver;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.IrVar;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class AstCompilerTest {
+
+    /**
+     * <pre>
+     * A 4 -> integer
+     *     [this.ref <= sum B]
+     * B 0..3 -> integer
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testGroundSubexpressionCompiledOnce() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(4, 4);
+        AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(0, 3);
+        a.addConstraint(lessThanEqual(joinRef($this()), sum(global(b))));
+
+        IrModule module = new IrModule();
+        AstCompiler.compile(model, Scope.defaultScope(4).intLow(-2).intHigh(2).toScope(), module, false);
+
+        int scores = 0;
+        for (IrVar var : module.getVariables()) {
+            if (var.getName().startsWith("Sum")) {
+                scores++;
+            }
+        }
+        // One score per B, shared by the constraints of every A.
+        assertEquals(3, scores);
+    }
+
+    /**
+     * <pre>
+     * A 2 -> integer
+     *     [some x : B | x.ref = this.ref]
+     *     [this.ref <= sum B]
+     * B 0..2 -> integer
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testThisAndLocalsNotGrounded() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(2, 2);
+        AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(0, 2);
+        AstLocal x = local("x");
+        a.addConstraint(and(
+                some(decl(x, global(b)), equal(joinRef(x), joinRef($this()))),
+                lessThanEqual(joinRef($this()), sum(global(b)))));
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(2).intLow(-1).intHigh(1));
+        boolean distinctRefs = false;
+        int count = 0;
+        while (solver.find()) {
+            InstanceModel instance = solver.instance();
+            int sum = 0;
+            for (InstanceClafer bi : instance.getTopClafers(b)) {
+                sum += (Integer) bi.getRef();
+            }
+            InstanceClafer[] as = instance.getTopClafers(a);
+            for (InstanceClafer ai : as) {
+                int ref = (Integer) ai.getRef();
+                assertTrue(ref <= sum);
+                boolean found = false;
+                for (InstanceClafer bi : instance.getTopClafers(b)) {
+                    found |= bi.getRef().equals(ref);
+                }
+                assertTrue(found);
+            }
+            distinctRefs |= !as[0].getRef().equals(as[1].getRef());
+            count++;
+        }
+        assertTrue(count > 0);
+        assertTrue(distinctRefs);
+    }
+}
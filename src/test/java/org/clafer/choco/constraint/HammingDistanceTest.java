@@ -0,0 +1,63 @@
+package org.clafer.choco.constraint;
+
+import java.util.Arrays;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import static org.clafer.choco.constraint.ConstraintQuickTest.$;
+import org.clafer.choco.constraint.ConstraintQuickTest.Check;
+import org.clafer.choco.constraint.ConstraintQuickTest.Input;
+import org.clafer.choco.constraint.propagator.PropHammingDistance;
+import org.clafer.test.NonEmpty;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ *
+ * @author jimmy
+ */
+@RunWith(ConstraintQuickTest.class)
+public class HammingDistanceTest {
+
+    /**
+     * Differ from each sample in at least half the positions.
+     */
+    private static int distance(int length) {
+        return (length + 1) / 2;
+    }
+
+    private static int[] sample(int length, int value) {
+        int[] sample = new int[length];
+        Arrays.fill(sample, value);
+        return sample;
+    }
+
+    @Input(solutions = 6)
+    public Object testHalfOnes(Model model) {
+        return $(model.boolVarArray("bool", 4), 0, 1);
+    }
+
+    @Input(solutions = 0)
+    public Object testTooClose(Model model) {
+        return $(model.boolVarArray("bool", 3), 0, 1);
+    }
+
+    @Input(solutions = 4)
+    public Object testOneVar(Model model) {
+        return $(model.intVarArray("var", 1, 0, 4), 1, 1);
+    }
+
+    @Check
+    public void check(int[] vars, int a, int b) {
+        int distance = distance(vars.length);
+        assertTrue(PropHammingDistance.distance(vars, sample(vars.length, a)) >= distance);
+        assertTrue(PropHammingDistance.distance(vars, sample(vars.length, b)) >= distance);
+    }
+
+    @Test(timeout = 60000)
+    public Constraint setup(@NonEmpty IntVar[] vars, int a, int b) {
+        return Constraints.hammingDistance(vars, distance(vars.length),
+                sample(vars.length, a), sample(vars.length, b));
+    }
+}
@@ -0,0 +1,72 @@
+package org.clafer.choco.constraint;
+
+import java.util.Arrays;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import static org.clafer.choco.constraint.ConstraintQuickTest.$;
+import org.clafer.choco.constraint.ConstraintQuickTest.Check;
+import org.clafer.choco.constraint.ConstraintQuickTest.Input;
+import org.clafer.choco.constraint.propagator.PropNotDominated;
+import org.clafer.test.NonEmpty;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ *
+ * @author jimmy
+ */
+@RunWith(ConstraintQuickTest.class)
+public class NotDominatedTest {
+
+    /**
+     * Maximize the even scores and minimize the odd scores.
+     */
+    private static boolean[] maximizes(int length) {
+        boolean[] maximizes = new boolean[length];
+        for (int i = 0; i < maximizes.length; i += 2) {
+            maximizes[i] = true;
+        }
+        return maximizes;
+    }
+
+    private static int[] point(int length, int value) {
+        int[] point = new int[length];
+        Arrays.fill(point, value);
+        return point;
+    }
+
+    @Input(solutions = 4)
+    public Object testNotDominated(Model model) {
+        /*
+         * maximize s0, minimize s1
+         * archive = {(1, 1), (2, 2)}
+         * solutions = {(0, 0), (1, 0), (2, 0), (2, 1)}
+         */
+        return $(model.intVarArray("score", 2, 0, 2), 1, 2);
+    }
+
+    @Input(solutions = 2)
+    public Object testOneScore(Model model) {
+        return $(model.intVarArray("score", 1, 0, 3), 1, 0);
+    }
+
+    @Input(solutions = 0)
+    public Object testDominated(Model model) {
+        return $(new IntVar[]{model.intVar(2), model.intVar(3)}, 2, 3);
+    }
+
+    @Check
+    public void check(int[] scores, int a, int b) {
+        boolean[] maximizes = maximizes(scores.length);
+        assertFalse(PropNotDominated.weaklyDominates(maximizes, point(scores.length, a), scores));
+        assertFalse(PropNotDominated.weaklyDominates(maximizes, point(scores.length, b), scores));
+    }
+
+    @Test(timeout = 60000)
+    public Constraint setup(@NonEmpty IntVar[] scores, int a, int b) {
+        return Constraints.notDominated(scores, maximizes(scores.length),
+                point(scores.length, a), point(scores.length, b));
+    }
+}
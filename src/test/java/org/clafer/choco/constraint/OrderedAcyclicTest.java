@@ -0,0 +1,77 @@
+package org.clafer.choco.constraint;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import static org.clafer.choco.constraint.ConstraintQuickTest.$;
+import org.clafer.choco.constraint.ConstraintQuickTest.Check;
+import org.clafer.choco.constraint.ConstraintQuickTest.Input;
+import org.clafer.test.NonEmpty;
+import org.clafer.test.Positive;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * The nodes are grouped by their index modulo a number.
+ *
+ * @author jimmy
+ */
+@RunWith(ConstraintQuickTest.class)
+public class OrderedAcyclicTest {
+
+    private static int[] groups(int length, int modulo) {
+        int[] groups = new int[length];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = i % (modulo + 1);
+        }
+        return groups;
+    }
+
+    @Input(solutions = 62)
+    public Object testTwoGroups(Model model) {
+        return $(model.intVarArray("edges", 4, 0, 4), 1);
+    }
+
+    @Input(solutions = 88)
+    public Object testThreeGroups(Model model) {
+        return $(model.intVarArray("edges", 4, 0, 4), 2);
+    }
+
+    @Input(solutions = 392)
+    public Object testTwoGroupsFiveNodes(Model model) {
+        return $(model.intVarArray("edges", 5, 0, 5), 1);
+    }
+
+    @Input(solutions = 668)
+    public Object testThreeGroupsFiveNodes(Model model) {
+        return $(model.intVarArray("edges", 5, 0, 5), 2);
+    }
+
+    @Input(solutions = 125)
+    public Object testNoGroups(Model model) {
+        return $(model.intVarArray("edges", 4, 0, 4), 3);
+    }
+
+    @Check
+    public void check(int[] edges, int modulo) {
+        int[] groups = groups(edges.length, modulo);
+        for (int i = 0; i < edges.length; i++) {
+            int cur = edges[i];
+            for (int j = 0; j < edges.length && cur < edges.length; j++) {
+                assertTrue(cur >= 0);
+                assertNotEquals("Cycle", i, cur);
+                assertFalse(groups[i] == groups[cur] && i < cur);
+                cur = edges[cur];
+            }
+            assertTrue(cur == edges.length);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public Constraint setup(@NonEmpty IntVar[] edges, @Positive int modulo) {
+        return Constraints.acyclic(edges, groups(edges.length, modulo));
+    }
+}
@@ -0,0 +1,73 @@
+package org.clafer.choco.constraint.propagator;
+
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import static org.chocosolver.solver.variables.Var.env;
+import static org.chocosolver.solver.variables.Var.ker;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class PropJoinRelationWatchedTest {
+
+    @Test
+    public void testForceLastMateAfterBacktrack() throws ContradictionException {
+        Model model = new Model();
+        SetVar take = model.setVar("take", ker(), env(0, 1));
+        SetVar[] children = {
+            model.setVar("c0", ker(), env(5)),
+            model.setVar("c1", ker(), env(5))
+        };
+        SetVar to = model.setVar("to", ker(5), env(5));
+        model.post(new Constraint("joinRelation", new PropJoinRelationWatched(take, children, to)));
+        model.getSolver().propagate();
+
+        // 5 is in the join and both children are mates.
+        model.getEnvironment().worldPush();
+        take.remove(1, Cause.Null);
+        model.getSolver().propagate();
+        assertTrue(take.getLB().contains(0));
+        model.getEnvironment().worldPop();
+
+        // Both children are mates again after backtracking.
+        model.getEnvironment().worldPush();
+        take.remove(1, Cause.Null);
+        model.getSolver().propagate();
+        assertTrue(take.getLB().contains(0));
+        assertTrue(children[0].getLB().contains(5));
+        model.getEnvironment().worldPop();
+    }
+
+    @Test
+    public void testForceLastMateAfterBacktrackFunction() throws ContradictionException {
+        Model model = new Model();
+        SetVar take = model.setVar("take", ker(), env(0, 1));
+        IntVar[] refs = {
+            model.intVar("r0", 4, 5),
+            model.intVar("r1", 4, 5)
+        };
+        SetVar to = model.setVar("to", ker(5), env(4, 5));
+        model.post(new Constraint("joinFunction", new PropJoinFunctionWatched(take, refs, to)));
+        model.getSolver().propagate();
+
+        model.getEnvironment().worldPush();
+        take.remove(1, Cause.Null);
+        model.getSolver().propagate();
+        assertTrue(take.getLB().contains(0));
+        model.getEnvironment().worldPop();
+
+        model.getEnvironment().worldPush();
+        take.remove(1, Cause.Null);
+        model.getSolver().propagate();
+        assertTrue(take.getLB().contains(0));
+        assertTrue(refs[0].isInstantiatedTo(5));
+        model.getEnvironment().worldPop();
+    }
+}
@@ -9,6 +9,7 @@ import org.chocosolver.solver.Model;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
+import org.clafer.choco.set.DenseSetVar;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -425,6 +426,91 @@ public class PropUtilTest {
         }
     }
 
+    @Test
+    public void testDenseIsIntersect() {
+        Model model = new Model();
+        for (int i = 0; i < 100; i++) {
+            SetVar i1 = randDenseSetVar("i1" + i, model);
+            SetVar i2 = randDenseSetVar("i2" + i, model);
+
+            assertEquals(
+                    isIntersectBruteForce(env(i1), env(i2)),
+                    PropUtil.isEnvIntersectEnv(i1, i2));
+            assertEquals(
+                    isIntersectBruteForce(env(i1), ker(i2)),
+                    PropUtil.isEnvIntersectKer(i1, i2));
+            assertEquals(
+                    isIntersectBruteForce(ker(i1), ker(i2)),
+                    PropUtil.isKerIntersectKer(i1, i2));
+        }
+    }
+
+    @Test
+    public void testDenseIsSubset() {
+        Model model = new Model();
+        for (int i = 0; i < 100; i++) {
+            SetVar i1 = randDenseSetVar("i1" + i, model);
+            SetVar i2 = randDenseSetVar("i2" + i, model);
+
+            assertEquals(
+                    isSubsetBruteForce(env(i1), env(i2)),
+                    PropUtil.isEnvSubsetEnv(i1, i2));
+            assertEquals(
+                    isSubsetBruteForce(env(i1), ker(i2)),
+                    PropUtil.isEnvSubsetKer(i1, i2));
+            assertEquals(
+                    isSubsetBruteForce(ker(i1), env(i2)),
+                    PropUtil.isKerSubsetEnv(i1, i2));
+            assertEquals(
+                    isSubsetBruteForce(ker(i1), ker(i2)),
+                    PropUtil.isKerSubsetKer(i1, i2));
+        }
+    }
+
+    @Test
+    public void testDenseEnvSubsetEnv() throws ContradictionException {
+        Model model = new Model();
+        for (int i = 0; i < 100; i++) {
+            SetVar i1 = randDenseSetVar("i1" + i, model);
+            SetVar i2 = randDenseSetVar("i2" + i, model);
+            if (isSubsetBruteForce(ker(i1), env(i2))) {
+                int s = i1.getUB().size();
+                boolean changed = PropUtil.envSubsetEnv(i1, i2, Cause.Null);
+                assertEquals(s == i1.getUB().size(), !changed);
+                assertTrue(isSubsetBruteForce(env(i1), env(i2)));
+            } else {
+                try {
+                    PropUtil.envSubsetEnv(i1, i2, Cause.Null);
+                } catch (ContradictionException e) {
+                    continue;
+                }
+                fail();
+            }
+        }
+    }
+
+    @Test
+    public void testDenseKerSubsetKer() throws ContradictionException {
+        Model model = new Model();
+        for (int i = 0; i < 100; i++) {
+            SetVar i1 = randDenseSetVar("i1" + i, model);
+            SetVar i2 = randDenseSetVar("i2" + i, model);
+            if (isSubsetBruteForce(ker(i1), env(i2))) {
+                int s = i2.getLB().size();
+                boolean changed = PropUtil.kerSubsetKer(i1, i2, Cause.Null);
+                assertEquals(s == i2.getLB().size(), !changed);
+                assertTrue(isSubsetBruteForce(ker(i1), ker(i2)));
+            } else {
+                try {
+                    PropUtil.kerSubsetKer(i1, i2, Cause.Null);
+                } catch (ContradictionException e) {
+                    continue;
+                }
+                fail();
+            }
+        }
+    }
+
     private static Domain set(TIntSet set) {
         return new SetDomain(set);
     }
@@ -585,4 +671,27 @@ public class PropUtilTest {
         Arrays.sort(kerArray);
         return model.setVar(name, kerArray, envArray);
     }
+
+    /**
+     * A dense set variable spanning a few words, with small gaps so that most
+     * of the words overlap.
+     */
+    private SetVar randDenseSetVar(String name, Model model) {
+        int high = rand.nextInt(200) + 1;
+        TIntHashSet env = new TIntHashSet(high);
+        TIntHashSet ker = new TIntHashSet(high);
+        for (int i = 0; i < high; i++) {
+            if (rand.nextInt(10) > 0) {
+                env.add(i);
+                if (rand.nextInt(10) == 0) {
+                    ker.add(i);
+                }
+            }
+        }
+        int[] envArray = env.toArray();
+        Arrays.sort(envArray);
+        int[] kerArray = ker.toArray();
+        Arrays.sort(kerArray);
+        return new DenseSetVar(name, kerArray, envArray, model);
+    }
 }
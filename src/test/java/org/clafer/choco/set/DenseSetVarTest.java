@@ -0,0 +1,64 @@
+package org.clafer.choco.set;
+
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.SetVar;
+import static org.clafer.choco.constraint.Constraints.subsetEq;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class DenseSetVarTest {
+
+    @Test
+    public void testIsDense() {
+        assertTrue(DenseSetVar.isDense(new int[]{0, 1, 2}));
+        assertTrue(DenseSetVar.isDense(new int[]{2, 3}));
+        assertFalse(DenseSetVar.isDense(new int[]{}));
+        assertFalse(DenseSetVar.isDense(new int[]{-1, 0, 1}));
+        assertFalse(DenseSetVar.isDense(new int[]{0, 100}));
+    }
+
+    @Test
+    public void testBacktrack() throws ContradictionException {
+        Model model = new Model();
+        DenseSetVar var = new DenseSetVar("var", new int[]{1}, new int[]{0, 1, 2, 64, 65, 100}, model);
+
+        model.getEnvironment().worldPush();
+        assertTrue(var.remove(64, Cause.Null));
+        assertTrue(var.force(100, Cause.Null));
+        assertFalse(var.remove(3, Cause.Null));
+        assertArrayEquals(new int[]{0, 1, 2, 65, 100}, var.getUB().toArray());
+        assertArrayEquals(new int[]{1, 100}, var.getLB().toArray());
+        assertEquals(2, var.getKer().getWordCount());
+
+        model.getEnvironment().worldPop();
+        assertArrayEquals(new int[]{0, 1, 2, 64, 65, 100}, var.getUB().toArray());
+        assertArrayEquals(new int[]{1}, var.getLB().toArray());
+        assertEquals(0, var.getUB().min());
+        assertEquals(100, var.getUB().max());
+        assertEquals(6, var.getUB().size());
+    }
+
+    @Test
+    public void testSolve() {
+        Model model = new Model();
+        SetVar sub = new DenseSetVar("sub", new int[]{}, new int[]{0, 1, 2, 3}, model);
+        SetVar sup = new DenseSetVar("sup", new int[]{}, new int[]{0, 1, 2, 3}, model);
+        model.post(subsetEq(sub, sub.getCard(), sup, sup.getCard()));
+
+        int count = 0;
+        while (model.getSolver().solve()) {
+            count++;
+        }
+        // Every element is either in neither, only in sup, or in both.
+        assertEquals(81, count);
+    }
+}
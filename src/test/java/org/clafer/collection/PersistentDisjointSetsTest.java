@@ -0,0 +1,63 @@
+package org.clafer.collection;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class PersistentDisjointSetsTest {
+
+    private static Collection<Set<Integer>> collection(Set<Integer>... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static Set<Integer> set(Integer... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConnectedComponents() {
+        PersistentDisjointSets<Integer> sets = new PersistentDisjointSets<>();
+
+        assertTrue(sets.isEmpty());
+        assertEquals(collection(), new HashSet<>(sets.connectedComponents()));
+
+        sets.union(1, 2);
+        assertEquals(collection(set(1, 2)), new HashSet<>(sets.connectedComponents()));
+
+        sets.union(3, 4);
+        sets.union(1, 5);
+        assertEquals(collection(set(1, 2, 5), set(3, 4)), new HashSet<>(sets.connectedComponents()));
+        assertTrue(sets.connected(2, 5));
+        assertFalse(sets.connected(2, 4));
+
+        sets.union(4, 2);
+        assertEquals(collection(set(1, 2, 3, 4, 5)), new HashSet<>(sets.connectedComponents()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCopy() {
+        PersistentDisjointSets<Integer> sets = new PersistentDisjointSets<>();
+        sets.union(1, 2);
+        sets.union(3, 4);
+
+        PersistentDisjointSets<Integer> copy = new PersistentDisjointSets<>(sets);
+        copy.union(2, 3);
+        sets.union(4, 5);
+
+        assertEquals(collection(set(1, 2), set(3, 4, 5)), new HashSet<>(sets.connectedComponents()));
+        assertEquals(collection(set(1, 2, 3, 4)), new HashSet<>(copy.connectedComponents()));
+        assertFalse(sets.connected(1, 3));
+        assertTrue(copy.connected(1, 3));
+    }
+}
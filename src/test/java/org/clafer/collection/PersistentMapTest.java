@@ -0,0 +1,132 @@
+package org.clafer.collection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class PersistentMapTest {
+
+    /**
+     * A key with few distinct hash codes to force collisions.
+     */
+    private static class Key {
+
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && id == ((Key) obj).id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 3 == 0 ? 0x80000000 : id % 3;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id;
+        }
+    }
+
+    @Test
+    public void testPutRemove() {
+        PersistentMap<Integer, String> empty = PersistentMap.empty();
+        PersistentMap<Integer, String> map1 = empty.put(1, "a");
+        PersistentMap<Integer, String> map2 = map1.put(2, "b");
+        PersistentMap<Integer, String> map3 = map2.put(1, "c");
+        PersistentMap<Integer, String> map4 = map3.remove(2);
+
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get(1));
+        assertEquals(1, map1.size());
+        assertEquals("a", map1.get(1));
+        assertNull(map1.get(2));
+        assertEquals(2, map2.size());
+        assertEquals("a", map2.get(1));
+        assertEquals("b", map2.get(2));
+        assertEquals(2, map3.size());
+        assertEquals("c", map3.get(1));
+        assertEquals(1, map4.size());
+        assertEquals("c", map4.get(1));
+        assertFalse(map4.containsKey(2));
+        assertSame(map4, map4.remove(2));
+        assertSame(map4, map4.put(1, map4.get(1)));
+        assertEquals(map1.put(1, "c"), map4);
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Random rand = new Random(0);
+        for (int repeat = 0; repeat < 20; repeat++) {
+            PersistentMap<Integer, Integer> map = PersistentMap.empty();
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 2000; i++) {
+                // Mix small keys with keys sharing most of their hash bits.
+                int key = rand.nextBoolean() ? rand.nextInt(100) : rand.nextInt(8) << 27;
+                if (rand.nextInt(3) == 0) {
+                    map = map.remove(key);
+                    expected.remove(key);
+                } else {
+                    map = map.put(key, i);
+                    expected.put(key, i);
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            assertEquals(expected, map.toMap());
+            for (int key = -1; key < 101; key++) {
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testCollisions() {
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 30; i++) {
+            map = map.put(new Key(i), i);
+        }
+        assertEquals(30, map.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i, map.get(new Key(i)).intValue());
+        }
+        for (int i = 0; i < 30; i += 2) {
+            map = map.remove(new Key(i));
+        }
+        assertEquals(15, map.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i % 2 == 0 ? null : i, map.get(new Key(i)));
+        }
+    }
+
+    @Test
+    public void testOldVersionsUnchanged() {
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.put(i, i);
+        }
+        PersistentMap<Integer, Integer> fork = map;
+        for (int i = 0; i < 100; i += 3) {
+            fork = fork.put(i, -i).remove(i + 1);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, map.get(i).intValue());
+        }
+        assertEquals(100, map.size());
+        assertEquals(67, fork.size());
+    }
+}
@@ -0,0 +1,226 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import static java.util.Arrays.asList;
+import java.util.List;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.add;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.Optional;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.lessThan;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.none;
+import static org.clafer.ast.Asts.some;
+import static org.clafer.ast.Asts.StringType;
+import org.clafer.instance.InstanceModel;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class AssumptionTest {
+
+    /**
+     * <pre>
+     * A ?
+     * B ?
+     * C -> integer
+     * [some A => no B]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testAssumeAndRetract() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Optional);
+        AstConcreteClafer b = model.addChild("B").withCard(Optional);
+        AstConcreteClafer c = model.addChild("C").refTo(IntType).withCard(Mandatory);
+        model.addConstraint(implies(some(a), none(b)));
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(1).intLow(-1).intHigh(1));
+        assertEquals(9, solver.allInstances().length);
+
+        InstanceModel[] instances = solver.assume(Assumption.member(a, 0)).allInstances();
+        assertEquals(3, instances.length);
+        for (InstanceModel instance : instances) {
+            assertEquals(1, instance.getTopClafers(a).length);
+            assertEquals(0, instance.getTopClafers(b).length);
+        }
+
+        assertEquals(0, solver.assume(Assumption.member(a, 0), Assumption.member(b, 0)).allInstances().length);
+
+        instances = solver.assume(Assumption.none(a), Assumption.ref(c, 0, 1)).allInstances();
+        assertEquals(2, instances.length);
+        for (InstanceModel instance : instances) {
+            assertEquals(0, instance.getTopClafers(a).length);
+            assertEquals(1, instance.getTopClafer(c).getRef());
+        }
+
+        assertEquals(9, solver.retract().allInstances().length);
+    }
+
+    /**
+     * <pre>
+     * A
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testAssumeContradictsConstant() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Mandatory);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(1));
+        assertFalse(solver.assume(Assumption.notMember(a, 0)).find());
+        assertEquals(1, solver.retract().allInstances().length);
+    }
+
+    /**
+     * <pre>
+     * A ?
+     * B -> string
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testInvalidAssumptionChangesNothing() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Optional);
+        AstConcreteClafer b = model.addChild("B").refTo(StringType).withCard(Mandatory);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(1).stringLength(1).charLow('a').charHigh('b'));
+        int expected = solver.assume(Assumption.member(a, 0)).allInstances().length;
+        assertEquals(3, expected);
+        for (Assumption invalid : new Assumption[]{
+            Assumption.ref(a, 0, 1),
+            Assumption.ref(b, 0, 1),
+            Assumption.member(a, 1)}) {
+            solver.assume(Assumption.member(a, 0));
+            try {
+                solver.assume(Assumption.notMember(a, 0), invalid);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+            // The earlier assumption still holds.
+            InstanceModel[] instances = solver.allInstances();
+            assertEquals(expected, instances.length);
+            for (InstanceModel instance : instances) {
+                assertEquals(1, instance.getTopClafers(a).length);
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * A -> integer
+     *
+     * << max A >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testAssumeOptimize() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(Mandatory);
+
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, Scope.defaultScope(1).intLow(-2).intHigh(2),
+                Objective.maximize(joinRef(a)));
+        optimizer.assume(Assumption.refBetween(a, 0, -2, 0));
+        InstanceModel[] instances = optimizer.allInstances();
+        assertEquals(1, instances.length);
+        assertArrayEquals(new int[]{0}, optimizer.optimalValues());
+
+        optimizer.retract();
+        instances = optimizer.allInstances();
+        assertEquals(1, instances.length);
+        assertArrayEquals(new int[]{2}, optimizer.optimalValues());
+    }
+
+    /**
+     * <pre>
+     * A -> integer
+     *
+     * << max A >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testAssumeOptimizePortfolio() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(Mandatory);
+
+        ClaferOptimizer optimizer = ClaferCompiler.compile(model, Scope.defaultScope(1).intLow(-2).intHigh(2),
+                new Objective[]{Objective.maximize(joinRef(a))}, ClaferOption.Default.setPortfolioSize(2));
+        optimizer.assume(Assumption.refBetween(a, 0, -2, 0));
+        assertEquals(1, optimizer.allInstances().length);
+        assertArrayEquals(new int[]{0}, optimizer.optimalValues());
+
+        assertFalse(optimizer.assume(Assumption.notMember(a, 0)).find());
+
+        optimizer.retract();
+        assertEquals(1, optimizer.allInstances().length);
+        assertArrayEquals(new int[]{2}, optimizer.optimalValues());
+    }
+
+    private static List<List<Integer>> paretoFront(ClaferOptimizer optimizer) {
+        List<List<Integer>> front = new ArrayList<>();
+        while (optimizer.find()) {
+            List<Integer> point = new ArrayList<>();
+            for (int value : optimizer.optimalValues()) {
+                point.add(value);
+            }
+            front.add(point);
+        }
+        front.sort((p1, p2) -> p1.get(0) - p2.get(0));
+        return front;
+    }
+
+    /**
+     * <pre>
+     * A -> integer
+     * B -> integer
+     * [A.ref + B.ref < 2]
+     *
+     * << max A >>
+     * << max B >>
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testAssumeMultiObjective() {
+        for (ClaferOption options : new ClaferOption[]{
+            ClaferOption.Default,
+            ClaferOption.Default.setParetoArchive(true),
+            ClaferOption.Default.setPortfolioSize(2)}) {
+            AstModel model = newModel();
+
+            AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(Mandatory);
+            AstConcreteClafer b = model.addChild("B").refTo(IntType).withCard(Mandatory);
+            model.addConstraint(lessThan(add(joinRef(a), joinRef(b)), constant(2)));
+
+            ClaferOptimizer optimizer = ClaferCompiler.compile(model, Scope.defaultScope(1).intLow(-2).intHigh(2),
+                    new Objective[]{Objective.maximize(joinRef(a)), Objective.maximize(joinRef(b))}, options);
+            assertEquals(4, paretoFront(optimizer).size());
+
+            optimizer.assume(Assumption.refBetween(a, 0, -2, 0));
+            assertEquals(asList(asList(-1, 2), asList(0, 1)), paretoFront(optimizer));
+
+            assertFalse(optimizer.assume(Assumption.notMember(a, 0)).find());
+
+            optimizer.retract();
+            assertEquals(asList(asList(-1, 2), asList(0, 1), asList(1, 0), asList(2, -1)), paretoFront(optimizer));
+        }
+    }
+}
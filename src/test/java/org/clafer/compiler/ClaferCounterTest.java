@@ -0,0 +1,184 @@
+package org.clafer.compiler;
+
+import java.math.BigInteger;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.Optional;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.none;
+import static org.clafer.ast.Asts.some;
+import org.clafer.compiler.ClaferCounter.Estimate;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class ClaferCounterTest {
+
+    private static void assertCount(AstModel model, Scopable scope) {
+        assertEquals(BigInteger.valueOf(ClaferCompiler.compile(model, scope).allInstances().length),
+                ClaferCompiler.compileCounter(model, scope).count());
+    }
+
+    /**
+     * <pre>
+     * A ?
+     * B ?
+     * C ?
+     * [some A => no B]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testCountFeatures() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Optional);
+        AstConcreteClafer b = model.addChild("B").withCard(Optional);
+        model.addChild("C").withCard(Optional);
+        model.addConstraint(implies(some(a), none(b)));
+
+        assertEquals(BigInteger.valueOf(6), ClaferCompiler.compileCounter(model, Scope.defaultScope(1)).count());
+    }
+
+    /**
+     * <pre>
+     * A 0..3
+     *     B -> integer
+     *     C ?
+     * D 2
+     *     E ?
+     *         F -> integer
+     *             [this.ref > 0]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testCountMatchesEnumeration() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(0, 3);
+        a.addChild("B").refTo(IntType).withCard(Mandatory);
+        a.addChild("C").withCard(Optional);
+        AstConcreteClafer d = model.addChild("D").withCard(2, 2);
+        AstConcreteClafer e = d.addChild("E").withCard(Optional);
+        AstConcreteClafer f = e.addChild("F").refTo(IntType).withCard(Mandatory);
+        f.addConstraint(greaterThan(joinRef(f), constant(0)));
+
+        assertCount(model, Scope.defaultScope(3).intLow(-1).intHigh(2));
+    }
+
+    /**
+     * <pre>
+     * abstract Feature
+     *     Cost -> integer
+     * A : Feature ?
+     * B : Feature ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testCountAbstract() {
+        AstModel model = newModel();
+
+        AstAbstractClafer feature = model.addAbstract("Feature");
+        feature.addChild("Cost").refTo(IntType).withCard(Mandatory);
+        model.addChild("A").extending(feature).withCard(Optional);
+        model.addChild("B").extending(feature).withCard(Optional);
+
+        assertCount(model, Scope.defaultScope(2).intLow(0).intHigh(2));
+    }
+
+    /**
+     * <pre>
+     * F0 ?
+     * F1 ?
+     * ...
+     * F39 ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testCountWithoutEnumeration() {
+        AstModel model = newModel();
+
+        for (int i = 0; i < 40; i++) {
+            model.addChild("F" + i).withCard(Optional);
+        }
+
+        ClaferCounter counter = ClaferCompiler.compileCounter(model, Scope.defaultScope(1));
+        assertEquals(BigInteger.ONE.shiftLeft(40), counter.count());
+    }
+
+    /**
+     * <pre>
+     * A
+     * [no A]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testCountUnsat() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Mandatory);
+        model.addConstraint(none(a));
+
+        ClaferCounter counter = ClaferCompiler.compileCounter(model, Scope.defaultScope(1));
+        assertEquals(BigInteger.ZERO, counter.count());
+        assertEquals(BigInteger.ZERO, counter.estimate(10, 0.9).getUpperBound());
+    }
+
+    /**
+     * <pre>
+     * F0 ?
+     * F1 ?
+     * ...
+     * F9 ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testEstimate() {
+        AstModel model = newModel();
+
+        for (int i = 0; i < 10; i++) {
+            model.addChild("F" + i).withCard(Optional);
+        }
+
+        Estimate estimate = ClaferCompiler.compileCounter(model, Scope.defaultScope(1)).estimate(16, 0.95);
+        // Every path is exact since the features are independent.
+        assertEquals(BigInteger.valueOf(1024), estimate.getEstimate());
+        assertEquals(BigInteger.valueOf(1024), estimate.getUpperBound());
+        assertTrue(estimate.getLowerBound().compareTo(BigInteger.valueOf(1024)) <= 0);
+        assertTrue(estimate.getLowerBound().signum() > 0);
+    }
+
+    /**
+     * <pre>
+     * A 0..3
+     *     B -> integer
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testEstimateBounds() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(0, 3);
+        a.addChild("B").refTo(IntType).withCard(Mandatory);
+
+        ClaferCounter counter = ClaferCompiler.compileCounter(model, Scope.defaultScope(3).intLow(0).intHigh(3));
+        Estimate estimate = counter.estimate(200, 0.999);
+        BigInteger count = counter.count();
+        assertTrue(estimate.getLowerBound().compareTo(estimate.getEstimate()) <= 0);
+        assertTrue(estimate.getEstimate().compareTo(estimate.getUpperBound()) <= 0);
+        assertTrue(estimate.getLowerBound().compareTo(count) <= 0);
+        assertEquals(count, counter.estimate(10, 0.5).getEstimate());
+    }
+}
@@ -0,0 +1,115 @@
+package org.clafer.compiler;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.Optional;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.none;
+import static org.clafer.ast.Asts.some;
+import org.clafer.instance.InstanceModel;
+import org.clafer.scope.Scopable;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class ClaferDecomposedSolverTest {
+
+    private static Set<InstanceModel> instances(ClaferSearch search) {
+        Set<InstanceModel> instances = new HashSet<>();
+        while (search.find()) {
+            assertTrue(instances.add(search.instance()));
+        }
+        return instances;
+    }
+
+    private static void assertSameInstances(AstModel model, Scopable scope) {
+        Set<InstanceModel> expected = new HashSet<>(Arrays.asList(ClaferCompiler.compile(model, scope).allInstances()));
+        ClaferDecomposedSolver solver = ClaferCompiler.compileDecomposed(model, scope);
+        assertEquals(expected, instances(solver));
+        assertEquals(BigInteger.valueOf(expected.size()), solver.countInstances());
+    }
+
+    /**
+     * <pre>
+     * A ?
+     *     B -> integer
+     *         [this.ref > 0]
+     * C ?
+     * D ?
+     * [some C => no D]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testIndependentTrees() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Optional);
+        AstConcreteClafer b = a.addChild("B").refTo(IntType).withCard(Mandatory);
+        b.addConstraint(greaterThan(joinRef(b), constant(0)));
+        AstConcreteClafer c = model.addChild("C").withCard(Optional);
+        AstConcreteClafer d = model.addChild("D").withCard(Optional);
+        model.addConstraint(implies(some(c), none(d)));
+
+        Scopable scope = Scope.defaultScope(1).intLow(-2).intHigh(2);
+        assertTrue(ClaferCompiler.compileDecomposed(model, scope).getParts() > 1);
+        assertSameInstances(model, scope);
+    }
+
+    /**
+     * <pre>
+     * A 0..2
+     *     B -> integer
+     * C 0..2
+     *     D ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testCountBeforeFind() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(0, 2);
+        a.addChild("B").refTo(IntType).withCard(Mandatory);
+        AstConcreteClafer c = model.addChild("C").withCard(0, 2);
+        c.addChild("D").withCard(Optional);
+
+        Scopable scope = Scope.defaultScope(2).intLow(0).intHigh(1);
+        int expected = ClaferCompiler.compile(model, scope).allInstances().length;
+        ClaferDecomposedSolver solver = ClaferCompiler.compileDecomposed(model, scope);
+        assertEquals(BigInteger.valueOf(expected), solver.countInstances());
+        assertEquals(expected, instances(solver).size());
+    }
+
+    /**
+     * <pre>
+     * A
+     * [no A]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testUnsat() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Mandatory);
+        model.addConstraint(none(a));
+
+        ClaferDecomposedSolver solver = ClaferCompiler.compileDecomposed(model, Scope.defaultScope(1));
+        assertFalse(solver.find());
+        assertEquals(BigInteger.ZERO, solver.countInstances());
+    }
+}
@@ -0,0 +1,162 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.Optional;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.equal;
+import static org.clafer.ast.Asts.greaterThanEqual;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.none;
+import static org.clafer.ast.Asts.some;
+import org.clafer.compiler.ClaferBackbone.Status;
+import org.clafer.compiler.ClaferQueries.Answer;
+import org.clafer.compiler.ClaferQueries.QueryResult;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class ClaferQueriesTest {
+
+    /**
+     * <pre>
+     * A ?
+     * B ?
+     * C ?
+     * [some A => no B]
+     * [some C => some A]
+     * </pre>
+     */
+    private static AstModel model(AstConcreteClafer[] features) {
+        AstModel model = newModel();
+
+        features[0] = model.addChild("A").withCard(Optional);
+        features[1] = model.addChild("B").withCard(Optional);
+        features[2] = model.addChild("C").withCard(Optional);
+        model.addConstraint(implies(some(features[0]), none(features[1])));
+        model.addConstraint(implies(some(features[2]), some(features[0])));
+        return model;
+    }
+
+    @Test(timeout = 60000)
+    public void testQuery() {
+        AstConcreteClafer[] features = new AstConcreteClafer[3];
+        AstModel model = model(features);
+        AstConcreteClafer a = features[0];
+        AstConcreteClafer b = features[1];
+        AstConcreteClafer c = features[2];
+
+        for (int threads = 1; threads <= 3; threads++) {
+            ClaferQueries queries = ClaferCompiler.compileQueries(model, Scope.defaultScope(1), threads);
+            QueryResult[] results = queries.query(
+                    new Assumption[]{Assumption.member(a, 0)},
+                    new Assumption[]{Assumption.member(a, 0), Assumption.member(b, 0)},
+                    new Assumption[]{Assumption.member(c, 0), Assumption.none(a)},
+                    new Assumption[]{Assumption.member(c, 0)},
+                    new Assumption[]{Assumption.member(b, 0), Assumption.notMember(c, 0)});
+            assertEquals(Answer.Sat, results[0].getAnswer());
+            assertEquals(Answer.Unsat, results[1].getAnswer());
+            assertEquals(Answer.Unsat, results[2].getAnswer());
+            assertEquals(Answer.Sat, results[3].getAnswer());
+            assertEquals(Answer.Sat, results[4].getAnswer());
+            for (QueryResult result : results) {
+                assertNull(result.getWitness());
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testWitnessImpliesLaterQueries() {
+        AstConcreteClafer[] features = new AstConcreteClafer[3];
+        AstModel model = model(features);
+        AstConcreteClafer a = features[0];
+        AstConcreteClafer b = features[1];
+        AstConcreteClafer c = features[2];
+
+        ClaferQueries queries = ClaferCompiler.compileQueries(model, Scope.defaultScope(1), 1);
+        List<Assumption[]> batch = new ArrayList<>();
+        batch.add(new Assumption[]{Assumption.member(c, 0)});
+        // Every instance with C also has A and not B.
+        batch.add(new Assumption[]{Assumption.member(a, 0)});
+        batch.add(new Assumption[]{Assumption.notMember(b, 0)});
+        QueryResult[] results = queries.query(batch, true);
+
+        assertTrue(results[0].isSat());
+        assertFalse(results[0].isImplied());
+        assertEquals(1, results[0].getWitness().getTopClafers(c).length);
+        for (int i = 1; i < results.length; i++) {
+            assertTrue(results[i].isSat());
+            assertTrue(results[i].isImplied());
+            assertEquals(results[0].getWitness(), results[i].getWitness());
+        }
+    }
+
+    /**
+     * <pre>
+     * A ?
+     * B ?
+     * C ?
+     * [some A => no B]
+     * [some C => some A]
+     * D -> integer
+     *     [this.ref >= 0]
+     * E ?
+     * [no E]
+     * F
+     * G -> integer
+     *     [this.ref = 1]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testBackbone() {
+        AstConcreteClafer[] features = new AstConcreteClafer[3];
+        AstModel model = model(features);
+        AstConcreteClafer d = model.addChild("D").refTo(IntType).withCard(Mandatory);
+        model.addConstraint(greaterThanEqual(joinRef(d), constant(0)));
+        AstConcreteClafer e = model.addChild("E").withCard(Optional);
+        model.addConstraint(none(e));
+        AstConcreteClafer f = model.addChild("F").withCard(Mandatory);
+        AstConcreteClafer g = model.addChild("G").refTo(IntType).withCard(Mandatory);
+        model.addConstraint(equal(joinRef(g), constant(1)));
+
+        for (int threads = 1; threads <= 3; threads++) {
+            ClaferBackbone backbone = ClaferCompiler.backbone(model, Scope.defaultScope(1).intLow(-1).intHigh(1), threads);
+            for (AstConcreteClafer feature : features) {
+                assertEquals(Status.Free, backbone.getMember(feature, 0));
+            }
+            assertEquals(Status.Forced, backbone.getMember(d, 0));
+            assertEquals(Status.Forbidden, backbone.getRef(d, 0, -1));
+            assertEquals(Status.Free, backbone.getRef(d, 0, 0));
+            assertEquals(Status.Free, backbone.getRef(d, 0, 1));
+            assertTrue(backbone.isDead(e));
+            assertFalse(backbone.isCore(e));
+            assertTrue(backbone.isCore(f));
+            assertFalse(backbone.isDead(f));
+            assertEquals(Status.Forced, backbone.getRef(g, 0, 1));
+            assertEquals(Status.Forbidden, backbone.getRef(g, 0, 0));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testBackboneUnsat() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Mandatory);
+        model.addConstraint(none(a));
+
+        assertNull(ClaferCompiler.backbone(model, Scope.defaultScope(1), 2));
+    }
+}
@@ -0,0 +1,139 @@
+package org.clafer.compiler;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.Optional;
+import static org.clafer.ast.Asts.implies;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.none;
+import static org.clafer.ast.Asts.some;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class ClaferSamplerTest {
+
+    /**
+     * <pre>
+     * A ?
+     * B ?
+     * C ?
+     * [some A => no B]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testExhaustSmallSpace() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Optional);
+        AstConcreteClafer b = model.addChild("B").withCard(Optional);
+        model.addChild("C").withCard(Optional);
+        model.addConstraint(implies(some(a), none(b)));
+
+        for (int threads = 1; threads <= 2; threads++) {
+            ClaferSampler sampler = ClaferCompiler.compileSampler(model, Scope.defaultScope(1), 100, threads);
+            Set<InstanceModel> samples = new HashSet<>();
+            while (sampler.find()) {
+                assertTrue(samples.add(sampler.instance()));
+            }
+            assertEquals(6, samples.size());
+            assertEquals(6, sampler.instanceCount());
+        }
+    }
+
+    /**
+     * <pre>
+     * A *
+     *     B -> integer
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testTargetSamples() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(0, 4);
+        a.addChild("B").refTo(IntType).withCard(Mandatory);
+
+        for (int threads = 1; threads <= 2; threads++) {
+            ClaferSampler sampler = ClaferCompiler.compileSampler(model, Scope.defaultScope(4).intLow(-4).intHigh(4),
+                    10, threads);
+            Set<InstanceModel> samples = new HashSet<>();
+            while (sampler.find()) {
+                assertTrue(samples.add(sampler.instance()));
+            }
+            assertEquals(10, samples.size());
+        }
+    }
+
+    /**
+     * <pre>
+     * A0 ?
+     * A1 ?
+     * ...
+     * A7 ?
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testConcurrentSamplesAreFar() {
+        AstModel model = newModel();
+
+        for (int i = 0; i < 8; i++) {
+            model.addChild("A" + i).withCard(Optional);
+        }
+
+        for (int threads = 1; threads <= 4; threads++) {
+            for (int repeat = 0; repeat < 10; repeat++) {
+                ClaferSampler sampler = ClaferCompiler.compileSampler(model, Scope.defaultScope(1), 2, threads);
+                assertTrue(sampler.find());
+                Set<String> first = names(sampler.instance());
+                assertTrue(sampler.find());
+                Set<String> second = names(sampler.instance());
+                assertFalse(sampler.find());
+
+                // Every instance has one that differs in all 8 Clafers, so the
+                // second sample is at least half of them away from the first.
+                Set<String> differ = new HashSet<>(first);
+                differ.addAll(second);
+                first.retainAll(second);
+                differ.removeAll(first);
+                assertTrue(differ.size() >= 4);
+            }
+        }
+    }
+
+    private static Set<String> names(InstanceModel instance) {
+        Set<String> names = new HashSet<>();
+        for (InstanceClafer clafer : instance.getTopClafers()) {
+            names.add(clafer.getType().getName());
+        }
+        return names;
+    }
+
+    /**
+     * <pre>
+     * A
+     * [no A]
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testUnsat() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(Mandatory);
+        model.addConstraint(none(a));
+
+        assertFalse(ClaferCompiler.compileSampler(model, Scope.defaultScope(1), 10, 2).find());
+    }
+}
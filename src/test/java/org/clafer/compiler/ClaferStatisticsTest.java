@@ -0,0 +1,127 @@
+package org.clafer.compiler;
+
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.compiler.ClaferStatistics.Phase;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class ClaferStatisticsTest {
+
+    @Test(timeout = 60000)
+    public void testCompilePhases() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A").refTo(IntType).withCard(1, 3);
+        a.addChild("B").withCard(0, 1);
+
+        ClaferStatistics statistics = new ClaferStatistics();
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(3).intLow(-1).intHigh(1),
+                ClaferOption.Default.setStatistics(statistics));
+        assertTrue(solver.find());
+
+        Phase astCompile = statistics.getPhase("astCompile");
+        assertNotNull(astCompile);
+        assertTrue(astCompile.getWallTime() > 0);
+        assertTrue(astCompile.getCounters().get("irConstraints") > 0);
+        assertNotNull(statistics.getPhase("astCompile/TypeAnalyzer"));
+
+        Phase fbbt = statistics.getPhase("optimize/FBBT");
+        assertNotNull(fbbt);
+        assertTrue(fbbt.getCounters().get("irConstraintsAfter") <= fbbt.getCounters().get("irConstraintsBefore"));
+        Phase optimize = statistics.getPhase("optimize");
+        assertEquals(statistics.getPhase("optimize/LinearEquationOptimizer").getCounters().get("irConstraintsAfter"),
+                optimize.getCounters().get("irConstraints"));
+
+        Phase irCompile = statistics.getPhase("irCompile");
+        assertEquals(solver.getInternalSolver().getModel().getNbVars(),
+                irCompile.getCounters().get("chocoVariables").intValue());
+        assertTrue(statistics.toJson().startsWith("{\"phases\":["));
+    }
+
+    @Test(timeout = 60000)
+    public void testNestedPhases() {
+        ClaferStatistics statistics = new ClaferStatistics();
+        statistics.phase("outer", () -> {
+            statistics.count("count", 1);
+            return statistics.phase("inner", () -> null);
+        });
+        assertEquals(2, statistics.getPhases().size());
+        assertEquals("outer", statistics.getPhases().get(0).getName());
+        assertEquals("outer/inner", statistics.getPhases().get(1).getName());
+        assertEquals(1L, statistics.getPhase("outer").getCounters().get("count").longValue());
+        assertTrue(statistics.getPhase("outer").getWallTime() >= statistics.getPhase("outer/inner").getWallTime());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentPhases() throws InterruptedException {
+        ClaferStatistics statistics = new ClaferStatistics();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            String name = "thread" + i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    statistics.phase(name, () -> {
+                        statistics.count("count", 1);
+                        return statistics.phase("inner", () -> null);
+                    });
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threads.length * 200, statistics.getPhases().size());
+        for (Phase phase : statistics.getPhases()) {
+            // Every thread nests its own phases.
+            assertTrue(phase.getName().matches("thread\\d(/inner)?"));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testWorker() throws InterruptedException {
+        ClaferStatistics statistics = new ClaferStatistics();
+        statistics.phase("outer", () -> {
+            Phase outer = statistics.getCurrentPhase();
+            Thread worker = new Thread(() -> statistics.worker(outer, () -> new byte[1 << 20]));
+            worker.start();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+        Phase outer = statistics.getPhase("outer");
+        assertFalse(outer.isCallerThreadOnly());
+        if (outer.getAllocatedBytes() != -1) {
+            assertTrue(outer.getAllocatedBytes() >= 1 << 20);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testCallerThreadOnly() {
+        ClaferStatistics statistics = new ClaferStatistics();
+        statistics.phase("outer", () -> {
+            statistics.phase("parallel", () -> {
+                statistics.callerThreadOnly();
+                return null;
+            });
+            return statistics.phase("sequential", () -> null);
+        });
+        assertTrue(statistics.getPhase("outer").isCallerThreadOnly());
+        assertTrue(statistics.getPhase("outer/parallel").isCallerThreadOnly());
+        assertFalse(statistics.getPhase("outer/sequential").isCallerThreadOnly());
+        assertTrue(statistics.toJson().contains("\"callerThreadOnly\":true"));
+    }
+}
@@ -0,0 +1,181 @@
+package org.clafer.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstClafer;
+import org.clafer.ast.AstCompare;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import org.clafer.ast.AstUtil;
+import static org.clafer.ast.Asts.$this;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.greaterThan;
+import static org.clafer.ast.Asts.join;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.sum;
+import org.clafer.ast.analysis.Analysis;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author jimmy
+ */
+public class CompiledModelCacheTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * <pre>
+     * abstract Feature
+     *     Cost -> integer
+     * Backup : Feature ?
+     *     [this.Cost.ref > 2]
+     * Firewall : Feature ?
+     * </pre>
+     */
+    private static AstModel newFeatureModel() {
+        AstModel model = newModel();
+
+        AstAbstractClafer feature = model.addAbstract("Feature");
+        AstConcreteClafer cost = feature.addChild("Cost").withCard(1, 1).refTo(IntType);
+        AstConcreteClafer backup = model.addChild("Backup").withCard(0, 1).extending(feature);
+        model.addChild("Firewall").withCard(0, 1).extending(feature);
+        backup.addConstraint(greaterThan(joinRef(join($this(), cost)), constant(2)));
+        return model;
+    }
+
+    private static AstClafer getClafer(AstModel model, String name) {
+        return AstUtil.getClafers(model).stream().filter(x -> x.getName().equals(name)).findFirst().get();
+    }
+
+    private static Objective maximizeCost(AstModel model) {
+        return Objective.maximize(sum(global(getClafer(model, "Cost"))));
+    }
+
+    private static int countEntries(Path directory) throws IOException {
+        return (int) Files.list(directory).filter(x -> x.toString().endsWith(".model")).count();
+    }
+
+    @Test(timeout = 60000)
+    public void testSolverCacheHit() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        ClaferOption options = ClaferOption.Default.setCompiledModelCache(directory);
+        Scope scope = Scope.defaultScope(2).intLow(0).intHigh(3).toScope();
+
+        ClaferSolver miss = ClaferCompiler.compile(newFeatureModel(), scope, options);
+        assertEquals(1, countEntries(directory));
+        int expected = miss.allInstances().length;
+
+        AstModel model = newFeatureModel();
+        ClaferSolver hit = ClaferCompiler.compile(model, scope, options);
+        assertEquals(1, countEntries(directory));
+        assertSame(model, hit.getSolutionMap().getAstSolution().getModel());
+        InstanceModel[] instances = hit.allInstances();
+        assertEquals(expected, instances.length);
+        for (InstanceModel instance : instances) {
+            for (InstanceClafer top : instance.getTopClafers()) {
+                assertSame(getClafer(model, top.getType().getName()), top.getType());
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testAnalysisOfCallerExprs() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        ClaferOption options = ClaferOption.Default.setCompiledModelCache(directory);
+        Scope scope = Scope.defaultScope(2).intLow(0).intHigh(3).toScope();
+
+        AstModel missModel = newFeatureModel();
+        AstCompare missExpr = (AstCompare) getClafer(missModel, "Backup").getConstraints().get(0).getExpr();
+        Analysis miss = ClaferCompiler.compile(missModel, scope, options).getSolutionMap().getAstSolution().getAnalysis();
+
+        AstModel hitModel = newFeatureModel();
+        AstCompare hitExpr = (AstCompare) getClafer(hitModel, "Backup").getConstraints().get(0).getExpr();
+        Analysis hit = ClaferCompiler.compile(hitModel, scope, options).getSolutionMap().getAstSolution().getAnalysis();
+        assertEquals(1, countEntries(directory));
+
+        // The constant is typed as is, so the analysis is keyed by the very
+        // expression of the model.
+        assertEquals(miss.getType(missExpr.getRight()), hit.getType(hitExpr.getRight()));
+    }
+
+    @Test(timeout = 60000)
+    public void testOptimizerCacheHit() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        ClaferOption options = ClaferOption.Default.setCompiledModelCache(directory);
+        Scope scope = Scope.defaultScope(2).intLow(0).intHigh(3).toScope();
+
+        AstModel model1 = newFeatureModel();
+        ClaferOptimizer miss = ClaferCompiler.compile(model1, scope, new Objective[]{maximizeCost(model1)}, options);
+        assertEquals(1, countEntries(directory));
+        assertTrue(miss.find());
+        int[] expected = miss.optimalValues();
+
+        AstModel model2 = newFeatureModel();
+        ClaferOptimizer hit = ClaferCompiler.compile(model2, scope, new Objective[]{maximizeCost(model2)}, options);
+        assertEquals(1, countEntries(directory));
+        assertTrue(hit.find());
+        assertArrayEquals(expected, hit.optimalValues());
+    }
+
+    @Test(timeout = 60000)
+    public void testKeyIncludesScopeAndOptions() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        ClaferOption options = ClaferOption.Default.setCompiledModelCache(directory);
+
+        ClaferCompiler.compile(newFeatureModel(), Scope.defaultScope(2), options);
+        ClaferCompiler.compile(newFeatureModel(), Scope.defaultScope(3), options);
+        ClaferCompiler.compile(newFeatureModel(), Scope.defaultScope(3), options.basicOptimizations());
+        ClaferCompiler.compileUnsat(newFeatureModel(), Scope.defaultScope(3), options);
+        assertEquals(4, countEntries(directory));
+
+        AstModel model = newFeatureModel();
+        getClafer(model, "Firewall").addConstraint(greaterThan(joinRef(join($this(),
+                getClafer(model, "Cost"))), constant(1)));
+        ClaferCompiler.compile(model, Scope.defaultScope(3), options);
+        assertEquals(5, countEntries(directory));
+    }
+
+    @Test(timeout = 60000)
+    public void testCorruptEntry() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        ClaferOption options = ClaferOption.Default.setCompiledModelCache(directory);
+        Scope scope = Scope.defaultScope(2).intLow(0).intHigh(3).toScope();
+
+        int expected = ClaferCompiler.compile(newFeatureModel(), scope, options).allInstances().length;
+        for (File entry : directory.toFile().listFiles()) {
+            Files.write(entry.toPath(), new byte[]{1, 2, 3});
+        }
+        assertEquals(expected, ClaferCompiler.compile(newFeatureModel(), scope, options).allInstances().length);
+        assertEquals(expected, ClaferCompiler.compile(newFeatureModel(), scope, options).allInstances().length);
+    }
+
+    @Test(timeout = 60000)
+    public void testUnwritableDirectory() throws IOException {
+        // The cache directory cannot be created where a file already exists.
+        Path directory = folder.newFile().toPath();
+        ClaferOption options = ClaferOption.Default.setCompiledModelCache(directory);
+        Scope scope = Scope.defaultScope(2).intLow(0).intHigh(3).toScope();
+
+        int expected = ClaferCompiler.compile(newFeatureModel(), scope).allInstances().length;
+        assertEquals(expected, ClaferCompiler.compile(newFeatureModel(), scope, options).allInstances().length);
+        assertEquals(expected, ClaferCompiler.compile(newFeatureModel(), scope, options).allInstances().length);
+    }
+}
@@ -0,0 +1,95 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.chocosolver.solver.Solution;
+import org.clafer.ast.AstAbstractClafer;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.instance.InstanceClafer;
+import org.clafer.instance.InstanceModel;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class LazyInstanceModelTest {
+
+    /**
+     * <pre>
+     * abstract A
+     *     Cost -> integer
+     * B : A 2
+     * C : A *
+     *     D ?
+     * E -> A
+     * F -> E *
+     * </pre>
+     */
+    @Test(timeout = 60000)
+    public void testSameAsEagerInstance() {
+        AstModel model = newModel();
+
+        AstAbstractClafer a = model.addAbstract("A");
+        a.addChild("Cost").refTo(IntType).withCard(Mandatory);
+        model.addChild("B").extending(a).withCard(2, 2);
+        AstConcreteClafer c = model.addChild("C").extending(a);
+        c.addChild("D").withCard(0, 1);
+        AstConcreteClafer e = model.addChild("E").refTo(a).withCard(Mandatory);
+        model.addChild("F").refTo(e);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(3).intLow(-1).intHigh(1));
+        ClaferSolutionMap solutionMap = solver.getSolutionMap();
+        int count = 0;
+        while (solver.find()) {
+            InstanceModel eager = solver.instance();
+            InstanceModel lazy = solutionMap.getInstance(new Solution(solver.getInternalSolver().getModel()).record());
+            assertEquals(eager.toString(), lazy.toString());
+            assertEquals(eager, lazy);
+            assertEquals(eager.hashCode(), lazy.hashCode());
+
+            // References point into the tree of the instance.
+            InstanceClafer ref = (InstanceClafer) lazy.getTopClafer(e).getRef();
+            boolean found = false;
+            for (InstanceClafer top : lazy.getTopClafers()) {
+                if (top.getType().equals(ref.getType()) && top.getId() == ref.getId()) {
+                    assertSame(top, ref);
+                    found = true;
+                }
+            }
+            assertTrue(found);
+            count++;
+        }
+        assertTrue(count > 1);
+    }
+
+    @Test(timeout = 60000)
+    public void testInstanceSnapshot() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A").refTo(IntType);
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(2).intLow(-1).intHigh(1));
+        List<InstanceModel> snapshots = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        while (solver.find()) {
+            snapshots.add(solver.instanceSnapshot());
+            expected.add(solver.instance().toString());
+        }
+        // Read the snapshots after the solver has moved on.
+        String[] actual = new String[snapshots.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = snapshots.get(i).toString();
+        }
+        assertArrayEquals(expected.toArray(), actual);
+        assertTrue(actual.length > 1);
+    }
+}
@@ -0,0 +1,222 @@
+package org.clafer.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.NodeCounter;
+import org.chocosolver.solver.search.loop.move.Move;
+import org.chocosolver.solver.search.loop.move.MoveRestart;
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.add;
+import static org.clafer.ast.Asts.card;
+import static org.clafer.ast.Asts.constant;
+import static org.clafer.ast.Asts.equal;
+import static org.clafer.ast.Asts.global;
+import static org.clafer.ast.Asts.joinRef;
+import static org.clafer.ast.Asts.lessThan;
+import static org.clafer.ast.Asts.mul;
+import static org.clafer.ast.Asts.newModel;
+import static org.clafer.ast.Asts.sum;
+import org.clafer.instance.InstanceModel;
+import org.clafer.objective.Objective;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class PortfolioTest {
+
+    private static final ClaferOption Portfolio = ClaferOption.Default.setPortfolioSize(4);
+
+    /**
+     * <pre>
+     * A -> integer *
+     * B -> integer
+     * [#A + B.ref < 4]
+     * </pre>
+     */
+    private static AstModel newIntModel() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A").withCard(0, 3).refTo(IntType);
+        AstConcreteClafer b = model.addChild("B").withCard(1, 1).refTo(IntType);
+        model.addConstraint(lessThan(add(card(global(a)), joinRef(b)), constant(4)));
+        return model;
+    }
+
+    private static Set<String> distinct(InstanceModel[] instances) {
+        Set<String> distinct = new HashSet<>();
+        for (InstanceModel instance : instances) {
+            distinct.add(instance.toString());
+        }
+        return distinct;
+    }
+
+    @Test(timeout = 60000)
+    public void testAllInstances() {
+        Scope scope = Scope.defaultScope(3).intLow(-1).intHigh(2).toScope();
+        InstanceModel[] expected = ClaferCompiler.compile(newIntModel(), scope).allInstances();
+
+        ClaferSolver solver = ClaferCompiler.compile(newIntModel(), scope, Portfolio);
+        assertTrue(solver instanceof ClaferPortfolioSolver);
+        InstanceModel[] instances = solver.allInstances();
+        assertEquals(expected.length, instances.length);
+        assertEquals(distinct(expected), distinct(instances));
+    }
+
+    @Test(timeout = 60000)
+    public void testUnsat() {
+        AstModel model = newIntModel();
+        AstConcreteClafer c = model.addChild("C").withCard(1, 1).refTo(IntType);
+        model.addConstraint(equal(mul(joinRef(c), joinRef(c)), constant(2)));
+
+        ClaferSolver solver = ClaferCompiler.compile(model, Scope.defaultScope(3).intLow(-10).intHigh(10), Portfolio);
+        assertFalse(solver.find());
+        assertEquals(0, solver.instanceCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testMaximize() {
+        AstModel model = newIntModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+        Scope scope = Scope.defaultScope(3).intLow(-2).intHigh(2).toScope();
+        Objective objective = Objective.maximize(add(card(global(a)), sum(global(a))));
+
+        ClaferOptimizer sequential = ClaferCompiler.compile(model, scope, objective);
+        InstanceModel[] expected = sequential.allInstances();
+        int[] expectedValues = sequential.optimalValues();
+
+        ClaferOptimizer portfolio = ClaferCompiler.compile(model, scope, new Objective[]{objective}, Portfolio);
+        InstanceModel[] instances = portfolio.allInstances();
+        assertArrayEquals(expectedValues, portfolio.optimalValues());
+        assertEquals(expected.length, instances.length);
+        assertEquals(distinct(expected), distinct(instances));
+    }
+
+    @Test(timeout = 60000)
+    public void testMinimize() {
+        AstModel model = newIntModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+        AstConcreteClafer b = model.getChildren().get(1);
+        Scope scope = Scope.defaultScope(3).intLow(-2).intHigh(2).toScope();
+        Objective objective = Objective.minimize(mul(sum(global(a)), joinRef(b)));
+
+        ClaferOptimizer sequential = ClaferCompiler.compile(model, scope, objective);
+        assertTrue(sequential.find());
+        int[] expectedValues = sequential.optimalValues();
+
+        for (int size = 2; size <= 6; size++) {
+            ClaferOptimizer portfolio = ClaferCompiler.compile(model, scope, new Objective[]{objective},
+                    ClaferOption.Default.setPortfolioSize(size));
+            assertTrue(portfolio.find());
+            assertArrayEquals(expectedValues, portfolio.optimalValues());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testParetoFront() {
+        AstModel model = newIntModel();
+        AstConcreteClafer a = model.getChildren().get(0);
+        AstConcreteClafer b = model.getChildren().get(1);
+        AstConcreteClafer c = model.addChild("C").withCard(1, 1).refTo(IntType);
+        model.addConstraint(lessThan(add(joinRef(b), joinRef(c)), constant(3)));
+        Scope scope = Scope.defaultScope(3).intLow(-3).intHigh(3).toScope();
+        Objective[] objectives = {
+            Objective.maximize(joinRef(b)),
+            Objective.maximize(joinRef(c)),
+            Objective.minimize(card(global(a)))};
+
+        ClaferOptimizer sequential = ClaferCompiler.compile(model, scope, objectives);
+        Set<String> expectedFront = new HashSet<>();
+        Set<String> expected = new HashSet<>();
+        while (sequential.find()) {
+            expectedFront.add(Arrays.toString(sequential.optimalValues()));
+            expected.add(sequential.instance().toString());
+        }
+        assertTrue(expectedFront.size() > 1);
+
+        for (int size = 2; size <= 9; size++) {
+            ClaferOptimizer parallel = ClaferCompiler.compile(model, scope, objectives,
+                    ClaferOption.Default.setPortfolioSize(size));
+            Set<String> front = new HashSet<>();
+            Set<String> instances = new HashSet<>();
+            while (parallel.find()) {
+                front.add(Arrays.toString(parallel.optimalValues()));
+                instances.add(parallel.instance().toString());
+            }
+            assertEquals(expectedFront, front);
+            assertEquals(expected, instances);
+            assertEquals(sequential.instanceCount(), parallel.instanceCount());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLimitTime() {
+        AstModel model = newIntModel();
+
+        AstConcreteClafer a = model.addChild("C").refTo(IntType);
+        AstConcreteClafer b = model.addChild("D").refTo(IntType);
+        AstConcreteClafer c = model.addChild("E").refTo(IntType);
+        model.addConstraint(equal(
+                add(mul(joinRef(a), joinRef(a), joinRef(a)),
+                        mul(joinRef(b), joinRef(b), joinRef(b))),
+                mul(joinRef(c), joinRef(c), joinRef(c))));
+
+        ClaferOptimizer solver = ClaferCompiler.compile(model, Scope.defaultScope(10),
+                new Objective[]{Objective.maximize(joinRef(a))}, Portfolio);
+        long start = System.currentTimeMillis();
+        solver.limitTime(1000);
+        try {
+            solver.allInstances();
+            fail("Expected timeout.");
+        } catch (ReachedLimitException rle) {
+            assertTrue(System.currentTimeMillis() - start >= 1000);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testRaceResult() {
+        Portfolio portfolio = new Portfolio(new Model().getSolver(), new Model().getSolver());
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new ReachedLimitException();
+        });
+        tasks.add(() -> false);
+        Portfolio.Winner<Boolean> won = portfolio.race(tasks);
+        assertEquals(1, won.getIndex());
+        assertFalse(won.getResult());
+
+        tasks.set(1, tasks.get(0));
+        assertNull(portfolio.race(tasks));
+    }
+
+    @Test(timeout = 60000)
+    public void testRestoreRestarts() {
+        Solver first = new Model().getSolver();
+        Solver second = new Model().getSolver();
+        second.setLubyRestart(2, 16, new NodeCounter(second.getModel(), 2), Integer.MAX_VALUE);
+        Move restart = second.getMove();
+        assertTrue(restart instanceof MoveRestart);
+
+        Portfolio portfolio = new Portfolio(first, second);
+        portfolio.dropRestarts(1);
+        assertFalse(second.getMove() instanceof MoveRestart);
+        portfolio.restoreRestarts();
+        assertSame(restart, second.getMove());
+    }
+}
@@ -200,4 +200,28 @@ public class ReachedLimitTest {
             assertTrue(System.currentTimeMillis() - start >= 1000);
         }
     }
+
+    @Test(timeout = 60000)
+    public void testLimitTimeMinimalUnsatCore() {
+        AstModel model = newModel();
+
+        AstConcreteClafer a = model.addChild("A").withCard(1).refTo(IntType);
+        AstConcreteClafer b = model.addChild("B").withCard(1).refTo(IntType);
+        AstConcreteClafer c = model.addChild("C").withCard(1).refTo(IntType);
+        model.addConstraint(equal(
+                mul(joinRef(a), joinRef(a), joinRef(a)),
+                add(
+                        mul(joinRef(b), joinRef(b), joinRef(b)),
+                        mul(joinRef(c), joinRef(c), joinRef(c)))));
+
+        ClaferUnsat solver = ClaferCompiler.compileUnsat(model, Scope.defaultScope(10).intLow(2).intHigh(100));
+        long start = System.currentTimeMillis();
+        solver.limitTime(1000);
+        try {
+            solver.minimalUnsatCores(2);
+            fail("Expected timeout.");
+        } catch (ReachedLimitException rle) {
+            assertTrue(System.currentTimeMillis() - start >= 1000);
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package org.clafer.compiler;
+
+import org.clafer.ast.AstConcreteClafer;
+import org.clafer.ast.AstModel;
+import static org.clafer.ast.Asts.IntType;
+import static org.clafer.ast.Asts.Mandatory;
+import static org.clafer.ast.Asts.newModel;
+import org.clafer.scope.Scope;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class RecompileCacheTest {
+
+    private static int count(ClaferSolver solver) {
+        int count = 0;
+        while (solver.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * <pre>
+     * A 1..2
+     *     B -> integer
+     * C *
+     * </pre>
+     */
+    private static AstModel model() {
+        AstModel model = newModel();
+        AstConcreteClafer a = model.addChild("A").withCard(1, 2);
+        a.addChild("B").refTo(IntType).withCard(Mandatory);
+        model.addChild("C");
+        return model;
+    }
+
+    private static long hit(ClaferStatistics statistics) {
+        return statistics.getPhase("recompileCache").getCounters().get("hit");
+    }
+
+    @Test(timeout = 60000)
+    public void testReuseSameEffectiveScope() {
+        AstModel model = model();
+        AstConcreteClafer a = model.getChildren().get(0);
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+        RecompileCache cache = new RecompileCache();
+
+        ClaferStatistics statistics = new ClaferStatistics();
+        int expected = count(ClaferCompiler.compile(model, scope,
+                ClaferOption.Default.setRecompileCache(cache).setStatistics(statistics)));
+        assertEquals(0, hit(statistics));
+        assertEquals(1, cache.size());
+
+        // A can never have more than 2 instances.
+        Scope larger = scope.toBuilder().setScope(a, 5).toScope();
+        statistics = new ClaferStatistics();
+        assertEquals(expected, count(ClaferCompiler.compile(model, larger,
+                ClaferOption.Default.setRecompileCache(cache).setStatistics(statistics))));
+        assertEquals(1, hit(statistics));
+        assertEquals(null, statistics.getPhase("astCompile"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test(timeout = 60000)
+    public void testRecompileChangedScope() {
+        AstModel model = model();
+        AstConcreteClafer c = model.getChildren().get(1);
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+        RecompileCache cache = new RecompileCache();
+        ClaferOption options = ClaferOption.Default.setRecompileCache(cache);
+
+        count(ClaferCompiler.compile(model, scope, options));
+        for (int i = 1; i <= 3; i++) {
+            Scope changed = scope.toBuilder().setScope(c, i).toScope();
+            assertEquals(count(ClaferCompiler.compile(model, changed)),
+                    count(ClaferCompiler.compile(model, changed, options)));
+        }
+        assertEquals(3, cache.size());
+
+        // Back to a scope compiled earlier.
+        ClaferStatistics statistics = new ClaferStatistics();
+        assertEquals(count(ClaferCompiler.compile(model, scope)),
+                count(ClaferCompiler.compile(model, scope, options.setStatistics(statistics))));
+        assertEquals(1, hit(statistics));
+    }
+
+    @Test(timeout = 60000)
+    public void testReloadedModel() {
+        Scope scope = Scope.defaultScope(2).intLow(-1).intHigh(1).toScope();
+        RecompileCache cache = new RecompileCache();
+        ClaferOption options = ClaferOption.Default.setRecompileCache(cache);
+
+        count(ClaferCompiler.compile(model(), scope, options));
+        // Same text, different Clafers.
+        ClaferStatistics statistics = new ClaferStatistics();
+        count(ClaferCompiler.compile(model(), scope, options.setStatistics(statistics)));
+        assertEquals(0, hit(statistics));
+    }
+}
@@ -0,0 +1,65 @@
+package org.clafer.ir;
+
+import static org.clafer.ir.Irs.add;
+import static org.clafer.ir.Irs.and;
+import static org.clafer.ir.Irs.bool;
+import static org.clafer.ir.Irs.boundInt;
+import static org.clafer.ir.Irs.equal;
+import static org.clafer.ir.Irs.interning;
+import static org.clafer.ir.Irs.isInterning;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class IrsInterningTest {
+
+    @Test
+    public void testInterning() {
+        IrIntVar i1 = boundInt("i1", 0, 5);
+        IrIntVar i2 = boundInt("i2", 0, 5);
+
+        IrIntExpr[] sums = interning(() -> new IrIntExpr[]{add(i1, i2), add(i1, i2)});
+        assertSame(sums[0], sums[1]);
+
+        IrBoolExpr[] ands = interning(() -> {
+            IrBoolVar b = bool("b");
+            return new IrBoolExpr[]{
+                and(b, equal(add(i1, i2), 3)),
+                and(b, equal(add(i1, i2), 3))};
+        });
+        assertSame(ands[0], ands[1]);
+    }
+
+    @Test
+    public void testNoInterning() {
+        IrIntVar i1 = boundInt("i1", 0, 5);
+        IrIntVar i2 = boundInt("i2", 0, 5);
+
+        IrIntExpr sum1 = add(i1, i2);
+        IrIntExpr sum2 = add(i1, i2);
+        assertNotSame(sum1, sum2);
+        assertEquals(sum1, sum2);
+        assertEquals(sum1.hashCode(), sum2.hashCode());
+    }
+
+    @Test
+    public void testVariablesNotInterned() {
+        IrIntVar[] vars = interning(() -> new IrIntVar[]{boundInt("i", 0, 5), boundInt("i", 0, 5)});
+        assertNotSame(vars[0], vars[1]);
+        assertFalse(vars[0].equals(vars[1]));
+    }
+
+    @Test
+    public void testInterningScope() {
+        assertFalse(isInterning());
+        assertTrue(interning(() -> interning(Irs::isInterning)));
+        assertFalse(isInterning());
+    }
+}
@@ -0,0 +1,53 @@
+package org.clafer.ir.analysis;
+
+import java.util.List;
+import org.clafer.ir.IrBoolExpr;
+import org.clafer.ir.IrIntExpr;
+import org.clafer.ir.IrIntVar;
+import org.clafer.ir.IrModule;
+import org.clafer.ir.IrSetExpr;
+import org.clafer.ir.IrSetVar;
+import org.clafer.ir.IrSortSets;
+import static org.clafer.ir.Irs.boundInt;
+import static org.clafer.ir.Irs.lessThan;
+import static org.clafer.ir.Irs.set;
+import static org.clafer.ir.Irs.sort;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jimmy
+ */
+public class DecomposerTest {
+
+    @Test
+    public void testIndependent() {
+        IrIntVar i1 = boundInt("i1", 0, 5);
+        IrIntVar i2 = boundInt("i2", 0, 5);
+        IrIntVar i3 = boundInt("i3", 0, 5);
+        IrIntVar i4 = boundInt("i4", 0, 5);
+
+        IrModule module = new IrModule().addConstraints(lessThan(i1, i2), lessThan(i3, i4));
+        assertEquals(2, Decomposer.decompose(module).size());
+    }
+
+    @Test
+    public void testSortSetsBounds() {
+        IrSetVar s1 = set("s1", 0, 5);
+        IrSetVar s2 = set("s2", 0, 5);
+        IrIntVar b1 = boundInt("b1", 0, 6);
+        IrIntVar b2 = boundInt("b2", 0, 6);
+        IrIntVar i = boundInt("i", 0, 6);
+
+        IrBoolExpr sort = sort(new IrSetExpr[]{s1, s2}, new IrIntExpr[]{b1, b2});
+        assertTrue(sort instanceof IrSortSets);
+
+        // The sort and the constraint only share a bound.
+        IrModule module = new IrModule().addConstraints(sort, lessThan(b1, i));
+        List<IrModule> decomposed = Decomposer.decompose(module);
+        assertEquals(1, decomposed.size());
+        assertEquals(2, decomposed.get(0).getConstraints().size());
+    }
+}
@@ -1,5 +1,7 @@
 package org.clafer.ir.analysis.deduction;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 import org.clafer.domain.Domains;
 import org.clafer.ir.IrBoolVar;
 import org.clafer.ir.IrIntVar;
@@ -11,7 +13,9 @@ import static org.clafer.ir.Irs.boundInt;
 import static org.clafer.ir.Irs.constant;
 import static org.clafer.ir.Irs.equal;
 import static org.clafer.ir.Irs.greaterThan;
+import static org.clafer.ir.Irs.greaterThanEqual;
 import static org.clafer.ir.Irs.implies;
+import static org.clafer.ir.Irs.lessThan;
 import static org.clafer.ir.Irs.set;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -73,6 +77,28 @@ public class FBBTTest {
         assertEquals(Domains.constantDomain(5), coalesced.getCard());
     }
 
+    @Test
+    public void testChainedBounds() {
+        IrModule module = new IrModule();
+        IrIntVar x = boundInt("x", 0, 10);
+        IrIntVar y = boundInt("y", 0, 10);
+        IrIntVar z = boundInt("z", 0, 10);
+        IrIntVar unrelated = boundInt("unrelated", 0, 10);
+        module.addConstraint(lessThan(x, y));
+        module.addConstraint(lessThan(y, z));
+        module.addConstraint(lessThan(unrelated, constant(5)));
+        module.addConstraint(greaterThanEqual(x, constant(8)));
+
+        Coalesce coalesce = new FBBT().propagate(module).getFst();
+
+        // Each bound only becomes known after the previous variable is
+        // coalesced, so the constraints mentioning it need to be rewritten.
+        assertEquals(Domains.constantDomain(8), coalesce.get(x).getDomain());
+        assertEquals(Domains.constantDomain(9), coalesce.get(y).getDomain());
+        assertEquals(Domains.constantDomain(10), coalesce.get(z).getDomain());
+        assertEquals(Domains.boundDomain(0, 4), coalesce.get(unrelated).getDomain());
+    }
+
     @Test
     public void testImplicationConstructiveDisjunction() {
         IrModule module = new IrModule();
@@ -99,4 +125,27 @@ public class FBBTTest {
 
         assertEquals(Domains.boundDomain(1, 10), coalesce.get(sum).getDomain());
     }
+
+    @Test
+    public void testParallelConstructiveDisjunction() {
+        IrModule module = new IrModule();
+        IrBoolVar b1 = bool("b1");
+        IrBoolVar b2 = bool("b2");
+        IrIntVar var1 = boundInt("var1", 0, 10);
+        IrIntVar var2 = boundInt("var2", 0, 10);
+        module.addConstraint(implies(b1, equal(var1, 5)));
+        module.addConstraint(implies(b1.negate(), equal(var1, 4)));
+        module.addConstraint(implies(b2, equal(var2, 1)));
+        module.addConstraint(implies(b2.negate(), equal(var2, 9)));
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Coalesce coalesce = new FBBT().constructiveDisjunction(Arrays.asList(b1, b2), module, pool).getFst();
+
+            assertEquals(Domains.enumDomain(4, 5), coalesce.get(var1).getDomain());
+            assertEquals(Domains.enumDomain(1, 9), coalesce.get(var2).getDomain());
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
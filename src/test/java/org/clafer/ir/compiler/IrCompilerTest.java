@@ -3,10 +3,15 @@ package org.clafer.ir.compiler;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.SetVar;
+import org.clafer.choco.set.DenseSetVar;
+import org.clafer.collection.Pair;
 import static org.clafer.domain.Domains.boundDomain;
 import org.clafer.ir.IrIntVar;
 import org.clafer.ir.IrModule;
 import org.clafer.ir.IrSetVar;
+import org.clafer.ir.analysis.Optimizer;
+import org.clafer.ir.analysis.deduction.Coalesce;
 import static org.clafer.ir.Irs.card;
 import static org.clafer.ir.Irs.domainInt;
 import static org.clafer.ir.Irs.equal;
@@ -40,6 +45,29 @@ public class IrCompilerTest {
         assertEquals(10, count);
     }
 
+    @Test
+    public void testDenseSets() {
+        IrModule module = new IrModule();
+        IrSetVar var = set("set", boundDomain(0, 3), boundDomain(1, 1));
+        module.addVariable(var);
+        Pair<Coalesce, IrModule> optimized = Optimizer.optimize(module, false);
+
+        for (boolean denseSets : new boolean[]{false, true}) {
+            Model model = new Model();
+            IrSolutionMap map = IrCompiler.compileOptimized(optimized.getFst(), optimized.getSnd(), model, false, denseSets);
+            SetVar setVar = map.getVar(var).getRight();
+            assertEquals(denseSets, setVar instanceof DenseSetVar);
+            Solver solver = model.getSolver();
+            solver.setSearch(Search.setVarSearch(setVar));
+
+            int count = 0;
+            while (solver.solve()) {
+                count++;
+            }
+            assertEquals(8, count);
+        }
+    }
+
     @Test
     public void testTwoCard() {
         IrModule module = new IrModule();